@@ -0,0 +1,36 @@
+package com.beachbooking.codice;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generazione codici prenotazione sotto contesa (8 thread): formato precedente
+ * (currentTimeMillis + Math.random condiviso) contro il generatore a blocchi per thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class CodicePrenotazioneBenchmark {
+
+    private CodicePrenotazioneGenerator generator;
+
+    @Setup
+    public void setup() {
+        generator = new CodicePrenotazioneGenerator(1);
+    }
+
+    @Benchmark
+    public String precedente() {
+        return "BK" + System.currentTimeMillis() + (int) (Math.random() * 1000);
+    }
+
+    @Benchmark
+    public String generatore() {
+        return generator.genera();
+    }
+}
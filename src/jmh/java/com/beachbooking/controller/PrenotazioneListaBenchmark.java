@@ -0,0 +1,156 @@
+package com.beachbooking.controller;
+
+import com.beachbooking.model.dto.response.PrenotazioneResponse;
+import com.beachbooking.model.entity.Prenotazione;
+import com.beachbooking.model.enums.StatoPrenotazione;
+import com.beachbooking.model.enums.TipoPrenotazione;
+import com.beachbooking.repository.PrenotazioneRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lista completa delle prenotazioni di un tenant da 50k righe, prima e dopo le
+ * proiezioni DTO di /api/prenotazioni:
+ *  - entity: SELECT p in transazione read-write e mapToResponse nel controller
+ *    (snapshot per il dirty checking e flush al commit);
+ *  - proiezione: PrenotazioneRepository.RESPONSE in sessione read-only, flush MANUAL,
+ *    come PrenotazioneService.findAll con @Transactional(readOnly = true).
+ *
+ * Database H2 in memoria in modalità PostgreSQL, quindi conta solo il lavoro lato JVM
+ * (Hibernate e mapping); per latenze HTTP su PostgreSQL usare SeasonDataGenerator e
+ * SeasonWorkload del profilo loadtest. Le allocazioni per operazione sono in
+ * gc.alloc.rate.norm (profiler gc del profilo benchmarks).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrenotazioneListaBenchmark {
+
+    private static final String ENTITY = "SELECT p FROM Prenotazione p WHERE p.tenantId = :tenantId";
+    private static final String PROIEZIONE = PrenotazioneRepository.RESPONSE + "WHERE p.tenantId = :tenantId";
+
+    @Param({"50000"})
+    private int prenotazioni;
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManagerFactory emf;
+    private PrenotazioneController controller;
+    private UUID tenantId;
+
+    @Setup
+    public void setup() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:benchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("com.beachbooking.model.entity");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "create-drop",
+                "hibernate.physical_naming_strategy",
+                "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy",
+                "hibernate.jdbc.batch_size", "1000",
+                "hibernate.order_inserts", "true"));
+        factoryBean.afterPropertiesSet();
+        emf = factoryBean.getObject();
+        controller = new PrenotazioneController();
+
+        tenantId = UUID.randomUUID();
+        popola(UUID.randomUUID(), prenotazioni / 10);
+        popola(tenantId, prenotazioni);
+    }
+
+    @TearDown
+    public void tearDown() {
+        factoryBean.destroy();
+    }
+
+    @Benchmark
+    public List<PrenotazioneResponse> entity() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<Prenotazione> righe = em.createQuery(ENTITY, Prenotazione.class)
+                    .setParameter("tenantId", tenantId)
+                    .getResultList();
+            List<PrenotazioneResponse> lista = new ArrayList<>(righe.size());
+            for (Prenotazione prenotazione : righe) {
+                lista.add(controller.mapToResponse(prenotazione));
+            }
+            em.getTransaction().commit();
+            return lista;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public List<PrenotazioneResponse> proiezione() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Session session = em.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            em.getTransaction().begin();
+            List<PrenotazioneResponse> lista = em.createQuery(PROIEZIONE, PrenotazioneResponse.class)
+                    .setParameter("tenantId", tenantId)
+                    .getResultList();
+            em.getTransaction().commit();
+            return lista;
+        } finally {
+            em.close();
+        }
+    }
+
+    private void popola(UUID tenant, int numero) {
+        Random random = new Random(tenant.getLeastSignificantBits());
+        StatoPrenotazione[] stati = StatoPrenotazione.values();
+        LocalDate inizioStagione = LocalDate.of(2025, 6, 1);
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (int i = 0; i < numero; i++) {
+                LocalDate dal = inizioStagione.plusDays(random.nextInt(90));
+                em.persist(Prenotazione.builder()
+                        .tenantId(tenant)
+                        .userId(UUID.randomUUID())
+                        .ombrelloneId(UUID.randomUUID())
+                        .dataInizio(dal)
+                        .dataFine(dal.plusDays(random.nextInt(14)))
+                        .tipoPrenotazione(TipoPrenotazione.GIORNALIERA)
+                        .prezzoTotale(BigDecimal.valueOf(1500 + random.nextInt(50_000), 2))
+                        .stato(stati[random.nextInt(stati.length)])
+                        .note(i % 5 == 0 ? "Lettino aggiuntivo richiesto" : null)
+                        .codicePrenotazione("BB" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36).toUpperCase())
+                        .build());
+                if (i % 1000 == 999) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.beachbooking.controller;
+
+import com.beachbooking.model.dto.response.PrenotazioneResponse;
+import com.beachbooking.model.entity.Prenotazione;
+import com.beachbooking.model.enums.StatoPrenotazione;
+import com.beachbooking.model.enums.TipoPrenotazione;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Liste di prenotazioni come le restituisce PrenotazioneController: mapping entity -> DTO
+ * (mapToResponse), serializzazione JSON della lista già mappata e le due cose insieme.
+ * L'ObjectMapper è configurato come quello di Spring Boot (date ISO, JavaTimeModule).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrenotazioneResponseBenchmark {
+
+    @Param({"100", "10000"})
+    private int dimensione;
+
+    private PrenotazioneController controller;
+    private ObjectMapper objectMapper;
+    private List<Prenotazione> prenotazioni;
+    private List<PrenotazioneResponse> risposte;
+
+    @Setup
+    public void setup() {
+        controller = new PrenotazioneController();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        Random random = new Random(42);
+        UUID tenantId = UUID.randomUUID();
+        StatoPrenotazione[] stati = StatoPrenotazione.values();
+        LocalDate inizioStagione = LocalDate.of(2025, 6, 1);
+
+        prenotazioni = new ArrayList<>(dimensione);
+        for (int i = 0; i < dimensione; i++) {
+            LocalDate dal = inizioStagione.plusDays(random.nextInt(90));
+            prenotazioni.add(Prenotazione.builder()
+                    .id(UUID.randomUUID())
+                    .tenantId(tenantId)
+                    .userId(UUID.randomUUID())
+                    .ombrelloneId(UUID.randomUUID())
+                    .dataInizio(dal)
+                    .dataFine(dal.plusDays(random.nextInt(14)))
+                    .tipoPrenotazione(TipoPrenotazione.GIORNALIERA)
+                    .prezzoTotale(BigDecimal.valueOf(1500 + random.nextInt(50_000), 2))
+                    .stato(stati[random.nextInt(stati.length)])
+                    .note(i % 5 == 0 ? "Lettino aggiuntivo richiesto" : null)
+                    .codicePrenotazione("BB" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36).toUpperCase())
+                    .dataCreazione(LocalDateTime.of(2025, 5, 1, 9, 0).plusMinutes(i))
+                    .build());
+        }
+        risposte = mapping();
+    }
+
+    @Benchmark
+    public List<PrenotazioneResponse> mapping() {
+        List<PrenotazioneResponse> lista = new ArrayList<>(prenotazioni.size());
+        for (Prenotazione prenotazione : prenotazioni) {
+            lista.add(controller.mapToResponse(prenotazione));
+        }
+        return lista;
+    }
+
+    @Benchmark
+    public byte[] serializzazione() throws IOException {
+        return objectMapper.writeValueAsBytes(risposte);
+    }
+
+    @Benchmark
+    public byte[] mappingESerializzazione() throws IOException {
+        return objectMapper.writeValueAsBytes(mapping());
+    }
+}
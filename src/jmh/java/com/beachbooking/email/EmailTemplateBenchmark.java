@@ -0,0 +1,135 @@
+package com.beachbooking.email;
+
+import com.beachbooking.model.entity.Tenant;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo di composizione delle email di conferma e promemoria prenotazione:
+ * String.format su text block (implementazione precedente) contro template compilati,
+ * con i template predefiniti e con un override del tenant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailTemplateBenchmark {
+
+    private EmailTemplateEngine engine;
+    private Tenant tenant;
+    private Tenant tenantConOverride;
+
+    private final String nome = "Mario";
+    private final String codice = "BB7K2M9QXR4T";
+    private final LocalDate dal = LocalDate.of(2025, 7, 14);
+    private final LocalDate al = LocalDate.of(2025, 7, 20);
+    private final BigDecimal importo = new BigDecimal("245.50");
+
+    @Setup
+    public void setup() {
+        engine = new EmailTemplateEngine();
+        ReflectionTestUtils.setField(engine, "objectMapper", new ObjectMapper());
+        engine.init();
+
+        tenant = Tenant.builder()
+                .id(UUID.randomUUID())
+                .nomeStabilimento("Lido Marechiaro")
+                .indirizzo("Via Posillipo 1, Napoli")
+                .telefono("+39 081 1234567")
+                .email("info@lidomarechiaro.it")
+                .build();
+
+        tenantConOverride = Tenant.builder()
+                .id(UUID.randomUUID())
+                .nomeStabilimento("Lido Marechiaro")
+                .indirizzo("Via Posillipo 1, Napoli")
+                .telefono("+39 081 1234567")
+                .email("info@lidomarechiaro.it")
+                .logoUrl("https://cdn.example.com/logo.png")
+                .configurazione("{\"email\":{\"templates\":{\"conferma-prenotazione\":{\"html\":"
+                        + "\"<img src='{{logoUrl}}'><p>Ciao {{nome}}, prenotazione {{codice}} confermata "
+                        + "dal {{dal}} al {{al}}: €{{importo}}</p><p>{{stabilimento}} - {{telefono}}</p>\"}}}}")
+                .build();
+    }
+
+    @Benchmark
+    public String confermaStringFormat() {
+        return String.format("""
+                Ciao %s,
+                
+                La tua prenotazione è stata confermata!
+                
+                Dettagli:
+                - Codice: %s
+                - Stabilimento: %s
+                - Dal: %s
+                - Al: %s
+                - Importo: €%.2f
+                
+                Ti aspettiamo!
+                
+                Per modifiche o cancellazioni, contattaci:
+                %s - %s
+                
+                Cordiali saluti,
+                %s
+                """,
+                nome, codice, tenant.getNomeStabilimento(), dal, al, importo,
+                tenant.getTelefono(), tenant.getEmail(), tenant.getNomeStabilimento());
+    }
+
+    @Benchmark
+    public EmailRenderizzata confermaTemplate() {
+        return engine.render(TipoEmail.CONFERMA_PRENOTAZIONE, tenant,
+                nome, codice, tenant.getNomeStabilimento(), dal.toString(), al.toString(),
+                importo.setScale(2, RoundingMode.HALF_UP).toPlainString(),
+                tenant.getTelefono(), tenant.getEmail());
+    }
+
+    @Benchmark
+    public EmailRenderizzata confermaTemplateHtmlTenant() {
+        return engine.render(TipoEmail.CONFERMA_PRENOTAZIONE, tenantConOverride,
+                nome, codice, tenant.getNomeStabilimento(), dal.toString(), al.toString(),
+                importo.setScale(2, RoundingMode.HALF_UP).toPlainString(),
+                tenant.getTelefono(), tenant.getEmail());
+    }
+
+    @Benchmark
+    public String promemoriaStringFormat() {
+        return String.format("""
+                Ciao %s,
+                
+                Ti ricordiamo che domani inizia la tua prenotazione!
+                
+                Codice: %s
+                Data: %s
+                
+                Ti aspettiamo presso:
+                %s
+                %s
+                
+                Per informazioni: %s
+                
+                A presto!
+                %s
+                """,
+                nome, codice, dal, tenant.getNomeStabilimento(), tenant.getIndirizzo(),
+                tenant.getTelefono(), tenant.getNomeStabilimento());
+    }
+
+    @Benchmark
+    public EmailRenderizzata promemoriaTemplate() {
+        return engine.render(TipoEmail.PROMEMORIA_PRENOTAZIONE, tenant,
+                nome, codice, dal.toString(), tenant.getNomeStabilimento(), tenant.getIndirizzo(),
+                tenant.getTelefono());
+    }
+}
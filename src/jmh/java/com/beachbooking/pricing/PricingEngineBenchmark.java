@@ -0,0 +1,73 @@
+package com.beachbooking.pricing;
+
+import com.beachbooking.model.entity.Ombrellone;
+import com.beachbooking.model.enums.TipoOmbrellone;
+import com.beachbooking.model.enums.TipoPrenotazione;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo di calcolaPrezzo (PricingEngine.prezzo) con il listino già compilato in memoria,
+ * per soggiorni di un giorno, una settimana, una stagione e un anno a cavallo di più stagioni.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingEngineBenchmark {
+
+    @Param({"1", "7", "90", "365"})
+    private int giorni;
+
+    private PricingEngine engine;
+    private UUID tenantId;
+    private Ombrellone ombrellone;
+    private LocalDate dal;
+    private LocalDate al;
+    private TipoPrenotazione tipo;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        engine = new PricingEngine();
+        tenantId = UUID.randomUUID();
+        Map<UUID, ListinoCompilato> compilati =
+                (Map<UUID, ListinoCompilato>) ReflectionTestUtils.getField(engine, "compilati");
+        compilati.put(tenantId, new ListinoCompilato(RegoleListino.predefinite(), LocalDate.now()));
+
+        ombrellone = Ombrellone.builder()
+                .id(UUID.randomUUID())
+                .tenantId(tenantId)
+                .numero(12)
+                .fila("B")
+                .tipo(TipoOmbrellone.PREMIUM)
+                .build();
+
+        dal = LocalDate.now().withMonth(6).withDayOfMonth(1);
+        al = dal.plusDays(giorni - 1);
+        tipo = giorni >= 30 ? TipoPrenotazione.MENSILE
+                : giorni >= 7 ? TipoPrenotazione.SETTIMANALE
+                : TipoPrenotazione.GIORNALIERA;
+    }
+
+    @Benchmark
+    public long centesimi() {
+        return engine.prezzoCentesimi(tenantId, ombrellone, dal, al, tipo);
+    }
+
+    /**
+     * Quello che usa PrenotazioneService.calcolaPrezzo per le entity.
+     */
+    @Benchmark
+    public BigDecimal calcolaPrezzo() {
+        return engine.prezzo(tenantId, ombrellone, dal, al, tipo);
+    }
+}
@@ -0,0 +1,121 @@
+package com.beachbooking.security;
+
+import com.beachbooking.metrics.AppMetrics;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo di autenticazione per richiesta: pipeline precedente (chiave e parser
+ * ricostruiti ad ogni chiamata, quattro parsing per richiesta) contro il parsing
+ * unico condiviso tra filtro e interceptor, con e senza cache dei token.
+ * Include la generazione del token (login) e le metriche di validazione attive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET =
+            "your-very-long-secret-key-change-this-in-production-min-256-bits-abcdefghijklmnopqrstuvwxyz0123456789";
+
+    private JwtTokenProvider senzaCache;
+    private JwtTokenProvider conCache;
+    private String token;
+    private UUID tenantId;
+
+    @Setup
+    public void setup() {
+        senzaCache = provider(0);
+        conCache = provider(10_000);
+        tenantId = UUID.randomUUID();
+        token = conCache.generateTokenWithClaims("cliente@example.com", tenantId, "CUSTOMER");
+    }
+
+    /**
+     * Token emesso al login.
+     */
+    @Benchmark
+    public String generazione() {
+        return conCache.generateTokenWithClaims("cliente@example.com", tenantId, "CUSTOMER");
+    }
+
+    /**
+     * Pipeline precedente: validate + username nel filtro, validate + tenant nell'interceptor.
+     */
+    @Benchmark
+    public Object precedente() {
+        legacyValidate(token);
+        String username = legacyClaims(token).getSubject();
+        legacyValidate(token);
+        String tenantId = legacyClaims(token).get("tenantId", String.class);
+        return username + tenantId;
+    }
+
+    /**
+     * Parsing unico per richiesta, senza cache: una verifica HMAC.
+     */
+    @Benchmark
+    public Object parsingUnico() {
+        return perRichiesta(senzaCache);
+    }
+
+    /**
+     * Parsing unico con token già in cache: nessuna verifica HMAC.
+     */
+    @Benchmark
+    public Object parsingUnicoConCache() {
+        return perRichiesta(conCache);
+    }
+
+    private Object perRichiesta(JwtTokenProvider provider) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+
+        ParsedJwt filtro = provider.resolve(request);
+        ParsedJwt interceptor = provider.resolve(request);
+        return filtro.getSubject() + interceptor.getTenantId();
+    }
+
+    private static boolean legacyValidate(String token) {
+        legacyClaims(token);
+        return true;
+    }
+
+    private static Claims legacyClaims(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private static JwtTokenProvider provider(int cacheSize) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", 86_400_000L);
+        ReflectionTestUtils.setField(provider, "cacheSize", cacheSize);
+        ReflectionTestUtils.setField(provider, "metrics", metrics());
+        provider.init();
+        return provider;
+    }
+
+    private static AppMetrics metrics() {
+        AppMetrics metrics = new AppMetrics();
+        ReflectionTestUtils.setField(metrics, "meterRegistry", new SimpleMeterRegistry());
+        return metrics;
+    }
+}
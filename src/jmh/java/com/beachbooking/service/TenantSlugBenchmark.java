@@ -0,0 +1,26 @@
+package com.beachbooking.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalizzazione dello slug in TenantService.generateSlug (catena di replaceAll,
+ * otto regex compilate ad ogni chiamata). Il controllo di unicità su DB è escluso.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TenantSlugBenchmark {
+
+    @Param({"Lido Marechiaro", "Bagni Città di Castello - Spiaggia Più Bella  d'Italia!"})
+    private String nome;
+
+    @Benchmark
+    public String normalizzaSlug() {
+        return TenantService.normalizzaSlug(nome);
+    }
+}
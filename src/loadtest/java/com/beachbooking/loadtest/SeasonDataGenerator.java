@@ -0,0 +1,464 @@
+package com.beachbooking.loadtest;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Dataset sintetico di una stagione balneare in PostgreSQL, per i load test.
+ *
+ * Crea N tenant con piano e numero di ombrelloni entro PianoAbbonamento.maxOmbrelloni,
+ * un amministratore e i clienti di ogni tenant, e le prenotazioni dal 1 giugno al
+ * 15 settembre con i relativi pagamenti. La domanda cresce verso Ferragosto, è più
+ * alta nei fine settimana e nelle prime file; stabilimenti e clienti abituali
+ * pesano più degli altri. A parità di seed, anno e data di riferimento il dataset
+ * è identico (id compresi).
+ *
+ * I dati generati (slug lt-*, email @loadtest.local) vengono cancellati e ricreati
+ * ad ogni esecuzione. Lo schema deve esistere (applicazione avviata almeno una volta);
+ * l'applicazione va riavviata dopo la generazione, per ricaricare le cache in memoria.
+ * Il file manifest elenca i tenant per SeasonWorkload.
+ *
+ * Esecuzione: mvn -Ploadtest test-compile exec:java -Dloadtest.main=com.beachbooking.loadtest.SeasonDataGenerator
+ *
+ * Parametri (system property):
+ * gen.db.url, gen.db.user, gen.db.password, gen.tenant (300), gen.seed (42),
+ * gen.anno (anno corrente), gen.oggi (riferimento per gli stati, default oggi),
+ * gen.password (password di tutti gli utenti), gen.manifest.
+ */
+public class SeasonDataGenerator {
+
+    static final String DOMINIO_EMAIL = "@loadtest.local";
+    static final String PREFISSO_SLUG = "lt-";
+    static final String PASSWORD_PREDEFINITA = "LoadTest2025!";
+    static final String MANIFEST_PREDEFINITO = "target/loadtest-dataset.csv";
+    static final String SUPER_ADMIN = "superadmin" + DOMINIO_EMAIL;
+
+    private static final int LOTTO = 1000;
+
+    private static final String[] PIANI = {"FREE", "BASIC", "PRO", "ENTERPRISE"};
+    private static final double[] PESO_PIANI = {0.30, 0.35, 0.25, 0.10};
+    private static final int[][] OMBRELLONI_PER_PIANO = {{12, 20}, {30, 50}, {80, 150}, {200, 500}};
+
+    private static final String[] TIPI_OMBRELLONE = {"STANDARD", "PREMIUM", "VIP", "FAMILY"};
+    private static final long[] TARIFFA_CENTESIMI = {1500, 2200, 3500, 2700};
+
+    private static final String[] METODI = {"CARTA_CREDITO", "PAYPAL", "CONTANTI", "BONIFICO"};
+    private static final double[] PESO_METODI = {0.50, 0.25, 0.15, 0.10};
+
+    private static final String[] CITTA = {
+            "Napoli", "Rimini", "Viareggio", "Gallipoli", "Sorrento", "Jesolo", "Alghero", "Cefalù",
+            "Positano", "Riccione", "Forte dei Marmi", "Tropea", "Sperlonga", "Vieste", "Lignano"
+    };
+    private static final String[] NOMI = {"Mario", "Giulia", "Luca", "Francesca", "Marco", "Sara", "Andrea", "Chiara"};
+    private static final String[] COGNOMI = {"Rossi", "Russo", "Ferrari", "Esposito", "Bianchi", "Romano", "Colombo", "Ricci"};
+
+    private final String url;
+    private final String utente;
+    private final String password;
+    private final int numeroTenant;
+    private final long seed;
+    private final LocalDate inizioStagione;
+    private final LocalDate fineStagione;
+    private final LocalDate ferragosto;
+    private final LocalDate oggi;
+    private final String passwordUtenti;
+    private final Path manifest;
+
+    private final Random random;
+    private long codici;
+
+    private PreparedStatement insertTenant;
+    private PreparedStatement insertUtente;
+    private PreparedStatement insertOmbrellone;
+    private PreparedStatement insertPrenotazione;
+    private PreparedStatement insertPagamento;
+    private int inBatch;
+
+    private long totaleOmbrelloni;
+    private long totaleClienti;
+    private long totalePrenotazioni;
+    private long totalePagamenti;
+
+    SeasonDataGenerator() {
+        this.url = System.getProperty("gen.db.url", "jdbc:postgresql://localhost:5432/beachbooking");
+        this.utente = System.getProperty("gen.db.user", "postgres");
+        this.password = System.getProperty("gen.db.password", "postgres");
+        this.numeroTenant = Integer.getInteger("gen.tenant", 300);
+        this.seed = Long.getLong("gen.seed", 42L);
+        int anno = Integer.getInteger("gen.anno", LocalDate.now().getYear());
+        this.inizioStagione = LocalDate.of(anno, 6, 1);
+        this.fineStagione = LocalDate.of(anno, 9, 15);
+        this.ferragosto = LocalDate.of(anno, 8, 15);
+        this.oggi = LocalDate.parse(System.getProperty("gen.oggi", LocalDate.now().toString()));
+        this.passwordUtenti = System.getProperty("gen.password", PASSWORD_PREDEFINITA);
+        this.manifest = Path.of(System.getProperty("gen.manifest", MANIFEST_PREDEFINITO));
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new SeasonDataGenerator().genera();
+    }
+
+    void genera() throws SQLException, IOException {
+        long inizio = System.currentTimeMillis();
+        String hash = new BCryptPasswordEncoder().encode(passwordUtenti);
+        List<String> righeManifest = new ArrayList<>();
+        righeManifest.add("indice,slug,piano,ombrelloni,clienti");
+
+        try (Connection connection = DriverManager.getConnection(conBatchRiscritti(url), utente, password)) {
+            connection.setAutoCommit(false);
+            cancellaPrecedenti(connection);
+            prepara(connection);
+
+            inserisciUtente(uuid(), null, SUPER_ADMIN, hash, "Load", "Test", "SUPER_ADMIN", inizioStagione.minusMonths(6).atStartOfDay());
+            flush();
+            connection.commit();
+
+            for (int t = 0; t < numeroTenant; t++) {
+                righeManifest.add(generaTenant(t, hash));
+                flush();
+                connection.commit();
+                if ((t + 1) % 25 == 0 || t + 1 == numeroTenant) {
+                    System.out.printf(Locale.ROOT, "%d/%d tenant, %d prenotazioni%n", t + 1, numeroTenant, totalePrenotazioni);
+                }
+            }
+        }
+
+        if (manifest.getParent() != null) {
+            Files.createDirectories(manifest.getParent());
+        }
+        Files.write(manifest, righeManifest);
+
+        System.out.printf(Locale.ROOT,
+                "Stagione %s - %s (seed %d): %d tenant, %d ombrelloni, %d clienti, %d prenotazioni, %d pagamenti in %d s%n",
+                inizioStagione, fineStagione, seed, numeroTenant, totaleOmbrelloni, totaleClienti,
+                totalePrenotazioni, totalePagamenti, (System.currentTimeMillis() - inizio) / 1000);
+        System.out.println("Manifest: " + manifest + " (password utenti: gen.password)");
+    }
+
+    private String generaTenant(int indice, String hash) throws SQLException {
+        int piano = scegli(PESO_PIANI);
+        int numeroOmbrelloni = tra(OMBRELLONI_PER_PIANO[piano][0], OMBRELLONI_PER_PIANO[piano][1]);
+        int numeroClienti = Math.max(30, numeroOmbrelloni * 6);
+        // Stabilimenti più o meno richiesti
+        double popolarita = 0.7 + random.nextDouble() * 0.4;
+
+        UUID tenantId = uuid();
+        String citta = CITTA[random.nextInt(CITTA.length)];
+        String slug = PREFISSO_SLUG + String.format(Locale.ROOT, "%04d", indice);
+        LocalDateTime creazione = inizioStagione.minusMonths(3).atStartOfDay();
+
+        insertTenant.setObject(1, tenantId);
+        insertTenant.setString(2, "Lido " + citta + " " + indice);
+        insertTenant.setString(3, slug);
+        insertTenant.setString(4, "Lungomare " + (indice + 1));
+        insertTenant.setString(5, citta);
+        insertTenant.setString(6, citta.substring(0, 2).toUpperCase(Locale.ROOT));
+        insertTenant.setString(7, String.format(Locale.ROOT, "%05d", 10000 + indice));
+        insertTenant.setString(8, "info@" + slug + ".loadtest.local");
+        insertTenant.setString(9, PIANI[piano]);
+        insertTenant.setTimestamp(10, Timestamp.valueOf(creazione));
+        insertTenant.executeUpdate();
+
+        inserisciUtente(uuid(), tenantId, "admin-" + indice + DOMINIO_EMAIL, hash, "Admin", slug, "TENANT_ADMIN", creazione);
+
+        UUID[] clienti = new UUID[numeroClienti];
+        for (int c = 0; c < numeroClienti; c++) {
+            clienti[c] = uuid();
+            inserisciUtente(clienti[c], tenantId, "cliente-" + indice + "-" + c + DOMINIO_EMAIL, hash,
+                    NOMI[random.nextInt(NOMI.length)], COGNOMI[random.nextInt(COGNOMI.length)], "CUSTOMER", creazione);
+        }
+
+        int perFila = tra(15, 30);
+        for (int o = 0; o < numeroOmbrelloni; o++) {
+            int fila = o / perFila;
+            int tipo = tipoOmbrellone(fila);
+            UUID ombrelloneId = uuid();
+
+            insertOmbrellone.setObject(1, ombrelloneId);
+            insertOmbrellone.setObject(2, tenantId);
+            insertOmbrellone.setInt(3, o + 1);
+            insertOmbrellone.setString(4, nomeFila(fila));
+            insertOmbrellone.setString(5, TIPI_OMBRELLONE[tipo]);
+            insertOmbrellone.setInt(6, (o % perFila) * 50);
+            insertOmbrellone.setInt(7, fila * 50);
+            insertOmbrellone.setTimestamp(8, Timestamp.valueOf(creazione));
+            aggiungi(insertOmbrellone);
+
+            // Le prime file sono le più richieste
+            double fattore = popolarita * Math.max(0.8, 1.15 - 0.05 * fila);
+            generaStagione(tenantId, ombrelloneId, tipo, fattore, clienti);
+        }
+
+        totaleOmbrelloni += numeroOmbrelloni;
+        totaleClienti += numeroClienti;
+        return indice + "," + slug + "," + PIANI[piano] + "," + numeroOmbrelloni + "," + numeroClienti;
+    }
+
+    /**
+     * Prenotazioni di un ombrellone per tutta la stagione, senza sovrapposizioni.
+     */
+    private void generaStagione(UUID tenantId, UUID ombrelloneId, int tipoOmbrellone,
+                                double fattore, UUID[] clienti) throws SQLException {
+        LocalDate giorno = inizioStagione;
+        while (!giorno.isAfter(fineStagione)) {
+            if (random.nextDouble() >= Math.min(0.97, domanda(giorno) * fattore)) {
+                giorno = giorno.plusDays(1);
+                continue;
+            }
+
+            double r = random.nextDouble();
+            int durata;
+            String tipo;
+            if (r < 0.60) {
+                durata = 1;
+                tipo = "GIORNALIERA";
+            } else if (r < 0.70) {
+                durata = tra(2, 4);
+                tipo = "GIORNALIERA";
+            } else if (r < 0.95) {
+                durata = 7;
+                tipo = "SETTIMANALE";
+            } else {
+                durata = 30;
+                tipo = "MENSILE";
+            }
+            LocalDate fine = giorno.plusDays(durata - 1);
+            if (fine.isAfter(fineStagione)) {
+                fine = fineStagione;
+            }
+
+            // Clienti abituali: gli indici bassi prenotano più spesso
+            UUID cliente = clienti[(int) (clienti.length * Math.pow(random.nextDouble(), 2))];
+            inserisciPrenotazione(tenantId, ombrelloneId, cliente, giorno, fine, tipo, tipoOmbrellone);
+            giorno = fine.plusDays(1);
+        }
+    }
+
+    private void inserisciPrenotazione(UUID tenantId, UUID ombrelloneId, UUID cliente, LocalDate dal, LocalDate al,
+                                       String tipo, int tipoOmbrellone) throws SQLException {
+        String stato = stato(dal, al);
+        long giorni = ChronoUnit.DAYS.between(dal, al) + 1;
+        int anticipo = (int) Math.min(120, tra(1, 30) * (giorni >= 7 ? 3 : 1));
+        LocalDateTime creazione = dal.minusDays(anticipo).atTime(tra(8, 22), random.nextInt(60));
+        if (creazione.toLocalDate().isAfter(oggi)) {
+            creazione = oggi.atTime(9, 0);
+        }
+        BigDecimal prezzo = BigDecimal.valueOf(prezzoCentesimi(dal, al, tipo, tipoOmbrellone), 2);
+
+        UUID prenotazioneId = uuid();
+        insertPrenotazione.setObject(1, prenotazioneId);
+        insertPrenotazione.setObject(2, tenantId);
+        insertPrenotazione.setObject(3, cliente);
+        insertPrenotazione.setObject(4, ombrelloneId);
+        insertPrenotazione.setDate(5, Date.valueOf(dal));
+        insertPrenotazione.setDate(6, Date.valueOf(al));
+        insertPrenotazione.setString(7, tipo);
+        insertPrenotazione.setBigDecimal(8, prezzo);
+        insertPrenotazione.setString(9, stato);
+        insertPrenotazione.setString(10, "LT" + String.format(Locale.ROOT, "%10s",
+                Long.toString(codici++, 36).toUpperCase(Locale.ROOT)).replace(' ', '0'));
+        insertPrenotazione.setTimestamp(11, Timestamp.valueOf(creazione));
+        aggiungi(insertPrenotazione);
+        totalePrenotazioni++;
+
+        if (stato.equals("PAID") || stato.equals("COMPLETED")) {
+            insertPagamento.setObject(1, uuid());
+            insertPagamento.setObject(2, prenotazioneId);
+            insertPagamento.setString(3, METODI[scegli(PESO_METODI)]);
+            insertPagamento.setBigDecimal(4, prezzo);
+            insertPagamento.setTimestamp(5, Timestamp.valueOf(creazione.plusHours(tra(0, 48))));
+            insertPagamento.setTimestamp(6, Timestamp.valueOf(creazione));
+            aggiungi(insertPagamento);
+            totalePagamenti++;
+        }
+    }
+
+    /**
+     * Probabilità che un ombrellone libero venga prenotato a partire dal giorno:
+     * picco a Ferragosto, più alta nel fine settimana.
+     */
+    private double domanda(LocalDate giorno) {
+        double distanza = ChronoUnit.DAYS.between(ferragosto, giorno) / 20.0;
+        double base = 0.25 + 0.65 * Math.exp(-distanza * distanza);
+        DayOfWeek giornoSettimana = giorno.getDayOfWeek();
+        if (giornoSettimana == DayOfWeek.SATURDAY || giornoSettimana == DayOfWeek.SUNDAY) {
+            base += 0.15;
+        }
+        return base;
+    }
+
+    /**
+     * Stati rispetto alla data di riferimento: le passate sono concluse, le future
+     * per lo più pagate o confermate, una parte cancellate.
+     */
+    private String stato(LocalDate dal, LocalDate al) {
+        double r = random.nextDouble();
+        if (al.isBefore(oggi)) {
+            return r < 0.93 ? "COMPLETED" : "CANCELLED";
+        }
+        if (!dal.isAfter(oggi)) {
+            return "PAID";
+        }
+        if (r < 0.55) {
+            return "PAID";
+        }
+        if (r < 0.80) {
+            return "CONFIRMED";
+        }
+        return r < 0.92 ? "PENDING" : "CANCELLED";
+    }
+
+    /**
+     * Prezzo indicativo: tariffa del tipo di ombrellone, +30% in alta stagione,
+     * sconto per le settimanali e le mensili.
+     */
+    private long prezzoCentesimi(LocalDate dal, LocalDate al, String tipo, int tipoOmbrellone) {
+        LocalDate inizioAlta = ferragosto.minusDays(31);
+        LocalDate fineAlta = ferragosto.plusDays(16);
+        long totale = 0;
+        for (LocalDate g = dal; !g.isAfter(al); g = g.plusDays(1)) {
+            long tariffa = TARIFFA_CENTESIMI[tipoOmbrellone];
+            totale += !g.isBefore(inizioAlta) && !g.isAfter(fineAlta) ? tariffa * 13 / 10 : tariffa;
+        }
+        return switch (tipo) {
+            case "SETTIMANALE" -> totale * 90 / 100;
+            case "MENSILE" -> totale * 80 / 100;
+            default -> totale;
+        };
+    }
+
+    private int tipoOmbrellone(int fila) {
+        double r = random.nextDouble();
+        if (fila == 0) {
+            return r < 0.3 ? 2 : 1;
+        }
+        if (r < 0.10) {
+            return 3;
+        }
+        return fila == 1 && r < 0.4 ? 1 : 0;
+    }
+
+    private void inserisciUtente(UUID id, UUID tenantId, String email, String hash, String nome,
+                                 String cognome, String ruolo, LocalDateTime registrazione) throws SQLException {
+        insertUtente.setObject(1, id);
+        insertUtente.setObject(2, tenantId);
+        insertUtente.setString(3, email);
+        insertUtente.setString(4, hash);
+        insertUtente.setString(5, nome);
+        insertUtente.setString(6, cognome);
+        insertUtente.setString(7, ruolo);
+        insertUtente.setTimestamp(8, Timestamp.valueOf(registrazione));
+        aggiungi(insertUtente);
+    }
+
+    private void cancellaPrecedenti(Connection connection) throws SQLException {
+        String tenantGenerati = "(SELECT id FROM tenants WHERE slug LIKE '" + PREFISSO_SLUG + "%')";
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM pagamenti WHERE prenotazione_id IN "
+                    + "(SELECT id FROM prenotazioni WHERE tenant_id IN " + tenantGenerati + ")");
+            statement.executeUpdate("DELETE FROM prenotazioni WHERE tenant_id IN " + tenantGenerati);
+            statement.executeUpdate("DELETE FROM ombrelloni WHERE tenant_id IN " + tenantGenerati);
+            statement.executeUpdate("DELETE FROM email_outbox WHERE tenant_id IN " + tenantGenerati);
+            statement.executeUpdate("DELETE FROM tenant_stats WHERE tenant_id IN " + tenantGenerati);
+            statement.executeUpdate("DELETE FROM listini WHERE tenant_id IN " + tenantGenerati);
+            statement.executeUpdate("DELETE FROM users WHERE email LIKE '%" + DOMINIO_EMAIL + "'");
+            statement.executeUpdate("DELETE FROM tenants WHERE slug LIKE '" + PREFISSO_SLUG + "%'");
+        }
+        connection.commit();
+    }
+
+    private void prepara(Connection connection) throws SQLException {
+        insertTenant = connection.prepareStatement(
+                "INSERT INTO tenants (id, nome_stabilimento, slug, indirizzo, citta, provincia, cap, email, "
+                        + "piano, stato, data_creazione, data_aggiornamento) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 'ACTIVE', ?, now())");
+        insertUtente = connection.prepareStatement(
+                "INSERT INTO users (id, tenant_id, email, password, nome, cognome, ruolo, attivo, "
+                        + "email_verificata, token_version, data_registrazione, data_aggiornamento) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, true, true, 0, ?, now())");
+        insertOmbrellone = connection.prepareStatement(
+                "INSERT INTO ombrelloni (id, tenant_id, numero, fila, tipo, posizione_x, posizione_y, attivo, "
+                        + "data_creazione, data_aggiornamento) VALUES (?, ?, ?, ?, ?, ?, ?, true, ?, now())");
+        insertPrenotazione = connection.prepareStatement(
+                "INSERT INTO prenotazioni (id, tenant_id, user_id, ombrellone_id, data_inizio, data_fine, "
+                        + "tipo_prenotazione, prezzo_totale, stato, codice_prenotazione, data_creazione, "
+                        + "data_aggiornamento) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, now())");
+        insertPagamento = connection.prepareStatement(
+                "INSERT INTO pagamenti (id, prenotazione_id, metodo_pagamento, importo, stato, data_pagamento, "
+                        + "data_creazione, data_aggiornamento) VALUES (?, ?, ?, ?, 'PAID', ?, ?, now())");
+    }
+
+    private void aggiungi(PreparedStatement statement) throws SQLException {
+        statement.addBatch();
+        if (++inBatch >= LOTTO) {
+            flush();
+        }
+    }
+
+    /**
+     * Esegue i batch in ordine di dipendenza (utenti e ombrelloni prima delle prenotazioni).
+     */
+    private void flush() throws SQLException {
+        insertUtente.executeBatch();
+        insertOmbrellone.executeBatch();
+        insertPrenotazione.executeBatch();
+        insertPagamento.executeBatch();
+        inBatch = 0;
+    }
+
+    private int scegli(double[] pesi) {
+        double r = random.nextDouble();
+        for (int i = 0; i < pesi.length - 1; i++) {
+            r -= pesi[i];
+            if (r < 0) {
+                return i;
+            }
+        }
+        return pesi.length - 1;
+    }
+
+    private int tra(int minimo, int massimo) {
+        return minimo + random.nextInt(massimo - minimo + 1);
+    }
+
+    /**
+     * UUID versione 4 dal generatore con seed, per un dataset riproducibile.
+     */
+    private UUID uuid() {
+        long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    private static String nomeFila(int fila) {
+        return fila < 26 ? String.valueOf((char) ('A' + fila)) : "Z" + (fila - 25);
+    }
+
+    private static String conBatchRiscritti(String url) {
+        if (url.contains("reWriteBatchedInserts")) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true";
+    }
+}
@@ -0,0 +1,443 @@
+package com.beachbooking.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Workload a sessioni sul dataset di SeasonDataGenerator.
+ *
+ * Ogni utente virtuale ripete la sessione di un cliente: login, mappa del giorno,
+ * preventivo, prenotazione di un ombrellone libero, poi pagamento (creato e confermato
+ * dall'amministratore del lido) oppure cancellazione. I tenant sono scelti con
+ * distribuzione di Zipf, i giorni in una finestra a partire dal giorno di punta.
+ * Un 409 sulla prenotazione (ombrellone preso da un'altra sessione) è un conflitto, non un errore.
+ *
+ * Per ogni livello di concorrenza stampa throughput, p50/p99/p999 per operazione e gli
+ * statement medi per operazione letti da /actuator/querystats (azzerato dopo il warmup,
+ * serve il superadmin del dataset). I risultati vengono accodati a un CSV con l'etichetta.
+ *
+ * Esecuzione (applicazione avviata sul dataset generato, con QUERYSTATS_ENABLED=true
+ * per avere gli statement per operazione):
+ * mvn -Ploadtest test-compile exec:java -Dloadtest.main=com.beachbooking.loadtest.SeasonWorkload
+ *
+ * Parametri (system property):
+ * loadtest.url, loadtest.manifest, loadtest.password, loadtest.etichetta,
+ * loadtest.livelli (es. 32,128,512), loadtest.durata-s, loadtest.warmup-s,
+ * loadtest.giorno (default 15 agosto dell'anno corrente), loadtest.giorni (finestra, 14),
+ * loadtest.zipf (esponente, 1.0), loadtest.cancellazioni (percentuale, 20), loadtest.output.
+ */
+public class SeasonWorkload {
+
+    private static final String[] OPERAZIONI = {"login", "mappa", "quote", "create", "pagamento", "conferma", "cancel"};
+    private static final int LOGIN = 0;
+    private static final int MAPPA = 1;
+    private static final int QUOTE = 2;
+    private static final int CREATE = 3;
+    private static final int PAGAMENTO = 4;
+    private static final int CONFERMA = 5;
+    private static final int CANCEL = 6;
+
+    /**
+     * Handler registrati da QueryStatsInterceptor, nell'ordine di OPERAZIONI.
+     */
+    private static final String[] HANDLER = {
+            "AuthController#login", "OmbrelloneController#mappa", "PrenotazioneController#quote",
+            "PrenotazioneController#create", "PagamentoController#create", "PagamentoController#confirm",
+            "PrenotazioneController#cancel"
+    };
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String baseUrl;
+    private final Path manifest;
+    private final String password;
+    private final String etichetta;
+    private final int[] livelli;
+    private final Duration durata;
+    private final Duration warmup;
+    private final LocalDate giorno;
+    private final int giorni;
+    private final double zipf;
+    private final int cancellazioni;
+    private final Path output;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final Map<Integer, String> tokenAdmin = new ConcurrentHashMap<>();
+    private int[] indici;
+    private int[] clienti;
+    private double[] cumulata;
+    private String tokenSuperAdmin;
+
+    SeasonWorkload() {
+        this.baseUrl = System.getProperty("loadtest.url", "http://localhost:8080");
+        this.manifest = Path.of(System.getProperty("loadtest.manifest", SeasonDataGenerator.MANIFEST_PREDEFINITO));
+        this.password = System.getProperty("loadtest.password", SeasonDataGenerator.PASSWORD_PREDEFINITA);
+        this.etichetta = System.getProperty("loadtest.etichetta", "stagione");
+        this.livelli = Arrays.stream(System.getProperty("loadtest.livelli", "32,128,512").split(","))
+                .mapToInt(l -> Integer.parseInt(l.trim()))
+                .toArray();
+        this.durata = Duration.ofSeconds(Long.getLong("loadtest.durata-s", 60));
+        this.warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup-s", 10));
+        this.giorno = LocalDate.parse(System.getProperty("loadtest.giorno", LocalDate.now().withMonth(8).withDayOfMonth(15).toString()));
+        this.giorni = Integer.getInteger("loadtest.giorni", 14);
+        this.zipf = Double.parseDouble(System.getProperty("loadtest.zipf", "1.0"));
+        this.cancellazioni = Integer.getInteger("loadtest.cancellazioni", 20);
+        this.output = Path.of(System.getProperty("loadtest.output", "target/season-loadtest.csv"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new SeasonWorkload().esegui();
+    }
+
+    void esegui() throws Exception {
+        caricaManifest();
+        tokenSuperAdmin = login(SeasonDataGenerator.SUPER_ADMIN);
+        System.out.printf("Workload '%s' su %s: %d tenant, giorni %s + %d, livelli %s%n",
+                etichetta, baseUrl, indici.length, giorno, giorni, Arrays.toString(livelli));
+
+        List<String> righe = new ArrayList<>();
+        for (int concorrenza : livelli) {
+            misura(concorrenza, warmup);
+            azzeraQueryStats();
+            Risultato risultato = misura(concorrenza, durata);
+            Map<String, Double> statement = leggiQueryStats();
+
+            System.out.printf("%nc=%d, %d sessioni%n", concorrenza, risultato.sessioni);
+            System.out.printf("%-10s %9s %9s %9s %9s %7s %9s %9s%n",
+                    "operazione", "req/s", "p50 ms", "p99 ms", "p999 ms", "errori", "conflitti", "stmt/op");
+            for (int o = 0; o < OPERAZIONI.length; o++) {
+                Statistiche s = risultato.statistiche[o];
+                if (s.getRichieste() == 0) {
+                    continue;
+                }
+                double rps = s.getRichieste() / (double) durata.toSeconds();
+                Double stmt = statement.get(HANDLER[o]);
+                System.out.printf(Locale.ROOT, "%-10s %9.1f %9.2f %9.2f %9.2f %7d %9d %9s%n",
+                        OPERAZIONI[o], rps, s.percentile(50), s.percentile(99), s.percentile(99.9),
+                        s.getErrori(), risultato.conflitti[o],
+                        stmt == null ? "-" : String.format(Locale.ROOT, "%.1f", stmt));
+                righe.add(String.format(Locale.ROOT, "%s,%d,%s,%d,%d,%d,%.1f,%.2f,%.2f,%.2f,%s",
+                        etichetta, concorrenza, OPERAZIONI[o], s.getRichieste(), s.getErrori(),
+                        risultato.conflitti[o], rps, s.percentile(50), s.percentile(99), s.percentile(99.9),
+                        stmt == null ? "" : String.format(Locale.ROOT, "%.2f", stmt)));
+            }
+        }
+        salva(righe);
+    }
+
+    /**
+     * Utenti virtuali a ciclo chiuso: ognuno inizia una nuova sessione appena finisce la precedente.
+     */
+    private Risultato misura(int concorrenza, Duration periodo) throws InterruptedException {
+        Sessione[] sessioni = new Sessione[concorrenza];
+        CountDownLatch fine = new CountDownLatch(concorrenza);
+        long scadenza = System.nanoTime() + periodo.toNanos();
+
+        for (int t = 0; t < concorrenza; t++) {
+            Sessione sessione = new Sessione();
+            sessioni[t] = sessione;
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < scadenza) {
+                        sessione.esegui();
+                    }
+                } finally {
+                    fine.countDown();
+                }
+            }, "workload-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        fine.await();
+
+        Risultato totale = new Risultato();
+        for (Sessione sessione : sessioni) {
+            for (int o = 0; o < OPERAZIONI.length; o++) {
+                totale.statistiche[o].unisci(sessione.statistiche[o]);
+                totale.conflitti[o] += sessione.conflitti[o];
+            }
+            totale.sessioni += sessione.completate;
+        }
+        return totale;
+    }
+
+    /**
+     * Contatori di un utente virtuale.
+     */
+    private final class Sessione {
+
+        private final Statistiche[] statistiche = nuoveStatistiche();
+        private final long[] conflitti = new long[OPERAZIONI.length];
+        private long completate;
+
+        void esegui() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int tenant = scegliTenant(random);
+            String email = "cliente-" + indici[tenant] + "-" + random.nextInt(clienti[tenant])
+                    + SeasonDataGenerator.DOMINIO_EMAIL;
+            LocalDate dal = giorno.plusDays(random.nextInt(Math.max(1, giorni)));
+
+            Risposta login = invia(LOGIN, post("/api/auth/login", json(Map.of("email", email, "password", password))), null);
+            if (!login.ok()) {
+                return;
+            }
+            String token = login.json().get("token").asText();
+
+            Risposta mappa = invia(MAPPA, HttpRequest.newBuilder(URI.create(baseUrl
+                    + "/api/ombrelloni/mappa?dataInizio=" + dal + "&dataFine=" + dal)).GET(), token);
+            if (!mappa.ok()) {
+                return;
+            }
+            String ombrellone = scegliLibero(mappa.json(), random);
+            if (ombrellone == null) {
+                // Lido pieno quel giorno
+                conflitti[MAPPA]++;
+                return;
+            }
+
+            String periodo = String.format("\"dataInizio\":\"%s\",\"dataFine\":\"%s\",\"tipoPrenotazione\":\"GIORNALIERA\"", dal, dal);
+            if (!invia(QUOTE, post("/api/prenotazioni/quote", "{" + periodo + "}"), token).ok()) {
+                return;
+            }
+
+            Risposta prenotazione = invia(CREATE, post("/api/prenotazioni",
+                    "{\"ombrelloneId\":\"" + ombrellone + "\"," + periodo + "}"), token);
+            if (prenotazione.status == 409) {
+                conflitti[CREATE]++;
+                return;
+            }
+            if (!prenotazione.ok()) {
+                return;
+            }
+            JsonNode creata = prenotazione.json();
+            String prenotazioneId = creata.get("id").asText();
+
+            if (random.nextInt(100) < cancellazioni) {
+                invia(CANCEL, HttpRequest.newBuilder(URI.create(baseUrl + "/api/prenotazioni/"
+                        + prenotazioneId + "?motivo=loadtest")).DELETE(), token);
+            } else {
+                paga(indici[tenant], prenotazioneId, creata.get("prezzoTotale").decimalValue().toPlainString());
+            }
+            completate++;
+        }
+
+        private void paga(int indice, String prenotazioneId, String importo) {
+            String admin = tokenAdmin.computeIfAbsent(indice,
+                    i -> login("admin-" + i + SeasonDataGenerator.DOMINIO_EMAIL));
+            Risposta pagamento = invia(PAGAMENTO, post("/api/pagamenti", "{\"prenotazioneId\":\"" + prenotazioneId
+                    + "\",\"metodoPagamento\":\"CARTA_CREDITO\",\"importo\":" + importo + "}"), admin);
+            if (pagamento.ok()) {
+                invia(CONFERMA, HttpRequest.newBuilder(URI.create(baseUrl + "/api/pagamenti/"
+                        + pagamento.json().get("id").asText() + "/confirm"))
+                        .PUT(HttpRequest.BodyPublishers.noBody()), admin);
+            }
+        }
+
+        private Risposta invia(int operazione, HttpRequest.Builder builder, String token) {
+            if (token != null) {
+                builder.header("Authorization", "Bearer " + token);
+            }
+            long inizio = System.nanoTime();
+            try {
+                HttpResponse<byte[]> response = client.send(
+                        builder.timeout(Duration.ofSeconds(30)).build(),
+                        HttpResponse.BodyHandlers.ofByteArray());
+                int status = response.statusCode();
+                statistiche[operazione].registra(System.nanoTime() - inizio, status < 400 || status == 409);
+                return new Risposta(status, response.body());
+            } catch (IOException e) {
+                statistiche[operazione].registra(System.nanoTime() - inizio, false);
+                return new Risposta(0, null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                statistiche[operazione].registra(System.nanoTime() - inizio, false);
+                return new Risposta(0, null);
+            }
+        }
+    }
+
+    /**
+     * Ombrellone libero a caso dalla bitmap della mappa (bit i = ids[i] disponibile).
+     */
+    private static String scegliLibero(JsonNode mappa, ThreadLocalRandom random) {
+        JsonNode ids = mappa.get("ids");
+        byte[] disponibili = Base64.getDecoder().decode(mappa.get("disponibili").asText());
+        int n = ids.size();
+        if (n == 0) {
+            return null;
+        }
+        int partenza = random.nextInt(n);
+        for (int k = 0; k < n; k++) {
+            int i = (partenza + k) % n;
+            if ((disponibili[i >>> 3] & (1 << (i & 7))) != 0) {
+                return ids.get(i).asText();
+            }
+        }
+        return null;
+    }
+
+    private int scegliTenant(ThreadLocalRandom random) {
+        int i = Arrays.binarySearch(cumulata, random.nextDouble() * cumulata[cumulata.length - 1]);
+        return Math.min(i >= 0 ? i : -i - 1, cumulata.length - 1);
+    }
+
+    private void caricaManifest() throws IOException {
+        if (!Files.exists(manifest)) {
+            throw new IllegalArgumentException("Manifest non trovato: " + manifest + " (eseguire SeasonDataGenerator)");
+        }
+        List<String> righe = Files.readAllLines(manifest);
+        int n = righe.size() - 1;
+        indici = new int[n];
+        clienti = new int[n];
+        cumulata = new double[n];
+        double somma = 0;
+        for (int t = 0; t < n; t++) {
+            String[] campi = righe.get(t + 1).split(",");
+            indici[t] = Integer.parseInt(campi[0]);
+            clienti[t] = Integer.parseInt(campi[4]);
+            somma += 1.0 / Math.pow(t + 1, zipf);
+            cumulata[t] = somma;
+        }
+        if (n == 0) {
+            throw new IllegalArgumentException("Manifest vuoto: " + manifest);
+        }
+    }
+
+    private String login(String email) {
+        try {
+            HttpResponse<String> response = client.send(
+                    post("/api/auth/login", json(Map.of("email", email, "password", password))).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Login fallito per " + email + ": HTTP " + response.statusCode());
+            }
+            return MAPPER.readTree(response.body()).get("token").asText();
+        } catch (IOException e) {
+            throw new IllegalStateException("Login fallito per " + email, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Login interrotto", e);
+        }
+    }
+
+    private void azzeraQueryStats() throws Exception {
+        HttpResponse<Void> response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/querystats"))
+                        .header("Authorization", "Bearer " + tokenSuperAdmin)
+                        .DELETE()
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() >= 400) {
+            System.out.println("querystats non disponibile (HTTP " + response.statusCode() + "): statement per operazione omessi");
+        }
+    }
+
+    /**
+     * Statement medi per handler dall'ultimo azzeramento; vuota se l'endpoint non è disponibile.
+     */
+    private Map<String, Double> leggiQueryStats() throws Exception {
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/querystats"))
+                        .header("Authorization", "Bearer " + tokenSuperAdmin)
+                        .header("Accept", "application/json")
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        Map<String, Double> statement = new HashMap<>();
+        if (response.statusCode() != 200) {
+            return statement;
+        }
+        for (JsonNode riga : MAPPER.readTree(response.body())) {
+            statement.put(riga.get("handler").asText(), riga.get("statementMedi").asDouble());
+        }
+        return statement;
+    }
+
+    private void salva(List<String> righe) throws IOException {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        if (!Files.exists(output)) {
+            Files.writeString(output, "etichetta,concorrenza,operazione,richieste,errori,conflitti,rps,"
+                    + "p50_ms,p99_ms,p999_ms,statement_medi\n");
+        }
+        Files.write(output, righe, StandardOpenOption.APPEND);
+        System.out.println("\nRisultati aggiunti a " + output);
+    }
+
+    private HttpRequest.Builder post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private static String json(Map<String, String> valori) {
+        try {
+            return MAPPER.writeValueAsString(valori);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Statistiche[] nuoveStatistiche() {
+        Statistiche[] stats = new Statistiche[OPERAZIONI.length];
+        for (int o = 0; o < stats.length; o++) {
+            stats[o] = new Statistiche();
+        }
+        return stats;
+    }
+
+    private static final class Risultato {
+
+        private final Statistiche[] statistiche = nuoveStatistiche();
+        private final long[] conflitti = new long[OPERAZIONI.length];
+        private long sessioni;
+    }
+
+    private static final class Risposta {
+
+        private final int status;
+        private final byte[] body;
+
+        Risposta(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        boolean ok() {
+            return status >= 200 && status < 300;
+        }
+
+        JsonNode json() {
+            try {
+                return MAPPER.readTree(body);
+            } catch (IOException e) {
+                throw new IllegalStateException("Risposta non JSON", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.beachbooking.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latenze (ns) ed errori di un endpoint; un'istanza per thread, unite alla fine.
+ */
+final class Statistiche {
+
+    private long[] latenze = new long[1024];
+    private int richieste;
+    private int errori;
+
+    void registra(long nanos, boolean ok) {
+        if (richieste == latenze.length) {
+            latenze = Arrays.copyOf(latenze, latenze.length * 2);
+        }
+        latenze[richieste++] = nanos;
+        if (!ok) {
+            errori++;
+        }
+    }
+
+    void unisci(Statistiche altre) {
+        for (int i = 0; i < altre.richieste; i++) {
+            registra(altre.latenze[i], true);
+        }
+        errori += altre.errori;
+    }
+
+    int getRichieste() {
+        return richieste;
+    }
+
+    int getErrori() {
+        return errori;
+    }
+
+    /**
+     * Percentile in millisecondi (es. 50, 99, 99.9).
+     */
+    double percentile(double p) {
+        if (richieste == 0) {
+            return 0;
+        }
+        long[] ordinate = Arrays.copyOf(latenze, richieste);
+        Arrays.sort(ordinate);
+        int indice = (int) Math.ceil(p / 100.0 * ordinate.length) - 1;
+        return ordinate[Math.max(0, indice)] / 1_000_000.0;
+    }
+}
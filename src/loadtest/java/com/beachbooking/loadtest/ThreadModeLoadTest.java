@@ -0,0 +1,293 @@
+package com.beachbooking.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load test HTTP di disponibilità, preventivo e creazione prenotazioni a concorrenza crescente.
+ *
+ * Misura throughput e latenze (p50/p99) per endpoint e accoda i risultati a un CSV
+ * con un'etichetta. Per confrontare thread di piattaforma e virtual thread:
+ *
+ * 1. avviare l'applicazione con VIRTUAL_THREADS=false ed eseguire con -Dloadtest.etichetta=platform;
+ * 2. riavviarla con mvn -Pjava21 spring-boot:run ed eseguire con -Dloadtest.etichetta=virtual.
+ *
+ * Alla fine viene stampato il confronto di tutte le etichette presenti nel CSV.
+ * Le prenotazioni create restano nel DB: usare un tenant di prova
+ * (o -Dloadtest.prenotazioni=false per misurare solo le letture).
+ *
+ * Parametri (system property):
+ * loadtest.url, loadtest.email, loadtest.password, loadtest.etichetta,
+ * loadtest.livelli (es. 16,64,256,512), loadtest.durata-s, loadtest.warmup-s,
+ * loadtest.prenotazioni, loadtest.output.
+ */
+public class ThreadModeLoadTest {
+
+    private static final String[] ENDPOINT = {"disponibili", "quote", "create"};
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String baseUrl;
+    private final String etichetta;
+    private final int[] livelli;
+    private final Duration durata;
+    private final Duration warmup;
+    private final boolean prenotazioni;
+    private final Path output;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private String token;
+    private List<String> ombrelloni;
+
+    ThreadModeLoadTest() {
+        this.baseUrl = System.getProperty("loadtest.url", "http://localhost:8080");
+        this.etichetta = System.getProperty("loadtest.etichetta", "platform");
+        this.livelli = Arrays.stream(System.getProperty("loadtest.livelli", "16,64,256,512").split(","))
+                .mapToInt(l -> Integer.parseInt(l.trim()))
+                .toArray();
+        this.durata = Duration.ofSeconds(Long.getLong("loadtest.durata-s", 20));
+        this.warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup-s", 5));
+        this.prenotazioni = Boolean.parseBoolean(System.getProperty("loadtest.prenotazioni", "true"));
+        this.output = Path.of(System.getProperty("loadtest.output", "target/loadtest.csv"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new ThreadModeLoadTest().esegui();
+    }
+
+    void esegui() throws Exception {
+        login(richiesta("loadtest.email"), richiesta("loadtest.password"));
+        caricaOmbrelloni();
+        System.out.printf("Load test '%s' su %s: %d ombrelloni, livelli %s%n",
+                etichetta, baseUrl, ombrelloni.size(), Arrays.toString(livelli));
+
+        List<String> righe = new ArrayList<>();
+        for (int concorrenza : livelli) {
+            misura(concorrenza, warmup);
+            Statistiche[] risultati = misura(concorrenza, durata);
+
+            for (int e = 0; e < ENDPOINT.length; e++) {
+                Statistiche s = risultati[e];
+                if (s.getRichieste() == 0) {
+                    continue;
+                }
+                double rps = s.getRichieste() / (double) durata.toSeconds();
+                System.out.printf(Locale.ROOT, "%-9s c=%-5d %-12s %9.1f req/s  p50 %7.2f ms  p99 %8.2f ms  errori %d%n",
+                        etichetta, concorrenza, ENDPOINT[e], rps, s.percentile(50), s.percentile(99), s.getErrori());
+                righe.add(String.format(Locale.ROOT, "%s,%d,%s,%d,%d,%.1f,%.2f,%.2f",
+                        etichetta, concorrenza, ENDPOINT[e], s.getRichieste(), s.getErrori(), rps,
+                        s.percentile(50), s.percentile(99)));
+            }
+        }
+
+        salva(righe);
+        confronta();
+    }
+
+    /**
+     * Esegue il mix di richieste con il numero di client concorrenti indicato.
+     */
+    private Statistiche[] misura(int concorrenza, Duration periodo) throws InterruptedException {
+        Statistiche[][] perThread = new Statistiche[concorrenza][];
+        CountDownLatch fine = new CountDownLatch(concorrenza);
+        long scadenza = System.nanoTime() + periodo.toNanos();
+
+        for (int t = 0; t < concorrenza; t++) {
+            Statistiche[] stats = nuoveStatistiche();
+            perThread[t] = stats;
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < scadenza) {
+                        int endpoint = scegliEndpoint();
+                        long inizio = System.nanoTime();
+                        boolean ok = invia(endpoint);
+                        stats[endpoint].registra(System.nanoTime() - inizio, ok);
+                    }
+                } finally {
+                    fine.countDown();
+                }
+            }, "loadtest-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        fine.await();
+
+        Statistiche[] totale = nuoveStatistiche();
+        for (Statistiche[] stats : perThread) {
+            for (int e = 0; e < ENDPOINT.length; e++) {
+                totale[e].unisci(stats[e]);
+            }
+        }
+        return totale;
+    }
+
+    /**
+     * Mix: 70% disponibilità, 20% preventivo, 10% creazione (se abilitata).
+     */
+    private int scegliEndpoint() {
+        int r = ThreadLocalRandom.current().nextInt(100);
+        if (r < 70 || (!prenotazioni && r >= 90)) {
+            return 0;
+        }
+        return r < 90 ? 1 : 2;
+    }
+
+    private boolean invia(int endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate dataInizio = LocalDate.now().plusDays(random.nextInt(1, 120));
+        LocalDate dataFine = dataInizio.plusDays(random.nextInt(0, 7));
+
+        HttpRequest.Builder builder;
+        switch (endpoint) {
+            case 0 -> builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/prenotazioni/disponibili"
+                    + "?dataInizio=" + dataInizio + "&dataFine=" + dataFine)).GET();
+            case 1 -> builder = post("/api/prenotazioni/quote", String.format(
+                    "{\"dataInizio\":\"%s\",\"dataFine\":\"%s\",\"tipoPrenotazione\":\"GIORNALIERA\"}",
+                    dataInizio, dataFine));
+            default -> {
+                // Date lontane e brevi per limitare i conflitti tra client
+                LocalDate giorno = LocalDate.now().plusDays(random.nextInt(365, 1095));
+                String ombrellone = ombrelloni.get(random.nextInt(ombrelloni.size()));
+                builder = post("/api/prenotazioni", String.format(
+                        "{\"ombrelloneId\":\"%s\",\"dataInizio\":\"%s\",\"dataFine\":\"%s\",\"tipoPrenotazione\":\"GIORNALIERA\"}",
+                        ombrellone, giorno, giorno));
+            }
+        }
+
+        try {
+            HttpResponse<Void> response = client.send(
+                    builder.header("Authorization", "Bearer " + token)
+                            .timeout(Duration.ofSeconds(30))
+                            .build(),
+                    HttpResponse.BodyHandlers.discarding());
+            // 409: ombrellone già occupato, risposta corretta del servizio
+            return response.statusCode() < 400 || response.statusCode() == 409;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private HttpRequest.Builder post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private void login(String email, String password) throws Exception {
+        HttpResponse<String> response = client.send(
+                post("/api/auth/login", MAPPER.writeValueAsString(Map.of("email", email, "password", password))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login fallito: HTTP " + response.statusCode());
+        }
+        token = MAPPER.readTree(response.body()).get("token").asText();
+    }
+
+    private void caricaOmbrelloni() throws Exception {
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/api/ombrelloni/active"))
+                        .header("Authorization", "Bearer " + token)
+                        .header("Accept", "application/json")
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        ombrelloni = new ArrayList<>();
+        for (JsonNode ombrellone : MAPPER.readTree(response.body())) {
+            ombrelloni.add(ombrellone.get("id").asText());
+        }
+        if (ombrelloni.isEmpty()) {
+            throw new IllegalStateException("Nessun ombrellone attivo per l'utente di test");
+        }
+    }
+
+    private void salva(List<String> righe) throws IOException {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        if (!Files.exists(output)) {
+            Files.writeString(output, "etichetta,concorrenza,endpoint,richieste,errori,rps,p50_ms,p99_ms\n");
+        }
+        Files.write(output, righe, StandardOpenOption.APPEND);
+        System.out.println("Risultati aggiunti a " + output);
+    }
+
+    /**
+     * Confronto tra le etichette nel CSV (ultima esecuzione per etichetta, livello ed endpoint).
+     */
+    private void confronta() throws IOException {
+        Map<String, Map<String, String[]>> perChiave = new TreeMap<>();
+        List<String> etichette = new ArrayList<>();
+
+        List<String> righe = Files.readAllLines(output);
+        for (String riga : righe.subList(1, righe.size())) {
+            String[] campi = riga.split(",");
+            String chiave = String.format("%6d %-12s", Integer.parseInt(campi[1]), campi[2]);
+            perChiave.computeIfAbsent(chiave, k -> new LinkedHashMap<>()).put(campi[0], campi);
+            if (!etichette.contains(campi[0])) {
+                etichette.add(campi[0]);
+            }
+        }
+        if (etichette.size() < 2) {
+            return;
+        }
+
+        System.out.println("\nConfronto (req/s | p99 ms)");
+        StringBuilder intestazione = new StringBuilder(String.format("%-19s", "c / endpoint"));
+        etichette.forEach(e -> intestazione.append(String.format("%24s", e)));
+        System.out.println(intestazione);
+
+        perChiave.forEach((chiave, risultati) -> {
+            StringBuilder riga = new StringBuilder(String.format("%-19s", chiave));
+            for (String e : etichette) {
+                String[] campi = risultati.get(e);
+                riga.append(campi == null
+                        ? String.format("%24s", "-")
+                        : String.format("%14s | %7s", campi[5], campi[7]));
+            }
+            System.out.println(riga);
+        });
+    }
+
+    private static Statistiche[] nuoveStatistiche() {
+        Statistiche[] stats = new Statistiche[ENDPOINT.length];
+        for (int e = 0; e < stats.length; e++) {
+            stats[e] = new Statistiche();
+        }
+        return stats;
+    }
+
+    private static String richiesta(String nome) {
+        String valore = System.getProperty(nome);
+        if (valore == null || valore.isBlank()) {
+            throw new IllegalArgumentException("Parametro mancante: -D" + nome);
+        }
+        return valore;
+    }
+}
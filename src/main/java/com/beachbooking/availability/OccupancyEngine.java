@@ -0,0 +1,334 @@
+package com.beachbooking.availability;
+
+import com.beachbooking.event.OmbrelloneModificatoEvent;
+import com.beachbooking.event.PrenotazioneStatoEvent;
+import com.beachbooking.model.entity.Ombrellone;
+import com.beachbooking.model.entity.Prenotazione;
+import com.beachbooking.model.entity.Tenant;
+import com.beachbooking.repository.OmbrelloneRepository;
+import com.beachbooking.repository.PrenotazioneRepository;
+import com.beachbooking.repository.TenantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
+
+/**
+ * Motore in memoria per la disponibilità degli ombrelloni.
+ *
+ * Per ogni tenant mantiene una bitmap giorno x ombrellone (vedi {@link TenantOccupancy})
+ * costruita all'avvio dalla tabella prenotazioni e aggiornata dagli eventi
+ * di cambio stato dopo il commit della transazione.
+ *
+ * Gli eventi sono locali: le prenotazioni fatte su altre istanze entrano nella
+ * bitmap solo con la ricostruzione periodica (app.occupancy.refresh-ms), che fissa
+ * il ritardo massimo con cui preventivi, mappa e ricerca dei vicini le vedono.
+ * La creazione non si fida della bitmap: verifica su indice intervalli e vincolo DB.
+ *
+ * Finché un tenant non è caricato (o se il periodo richiesto esce dalla finestra)
+ * i metodi restituiscono un Optional vuoto e il chiamante deve usare la query su DB.
+ */
+@Component
+public class OccupancyEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(OccupancyEngine.class);
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private OmbrelloneRepository ombrelloneRepository;
+
+    @Autowired
+    private PrenotazioneRepository prenotazioneRepository;
+
+    @Value("${app.occupancy.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.occupancy.giorni-passati:30}")
+    private int giorniPassati;
+
+    @Value("${app.occupancy.giorni-futuri:400}")
+    private int giorniFuturi;
+
+    private final Map<UUID, TenantOccupancy> tenants = new ConcurrentHashMap<>();
+
+    private volatile boolean warmupCompletato;
+
+    /**
+     * Avvia il caricamento di tutti i tenant in background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+
+        Thread warmup = new Thread(this::caricaTutti, "occupancy-warmup");
+        warmup.setDaemon(true);
+        warmup.start();
+    }
+
+    /**
+     * Ricostruisce ogni notte le bitmap per far scorrere la finestra temporale.
+     */
+    @Scheduled(cron = "${app.occupancy.rebuild-cron:0 30 3 * * *}")
+    public void rebuildNotturno() {
+        if (enabled && warmupCompletato) {
+            caricaTutti();
+        }
+    }
+
+    /**
+     * Ricostruisce a intervalli brevi i tenant già caricati, per recepire le modifiche
+     * fatte da altre istanze. Durante il caricamento le letture del tenant attendono il lock.
+     */
+    @Scheduled(initialDelayString = "${app.occupancy.refresh-ms:30000}",
+            fixedDelayString = "${app.occupancy.refresh-ms:30000}")
+    public void aggiornaCaricati() {
+        if (!enabled || !warmupCompletato) {
+            return;
+        }
+
+        for (UUID tenantId : List.copyOf(tenants.keySet())) {
+            try {
+                caricaTenant(tenantId);
+            } catch (Exception e) {
+                log.error("Errore aggiornamento occupazione tenant {}", tenantId, e);
+                tenants.remove(tenantId);
+            }
+        }
+    }
+
+    /**
+     * Ombrelloni disponibili nel periodo, se il tenant è già caricato.
+     */
+    public Optional<List<Ombrellone>> findDisponibili(UUID tenantId,
+                                                      LocalDate dataInizio,
+                                                      LocalDate dataFine) {
+        TenantOccupancy occupancy = getPronto(tenantId, dataInizio, dataFine);
+        if (occupancy == null) {
+            return Optional.empty();
+        }
+
+        Lock lock = occupancy.readLock();
+        lock.lock();
+        try {
+            return Optional.of(occupancy.disponibili(dataInizio, dataFine));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Visita tutti gli ombrelloni attivi con la loro disponibilità nel periodo.
+     * Restituisce false, senza visitare nulla, se il tenant non è ancora caricato.
+     */
+    public boolean visitaAttivi(UUID tenantId,
+                                LocalDate dataInizio,
+                                LocalDate dataFine,
+                                BiConsumer<Ombrellone, Boolean> visitatore) {
+        TenantOccupancy occupancy = getPronto(tenantId, dataInizio, dataFine);
+        if (occupancy == null) {
+            return false;
+        }
+
+        Lock lock = occupancy.readLock();
+        lock.lock();
+        try {
+            occupancy.visitaAttivi(dataInizio, dataFine, visitatore);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Verifica se un ombrellone è libero nel periodo, se il tenant è già caricato.
+     */
+    public Optional<Boolean> isDisponibile(UUID tenantId,
+                                           UUID ombrelloneId,
+                                           LocalDate dataInizio,
+                                           LocalDate dataFine) {
+        TenantOccupancy occupancy = getPronto(tenantId, dataInizio, dataFine);
+        if (occupancy == null) {
+            return Optional.empty();
+        }
+
+        Lock lock = occupancy.readLock();
+        lock.lock();
+        try {
+            return Optional.ofNullable(occupancy.isLibero(ombrelloneId, dataInizio, dataFine));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Aggiorna la bitmap dopo il commit di un cambio di stato.
+     * Eseguito prima degli altri listener, che possono così leggere la bitmap aggiornata.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onPrenotazioneStato(PrenotazioneStatoEvent event) {
+        TenantOccupancy occupancy = tenants.get(event.getTenantId());
+        if (occupancy == null) {
+            return;
+        }
+
+        Lock lock = occupancy.writeLock();
+        lock.lock();
+        try {
+            occupancy.applica(
+                    event.getOmbrelloneId(),
+                    event.getDataInizio(),
+                    event.getDataFine(),
+                    event.getStatoPrecedente(),
+                    event.getStatoNuovo()
+            );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Aggiorna gli slot dopo il commit di una modifica a un ombrellone.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onOmbrelloneModificato(OmbrelloneModificatoEvent event) {
+        TenantOccupancy occupancy = tenants.get(event.getTenantId());
+        if (occupancy == null) {
+            return;
+        }
+
+        Lock lock = occupancy.writeLock();
+        lock.lock();
+        try {
+            if (event.isEliminato()) {
+                occupancy.rimuoviOmbrellone(event.getOmbrellone().getId());
+            } else {
+                occupancy.registraOmbrellone(snapshot(event.getOmbrellone()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Restituisce la bitmap del tenant se pronta e se copre il periodo.
+     * Un tenant mai visto (es: registrato dopo l'avvio) viene caricato al primo accesso.
+     */
+    private TenantOccupancy getPronto(UUID tenantId, LocalDate dataInizio, LocalDate dataFine) {
+        if (!enabled || tenantId == null) {
+            return null;
+        }
+
+        TenantOccupancy occupancy = tenants.get(tenantId);
+        if (occupancy == null && warmupCompletato) {
+            occupancy = caricaTenant(tenantId);
+        }
+
+        if (occupancy == null || !occupancy.isPronto() || !occupancy.copre(dataInizio, dataFine)) {
+            return null;
+        }
+        return occupancy;
+    }
+
+    private void caricaTutti() {
+        long start = System.currentTimeMillis();
+        List<Tenant> all = tenantRepository.findAll();
+
+        for (Tenant tenant : all) {
+            try {
+                caricaTenant(tenant.getId());
+            } catch (Exception e) {
+                log.error("Errore caricamento occupazione tenant {}", tenant.getId(), e);
+                tenants.remove(tenant.getId());
+            }
+        }
+
+        warmupCompletato = true;
+        log.info("Occupancy engine: {} tenant caricati in {} ms",
+                all.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Carica la bitmap di un tenant.
+     *
+     * La nuova istanza viene pubblicata nella mappa con il write lock già acquisito,
+     * prima di leggere dal DB: gli eventi che arrivano durante il caricamento
+     * attendono il lock e vengono applicati dopo, senza andare persi.
+     */
+    private TenantOccupancy caricaTenant(UUID tenantId) {
+        LocalDate oggi = LocalDate.now();
+        LocalDate inizio = oggi.minusDays(giorniPassati);
+        LocalDate fine = oggi.plusDays(giorniFuturi);
+
+        TenantOccupancy occupancy = new TenantOccupancy(inizio, giorniPassati + giorniFuturi + 1);
+        Lock lock = occupancy.writeLock();
+        lock.lock();
+        try {
+            TenantOccupancy precedente = tenants.get(tenantId);
+            if (precedente != null && !precedente.isPronto()) {
+                // Un altro thread sta già caricando questo tenant
+                return precedente;
+            }
+            tenants.put(tenantId, occupancy);
+
+            List<Ombrellone> ombrelloni = ombrelloneRepository.findByTenantId(tenantId);
+            ombrelloni.sort(Comparator.comparing(Ombrellone::getNumero));
+            for (Ombrellone ombrellone : ombrelloni) {
+                occupancy.registraOmbrellone(snapshot(ombrellone));
+            }
+
+            List<Prenotazione> prenotazioni =
+                    prenotazioneRepository.findBloccantiByTenantIdAndDateRange(tenantId, inizio, fine);
+            for (Prenotazione p : prenotazioni) {
+                occupancy.applica(p.getOmbrelloneId(), p.getDataInizio(), p.getDataFine(), null, p.getStato());
+            }
+
+            occupancy.setPronto();
+            return occupancy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copia dei soli campi necessari, per non condividere l'entity con il chiamante.
+     */
+    private Ombrellone snapshot(Ombrellone o) {
+        return Ombrellone.builder()
+                .id(o.getId())
+                .tenantId(o.getTenantId())
+                .numero(o.getNumero())
+                .fila(o.getFila())
+                .tipo(o.getTipo())
+                .descrizione(o.getDescrizione())
+                .posizioneX(o.getPosizioneX())
+                .posizioneY(o.getPosizioneY())
+                .attivo(o.getAttivo())
+                .note(o.getNote())
+                .dataCreazione(o.getDataCreazione())
+                .dataAggiornamento(o.getDataAggiornamento())
+                .build();
+    }
+}
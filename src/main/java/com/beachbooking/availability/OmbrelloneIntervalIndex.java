@@ -0,0 +1,215 @@
+package com.beachbooking.availability;
+
+import com.beachbooking.event.PrenotazioneStatoEvent;
+import com.beachbooking.model.entity.Prenotazione;
+import com.beachbooking.model.enums.StatoPrenotazione;
+import com.beachbooking.repository.PrenotazioneRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indice in memoria degli intervalli prenotati per ogni ombrellone.
+ *
+ * Per ogni ombrellone mantiene gli intervalli delle prenotazioni non cancellate,
+ * ordinati per data inizio, con il massimo prefisso delle date fine: il controllo
+ * di sovrapposizione è una ricerca binaria, senza allocazioni.
+ *
+ * Gli indici vengono costruiti al primo accesso e invalidati quando una
+ * prenotazione passa a CANCELLED o REFUNDED. Gli eventi sono solo quelli di
+ * questa istanza: le cancellazioni fatte su altri nodi (anche dal job notturno
+ * delle PENDING scadute) arrivano con la scadenza dell'indice dopo
+ * app.booking.indice-ttl-ms e, prima di rispondere "occupato", con la rilettura
+ * dal DB. Un "libero" non aggiornato viene invece respinto dal vincolo EXCLUDE.
+ */
+@Component
+public class OmbrelloneIntervalIndex {
+
+    @Autowired
+    private PrenotazioneRepository prenotazioneRepository;
+
+    @Value("${app.booking.indice-ttl-ms:60000}")
+    private long ttlMs;
+
+    private final Map<UUID, Intervalli> indici = new ConcurrentHashMap<>();
+
+    // Incrementato ad ogni evento: un caricamento concorrente a un evento non viene messo in cache
+    private final AtomicLong generazione = new AtomicLong();
+
+    /**
+     * Verifica se l'ombrellone è libero nel periodo (estremi inclusi).
+     * Un conflitto trovato nell'indice in cache viene confermato rileggendo dal DB.
+     */
+    public boolean isDisponibile(UUID ombrelloneId, LocalDate dataInizio, LocalDate dataFine) {
+        long inizio = dataInizio.toEpochDay();
+        long fine = dataFine.toEpochDay();
+
+        Intervalli intervalli = indici.get(ombrelloneId);
+        if (intervalli == null || scaduto(intervalli)) {
+            return !carica(ombrelloneId).sovrappone(inizio, fine);
+        }
+        if (!intervalli.sovrappone(inizio, fine)) {
+            return true;
+        }
+        // L'intervallo può essere stato cancellato su un'altra istanza
+        return !carica(ombrelloneId).sovrappone(inizio, fine);
+    }
+
+    /**
+     * Invalida l'indice di un ombrellone.
+     */
+    public void invalida(UUID ombrelloneId) {
+        generazione.incrementAndGet();
+        indici.remove(ombrelloneId);
+    }
+
+    /**
+     * Aggiorna l'indice dopo il commit di un cambio di stato,
+     * prima del rilascio dei lock ombrellone (OmbrelloneLocks).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onPrenotazioneStato(PrenotazioneStatoEvent event) {
+        generazione.incrementAndGet();
+
+        StatoPrenotazione stato = event.getStatoNuovo();
+        if (stato == StatoPrenotazione.CANCELLED || stato == StatoPrenotazione.REFUNDED) {
+            indici.remove(event.getOmbrelloneId());
+        } else if (event.getStatoPrecedente() == null) {
+            // Nuova prenotazione: inserimento copy-on-write solo se l'indice è già in memoria
+            indici.computeIfPresent(event.getOmbrelloneId(), (id, intervalli) -> intervalli.con(
+                    event.getDataInizio().toEpochDay(),
+                    event.getDataFine().toEpochDay()
+            ));
+        }
+    }
+
+    private Intervalli carica(UUID ombrelloneId) {
+        long gen = generazione.get();
+
+        List<Prenotazione> prenotazioni = prenotazioneRepository.findBloccantiByOmbrelloneId(ombrelloneId);
+        long[] inizi = new long[prenotazioni.size()];
+        long[] fini = new long[prenotazioni.size()];
+
+        int i = 0;
+        for (Prenotazione p : prenotazioni) {
+            inizi[i] = p.getDataInizio().toEpochDay();
+            fini[i] = p.getDataFine().toEpochDay();
+            i++;
+        }
+
+        Intervalli intervalli = Intervalli.of(inizi, fini);
+
+        if (generazione.get() == gen) {
+            indici.put(ombrelloneId, intervalli);
+        }
+        return intervalli;
+    }
+
+    private boolean scaduto(Intervalli intervalli) {
+        return System.nanoTime() - intervalli.caricatoIl >= TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    }
+
+    /**
+     * Lista immutabile di intervalli ordinati per inizio,
+     * con maxFine[i] = max(fini[0..i]).
+     */
+    static final class Intervalli {
+
+        private final long[] inizi;
+        private final long[] fini;
+        private final long[] maxFine;
+        // Istante del caricamento dal DB, conservato dalle copie di con()
+        private final long caricatoIl;
+
+        private Intervalli(long[] inizi, long[] fini, long caricatoIl) {
+            this.inizi = inizi;
+            this.fini = fini;
+            this.caricatoIl = caricatoIl;
+            this.maxFine = new long[inizi.length];
+
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < inizi.length; i++) {
+                max = Math.max(max, fini[i]);
+                maxFine[i] = max;
+            }
+        }
+
+        /**
+         * Costruisce la lista ordinando gli intervalli per inizio.
+         */
+        static Intervalli of(long[] inizi, long[] fini) {
+            Integer[] ordine = new Integer[inizi.length];
+            for (int i = 0; i < ordine.length; i++) {
+                ordine[i] = i;
+            }
+            Arrays.sort(ordine, (a, b) -> Long.compare(inizi[a], inizi[b]));
+
+            long[] iniziOrdinati = new long[inizi.length];
+            long[] finiOrdinate = new long[fini.length];
+            for (int i = 0; i < ordine.length; i++) {
+                iniziOrdinati[i] = inizi[ordine[i]];
+                finiOrdinate[i] = fini[ordine[i]];
+            }
+            return new Intervalli(iniziOrdinati, finiOrdinate, System.nanoTime());
+        }
+
+        /**
+         * Nuova lista con l'intervallo aggiunto nella posizione corretta.
+         */
+        Intervalli con(long inizio, long fine) {
+            int pos = ultimoConInizioMinoreUguale(inizio) + 1;
+
+            long[] nuoviInizi = new long[inizi.length + 1];
+            long[] nuoveFini = new long[fini.length + 1];
+
+            System.arraycopy(inizi, 0, nuoviInizi, 0, pos);
+            System.arraycopy(fini, 0, nuoveFini, 0, pos);
+            nuoviInizi[pos] = inizio;
+            nuoveFini[pos] = fine;
+            System.arraycopy(inizi, pos, nuoviInizi, pos + 1, inizi.length - pos);
+            System.arraycopy(fini, pos, nuoveFini, pos + 1, fini.length - pos);
+
+            return new Intervalli(nuoviInizi, nuoveFini, caricatoIl);
+        }
+
+        /**
+         * True se almeno un intervallo interseca [inizio, fine].
+         */
+        boolean sovrappone(long inizio, long fine) {
+            int i = ultimoConInizioMinoreUguale(fine);
+            return i >= 0 && maxFine[i] >= inizio;
+        }
+
+        /**
+         * Indice dell'ultimo intervallo con inizio <= valore, -1 se nessuno.
+         */
+        private int ultimoConInizioMinoreUguale(long valore) {
+            int lo = 0;
+            int hi = inizi.length - 1;
+            int result = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (inizi[mid] <= valore) {
+                    result = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.beachbooking.availability;
+
+import com.beachbooking.exception.BookingConflictException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock in-process partizionati (striped) per ombrellone.
+ *
+ * Serializza le richieste concorrenti sullo stesso ombrellone all'interno del nodo.
+ * Il lock viene rilasciato a fine transazione con ordine LOWEST_PRECEDENCE: i listener
+ * AFTER_COMMIT degli indici in memoria (OmbrelloneIntervalIndex, OccupancyEngine) hanno
+ * ordine HIGHEST_PRECEDENCE e vengono eseguiti prima, così il contendente successivo
+ * vede sempre la prenotazione appena salvata.
+ *
+ * La sicurezza tra più nodi è garantita dal vincolo EXCLUDE su prenotazioni.
+ */
+@Component
+public class OmbrelloneLocks {
+
+    private final ReentrantLock[] stripes;
+
+    @Value("${app.booking.lock-timeout-ms:5000}")
+    private long timeoutMs;
+
+    public OmbrelloneLocks(@Value("${app.booking.lock-stripes:256}") int numeroStripes) {
+        // Potenza di 2 per indicizzare con una maschera
+        int n = Integer.highestOneBit(Math.max(1, numeroStripes - 1)) << 1;
+        this.stripes = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Acquisisce il lock dell'ombrellone fino alla fine della transazione corrente.
+     */
+    public void lockFinoAFineTransazione(UUID ombrelloneId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Lock ombrellone richiede una transazione attiva");
+        }
+
+        ReentrantLock lock = stripeFor(ombrelloneId);
+        acquisisci(lock);
+
+        TransactionSynchronizationManager.registerSynchronization(new Rilascio() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Acquisisce i lock di più ombrelloni fino alla fine della transazione corrente.
+     * Gli stripe vengono presi in ordine crescente per evitare deadlock tra richieste multiple.
+     */
+    public void lockFinoAFineTransazione(Collection<UUID> ombrelloneIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Lock ombrellone richiede una transazione attiva");
+        }
+
+        int[] indici = ombrelloneIds.stream()
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int acquisiti = 0;
+        try {
+            for (int indice : indici) {
+                acquisisci(stripes[indice]);
+                acquisiti++;
+            }
+        } catch (RuntimeException e) {
+            for (int i = 0; i < acquisiti; i++) {
+                stripes[indici[i]].unlock();
+            }
+            throw e;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new Rilascio() {
+            @Override
+            public void afterCompletion(int status) {
+                for (int indice : indici) {
+                    stripes[indice].unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * Rilascio dei lock a fine transazione, dopo tutte le altre synchronization.
+     */
+    private abstract static class Rilascio implements TransactionSynchronization {
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+
+    private void acquisisci(ReentrantLock lock) {
+        try {
+            if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new BookingConflictException(
+                        "Ombrellone in fase di prenotazione da un altro utente, riprova"
+                );
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BookingConflictException("Prenotazione interrotta");
+        }
+    }
+
+    private ReentrantLock stripeFor(UUID ombrelloneId) {
+        return stripes[stripeIndex(ombrelloneId)];
+    }
+
+    private int stripeIndex(UUID ombrelloneId) {
+        int h = ombrelloneId.hashCode();
+        h ^= (h >>> 16);
+        return h & (stripes.length - 1);
+    }
+}
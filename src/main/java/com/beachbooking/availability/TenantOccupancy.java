@@ -0,0 +1,314 @@
+package com.beachbooking.availability;
+
+import com.beachbooking.model.entity.Ombrellone;
+import com.beachbooking.model.enums.StatoPrenotazione;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Bitmap di occupazione di un singolo tenant.
+ *
+ * Ogni ombrellone occupa uno slot (un bit); per ogni giorno della finestra
+ * ci sono "parole" long consecutive. Esiste un layer per ciascuno stato che
+ * blocca l'ombrellone più un layer "occupati" che è l'OR di tutti i layer.
+ *
+ * Le prenotazioni CANCELLED/REFUNDED non vengono memorizzate.
+ */
+final class TenantOccupancy {
+
+    /**
+     * Stati che rendono un ombrellone non disponibile.
+     */
+    static final StatoPrenotazione[] STATI_BLOCCANTI = {
+            StatoPrenotazione.PENDING,
+            StatoPrenotazione.CONFIRMED,
+            StatoPrenotazione.PAID,
+            StatoPrenotazione.COMPLETED
+    };
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final long inizioEpochDay;
+    private final int giorni;
+
+    private volatile boolean pronto;
+
+    private final Map<UUID, Integer> slotPerOmbrellone = new HashMap<>();
+    private Ombrellone[] ombrelloni;
+    private int numeroSlot;
+
+    // Numero di long per giorno
+    private int parole;
+
+    private long[] attivi;
+    private long[] occupati;
+    private final long[][] perStato = new long[StatoPrenotazione.values().length][];
+
+    TenantOccupancy(LocalDate inizio, int giorni) {
+        this.inizioEpochDay = inizio.toEpochDay();
+        this.giorni = giorni;
+        allocate(1);
+    }
+
+    ReentrantReadWriteLock.ReadLock readLock() {
+        return lock.readLock();
+    }
+
+    ReentrantReadWriteLock.WriteLock writeLock() {
+        return lock.writeLock();
+    }
+
+    boolean isPronto() {
+        return pronto;
+    }
+
+    void setPronto() {
+        this.pronto = true;
+    }
+
+    /**
+     * Verifica se il periodo è interamente coperto dalla finestra.
+     */
+    boolean copre(LocalDate dataInizio, LocalDate dataFine) {
+        long da = dataInizio.toEpochDay() - inizioEpochDay;
+        long a = dataFine.toEpochDay() - inizioEpochDay;
+        return da >= 0 && a < giorni && da <= a;
+    }
+
+    /**
+     * Registra (o aggiorna) un ombrellone. Da chiamare con il write lock.
+     */
+    void registraOmbrellone(Ombrellone ombrellone) {
+        Integer slot = slotPerOmbrellone.get(ombrellone.getId());
+        if (slot == null) {
+            if (numeroSlot == parole * 64) {
+                allocate(parole * 2);
+            }
+            slot = numeroSlot++;
+            slotPerOmbrellone.put(ombrellone.getId(), slot);
+        }
+
+        ombrelloni[slot] = ombrellone;
+
+        long bit = 1L << (slot & 63);
+        if (Boolean.TRUE.equals(ombrellone.getAttivo())) {
+            attivi[slot >>> 6] |= bit;
+        } else {
+            attivi[slot >>> 6] &= ~bit;
+        }
+    }
+
+    /**
+     * Rimuove un ombrellone eliminato, azzerando tutti i suoi bit.
+     * Lo slot non viene riutilizzato. Da chiamare con il write lock.
+     */
+    void rimuoviOmbrellone(UUID ombrelloneId) {
+        Integer slot = slotPerOmbrellone.remove(ombrelloneId);
+        if (slot == null) {
+            return;
+        }
+
+        ombrelloni[slot] = null;
+
+        int w = slot >>> 6;
+        long mask = ~(1L << (slot & 63));
+        attivi[w] &= mask;
+        for (int g = 0; g < giorni; g++) {
+            int i = g * parole + w;
+            occupati[i] &= mask;
+            for (StatoPrenotazione stato : STATI_BLOCCANTI) {
+                perStato[stato.ordinal()][i] &= mask;
+            }
+        }
+    }
+
+    /**
+     * Applica un cambio di stato di una prenotazione.
+     * L'operazione è idempotente: riapplicare lo stesso evento non cambia il risultato.
+     * Da chiamare con il write lock.
+     */
+    void applica(UUID ombrelloneId,
+                 LocalDate dataInizio,
+                 LocalDate dataFine,
+                 StatoPrenotazione statoPrecedente,
+                 StatoPrenotazione statoNuovo) {
+
+        Integer slot = slotPerOmbrellone.get(ombrelloneId);
+        if (slot == null) {
+            return;
+        }
+
+        int da = (int) Math.max(0, dataInizio.toEpochDay() - inizioEpochDay);
+        int a = (int) Math.min(giorni - 1, dataFine.toEpochDay() - inizioEpochDay);
+        if (da > a) {
+            return;
+        }
+
+        long[] layerPrecedente = statoPrecedente != null ? perStato[statoPrecedente.ordinal()] : null;
+        long[] layerNuovo = statoNuovo != null ? perStato[statoNuovo.ordinal()] : null;
+
+        int w = slot >>> 6;
+        long bit = 1L << (slot & 63);
+
+        for (int g = da; g <= a; g++) {
+            int i = g * parole + w;
+            if (layerPrecedente != null) {
+                layerPrecedente[i] &= ~bit;
+            }
+            if (layerNuovo != null) {
+                layerNuovo[i] |= bit;
+            }
+
+            long or = 0L;
+            for (StatoPrenotazione stato : STATI_BLOCCANTI) {
+                or |= perStato[stato.ordinal()][i];
+            }
+            occupati[i] = (occupati[i] & ~bit) | (or & bit);
+        }
+    }
+
+    /**
+     * Ombrelloni attivi liberi in tutto il periodo.
+     * Da chiamare con il read lock.
+     */
+    List<Ombrellone> disponibili(LocalDate dataInizio, LocalDate dataFine) {
+        return disponibili(dataInizio, dataFine, null);
+    }
+
+    /**
+     * Ombrelloni attivi che non hanno prenotazioni negli stati indicati nel periodo.
+     * Con statiBloccanti null vengono considerati tutti gli stati bloccanti.
+     * Da chiamare con il read lock.
+     */
+    List<Ombrellone> disponibili(LocalDate dataInizio,
+                                 LocalDate dataFine,
+                                 Collection<StatoPrenotazione> statiBloccanti) {
+        long[] occupazione = occupazione(dataInizio, dataFine, statiBloccanti);
+
+        List<Ombrellone> result = new ArrayList<>();
+        for (int w = 0; w < parole; w++) {
+            long liberi = attivi[w] & ~occupazione[w];
+            while (liberi != 0) {
+                result.add(ombrelloni[(w << 6) + Long.numberOfTrailingZeros(liberi)]);
+                liberi &= liberi - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Visita ogni ombrellone attivo indicando se è libero nel periodo,
+     * con un solo passaggio sulla bitmap. Da chiamare con il read lock.
+     */
+    void visitaAttivi(LocalDate dataInizio,
+                      LocalDate dataFine,
+                      BiConsumer<Ombrellone, Boolean> visitatore) {
+        long[] occupazione = occupazione(dataInizio, dataFine, null);
+
+        for (int w = 0; w < parole; w++) {
+            long restanti = attivi[w];
+            while (restanti != 0) {
+                int bit = Long.numberOfTrailingZeros(restanti);
+                visitatore.accept(ombrelloni[(w << 6) + bit], (occupazione[w] & (1L << bit)) == 0);
+                restanti &= restanti - 1;
+            }
+        }
+    }
+
+    /**
+     * Verifica se un ombrellone è libero nel periodo.
+     * Restituisce null se l'ombrellone non è conosciuto.
+     * Da chiamare con il read lock.
+     */
+    Boolean isLibero(UUID ombrelloneId, LocalDate dataInizio, LocalDate dataFine) {
+        Integer slot = slotPerOmbrellone.get(ombrelloneId);
+        if (slot == null) {
+            return null;
+        }
+
+        int da = (int) (dataInizio.toEpochDay() - inizioEpochDay);
+        int a = (int) (dataFine.toEpochDay() - inizioEpochDay);
+        int w = slot >>> 6;
+        long bit = 1L << (slot & 63);
+
+        for (int g = da; g <= a; g++) {
+            if ((occupati[g * parole + w] & bit) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * OR dei layer richiesti su tutti i giorni del periodo.
+     * Con statiBloccanti null usa il layer combinato.
+     */
+    private long[] occupazione(LocalDate dataInizio,
+                               LocalDate dataFine,
+                               Collection<StatoPrenotazione> statiBloccanti) {
+        int da = (int) (dataInizio.toEpochDay() - inizioEpochDay);
+        int a = (int) (dataFine.toEpochDay() - inizioEpochDay);
+
+        long[] result = new long[parole];
+
+        if (statiBloccanti == null) {
+            orGiorni(occupati, da, a, result);
+        } else {
+            for (StatoPrenotazione stato : statiBloccanti) {
+                long[] layer = perStato[stato.ordinal()];
+                if (layer != null) {
+                    orGiorni(layer, da, a, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void orGiorni(long[] layer, int da, int a, long[] result) {
+        for (int g = da; g <= a; g++) {
+            int base = g * parole;
+            for (int w = 0; w < parole; w++) {
+                result[w] |= layer[base + w];
+            }
+        }
+    }
+
+    /**
+     * (Ri)alloca i layer con il nuovo numero di parole per giorno,
+     * copiando il contenuto esistente.
+     */
+    private void allocate(int nuoveParole) {
+        int vecchieParole = parole;
+
+        attivi = attivi == null ? new long[nuoveParole] : Arrays.copyOf(attivi, nuoveParole);
+        ombrelloni = ombrelloni == null
+                ? new Ombrellone[nuoveParole * 64]
+                : Arrays.copyOf(ombrelloni, nuoveParole * 64);
+
+        occupati = relayout(occupati, vecchieParole, nuoveParole);
+        for (StatoPrenotazione stato : STATI_BLOCCANTI) {
+            perStato[stato.ordinal()] = relayout(perStato[stato.ordinal()], vecchieParole, nuoveParole);
+        }
+
+        parole = nuoveParole;
+    }
+
+    private long[] relayout(long[] layer, int vecchieParole, int nuoveParole) {
+        long[] nuovo = new long[giorni * nuoveParole];
+        if (layer != null) {
+            for (int g = 0; g < giorni; g++) {
+                System.arraycopy(layer, g * vecchieParole, nuovo, g * nuoveParole, vecchieParole);
+            }
+        }
+        return nuovo;
+    }
+}
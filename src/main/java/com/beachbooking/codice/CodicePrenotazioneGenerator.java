@@ -0,0 +1,96 @@
+package com.beachbooking.codice;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Genera codici prenotazione univoci, brevi e leggibili, senza lock né accessi al DB.
+ *
+ * Il codice è un valore a 60 bit: secondi dal 2024-01-01 (31 bit), id del nodo (8 bit)
+ * e sequenza nel secondo (21 bit), codificato in 12 simboli Crockford base32 più
+ * un simbolo di controllo (es: "0G4TQ2M8Z3K1R").
+ *
+ * Ogni thread riserva dal contatore condiviso un blocco di sequenze con una sola CAS
+ * e lo consuma localmente, così la contesa è ridotta di BLOCCO volte. Il contatore
+ * è monotono: se la sequenza di un secondo si esaurisce (o l'orologio torna indietro)
+ * si prosegue sui secondi successivi, senza mai riusare un valore.
+ * L'univocità tra nodi richiede un app.booking.node-id diverso per ogni istanza.
+ */
+@Component
+public class CodicePrenotazioneGenerator {
+
+    static final int CIFRE = 12;
+
+    private static final long EPOCA = Instant.parse("2024-01-01T00:00:00Z").getEpochSecond();
+
+    private static final int BIT_SEQUENZA = 21;
+    private static final int BIT_NODO = 8;
+    private static final int BIT_SECONDI = 31;
+
+    private static final long MASCHERA_SEQUENZA = (1L << BIT_SEQUENZA) - 1;
+    private static final int BLOCCO = 32;
+
+    private final long nodo;
+
+    // (secondi << BIT_SEQUENZA) | sequenza del prossimo blocco libero
+    private final AtomicLong stato = new AtomicLong();
+
+    private final ThreadLocal<long[]> blocchi = ThreadLocal.withInitial(() -> new long[2]);
+
+    public CodicePrenotazioneGenerator(@Value("${app.booking.node-id:0}") int nodeId) {
+        if (nodeId < 0 || nodeId >= (1 << BIT_NODO)) {
+            throw new IllegalArgumentException("app.booking.node-id deve essere tra 0 e " + ((1 << BIT_NODO) - 1));
+        }
+        this.nodo = nodeId;
+    }
+
+    /**
+     * Nuovo codice prenotazione.
+     */
+    public String genera() {
+        // blocco[0] = prossimo valore, blocco[1] = fine (esclusa)
+        long[] blocco = blocchi.get();
+        if (blocco[0] == blocco[1]) {
+            blocco[0] = riservaBlocco();
+            blocco[1] = blocco[0] + BLOCCO;
+        }
+        long valore = blocco[0]++;
+
+        long secondi = valore >>> BIT_SEQUENZA;
+        if (secondi >= (1L << BIT_SECONDI)) {
+            throw new IllegalStateException("Spazio dei codici prenotazione esaurito");
+        }
+        long codice = (secondi << (BIT_NODO + BIT_SEQUENZA))
+                | (nodo << BIT_SEQUENZA)
+                | (valore & MASCHERA_SEQUENZA);
+        return Crockford32.codifica(codice, CIFRE);
+    }
+
+    /**
+     * Forma canonica di un codice digitato dall'utente (minuscole, trattini, I/L/O),
+     * null se non è un codice generato da questa classe o il controllo non torna.
+     */
+    public static String normalizza(String codice) {
+        if (codice == null) {
+            return null;
+        }
+        long valore = Crockford32.decodifica(codice.trim(), CIFRE);
+        return valore < 0 ? null : Crockford32.codifica(valore, CIFRE);
+    }
+
+    private long riservaBlocco() {
+        long minimo = (Instant.now().getEpochSecond() - EPOCA) << BIT_SEQUENZA;
+        // Inizio secondo e blocchi sono multipli di BLOCCO:
+        // un blocco non attraversa mai il confine tra due secondi
+        long precedente;
+        long inizio;
+        do {
+            precedente = stato.get();
+            inizio = Math.max(precedente, minimo);
+        } while (!stato.compareAndSet(precedente, inizio + BLOCCO));
+        return inizio;
+    }
+}
@@ -0,0 +1,78 @@
+package com.beachbooking.codice;
+
+/**
+ * Codifica Crockford base32 a lunghezza fissa, con simbolo di controllo mod 37.
+ *
+ * L'alfabeto esclude I, L, O e U; in decodifica I/L valgono 1, O vale 0,
+ * maiuscole/minuscole e trattini sono indifferenti.
+ */
+final class Crockford32 {
+
+    private static final char[] SIMBOLI = "0123456789ABCDEFGHJKMNPQRSTVWXYZ*~$=U".toCharArray();
+
+    private static final int[] VALORI = new int[128];
+
+    static {
+        java.util.Arrays.fill(VALORI, -1);
+        for (int i = 0; i < SIMBOLI.length; i++) {
+            VALORI[SIMBOLI[i]] = i;
+            VALORI[Character.toLowerCase(SIMBOLI[i])] = i;
+        }
+        VALORI['I'] = VALORI['i'] = 1;
+        VALORI['L'] = VALORI['l'] = 1;
+        VALORI['O'] = VALORI['o'] = 0;
+    }
+
+    private Crockford32() {
+    }
+
+    /**
+     * Codifica i 5 * cifre bit meno significativi di valore, seguiti dal simbolo di controllo.
+     */
+    static String codifica(long valore, int cifre) {
+        char[] out = new char[cifre + 1];
+        long resto = valore;
+        for (int i = cifre - 1; i >= 0; i--) {
+            out[i] = SIMBOLI[(int) (resto & 31)];
+            resto >>>= 5;
+        }
+        out[cifre] = SIMBOLI[(int) Long.remainderUnsigned(valore, 37)];
+        return new String(out);
+    }
+
+    /**
+     * Decodifica un codice di cifre simboli + controllo, -1 se non valido.
+     */
+    static long decodifica(String codice, int cifre) {
+        long valore = 0;
+        int letti = 0;
+        int controllo = -1;
+
+        for (int i = 0; i < codice.length(); i++) {
+            char c = codice.charAt(i);
+            if (c == '-') {
+                continue;
+            }
+            int v = c < 128 ? VALORI[c] : -1;
+            if (v < 0) {
+                return -1;
+            }
+            if (letti < cifre) {
+                if (v > 31) {
+                    return -1;
+                }
+                valore = (valore << 5) | v;
+            } else if (letti == cifre) {
+                controllo = v;
+            } else {
+                return -1;
+            }
+            letti++;
+        }
+
+        if (letti != cifre + 1 || Long.remainderUnsigned(valore, 37) != controllo) {
+            return -1;
+        }
+        return valore;
+    }
+}
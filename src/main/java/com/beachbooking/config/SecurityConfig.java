@@ -107,6 +107,12 @@ public class SecurityConfig {
 
                 // Configurazione autorizzazioni
                 .authorizeHttpRequests(auth -> auth
+                        // Health e info pubblici (probe e load balancer)
+                        .requestMatchers("/actuator/health/**", "/actuator/info").permitAll()
+
+                        // Metriche Prometheus (tenant e volumi) e statistiche query - solo SUPER_ADMIN
+                        .requestMatchers("/actuator/**").hasRole("SUPER_ADMIN")
+
                         // Endpoint pubblici
                         .requestMatchers(
                                 "/api/auth/**",
@@ -114,8 +120,7 @@ public class SecurityConfig {
                                 "/api/debug/**",
                                 "/api/tenants/register",
                                 "/api/tenants/check-slug/**",
-                                "/health",
-                                "/actuator/**"
+                                "/health"
                         ).permitAll()
 
                         // Swagger/OpenAPI (se lo aggiungiamo)
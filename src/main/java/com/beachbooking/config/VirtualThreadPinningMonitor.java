@@ -0,0 +1,90 @@
+package com.beachbooking.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Segnala i virtual thread rimasti "pinned" al carrier (attesa dentro synchronized
+ * o codice nativo) oltre la soglia, con lo stack che ha causato il blocco.
+ *
+ * Attivo solo con spring.threads.virtual.enabled=true su Java 21+: legge in streaming
+ * gli eventi JFR jdk.VirtualThreadPinned, senza registrare su file.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final int FRAME_MOSTRATI = 12;
+
+    @Value("${app.virtual-threads.pinning-soglia-ms:20}")
+    private long sogliaMs;
+
+    private final AtomicLong eventi = new AtomicLong();
+
+    private RecordingStream stream;
+
+    @PostConstruct
+    void avvia() {
+        if (Runtime.version().feature() < 21) {
+            log.warn("spring.threads.virtual.enabled richiede Java 21: in esecuzione su Java {}, "
+                    + "si usano i thread di piattaforma", Runtime.version().feature());
+            return;
+        }
+
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned")
+                .withThreshold(Duration.ofMillis(sogliaMs))
+                .withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::segnala);
+        stream.startAsync();
+        log.info("Monitor pinning virtual thread attivo (soglia {} ms)", sogliaMs);
+    }
+
+    /**
+     * Numero di episodi di pinning oltre soglia dall'avvio.
+     */
+    public long getEventi() {
+        return eventi.get();
+    }
+
+    @PreDestroy
+    void chiudi() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void segnala(RecordedEvent event) {
+        eventi.incrementAndGet();
+
+        StringBuilder stack = new StringBuilder();
+        if (event.getStackTrace() != null) {
+            List<RecordedFrame> frames = event.getStackTrace().getFrames();
+            for (int i = 0; i < Math.min(FRAME_MOSTRATI, frames.size()); i++) {
+                RecordedFrame frame = frames.get(i);
+                stack.append("\n\tat ")
+                        .append(frame.getMethod().getType().getName())
+                        .append('.')
+                        .append(frame.getMethod().getName())
+                        .append(':')
+                        .append(frame.getLineNumber());
+            }
+        }
+
+        log.warn("Virtual thread pinned per {} ms{}", event.getDuration().toMillis(), stack);
+    }
+}
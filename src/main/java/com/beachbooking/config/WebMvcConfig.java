@@ -0,0 +1,28 @@
+package com.beachbooking.config;
+
+import com.beachbooking.querystats.QueryStatsInterceptor;
+import com.beachbooking.tenant.TenantInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configurazione Spring MVC: registra gli interceptor per la risoluzione del tenant
+ * e per le statistiche JDBC per handler.
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private TenantInterceptor tenantInterceptor;
+
+    @Autowired
+    private QueryStatsInterceptor queryStatsInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(tenantInterceptor).addPathPatterns("/api/**");
+        registry.addInterceptor(queryStatsInterceptor).addPathPatterns("/api/**");
+    }
+}
@@ -1,21 +1,34 @@
 package com.beachbooking.controller;
 
+import com.beachbooking.email.EmailOutboxDispatcher;
+import com.beachbooking.jobs.JobLease;
+import com.beachbooking.model.dto.response.CursorPageResponse;
 import com.beachbooking.model.dto.response.MessageResponse;
 import com.beachbooking.model.dto.response.TenantResponse;
 import com.beachbooking.model.entity.Tenant;
+import com.beachbooking.model.entity.TenantStats;
 import com.beachbooking.model.entity.User;
 import com.beachbooking.model.enums.StatoTenant;
+import com.beachbooking.pagination.KeysetOrder;
+import com.beachbooking.pagination.KeysetPager;
+import com.beachbooking.pagination.NdjsonWriter;
+import com.beachbooking.querystats.QueryBudget;
 import com.beachbooking.repository.*;
+import com.beachbooking.service.AuthService;
+import com.beachbooking.service.PlatformStatsService;
 import com.beachbooking.service.TenantService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -32,6 +45,9 @@ public class AdminController {
     @Autowired
     private TenantService tenantService;
 
+    @Autowired
+    private AuthService authService;
+
     @Autowired
     private TenantRepository tenantRepository;
 
@@ -39,49 +55,51 @@ public class AdminController {
     private UserRepository userRepository;
 
     @Autowired
-    private OmbrelloneRepository ombrelloneRepository;
+    private PagamentoRepository pagamentoRepository;
 
     @Autowired
-    private PrenotazioneRepository prenotazioneRepository;
+    private PlatformStatsService platformStatsService;
 
     @Autowired
-    private PagamentoRepository pagamentoRepository;
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+
+    @Autowired
+    private EmailOutboxDispatcher emailOutboxDispatcher;
+
+    @Autowired
+    private JobLease jobLease;
+
+    private static final KeysetOrder<User> ORDINE_UTENTI =
+            KeysetOrder.of("dataRegistrazione", User::getDataRegistrazione, User::getId);
 
     /**
      * GET /api/admin/dashboard
      * Statistiche generali della piattaforma.
      */
     @GetMapping("/dashboard")
+    @QueryBudget(3)
     public ResponseEntity<DashboardStats> getDashboardStats() {
 
-        long totalTenants = tenantRepository.count();
-        long activeTenants = tenantRepository.findByStato(StatoTenant.ACTIVE).size();
-        long trialTenants = tenantRepository.findByStato(StatoTenant.TRIAL).size();
-        long suspendedTenants = tenantRepository.findByStato(StatoTenant.SUSPENDED).size();
+        Map<StatoTenant, Long> tenantPerStato = platformStatsService.countTenantPerStato();
+        long totalTenants = tenantPerStato.values().stream().mapToLong(Long::longValue).sum();
 
         long totalUsers = userRepository.count();
-        long totalOmbrelloni = ombrelloneRepository.count();
-        long totalPrenotazioni = prenotazioneRepository.count();
 
-        // Revenue totale piattaforma
-        BigDecimal totalRevenue = BigDecimal.ZERO;
-        List<Tenant> tenants = tenantRepository.findAll();
-        for (Tenant tenant : tenants) {
-            BigDecimal tenantRevenue = prenotazioneRepository.getTotalRevenue(tenant.getId());
-            if (tenantRevenue != null) {
-                totalRevenue = totalRevenue.add(tenantRevenue);
-            }
-        }
+        // Totali dalla tabella tenant_stats, senza scorrere le prenotazioni
+        TenantStatsRepository.Totali totali = platformStatsService.getTotali();
 
         DashboardStats stats = new DashboardStats(
                 totalTenants,
-                activeTenants,
-                trialTenants,
-                suspendedTenants,
+                tenantPerStato.get(StatoTenant.ACTIVE),
+                tenantPerStato.get(StatoTenant.TRIAL),
+                tenantPerStato.get(StatoTenant.SUSPENDED),
                 totalUsers,
-                totalOmbrelloni,
-                totalPrenotazioni,
-                totalRevenue
+                totali.getOmbrelloni(),
+                totali.getPrenotazioni(),
+                totali.getRevenue()
         );
 
         return ResponseEntity.ok(stats);
@@ -92,11 +110,14 @@ public class AdminController {
      * Lista tutti i tenant con statistiche.
      */
     @GetMapping("/tenants")
+    @QueryBudget(2)
     public ResponseEntity<List<TenantWithStats>> getAllTenantsWithStats() {
         List<Tenant> tenants = tenantRepository.findAll();
+        Map<UUID, TenantStats> stats = platformStatsService.findAllByTenant();
 
         List<TenantWithStats> response = tenants.stream()
-                .map(this::buildTenantWithStats)
+                .map(tenant -> buildTenantWithStats(tenant,
+                        stats.getOrDefault(tenant.getId(), TenantStats.vuote(tenant.getId()))))
                 .collect(Collectors.toList());
 
         return ResponseEntity.ok(response);
@@ -110,17 +131,14 @@ public class AdminController {
     public ResponseEntity<TenantDetailStats> getTenantDetail(@PathVariable UUID id) {
         Tenant tenant = tenantService.findById(id);
 
-        long users = userRepository.countByTenantIdAndRuolo(id, null);
-        long ombrelloni = ombrelloneRepository.countByTenantId(id);
-        long prenotazioni = prenotazioneRepository.findByTenantId(id).size();
-        BigDecimal revenue = prenotazioneRepository.getTotalRevenue(id);
+        TenantStats tenantStats = platformStatsService.findByTenant(id);
 
         TenantDetailStats stats = new TenantDetailStats(
                 mapToResponse(tenant),
-                users,
-                ombrelloni,
-                prenotazioni,
-                revenue != null ? revenue : BigDecimal.ZERO
+                tenantStats.getNumeroUtenti(),
+                tenantStats.getNumeroOmbrelloni(),
+                tenantStats.getNumeroPrenotazioni(),
+                tenantStats.getRevenue()
         );
 
         return ResponseEntity.ok(stats);
@@ -218,72 +236,126 @@ public class AdminController {
     /**
      * GET /api/admin/users
      * Lista tutti gli utenti della piattaforma.
+     * Con limit e/o after la risposta è paginata (keyset su dataRegistrazione, id).
      */
     @GetMapping("/users")
-    public ResponseEntity<List<UserWithTenant>> getAllUsers() {
+    @QueryBudget(2)
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) Integer limit,
+                                         @RequestParam(required = false) String after) {
+        if (limit != null || after != null) {
+            CursorPageResponse<User> page = keysetPager.page(userRepository, ORDINE_UTENTI, null, after, limit);
+            Map<UUID, String> tenantNames = nomiTenant(page.getItems());
+            return ResponseEntity.ok(page.map(user -> mapUser(user, tenantNames)));
+        }
+
         List<User> users = userRepository.findAll();
+        Map<UUID, String> tenantNames = nomiTenant(users);
 
         List<UserWithTenant> response = users.stream()
-                .map(user -> {
-                    String tenantName = null;
-                    if (user.getTenantId() != null) {
-                        tenantRepository.findById(user.getTenantId())
-                                .ifPresent(t -> {});
-                    }
-                    return new UserWithTenant(
-                            user.getId(),
-                            user.getEmail(),
-                            user.getNomeCompleto(),
-                            user.getRuolo().name(),
-                            user.getTenantId(),
-                            tenantName,
-                            user.getAttivo()
-                    );
-                })
+                .map(user -> mapUser(user, tenantNames))
                 .collect(Collectors.toList());
 
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * GET /api/admin/users (Accept: application/x-ndjson)
+     * Tutti gli utenti della piattaforma, uno per riga.
+     */
+    @GetMapping(value = "/users", produces = NdjsonWriter.MEDIA_TYPE)
+    public void streamAllUsers(HttpServletResponse response) throws IOException {
+        Map<UUID, String> tenantNames = tenantRepository.findAll().stream()
+                .collect(Collectors.toMap(Tenant::getId, Tenant::getNomeStabilimento));
+
+        ndjsonWriter.write(response, out -> keysetPager.forEach(userRepository, ORDINE_UTENTI, null,
+                user -> out.accept(mapUser(user, tenantNames))));
+    }
+
+    /**
+     * POST /api/admin/users/{id}/deactivate
+     * Disattiva un utente: i suoi token vengono rifiutati da subito.
+     */
+    @PostMapping("/users/{id}/deactivate")
+    public ResponseEntity<?> deactivateUser(@PathVariable UUID id) {
+        try {
+            authService.disattivaUtente(id);
+            return ResponseEntity.ok(MessageResponse.success("Utente disattivato"));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(MessageResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * POST /api/admin/users/{id}/activate
+     * Riattiva un utente disattivato (dovrà rifare il login).
+     */
+    @PostMapping("/users/{id}/activate")
+    public ResponseEntity<?> activateUser(@PathVariable UUID id) {
+        try {
+            authService.riattivaUtente(id);
+            return ResponseEntity.ok(MessageResponse.success("Utente riattivato"));
+        } catch (Exception e) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(MessageResponse.error(e.getMessage()));
+        }
+    }
+
     /**
      * GET /api/admin/stats/revenue-by-tenant
      * Revenue per tenant (top 10).
      */
     @GetMapping("/stats/revenue-by-tenant")
     public ResponseEntity<List<TenantRevenue>> getRevenueByTenant() {
-        List<Tenant> tenants = tenantRepository.findAll();
-
-        List<TenantRevenue> revenues = tenants.stream()
-                .map(tenant -> {
-                    BigDecimal revenue = prenotazioneRepository.getTotalRevenue(tenant.getId());
-                    return new TenantRevenue(
-                            tenant.getId(),
-                            tenant.getNomeStabilimento(),
-                            revenue != null ? revenue : BigDecimal.ZERO
-                    );
-                })
-                .sorted((a, b) -> b.getRevenue().compareTo(a.getRevenue()))
-                .limit(10)
+        List<TenantStats> top = platformStatsService.findTopRevenue();
+
+        Map<UUID, String> tenantNames = tenantRepository.findAllById(
+                top.stream().map(TenantStats::getTenantId).collect(Collectors.toList())
+        ).stream().collect(Collectors.toMap(Tenant::getId, Tenant::getNomeStabilimento));
+
+        List<TenantRevenue> revenues = top.stream()
+                .filter(s -> tenantNames.containsKey(s.getTenantId()))
+                .map(s -> new TenantRevenue(
+                        s.getTenantId(),
+                        tenantNames.get(s.getTenantId()),
+                        s.getRevenue()
+                ))
                 .collect(Collectors.toList());
 
         return ResponseEntity.ok(revenues);
     }
 
-    // Helper methods
-    private TenantWithStats buildTenantWithStats(Tenant tenant) {
-        long users = userRepository.countByTenantIdAndRuolo(tenant.getId(), null);
-        long ombrelloni = ombrelloneRepository.countByTenantId(tenant.getId());
-        long prenotazioni = prenotazioneRepository.findByTenantId(tenant.getId()).size();
+    /**
+     * GET /api/admin/email/stats
+     * Stato della outbox email: profondità coda, inviate, fallite, latenza di invio.
+     */
+    @GetMapping("/email/stats")
+    public ResponseEntity<Map<String, Object>> getEmailStats() {
+        return ResponseEntity.ok(emailOutboxDispatcher.getStatistiche());
+    }
 
+    /**
+     * GET /api/admin/jobs
+     * Ultima esecuzione dei job giornalieri: giorno, righe elaborate, durata, esito.
+     */
+    @GetMapping("/jobs")
+    public ResponseEntity<List<Map<String, Object>>> getJobs() {
+        return ResponseEntity.ok(jobLease.findAll());
+    }
+
+    // Helper methods
+    private TenantWithStats buildTenantWithStats(Tenant tenant, TenantStats stats) {
         return new TenantWithStats(
                 tenant.getId(),
                 tenant.getNomeStabilimento(),
                 tenant.getSlug(),
                 tenant.getPiano().name(),
                 tenant.getStato().name(),
-                users,
-                ombrelloni,
-                prenotazioni
+                stats.getNumeroUtenti(),
+                stats.getNumeroOmbrelloni(),
+                stats.getNumeroPrenotazioni()
         );
     }
 
@@ -300,6 +372,30 @@ public class AdminController {
                 .build();
     }
 
+    /**
+     * Nomi dei soli tenant degli utenti indicati, con una query.
+     */
+    private Map<UUID, String> nomiTenant(List<User> users) {
+        return tenantRepository.findAllById(
+                users.stream()
+                        .map(User::getTenantId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet())
+        ).stream().collect(Collectors.toMap(Tenant::getId, Tenant::getNomeStabilimento));
+    }
+
+    private UserWithTenant mapUser(User user, Map<UUID, String> tenantNames) {
+        return new UserWithTenant(
+                user.getId(),
+                user.getEmail(),
+                user.getNomeCompleto(),
+                user.getRuolo().name(),
+                user.getTenantId(),
+                user.getTenantId() != null ? tenantNames.get(user.getTenantId()) : null,
+                user.getAttivo()
+        );
+    }
+
     // DTO
     @lombok.Data
     @lombok.AllArgsConstructor
@@ -225,9 +225,8 @@ public class AuthController {
                         .body(MessageResponse.error("Le password non coincidono"));
             }
 
-            User currentUser = authService.getCurrentUser();
             authService.changePassword(
-                    currentUser.getId(),
+                    authService.getCurrentPrincipal().getId(),
                     request.getOldPassword(),
                     request.getNewPassword()
             );
@@ -1,15 +1,26 @@
 package com.beachbooking.controller;
 
 import com.beachbooking.model.dto.request.CreateOmbrelloneRequest;
+import com.beachbooking.model.dto.response.CursorPageResponse;
+import com.beachbooking.model.dto.response.OmbrelloneResponse;
 import com.beachbooking.model.entity.Ombrellone;
 import com.beachbooking.model.enums.TipoOmbrellone;
+import com.beachbooking.pagination.NdjsonWriter;
+import com.beachbooking.service.MapSnapshotService;
 import com.beachbooking.service.OmbrelloneService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -21,6 +32,12 @@ public class OmbrelloneController {
     @Autowired
     private OmbrelloneService ombrelloneService;
 
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+
+    @Autowired
+    private MapSnapshotService mapSnapshotService;
+
     @PostMapping
     public ResponseEntity<Ombrellone> create(@Valid @RequestBody CreateOmbrelloneRequest request) {
         Ombrellone created = ombrelloneService.create(
@@ -41,27 +58,74 @@ public class OmbrelloneController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Ombrellone>> findAll() {
+    public ResponseEntity<?> findAll(@RequestParam(required = false) Integer limit,
+                                     @RequestParam(required = false) String after) {
+        if (limit != null || after != null) {
+            CursorPageResponse<Ombrellone> page = ombrelloneService.findPage(after, limit);
+            return ResponseEntity.ok(page);
+        }
         return ResponseEntity.ok(ombrelloneService.findAll());
     }
 
+    @GetMapping(produces = NdjsonWriter.MEDIA_TYPE)
+    public void streamAll(HttpServletResponse response) throws IOException {
+        ndjsonWriter.write(response, out -> ombrelloneService.forEach(out::accept));
+    }
+
     @GetMapping("/active")
-    public ResponseEntity<List<Ombrellone>> findAllActive() {
+    public ResponseEntity<List<OmbrelloneResponse>> findAllActive() {
         return ResponseEntity.ok(ombrelloneService.findAllActive());
     }
 
+    @GetMapping("/viewport")
+    public ResponseEntity<List<Ombrellone>> findInViewport(@RequestParam int xMin,
+                                                           @RequestParam int yMin,
+                                                           @RequestParam int xMax,
+                                                           @RequestParam int yMax) {
+        return ResponseEntity.ok(ombrelloneService.findInViewport(xMin, yMin, xMax, yMax));
+    }
+
+    /**
+     * Snapshot compatto della mappa con disponibilità per il periodo (default: solo dataInizio).
+     * Risponde 304 se l'ETag inviato in If-None-Match è ancora valido.
+     */
+    @GetMapping("/mappa")
+    public ResponseEntity<byte[]> mappa(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInizio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+
+        LocalDate fine = dataFine != null ? dataFine : dataInizio;
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+
+        String etag = mapSnapshotService.etag(dataInizio, fine);
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        MapSnapshotService.Snapshot snapshot = mapSnapshotService.getSnapshot(dataInizio, fine);
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.getJson());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Ombrellone> findById(@PathVariable UUID id) {
         return ResponseEntity.ok(ombrelloneService.findById(id));
     }
 
     @GetMapping("/fila/{fila}")
-    public ResponseEntity<List<Ombrellone>> findByFila(@PathVariable String fila) {
+    public ResponseEntity<List<OmbrelloneResponse>> findByFila(@PathVariable String fila) {
         return ResponseEntity.ok(ombrelloneService.findByFila(fila));
     }
 
     @GetMapping("/tipo/{tipo}")
-    public ResponseEntity<List<Ombrellone>> findByTipo(@PathVariable TipoOmbrellone tipo) {
+    public ResponseEntity<List<OmbrelloneResponse>> findByTipo(@PathVariable TipoOmbrellone tipo) {
         return ResponseEntity.ok(ombrelloneService.findByTipo(tipo));
     }
 
@@ -1,12 +1,15 @@
 package com.beachbooking.controller;
 
 import com.beachbooking.model.dto.request.CreatePagamentoRequest;
+import com.beachbooking.model.dto.response.CursorPageResponse;
 import com.beachbooking.model.dto.response.MessageResponse;
 import com.beachbooking.model.dto.response.PagamentoResponse;
 import com.beachbooking.model.entity.Pagamento;
 import com.beachbooking.model.enums.MetodoPagamento;
 import com.beachbooking.model.enums.StatoPrenotazione;
+import com.beachbooking.pagination.NdjsonWriter;
 import com.beachbooking.service.PagamentoService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -15,9 +18,9 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * Controller per la gestione dei Pagamenti.
@@ -31,6 +34,9 @@ public class PagamentoController {
     @Autowired
     private PagamentoService pagamentoService;
 
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+
     /**
      * POST /api/pagamenti
      * Crea un nuovo pagamento per una prenotazione.
@@ -62,31 +68,51 @@ public class PagamentoController {
     /**
      * GET /api/pagamenti
      * Lista tutti i pagamenti del tenant.
+     * Con limit e/o after la risposta è paginata (keyset su dataCreazione, id).
      * Solo staff/admin.
      */
     @GetMapping
     @PreAuthorize("hasAnyRole('TENANT_ADMIN', 'STAFF', 'SUPER_ADMIN')")
-    public ResponseEntity<List<PagamentoResponse>> findAll(
+    public ResponseEntity<?> findAll(
             @RequestParam(required = false) StatoPrenotazione stato,
-            @RequestParam(required = false) MetodoPagamento metodo) {
+            @RequestParam(required = false) MetodoPagamento metodo,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
+
+        if (limit != null || after != null) {
+            CursorPageResponse<Pagamento> page = pagamentoService.findPage(stato, metodo, after, limit);
+            return ResponseEntity.ok(page.map(this::mapToResponse));
+        }
 
-        List<Pagamento> pagamenti;
+        List<PagamentoResponse> response;
 
         if (stato != null) {
-            pagamenti = pagamentoService.findByStato(stato);
+            response = pagamentoService.findByStato(stato);
         } else if (metodo != null) {
-            pagamenti = pagamentoService.findByMetodo(metodo);
+            response = pagamentoService.findByMetodo(metodo);
         } else {
-            pagamenti = pagamentoService.findAll();
+            response = pagamentoService.findAll();
         }
 
-        List<PagamentoResponse> response = pagamenti.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
-
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * GET /api/pagamenti (Accept: application/x-ndjson)
+     * Tutti i pagamenti del tenant, uno per riga.
+     * Solo staff/admin.
+     */
+    @GetMapping(produces = NdjsonWriter.MEDIA_TYPE)
+    @PreAuthorize("hasAnyRole('TENANT_ADMIN', 'STAFF', 'SUPER_ADMIN')")
+    public void streamAll(
+            @RequestParam(required = false) StatoPrenotazione stato,
+            @RequestParam(required = false) MetodoPagamento metodo,
+            HttpServletResponse response) throws IOException {
+
+        ndjsonWriter.write(response, out ->
+                pagamentoService.forEach(stato, metodo, p -> out.accept(mapToResponse(p))));
+    }
+
     /**
      * GET /api/pagamenti/{id}
      * Dettagli pagamento.
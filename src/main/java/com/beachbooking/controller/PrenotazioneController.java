@@ -1,24 +1,32 @@
 package com.beachbooking.controller;
 
+import com.beachbooking.exception.BookingConflictException;
+import com.beachbooking.model.dto.request.CreatePrenotazioneBatchRequest;
 import com.beachbooking.model.dto.request.CreatePrenotazioneRequest;
+import com.beachbooking.model.dto.request.QuotePrenotazioneRequest;
+import com.beachbooking.model.dto.response.CursorPageResponse;
 import com.beachbooking.model.dto.response.MessageResponse;
 import com.beachbooking.model.dto.response.OmbrelloneResponse;
 import com.beachbooking.model.dto.response.PrenotazioneResponse;
 import com.beachbooking.model.entity.Ombrellone;
 import com.beachbooking.model.entity.Prenotazione;
-import com.beachbooking.model.entity.User;
 import com.beachbooking.model.enums.StatoPrenotazione;
+import com.beachbooking.pagination.NdjsonWriter;
+import com.beachbooking.security.AuthenticatedUser;
 import com.beachbooking.service.AuthService;
 import com.beachbooking.service.PrenotazioneService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
@@ -49,6 +57,9 @@ public class PrenotazioneController {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+
     /**
      * POST /api/prenotazioni
      * Crea una nuova prenotazione.
@@ -59,7 +70,7 @@ public class PrenotazioneController {
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> create(@Valid @RequestBody CreatePrenotazioneRequest request) {
         try {
-            User currentUser = authService.getCurrentUser();
+            AuthenticatedUser currentUser = authService.getCurrentPrincipal();
 
             // Se userId non è specificato, usa l'utente corrente
             UUID userId = request.getUserId() != null ?
@@ -88,6 +99,66 @@ public class PrenotazioneController {
                     .status(HttpStatus.CREATED)
                     .body(mapToResponse(prenotazione));
 
+        } catch (BookingConflictException e) {
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body(MessageResponse.error(e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(MessageResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * POST /api/prenotazioni/batch
+     * Prenota più ombrelloni con le stesse date in un'unica transazione.
+     * Se anche un solo ombrellone non è disponibile non viene creata nessuna prenotazione
+     * e la risposta 409 contiene il motivo per ciascun ombrellone in conflitto.
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> createBatch(@Valid @RequestBody CreatePrenotazioneBatchRequest request) {
+        try {
+            AuthenticatedUser currentUser = authService.getCurrentPrincipal();
+
+            UUID userId = request.getUserId() != null ?
+                    request.getUserId() : currentUser.getId();
+
+            if (!userId.equals(currentUser.getId()) &&
+                    !hasStaffRole(currentUser)) {
+                return ResponseEntity
+                        .status(HttpStatus.FORBIDDEN)
+                        .body(MessageResponse.error(
+                                "Non puoi creare prenotazioni per altri utenti"
+                        ));
+            }
+
+            List<Prenotazione> prenotazioni = prenotazioneService.createBatch(
+                    userId,
+                    request.getOmbrelloneIds(),
+                    request.getDataInizio(),
+                    request.getDataFine(),
+                    request.getTipoPrenotazione(),
+                    request.getNote()
+            );
+
+            List<PrenotazioneResponse> response = prenotazioni.stream()
+                    .map(this::mapToResponse)
+                    .collect(Collectors.toList());
+
+            return ResponseEntity
+                    .status(HttpStatus.CREATED)
+                    .body(response);
+
+        } catch (BookingConflictException e) {
+            List<ConflittoOmbrellone> conflitti = e.getConflitti().entrySet().stream()
+                    .map(c -> new ConflittoOmbrellone(c.getKey(), c.getValue()))
+                    .collect(Collectors.toList());
+
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body(new BatchConflictResponse(e.getMessage(), false, conflitti));
         } catch (RuntimeException e) {
             return ResponseEntity
                     .badRequest()
@@ -100,46 +171,82 @@ public class PrenotazioneController {
      * Lista prenotazioni.
      * - Clienti vedono solo le proprie
      * - Staff/Admin vedono tutte quelle del tenant
+     *
+     * Con limit e/o after la risposta è paginata (keyset su dataCreazione, id):
+     * per la pagina successiva passare nextCursor come "after".
+     * Senza paginazione restituisce la lista completa, come in passato.
      */
     @GetMapping
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<PrenotazioneResponse>> findAll(
+    public ResponseEntity<?> findAll(
             @RequestParam(required = false) StatoPrenotazione stato,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInizio,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after) {
+
+        AuthenticatedUser currentUser = authService.getCurrentPrincipal();
+
+        if (limit != null || after != null) {
+            CursorPageResponse<Prenotazione> page = hasStaffRole(currentUser)
+                    ? prenotazioneService.findPage(null, stato, dataInizio, dataFine, after, limit)
+                    : prenotazioneService.findPage(currentUser.getId(), stato, null, null, after, limit);
 
-        User currentUser = authService.getCurrentUser();
-        List<Prenotazione> prenotazioni;
+            return ResponseEntity.ok(page.map(this::mapToResponse));
+        }
+
+        List<PrenotazioneResponse> response;
 
         // Filtra in base al ruolo
         if (hasStaffRole(currentUser)) {
             // Staff/Admin vedono tutte
             if (dataInizio != null && dataFine != null) {
-                prenotazioni = prenotazioneService.findByDateRange(dataInizio, dataFine);
+                response = prenotazioneService.findByDateRange(dataInizio, dataFine);
             } else if (stato != null) {
-                prenotazioni = prenotazioneService.findByStato(stato);
+                response = prenotazioneService.findByStato(stato);
             } else {
-                prenotazioni = prenotazioneService.findAll();
+                response = prenotazioneService.findAll();
             }
         } else {
             // Cliente vede solo le sue
-            prenotazioni = prenotazioneService.findByUserId(currentUser.getId());
+            response = prenotazioneService.findByUserId(currentUser.getId());
 
             // Applica filtri se presenti
             if (stato != null) {
-                prenotazioni = prenotazioni.stream()
-                        .filter(p -> p.getStato() == stato)
+                response = response.stream()
+                        .filter(p -> stato.name().equals(p.getStato()))
                         .collect(Collectors.toList());
             }
         }
 
-        List<PrenotazioneResponse> response = prenotazioni.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
-
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * GET /api/prenotazioni (Accept: application/x-ndjson)
+     * Stessi filtri di findAll, ma scrive una prenotazione per riga
+     * man mano che vengono lette dal DB.
+     */
+    @GetMapping(produces = NdjsonWriter.MEDIA_TYPE)
+    @PreAuthorize("isAuthenticated()")
+    public void streamAll(
+            @RequestParam(required = false) StatoPrenotazione stato,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInizio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine,
+            HttpServletResponse response) throws IOException {
+
+        AuthenticatedUser currentUser = authService.getCurrentPrincipal();
+        boolean staff = hasStaffRole(currentUser);
+
+        ndjsonWriter.write(response, out -> prenotazioneService.forEach(
+                staff ? null : currentUser.getId(),
+                stato,
+                staff ? dataInizio : null,
+                staff ? dataFine : null,
+                p -> out.accept(mapToResponse(p))
+        ));
+    }
+
     /**
      * GET /api/prenotazioni/me
      * Le mie prenotazioni (shortcut per utente corrente).
@@ -147,14 +254,8 @@ public class PrenotazioneController {
     @GetMapping("/me")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<List<PrenotazioneResponse>> getMyPrenotazioni() {
-        User currentUser = authService.getCurrentUser();
-        List<Prenotazione> prenotazioni = prenotazioneService.findByUserId(currentUser.getId());
-
-        List<PrenotazioneResponse> response = prenotazioni.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(response);
+        AuthenticatedUser currentUser = authService.getCurrentPrincipal();
+        return ResponseEntity.ok(prenotazioneService.findByUserId(currentUser.getId()));
     }
 
     /**
@@ -165,13 +266,7 @@ public class PrenotazioneController {
     @GetMapping("/active")
     @PreAuthorize("hasAnyRole('TENANT_ADMIN', 'STAFF', 'SUPER_ADMIN')")
     public ResponseEntity<List<PrenotazioneResponse>> getActivePrenotazioni() {
-        List<Prenotazione> prenotazioni = prenotazioneService.findPrenotazioniAttive();
-
-        List<PrenotazioneResponse> response = prenotazioni.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(prenotazioneService.findPrenotazioniAttive());
     }
 
     /**
@@ -184,7 +279,7 @@ public class PrenotazioneController {
     public ResponseEntity<?> findById(@PathVariable UUID id) {
         try {
             Prenotazione prenotazione = prenotazioneService.findById(id);
-            User currentUser = authService.getCurrentUser();
+            AuthenticatedUser currentUser = authService.getCurrentPrincipal();
 
             // Verifica accesso
             if (!canAccessPrenotazione(prenotazione, currentUser)) {
@@ -211,7 +306,7 @@ public class PrenotazioneController {
     public ResponseEntity<?> findByCodice(@PathVariable String codice) {
         try {
             Prenotazione prenotazione = prenotazioneService.findByCodice(codice);
-            User currentUser = authService.getCurrentUser();
+            AuthenticatedUser currentUser = authService.getCurrentPrincipal();
 
             if (!canAccessPrenotazione(prenotazione, currentUser)) {
                 return ResponseEntity
@@ -228,6 +323,27 @@ public class PrenotazioneController {
         }
     }
 
+    /**
+     * POST /api/prenotazioni/quote
+     * Disponibilità e prezzo di ogni ombrellone attivo per un periodo,
+     * per mostrare la mappa della spiaggia senza prenotare.
+     */
+    @PostMapping("/quote")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> quote(@Valid @RequestBody QuotePrenotazioneRequest request) {
+        try {
+            return ResponseEntity.ok(prenotazioneService.quote(
+                    request.getDataInizio(),
+                    request.getDataFine(),
+                    request.getTipoPrenotazione()
+            ));
+        } catch (RuntimeException e) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(MessageResponse.error(e.getMessage()));
+        }
+    }
+
     /**
      * GET /api/prenotazioni/disponibili
      * Trova ombrelloni disponibili in un periodo.
@@ -254,6 +370,59 @@ public class PrenotazioneController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * GET /api/prenotazioni/disponibili/vicini
+     * Ombrelloni liberi nel periodo più vicini a un punto della mappa, dal più vicino.
+     */
+    @GetMapping("/disponibili/vicini")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> findViciniDisponibili(
+            @RequestParam int x,
+            @RequestParam int y,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInizio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine,
+            @RequestParam(defaultValue = "5") int k) {
+
+        if (dataInizio.isAfter(dataFine)) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(MessageResponse.error("Data inizio deve essere prima di data fine"));
+        }
+
+        List<OmbrelloneResponse> response = prenotazioneService
+                .findViciniDisponibili(x, y, dataInizio, dataFine, k).stream()
+                .map(this::mapOmbrelloneToResponse)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * GET /api/prenotazioni/disponibili/stream
+     * Stream SSE delle variazioni di disponibilità nel periodo (eventi "delta").
+     * Alla riconnessione il browser invia Last-Event-ID e riceve i delta persi,
+     * oppure un evento "reset" se deve ricaricare la disponibilità completa.
+     */
+    @GetMapping(value = "/disponibili/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> streamDisponibilita(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInizio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFine,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(required = false) Long since) {
+
+        try {
+            Long ultimoSeq = lastEventId != null ? lastEventId : since;
+            return ResponseEntity.ok(
+                    prenotazioneService.apriStreamDisponibilita(dataInizio, dataFine, ultimoSeq));
+        } catch (RuntimeException e) {
+            return ResponseEntity
+                    .badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(MessageResponse.error(e.getMessage()));
+        }
+    }
+
     /**
      * PUT /api/prenotazioni/{id}/confirm
      * Conferma una prenotazione.
@@ -320,7 +489,7 @@ public class PrenotazioneController {
             @RequestParam(required = false) String motivo) {
         try {
             Prenotazione prenotazione = prenotazioneService.findById(id);
-            User currentUser = authService.getCurrentUser();
+            AuthenticatedUser currentUser = authService.getCurrentPrincipal();
 
             // Verifica permessi
             if (!canModifyPrenotazione(prenotazione, currentUser)) {
@@ -371,23 +540,22 @@ public class PrenotazioneController {
     // METODI HELPER PRIVATI
     // ============================================
 
-    private boolean hasStaffRole(User user) {
-        return user.getRuolo().name().equals("STAFF") ||
-                user.getRuolo().name().equals("TENANT_ADMIN") ||
-                user.getRuolo().name().equals("SUPER_ADMIN");
+    private boolean hasStaffRole(AuthenticatedUser user) {
+        return user.isStaff();
     }
 
-    private boolean canAccessPrenotazione(Prenotazione prenotazione, User user) {
+    private boolean canAccessPrenotazione(Prenotazione prenotazione, AuthenticatedUser user) {
         return hasStaffRole(user) ||
                 prenotazione.getUserId().equals(user.getId());
     }
 
-    private boolean canModifyPrenotazione(Prenotazione prenotazione, User user) {
+    private boolean canModifyPrenotazione(Prenotazione prenotazione, AuthenticatedUser user) {
         return hasStaffRole(user) ||
                 prenotazione.getUserId().equals(user.getId());
     }
 
-    private PrenotazioneResponse mapToResponse(Prenotazione prenotazione) {
+    // Visibile nel package per PrenotazioneResponseBenchmark
+    PrenotazioneResponse mapToResponse(Prenotazione prenotazione) {
         return PrenotazioneResponse.builder()
                 .id(prenotazione.getId())
                 .userId(prenotazione.getUserId())
@@ -408,6 +576,7 @@ public class PrenotazioneController {
     private OmbrelloneResponse mapOmbrelloneToResponse(Ombrellone o) {
         return OmbrelloneResponse.builder()
                 .id(o.getId())
+                .tenantId(o.getTenantId())
                 .numero(o.getNumero())
                 .fila(o.getFila())
                 .tipo(o.getTipo().name())
@@ -416,6 +585,9 @@ public class PrenotazioneController {
                 .posizioneX(o.getPosizioneX())
                 .posizioneY(o.getPosizioneY())
                 .attivo(o.getAttivo())
+                .note(o.getNote())
+                .dataCreazione(o.getDataCreazione())
+                .dataAggiornamento(o.getDataAggiornamento())
                 .disponibile(true) // Tutti quelli restituiti sono disponibili
                 .build();
     }
@@ -435,4 +607,19 @@ public class PrenotazioneController {
         private Long refunded;
         private java.math.BigDecimal totalRevenue;
     }
+
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    private static class BatchConflictResponse {
+        private String message;
+        private Boolean success;
+        private List<ConflittoOmbrellone> conflitti;
+    }
+
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    private static class ConflittoOmbrellone {
+        private UUID ombrelloneId;
+        private String motivo;
+    }
 }
\ No newline at end of file
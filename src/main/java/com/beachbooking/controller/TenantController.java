@@ -1,12 +1,17 @@
 package com.beachbooking.controller;
 
 import com.beachbooking.model.dto.request.RegisterTenantRequest;
+import com.beachbooking.model.dto.response.CursorPageResponse;
 import com.beachbooking.model.dto.response.MessageResponse;
 import com.beachbooking.model.dto.response.TenantResponse;
 import com.beachbooking.model.entity.Tenant;
 import com.beachbooking.model.enums.PianoAbbonamento;
 import com.beachbooking.repository.OmbrelloneRepository;
+import com.beachbooking.pagination.NdjsonWriter;
+import com.beachbooking.pricing.PricingEngine;
+import com.beachbooking.pricing.RegoleListino;
 import com.beachbooking.service.TenantService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -15,6 +20,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -49,6 +55,12 @@ public class TenantController {
     @Autowired
     private OmbrelloneRepository ombrelloneRepository;
 
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
     /**
      * POST /api/tenants/register
      * Registra un nuovo tenant (stabilimento).
@@ -143,11 +155,18 @@ public class TenantController {
     /**
      * GET /api/tenants
      * Lista tutti i tenant.
+     * Con limit e/o after la risposta è paginata (keyset su dataCreazione, id).
      * Solo SUPER_ADMIN.
      */
     @GetMapping
     @PreAuthorize("hasRole('SUPER_ADMIN')")
-    public ResponseEntity<List<TenantResponse>> findAll() {
+    public ResponseEntity<?> findAll(@RequestParam(required = false) Integer limit,
+                                     @RequestParam(required = false) String after) {
+        if (limit != null || after != null) {
+            CursorPageResponse<Tenant> page = tenantService.findPage(after, limit);
+            return ResponseEntity.ok(page.map(this::mapToResponse));
+        }
+
         List<Tenant> tenants = tenantService.findAll();
         List<TenantResponse> response = tenants.stream()
                 .map(this::mapToResponse)
@@ -155,6 +174,17 @@ public class TenantController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * GET /api/tenants (Accept: application/x-ndjson)
+     * Tutti i tenant, uno per riga.
+     * Solo SUPER_ADMIN.
+     */
+    @GetMapping(produces = NdjsonWriter.MEDIA_TYPE)
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    public void streamAll(HttpServletResponse response) throws IOException {
+        ndjsonWriter.write(response, out -> tenantService.forEach(t -> out.accept(mapToResponse(t))));
+    }
+
     /**
      * PUT /api/tenants/{id}
      * Aggiorna un tenant.
@@ -223,6 +253,42 @@ public class TenantController {
         }
     }
 
+    /**
+     * GET /api/tenants/{id}/listino
+     * Regole di prezzo del tenant (stagioni, file, tipi, sconti).
+     */
+    @GetMapping("/{id}/listino")
+    @PreAuthorize("hasAnyRole('TENANT_ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<?> getListino(@PathVariable UUID id) {
+        if (!isAllowedToModify(id)) {
+            return ResponseEntity
+                    .status(HttpStatus.FORBIDDEN)
+                    .body(MessageResponse.error("Non autorizzato"));
+        }
+
+        return ResponseEntity.ok(pricingEngine.getRegole(id));
+    }
+
+    /**
+     * PUT /api/tenants/{id}/listino
+     * Sostituisce le regole di prezzo del tenant.
+     * Vale per le nuove prenotazioni; quelle esistenti mantengono il prezzo.
+     */
+    @PutMapping("/{id}/listino")
+    @PreAuthorize("hasAnyRole('TENANT_ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<?> updateListino(
+            @PathVariable UUID id,
+            @RequestBody RegoleListino regole) {
+
+        if (!isAllowedToModify(id)) {
+            return ResponseEntity
+                    .status(HttpStatus.FORBIDDEN)
+                    .body(MessageResponse.error("Non autorizzato"));
+        }
+
+        return ResponseEntity.ok(pricingEngine.salvaRegole(id, regole));
+    }
+
     /**
      * POST /api/tenants/{id}/suspend
      * Sospende un tenant.
@@ -0,0 +1,123 @@
+package com.beachbooking.email;
+
+import com.beachbooking.metrics.AppMetrics;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connessione SMTP condivisa tra i batch della outbox.
+ *
+ * JavaMailSender.send apre e chiude una connessione a ogni chiamata (handshake,
+ * STARTTLS e AUTH ogni volta); qui il Transport resta aperto tra un batch e l'altro
+ * e viene chiuso dopo app.email.smtp-idle-ms senza invii. Prima di ogni batch un
+ * NOOP verifica che il server non l'abbia chiusa nel frattempo; un errore che non
+ * riguarda i destinatari chiude la connessione, riaperta al batch successivo.
+ */
+@Component
+public class ConnessioneSmtp {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnessioneSmtp.class);
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+
+    @Autowired
+    private AppMetrics appMetrics;
+
+    @Value("${app.email.smtp-idle-ms:60000}")
+    private long idleMs;
+
+    private Transport transport;
+    private long ultimoUso;
+
+    /**
+     * Verifica la connessione e la riapre se il server l'ha chiusa.
+     */
+    public synchronized void connetti() throws MessagingException {
+        if (transport != null && !transport.isConnected()) {
+            chiudi();
+        }
+        if (transport == null) {
+            String username = mailSender.getUsername();
+            String password = mailSender.getPassword();
+            if ("".equals(username)) {
+                username = null;
+                password = null;
+            }
+            Transport nuovo = mailSender.getSession().getTransport(protocollo());
+            nuovo.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+            transport = nuovo;
+            appMetrics.connessioneSmtp();
+        }
+        ultimoUso = System.nanoTime();
+    }
+
+    /**
+     * Invia un messaggio sulla connessione aperta da connetti().
+     * Solo un rifiuto dei destinatari lascia la connessione utilizzabile.
+     */
+    public synchronized void invia(MimeMessage messaggio) throws MessagingException {
+        if (transport == null) {
+            throw new MessagingException("Connessione SMTP chiusa");
+        }
+        if (messaggio.getSentDate() == null) {
+            messaggio.setSentDate(new Date());
+        }
+        messaggio.saveChanges();
+        try {
+            transport.sendMessage(messaggio, messaggio.getAllRecipients());
+            ultimoUso = System.nanoTime();
+        } catch (SendFailedException e) {
+            throw e;
+        } catch (MessagingException e) {
+            chiudi();
+            throw e;
+        }
+    }
+
+    public synchronized boolean isAperta() {
+        return transport != null;
+    }
+
+    /**
+     * Chiude la connessione se non viene usata da almeno idle-ms.
+     */
+    public synchronized void chiudiSeInattiva() {
+        if (transport != null && System.nanoTime() - ultimoUso > TimeUnit.MILLISECONDS.toNanos(idleMs)) {
+            chiudi();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void chiudi() {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Chiusura connessione SMTP: {}", e.getMessage());
+        }
+        transport = null;
+    }
+
+    private String protocollo() {
+        String protocollo = mailSender.getProtocol();
+        if (protocollo == null) {
+            protocollo = mailSender.getSession().getProperty("mail.transport.protocol");
+        }
+        return protocollo != null ? protocollo : JavaMailSenderImpl.DEFAULT_PROTOCOL;
+    }
+}
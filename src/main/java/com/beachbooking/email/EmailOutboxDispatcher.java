@@ -0,0 +1,236 @@
+package com.beachbooking.email;
+
+import com.beachbooking.metrics.AppMetrics;
+import com.beachbooking.model.entity.EmailOutbox;
+import com.beachbooking.model.enums.StatoEmail;
+import com.beachbooking.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Svuota la tabella email_outbox in batch.
+ *
+ * Ogni batch viene prenotato in una transazione breve (FOR UPDATE SKIP LOCKED,
+ * prossimo_tentativo spostato avanti di un lease) e inviato fuori transazione
+ * sulla connessione SMTP condivisa (ConnessioneSmtp), riusata tra i batch. Se
+ * l'istanza cade durante l'invio, allo scadere del lease le email tornano disponibili.
+ * Gli errori vengono ritentati con backoff esponenziale fino a max-tentativi, poi
+ * l'email passa a FAILED. Coda, invii e latenza sono esportati da AppMetrics.
+ */
+@Component
+public class EmailOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private ConnessioneSmtp connessioneSmtp;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AppMetrics appMetrics;
+
+    @Value("${spring.mail.username}")
+    private String fromEmail;
+
+    @Value("${app.email.batch:50}")
+    private int dimensioneBatch;
+
+    @Value("${app.email.max-tentativi:8}")
+    private int maxTentativi;
+
+    @Value("${app.email.backoff-base-ms:30000}")
+    private long backoffBaseMs;
+
+    @Value("${app.email.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    @Value("${app.email.lease-ms:300000}")
+    private long leaseMs;
+
+    @Scheduled(initialDelayString = "${app.email.dispatch-ms:2000}",
+            fixedDelayString = "${app.email.dispatch-ms:2000}")
+    public void dispatch() {
+        try {
+            List<EmailOutbox> batch;
+            do {
+                batch = prenota();
+                if (!batch.isEmpty()) {
+                    registraEsito(batch, invia(batch));
+                }
+            } while (batch.size() == dimensioneBatch);
+
+            appMetrics.codaEmail(emailOutboxRepository.countByStato(StatoEmail.PENDING));
+        } catch (RuntimeException e) {
+            log.error("Errore invio email dalla outbox", e);
+        } finally {
+            connessioneSmtp.chiudiSeInattiva();
+        }
+    }
+
+    /**
+     * Contatori per il monitoraggio: profondità coda, inviate, fallite, latenza di invio
+     * (gli stessi valori esportati come email.outbox.* in Micrometer).
+     */
+    public Map<String, Object> getStatistiche() {
+        return appMetrics.statisticheEmail();
+    }
+
+    private List<EmailOutbox> prenota() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime adesso = LocalDateTime.now();
+            List<EmailOutbox> batch = emailOutboxRepository.lockDaInviare(adesso, dimensioneBatch);
+            LocalDateTime scadenzaLease = adesso.plusNanos(leaseMs * 1_000_000);
+            for (EmailOutbox email : batch) {
+                email.setProssimoTentativo(scadenzaLease);
+            }
+            return batch;
+        });
+    }
+
+    /**
+     * Invia il batch sulla connessione SMTP condivisa.
+     * Restituisce gli errori per email (assenti = inviata).
+     */
+    private Map<EmailOutbox, Exception> invia(List<EmailOutbox> batch) {
+        Map<EmailOutbox, Exception> errori = new IdentityHashMap<>();
+        Timer.Sample sample = appMetrics.avvia();
+
+        try {
+            connessioneSmtp.connetti();
+        } catch (MessagingException e) {
+            // Connessione o autenticazione: nessuna email del batch parte
+            batch.forEach(email -> errori.put(email, e));
+        }
+
+        for (int i = 0; i < batch.size() && connessioneSmtp.isAperta(); i++) {
+            EmailOutbox email = batch.get(i);
+            try {
+                connessioneSmtp.invia(creaMessaggio(email));
+            } catch (MessagingException e) {
+                errori.put(email, e);
+                if (!connessioneSmtp.isAperta()) {
+                    // Connessione caduta: le email rimaste tornano in coda con lo stesso errore
+                    batch.subList(i + 1, batch.size()).forEach(rimasta -> errori.put(rimasta, e));
+                }
+            }
+        }
+
+        appMetrics.invioEmail(sample, batch.size() - errori.size(), errori.size());
+        return errori;
+    }
+
+    /**
+     * Scrive gli esiti con UPDATE per id: uno per le inviate, uno per ogni esito
+     * di errore distinto (le email del batch sono staccate, un merge rileggerebbe ogni riga).
+     */
+    private void registraEsito(List<EmailOutbox> batch, Map<EmailOutbox, Exception> errori) {
+        LocalDateTime adesso = LocalDateTime.now();
+        List<UUID> inviate = new ArrayList<>();
+        Map<Esito, List<UUID>> perEsito = new HashMap<>();
+
+        for (EmailOutbox email : batch) {
+            Exception errore = errori.get(email);
+            if (errore == null) {
+                inviate.add(email.getId());
+                continue;
+            }
+
+            int tentativi = email.getTentativi() + 1;
+            Esito esito;
+            if (tentativi >= maxTentativi) {
+                esito = new Esito(StatoEmail.FAILED, tentativi, adesso, troncato(errore.getMessage()));
+                log.warn("Email {} a {} non inviata dopo {} tentativi: {}",
+                        email.getId(), email.getDestinatario(), tentativi, errore.getMessage());
+            } else {
+                esito = new Esito(StatoEmail.PENDING, tentativi,
+                        adesso.plusNanos(backoffMs(tentativi) * 1_000_000), troncato(errore.getMessage()));
+            }
+            perEsito.computeIfAbsent(esito, e -> new ArrayList<>()).add(email.getId());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!inviate.isEmpty()) {
+                emailOutboxRepository.segnaInviate(inviate, StatoEmail.SENT, adesso);
+            }
+            perEsito.forEach((esito, ids) -> emailOutboxRepository.registraErrore(
+                    ids, esito.stato, esito.tentativi, esito.prossimoTentativo, esito.errore));
+        });
+    }
+
+    private long backoffMs(int tentativi) {
+        return Math.min(backoffMaxMs, backoffBaseMs << Math.min(tentativi - 1, 20));
+    }
+
+    private MimeMessage creaMessaggio(EmailOutbox email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+        helper.setFrom(fromEmail);
+        helper.setTo(email.getDestinatario());
+        helper.setSubject(email.getOggetto());
+        helper.setText(email.getCorpo(), Boolean.TRUE.equals(email.getHtml()));
+        return message;
+    }
+
+    private static String troncato(String messaggio) {
+        if (messaggio == null) {
+            return null;
+        }
+        return messaggio.length() > 1000 ? messaggio.substring(0, 1000) : messaggio;
+    }
+
+    /**
+     * Esito di errore condiviso da più email del batch (stesso UPDATE).
+     */
+    private static final class Esito {
+
+        private final StatoEmail stato;
+        private final int tentativi;
+        private final LocalDateTime prossimoTentativo;
+        private final String errore;
+
+        Esito(StatoEmail stato, int tentativi, LocalDateTime prossimoTentativo, String errore) {
+            this.stato = stato;
+            this.tentativi = tentativi;
+            this.prossimoTentativo = prossimoTentativo;
+            this.errore = errore;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Esito e && stato == e.stato && tentativi == e.tentativi
+                    && prossimoTentativo.equals(e.prossimoTentativo) && Objects.equals(errore, e.errore);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(stato, tentativi, prossimoTentativo, errore);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.beachbooking.email;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Oggetto e corpo di un'email pronti per l'invio.
+ */
+@Getter
+@AllArgsConstructor
+public class EmailRenderizzata {
+
+    private final String oggetto;
+    private final String corpo;
+    private final boolean html;
+}
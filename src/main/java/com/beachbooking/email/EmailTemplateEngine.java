@@ -0,0 +1,245 @@
+package com.beachbooking.email;
+
+import com.beachbooking.model.entity.Tenant;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Template delle email, compilati una sola volta.
+ *
+ * I template predefiniti sono in classpath:templates/email/{lingua}/{codice}.txt
+ * (prima riga: oggetto; dopo una riga vuota: testo) con l'eventuale versione
+ * {codice}.html. Un tenant può scegliere la lingua e sostituire oggetto, testo
+ * o HTML di ogni email dal JSON di configurazione:
+ *
+ * {"email": {"lingua": "it", "templates": {"conferma-prenotazione":
+ *     {"oggetto": "...", "testo": "...", "html": "<img src=\"{{logoUrl}}\">..."}}}}
+ *
+ * Gli override compilati sono in cache per tenant e si ricompilano solo quando
+ * la configurazione del tenant cambia. Un override non valido viene ignorato.
+ */
+@Component
+public class EmailTemplateEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailTemplateEngine.class);
+
+    private static final String LINGUA_PREDEFINITA = "it";
+    private static final String[] LINGUE = {"it", "en"};
+
+    // Buffer per thread, riusato tra un render e l'altro
+    private static final int MAX_BUFFER = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(2048));
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, Map<TipoEmail, Modello>> predefiniti = new ConcurrentHashMap<>();
+
+    private final Map<UUID, ModelliTenant> perTenant = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        for (String lingua : LINGUE) {
+            Map<TipoEmail, Modello> modelli = new EnumMap<>(TipoEmail.class);
+            for (TipoEmail tipo : TipoEmail.values()) {
+                Modello modello = carica(lingua, tipo);
+                if (modello != null) {
+                    modelli.put(tipo, modello);
+                }
+            }
+            if (!modelli.isEmpty()) {
+                predefiniti.put(lingua, modelli);
+            }
+        }
+        if (predefiniti.getOrDefault(LINGUA_PREDEFINITA, Map.of()).size() != TipoEmail.values().length) {
+            throw new IllegalStateException("Template email predefiniti incompleti per la lingua " + LINGUA_PREDEFINITA);
+        }
+    }
+
+    /**
+     * Renderizza l'email per il tenant (null = template predefiniti).
+     * valori segue l'ordine delle variabili di TipoEmail.
+     */
+    public EmailRenderizzata render(TipoEmail tipo, Tenant tenant, String... valori) {
+        if (valori.length != tipo.getVariabili().length) {
+            throw new IllegalArgumentException("Numero di valori errato per " + tipo);
+        }
+
+        Modello modello = modello(tipo, tenant);
+        String logoUrl = tenant != null ? tenant.getLogoUrl() : null;
+
+        String oggetto = renderizza(modello.oggetto, valori, logoUrl);
+        TemplateCompilato corpo = modello.html != null ? modello.html : modello.testo;
+        return new EmailRenderizzata(oggetto, renderizza(corpo, valori, logoUrl), modello.html != null);
+    }
+
+    private static String renderizza(TemplateCompilato template, String[] valori, String logoUrl) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        template.render(valori, logoUrl, buffer);
+        String risultato = buffer.toString();
+        if (buffer.capacity() > MAX_BUFFER) {
+            // Email fuori misura: non tenere in vita un buffer enorme per il thread
+            BUFFER.remove();
+        }
+        return risultato;
+    }
+
+    private Modello modello(TipoEmail tipo, Tenant tenant) {
+        ModelliTenant modelli = tenant != null && tenant.getId() != null ? modelliTenant(tenant) : null;
+        if (modelli != null) {
+            Modello override = modelli.override.get(tipo);
+            if (override != null) {
+                return override;
+            }
+            Modello perLingua = predefiniti.getOrDefault(modelli.lingua, Map.of()).get(tipo);
+            if (perLingua != null) {
+                return perLingua;
+            }
+        }
+        return predefiniti.get(LINGUA_PREDEFINITA).get(tipo);
+    }
+
+    private ModelliTenant modelliTenant(Tenant tenant) {
+        String configurazione = tenant.getConfigurazione();
+        ModelliTenant modelli = perTenant.get(tenant.getId());
+        if (modelli != null && Objects.equals(modelli.configurazione, configurazione)) {
+            return modelli;
+        }
+
+        modelli = compilaTenant(tenant.getId(), configurazione);
+        perTenant.put(tenant.getId(), modelli);
+        return modelli;
+    }
+
+    private ModelliTenant compilaTenant(UUID tenantId, String configurazione) {
+        ModelliTenant modelli = new ModelliTenant(configurazione);
+        if (!StringUtils.hasText(configurazione)) {
+            return modelli;
+        }
+
+        JsonNode email;
+        try {
+            email = objectMapper.readTree(configurazione).path("email");
+        } catch (IOException e) {
+            log.warn("Configurazione non valida per il tenant {}: template predefiniti", tenantId);
+            return modelli;
+        }
+
+        if (email.hasNonNull("lingua")) {
+            modelli.lingua = email.get("lingua").asText().toLowerCase(Locale.ROOT);
+        }
+
+        JsonNode templates = email.path("templates");
+        for (TipoEmail tipo : TipoEmail.values()) {
+            JsonNode override = templates.path(tipo.getCodice());
+            if (override.isMissingNode() || !override.isObject()) {
+                continue;
+            }
+
+            Modello base = predefiniti.getOrDefault(modelli.lingua, predefiniti.get(LINGUA_PREDEFINITA)).get(tipo);
+            if (base == null) {
+                base = predefiniti.get(LINGUA_PREDEFINITA).get(tipo);
+            }
+            try {
+                modelli.override.put(tipo, new Modello(
+                        override.hasNonNull("oggetto")
+                                ? TemplateCompilato.compila(override.get("oggetto").asText(), tipo.getVariabili(), false)
+                                : base.oggetto,
+                        override.hasNonNull("testo")
+                                ? TemplateCompilato.compila(override.get("testo").asText(), tipo.getVariabili(), false)
+                                : base.testo,
+                        override.hasNonNull("html")
+                                ? TemplateCompilato.compila(override.get("html").asText(), tipo.getVariabili(), true)
+                                : base.html
+                ));
+            } catch (IllegalArgumentException e) {
+                log.warn("Template {} del tenant {} non valido ({}): uso il predefinito",
+                        tipo.getCodice(), tenantId, e.getMessage());
+            }
+        }
+        return modelli;
+    }
+
+    private Modello carica(String lingua, TipoEmail tipo) {
+        String base = "templates/email/" + lingua + "/" + tipo.getCodice();
+        String testo = leggi(base + ".txt");
+        if (testo == null) {
+            return null;
+        }
+
+        int fineOggetto = testo.indexOf('\n');
+        if (fineOggetto < 0) {
+            throw new IllegalStateException("Template " + base + ".txt senza corpo");
+        }
+        String oggetto = testo.substring(0, fineOggetto).trim();
+        String corpo = testo.substring(fineOggetto + 1).replaceFirst("^\\r?\\n", "");
+        String html = leggi(base + ".html");
+
+        return new Modello(
+                TemplateCompilato.compila(oggetto, tipo.getVariabili(), false),
+                TemplateCompilato.compila(corpo, tipo.getVariabili(), false),
+                html != null ? TemplateCompilato.compila(html, tipo.getVariabili(), true) : null
+        );
+    }
+
+    private static String leggi(String percorso) {
+        ClassPathResource resource = new ClassPathResource(percorso);
+        if (!resource.exists()) {
+            return null;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossibile leggere il template " + percorso, e);
+        }
+    }
+
+    /**
+     * Oggetto, testo e (opzionale) HTML di un'email, già compilati.
+     */
+    private static final class Modello {
+
+        private final TemplateCompilato oggetto;
+        private final TemplateCompilato testo;
+        private final TemplateCompilato html;
+
+        Modello(TemplateCompilato oggetto, TemplateCompilato testo, TemplateCompilato html) {
+            this.oggetto = oggetto;
+            this.testo = testo;
+            this.html = html;
+        }
+    }
+
+    /**
+     * Override di un tenant, validi finché la sua configurazione non cambia.
+     */
+    private static final class ModelliTenant {
+
+        private final String configurazione;
+        private final Map<TipoEmail, Modello> override = new EnumMap<>(TipoEmail.class);
+        private String lingua = LINGUA_PREDEFINITA;
+
+        ModelliTenant(String configurazione) {
+            this.configurazione = configurazione;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.beachbooking.email;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Template già analizzato: segmenti di testo fissi alternati a slot di variabili.
+ *
+ * La sintassi {{variabile}} viene risolta una sola volta, in compilazione, nell'indice
+ * del valore da inserire; il render è solo una sequenza di append.
+ */
+final class TemplateCompilato {
+
+    /**
+     * Slot del logo del tenant, disponibile in tutti i template come {{logoUrl}}.
+     */
+    static final int SLOT_LOGO = -1;
+
+    private final String[] segmenti;
+    private final int[] slot;
+    private final boolean html;
+    private final int lunghezzaFissa;
+
+    private TemplateCompilato(String[] segmenti, int[] slot, boolean html) {
+        this.segmenti = segmenti;
+        this.slot = slot;
+        this.html = html;
+        int lunghezza = 0;
+        for (String segmento : segmenti) {
+            lunghezza += segmento.length();
+        }
+        this.lunghezzaFissa = lunghezza;
+    }
+
+    /**
+     * Compila il sorgente per le variabili indicate.
+     * Una variabile sconosciuta o un segnaposto non chiuso sono IllegalArgumentException.
+     */
+    static TemplateCompilato compila(String sorgente, String[] variabili, boolean html) {
+        List<String> segmenti = new ArrayList<>();
+        List<Integer> slot = new ArrayList<>();
+
+        int posizione = 0;
+        while (true) {
+            int apertura = sorgente.indexOf("{{", posizione);
+            if (apertura < 0) {
+                segmenti.add(sorgente.substring(posizione));
+                break;
+            }
+            int chiusura = sorgente.indexOf("}}", apertura + 2);
+            if (chiusura < 0) {
+                throw new IllegalArgumentException("Segnaposto non chiuso alla posizione " + apertura);
+            }
+
+            segmenti.add(sorgente.substring(posizione, apertura));
+            slot.add(indice(sorgente.substring(apertura + 2, chiusura).trim(), variabili));
+            posizione = chiusura + 2;
+        }
+
+        return new TemplateCompilato(
+                segmenti.toArray(new String[0]),
+                slot.stream().mapToInt(Integer::intValue).toArray(),
+                html
+        );
+    }
+
+    /**
+     * Accoda il template renderizzato al buffer. Nei template HTML i valori sono escapati.
+     */
+    void render(String[] valori, String logoUrl, StringBuilder out) {
+        out.ensureCapacity(out.length() + lunghezzaFissa + 32 * slot.length);
+        for (int i = 0; i < slot.length; i++) {
+            out.append(segmenti[i]);
+            String valore = slot[i] == SLOT_LOGO ? logoUrl : valori[slot[i]];
+            if (valore == null) {
+                continue;
+            }
+            if (html) {
+                escapeHtml(valore, out);
+            } else {
+                out.append(valore);
+            }
+        }
+        out.append(segmenti[slot.length]);
+    }
+
+    private static int indice(String nome, String[] variabili) {
+        if ("logoUrl".equals(nome)) {
+            return SLOT_LOGO;
+        }
+        for (int i = 0; i < variabili.length; i++) {
+            if (variabili[i].equals(nome)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Variabile sconosciuta: " + nome);
+    }
+
+    private static void escapeHtml(String valore, StringBuilder out) {
+        for (int i = 0; i < valore.length(); i++) {
+            char c = valore.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.beachbooking.email;
+
+/**
+ * Email inviate dall'applicazione, con le variabili disponibili nei template.
+ * I valori vanno passati nello stesso ordine di variabili.
+ */
+public enum TipoEmail {
+    VERIFICA_ACCOUNT("verifica-account", "nome", "link"),
+    BENVENUTO("benvenuto", "nome", "stabilimento", "link"),
+    RESET_PASSWORD("reset-password", "nome", "link"),
+    CONFERMA_PRENOTAZIONE("conferma-prenotazione",
+            "nome", "codice", "stabilimento", "dal", "al", "importo", "telefono", "email"),
+    CANCELLAZIONE_PRENOTAZIONE("cancellazione-prenotazione",
+            "nome", "codice", "stabilimento", "motivo", "telefono", "email"),
+    PROMEMORIA_PRENOTAZIONE("promemoria-prenotazione",
+            "nome", "codice", "data", "stabilimento", "indirizzo", "telefono"),
+    CONFERMA_PAGAMENTO("conferma-pagamento",
+            "nome", "codice", "importo", "metodo", "stabilimento");
+
+    private final String codice;
+    private final String[] variabili;
+
+    TipoEmail(String codice, String... variabili) {
+        this.codice = codice;
+        this.variabili = variabili;
+    }
+
+    /**
+     * Nome del template (file in templates/email e chiave negli override del tenant).
+     */
+    public String getCodice() { return codice; }
+
+    String[] getVariabili() { return variabili; }
+}
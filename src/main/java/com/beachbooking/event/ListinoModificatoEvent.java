@@ -0,0 +1,16 @@
+package com.beachbooking.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Evento pubblicato quando un tenant modifica le regole del proprio listino.
+ */
+@Getter
+@AllArgsConstructor
+public class ListinoModificatoEvent {
+
+    private final UUID tenantId;
+}
@@ -0,0 +1,20 @@
+package com.beachbooking.event;
+
+import com.beachbooking.model.entity.Ombrellone;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Evento pubblicato quando un ombrellone viene creato, modificato,
+ * attivato/disattivato o eliminato.
+ */
+@Getter
+@AllArgsConstructor
+public class OmbrelloneModificatoEvent {
+
+    private final UUID tenantId;
+    private final Ombrellone ombrellone;
+    private final boolean eliminato;
+}
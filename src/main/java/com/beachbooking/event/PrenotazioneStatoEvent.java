@@ -0,0 +1,29 @@
+package com.beachbooking.event;
+
+import com.beachbooking.model.enums.StatoPrenotazione;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Evento pubblicato ad ogni cambio di stato di una prenotazione
+ * (creazione, conferma, pagamento, cancellazione, completamento).
+ *
+ * statoPrecedente è null per le prenotazioni appena create.
+ */
+@Getter
+@AllArgsConstructor
+public class PrenotazioneStatoEvent {
+
+    private final UUID tenantId;
+    private final UUID prenotazioneId;
+    private final UUID ombrelloneId;
+    private final LocalDate dataInizio;
+    private final LocalDate dataFine;
+    private final StatoPrenotazione statoPrecedente;
+    private final StatoPrenotazione statoNuovo;
+    private final BigDecimal prezzoTotale;
+}
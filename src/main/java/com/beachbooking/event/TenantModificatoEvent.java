@@ -0,0 +1,17 @@
+package com.beachbooking.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Evento pubblicato quando un tenant viene creato o ne cambiano
+ * dati, piano o stato.
+ */
+@Getter
+@AllArgsConstructor
+public class TenantModificatoEvent {
+
+    private final UUID tenantId;
+}
@@ -0,0 +1,22 @@
+package com.beachbooking.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Evento pubblicato quando cambiano tokenVersion o stato attivo di un utente
+ * (cambio/reset password, disattivazione, riattivazione).
+ */
+@Getter
+@AllArgsConstructor
+public class TokenRevocatiEvent {
+
+    private final UUID userId;
+
+    // Versione minima valida dei token dell'utente
+    private final int versioneMinima;
+
+    private final boolean attivo;
+}
@@ -0,0 +1,28 @@
+// BookingConflictException.java
+package com.beachbooking.exception;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Ombrellone già prenotato (anche da una richiesta concorrente) nel periodo richiesto.
+ * Per le prenotazioni multiple contiene il motivo del conflitto per ogni ombrellone.
+ */
+public class BookingConflictException extends RuntimeException {
+
+    private final Map<UUID, String> conflitti;
+
+    public BookingConflictException(String message) {
+        this(message, Collections.emptyMap());
+    }
+
+    public BookingConflictException(String message, Map<UUID, String> conflitti) {
+        super(message);
+        this.conflitti = conflitti;
+    }
+
+    public Map<UUID, String> getConflitti() {
+        return conflitti;
+    }
+}
@@ -0,0 +1,103 @@
+package com.beachbooking.jobs;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Lease dei job giornalieri sulla tabella scheduled_jobs, una riga per job.
+ *
+ * Un job parte solo se non è già stato completato per il giorno e nessun'altra
+ * istanza ha un lease valido. Ogni blocco salva il cursore e rinnova il lease
+ * nella propria transazione: se un'istanza cade, un'altra riprende dal cursore
+ * allo scadere del lease. La riga conserva anche l'esito dell'ultima esecuzione.
+ */
+@Component
+public class JobLease {
+
+    private static final String ISTANZA = UUID.randomUUID().toString();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.jobs.lease-s:600}")
+    private int leaseSecondi;
+
+    /**
+     * Prende il lease del job per il giorno. Il cursore riparte da zero se il giorno è cambiato.
+     */
+    public boolean acquisisci(String job, LocalDate giorno) {
+        jdbcTemplate.update("INSERT INTO scheduled_jobs (nome) VALUES (?) ON CONFLICT (nome) DO NOTHING", job);
+
+        Date data = Date.valueOf(giorno);
+        return jdbcTemplate.update(
+                "UPDATE scheduled_jobs SET " +
+                "lease_owner = ?, " +
+                "lease_scadenza = now() + make_interval(secs => ?), " +
+                "cursore = CASE WHEN giorno = ? THEN cursore ELSE NULL END, " +
+                "giorno = ? " +
+                "WHERE nome = ? " +
+                "AND (ultimo_completato IS NULL OR ultimo_completato < ?) " +
+                "AND (lease_scadenza IS NULL OR lease_scadenza < now() OR lease_owner = ?)",
+                ISTANZA, leaseSecondi, data, data, job, data, ISTANZA) == 1;
+    }
+
+    /**
+     * Cursore da cui riprendere (null = dall'inizio).
+     */
+    public String getCursore(String job) {
+        return jdbcTemplate.queryForObject(
+                "SELECT cursore FROM scheduled_jobs WHERE nome = ?", String.class, job);
+    }
+
+    /**
+     * Salva il cursore e rinnova il lease, nella transazione del blocco.
+     * Se il lease è passato a un'altra istanza il blocco viene annullato.
+     */
+    public void avanza(String job, String cursore) {
+        int aggiornate = jdbcTemplate.update(
+                "UPDATE scheduled_jobs SET cursore = ?, lease_scadenza = now() + make_interval(secs => ?) " +
+                "WHERE nome = ? AND lease_owner = ?",
+                cursore, leaseSecondi, job, ISTANZA);
+        if (aggiornate == 0) {
+            throw new IllegalStateException("Lease del job " + job + " perso");
+        }
+    }
+
+    public void completa(String job, LocalDate giorno, long righe, long durataMs) {
+        jdbcTemplate.update(
+                "UPDATE scheduled_jobs SET ultimo_completato = ?, cursore = NULL, " +
+                "lease_owner = NULL, lease_scadenza = NULL, ultima_esecuzione = now(), " +
+                "ultime_righe = ?, ultima_durata_ms = ?, ultimo_esito = 'OK' " +
+                "WHERE nome = ? AND lease_owner = ?",
+                Date.valueOf(giorno), righe, durataMs, job, ISTANZA);
+    }
+
+    /**
+     * Rilascia il lease dopo un errore; il cursore resta per la prossima esecuzione.
+     */
+    public void fallito(String job, long righe, long durataMs, String errore) {
+        String esito = "ERRORE: " + errore;
+        jdbcTemplate.update(
+                "UPDATE scheduled_jobs SET lease_owner = NULL, lease_scadenza = NULL, " +
+                "ultima_esecuzione = now(), ultime_righe = ?, ultima_durata_ms = ?, ultimo_esito = ? " +
+                "WHERE nome = ? AND lease_owner = ?",
+                righe, durataMs, esito.length() > 1000 ? esito.substring(0, 1000) : esito, job, ISTANZA);
+    }
+
+    /**
+     * Stato di tutti i job (per la dashboard admin).
+     */
+    public List<Map<String, Object>> findAll() {
+        return jdbcTemplate.queryForList(
+                "SELECT nome, giorno, ultimo_completato, ultima_esecuzione, ultime_righe, ultima_durata_ms, " +
+                "ultimo_esito, lease_scadenza FROM scheduled_jobs ORDER BY nome");
+    }
+}
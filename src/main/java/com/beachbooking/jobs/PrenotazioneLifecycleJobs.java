@@ -0,0 +1,271 @@
+package com.beachbooking.jobs;
+
+import com.beachbooking.event.PrenotazioneStatoEvent;
+import com.beachbooking.model.entity.Prenotazione;
+import com.beachbooking.model.entity.Tenant;
+import com.beachbooking.model.entity.User;
+import com.beachbooking.model.enums.StatoPrenotazione;
+import com.beachbooking.repository.PrenotazioneRepository;
+import com.beachbooking.repository.TenantRepository;
+import com.beachbooking.repository.UserRepository;
+import com.beachbooking.service.EmailService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Job giornalieri sul ciclo di vita delle prenotazioni:
+ * completamento delle prenotazioni pagate già terminate, scadenza delle
+ * prenotazioni PENDING mai confermate e promemoria per gli arrivi di domani.
+ *
+ * Ogni job lavora a blocchi di dimensione fissa, in ordine di id (keyset),
+ * una transazione per blocco. Completamento e scadenza sono UPDATE set-based
+ * che restituiscono le righe modificate, per pubblicare i PrenotazioneStatoEvent
+ * e tenere allineati disponibilità, statistiche e stream live. Le righe bloccate
+ * da una richiesta in corso (es. conferma) vengono saltate: i cambi di stato di
+ * PrenotazioneService sono condizionati allo stato letto, quindi nessuno dei due
+ * sovrascrive l'altro.
+ * L'esecuzione su più istanze è coordinata da JobLease.
+ */
+@Component
+public class PrenotazioneLifecycleJobs {
+
+    private static final Logger log = LoggerFactory.getLogger(PrenotazioneLifecycleJobs.class);
+
+    static final String COMPLETAMENTO = "completamento-prenotazioni";
+    static final String SCADENZA_PENDING = "scadenza-pending";
+    static final String PROMEMORIA = "promemoria-arrivi";
+
+    private static final UUID ID_MINIMO = new UUID(0, 0);
+
+    private static final String SQL_COMPLETA =
+            "WITH lotto AS (" +
+            "  SELECT id FROM prenotazioni " +
+            "  WHERE stato = 'PAID' AND data_fine < ? AND id > ? " +
+            "  ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "UPDATE prenotazioni p SET stato = 'COMPLETED', data_aggiornamento = now() " +
+            "FROM lotto WHERE p.id = lotto.id " +
+            "RETURNING p.id, p.tenant_id, p.ombrellone_id, p.data_inizio, p.data_fine, p.prezzo_totale";
+
+    private static final String SQL_SCADI =
+            "WITH lotto AS (" +
+            "  SELECT id FROM prenotazioni " +
+            "  WHERE stato = 'PENDING' AND (data_creazione < ? OR data_fine < ?) AND id > ? " +
+            "  ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "UPDATE prenotazioni p SET stato = 'CANCELLED', data_aggiornamento = now(), " +
+            "  note = COALESCE(p.note || E'\\n', '') || 'Cancellata: non confermata entro i termini' " +
+            "FROM lotto WHERE p.id = lotto.id " +
+            "RETURNING p.id, p.tenant_id, p.ombrellone_id, p.data_inizio, p.data_fine, p.prezzo_totale";
+
+    @Autowired
+    private JobLease jobLease;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PrenotazioneRepository prenotazioneRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${app.jobs.lotto:500}")
+    private int dimensioneLotto;
+
+    @Value("${app.jobs.pending-ttl-ore:48}")
+    private long pendingTtlOre;
+
+    /**
+     * Completamento e scadenza, di notte.
+     */
+    @Scheduled(cron = "${app.jobs.lifecycle-cron:0 15 2 * * *}")
+    public void lifecycle() {
+        LocalDate oggi = LocalDate.now();
+        esegui(COMPLETAMENTO, oggi, cursore -> completaTerminate(oggi, cursore));
+        esegui(SCADENZA_PENDING, oggi, cursore -> scadiPending(oggi, cursore));
+    }
+
+    /**
+     * Promemoria per chi arriva domani, in mattinata.
+     */
+    @Scheduled(cron = "${app.jobs.promemoria-cron:0 0 10 * * *}")
+    public void promemoria() {
+        LocalDate oggi = LocalDate.now();
+        esegui(PROMEMORIA, oggi, cursore -> inviaPromemoria(oggi.plusDays(1), cursore));
+    }
+
+    /**
+     * Esegue il job a blocchi, se questa istanza ne ottiene il lease per il giorno.
+     * Ogni blocco riceve il cursore (ultimo id elaborato) e restituisce il nuovo,
+     * null quando non c'è altro da fare.
+     */
+    void esegui(String job, LocalDate giorno, Function<UUID, Lotto> blocco) {
+        if (!jobLease.acquisisci(job, giorno)) {
+            log.debug("Job {} già eseguito o in esecuzione altrove", job);
+            return;
+        }
+
+        long inizio = System.currentTimeMillis();
+        long righe = 0;
+        try {
+            String salvato = jobLease.getCursore(job);
+            UUID cursore = salvato != null ? UUID.fromString(salvato) : ID_MINIMO;
+
+            while (cursore != null) {
+                UUID da = cursore;
+                Lotto lotto = transactionTemplate.execute(status -> {
+                    Lotto risultato = blocco.apply(da);
+                    jobLease.avanza(job, risultato.cursore != null ? risultato.cursore.toString() : null);
+                    return risultato;
+                });
+                righe += lotto.righe;
+                cursore = lotto.cursore;
+            }
+
+            long durata = System.currentTimeMillis() - inizio;
+            jobLease.completa(job, giorno, righe, durata);
+            log.info("Job {}: {} prenotazioni elaborate in {} ms", job, righe, durata);
+        } catch (RuntimeException e) {
+            long durata = System.currentTimeMillis() - inizio;
+            jobLease.fallito(job, righe, durata, e.getMessage());
+            log.error("Job {} interrotto dopo {} prenotazioni", job, righe, e);
+        }
+    }
+
+    private Lotto completaTerminate(LocalDate oggi, UUID cursore) {
+        List<Modificata> modificate = jdbcTemplate.query(SQL_COMPLETA, this::modificata,
+                Date.valueOf(oggi), cursore, dimensioneLotto);
+        return pubblica(modificate, StatoPrenotazione.PAID, StatoPrenotazione.COMPLETED);
+    }
+
+    private Lotto scadiPending(LocalDate oggi, UUID cursore) {
+        LocalDateTime limite = LocalDateTime.now().minusHours(pendingTtlOre);
+        List<Modificata> modificate = jdbcTemplate.query(SQL_SCADI, this::modificata,
+                Timestamp.valueOf(limite), Date.valueOf(oggi), cursore, dimensioneLotto);
+        return pubblica(modificate, StatoPrenotazione.PENDING, StatoPrenotazione.CANCELLED);
+    }
+
+    private Lotto inviaPromemoria(LocalDate arrivo, UUID cursore) {
+        List<Prenotazione> arrivi = prenotazioneRepository.findArriviDopo(
+                arrivo, cursore, PageRequest.of(0, dimensioneLotto));
+        if (arrivi.isEmpty()) {
+            return new Lotto(0, null);
+        }
+
+        Map<UUID, User> utenti = new HashMap<>();
+        userRepository.findAllById(arrivi.stream().map(Prenotazione::getUserId).distinct().toList())
+                .forEach(u -> utenti.put(u.getId(), u));
+        Map<UUID, Tenant> tenants = new HashMap<>();
+        tenantRepository.findAllById(arrivi.stream().map(Prenotazione::getTenantId).distinct().toList())
+                .forEach(t -> tenants.put(t.getId(), t));
+
+        for (Prenotazione prenotazione : arrivi) {
+            User utente = utenti.get(prenotazione.getUserId());
+            Tenant tenant = tenants.get(prenotazione.getTenantId());
+            if (utente != null && tenant != null) {
+                emailService.sendBookingReminder(prenotazione, utente, tenant);
+            }
+        }
+
+        UUID ultimo = arrivi.get(arrivi.size() - 1).getId();
+        return new Lotto(arrivi.size(), arrivi.size() < dimensioneLotto ? null : ultimo);
+    }
+
+    private Lotto pubblica(List<Modificata> modificate, StatoPrenotazione da, StatoPrenotazione a) {
+        UUID massimo = null;
+        for (Modificata m : modificate) {
+            eventPublisher.publishEvent(new PrenotazioneStatoEvent(
+                    m.tenantId, m.id, m.ombrelloneId, m.dataInizio, m.dataFine, da, a, m.prezzoTotale));
+            if (massimo == null || confrontaComePostgres(m.id, massimo) > 0) {
+                massimo = m.id;
+            }
+        }
+        // Con SKIP LOCKED un blocco corto non significa fine: si prosegue finché la query trova righe
+        return new Lotto(modificate.size(), massimo);
+    }
+
+    private Modificata modificata(ResultSet rs, int riga) throws SQLException {
+        return new Modificata(
+                rs.getObject("id", UUID.class),
+                rs.getObject("tenant_id", UUID.class),
+                rs.getObject("ombrellone_id", UUID.class),
+                rs.getObject("data_inizio", LocalDate.class),
+                rs.getObject("data_fine", LocalDate.class),
+                rs.getBigDecimal("prezzo_totale")
+        );
+    }
+
+    /**
+     * Ordine degli UUID in PostgreSQL (byte senza segno), diverso da UUID.compareTo.
+     */
+    static int confrontaComePostgres(UUID a, UUID b) {
+        int msb = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return msb != 0 ? msb : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    /**
+     * Esito di un blocco: righe elaborate e cursore per il successivo (null = finito).
+     */
+    static final class Lotto {
+
+        private final int righe;
+        private final UUID cursore;
+
+        Lotto(int righe, UUID cursore) {
+            this.righe = righe;
+            this.cursore = cursore;
+        }
+    }
+
+    private static final class Modificata {
+
+        private final UUID id;
+        private final UUID tenantId;
+        private final UUID ombrelloneId;
+        private final LocalDate dataInizio;
+        private final LocalDate dataFine;
+        private final BigDecimal prezzoTotale;
+
+        Modificata(UUID id, UUID tenantId, UUID ombrelloneId,
+                   LocalDate dataInizio, LocalDate dataFine, BigDecimal prezzoTotale) {
+            this.id = id;
+            this.tenantId = tenantId;
+            this.ombrelloneId = ombrelloneId;
+            this.dataInizio = dataInizio;
+            this.dataFine = dataFine;
+            this.prezzoTotale = prezzoTotale;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.beachbooking.live;
+
+import com.beachbooking.event.PrenotazioneStatoEvent;
+import com.beachbooking.model.dto.response.DisponibilitaDelta;
+import com.beachbooking.model.enums.StatoPrenotazione;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hub SSE per le variazioni di disponibilità, uno stream per tenant e finestra di date.
+ *
+ * Ogni cambio di stato di una prenotazione diventa un DisponibilitaDelta con numero
+ * di sequenza per tenant, serializzato una sola volta in un frame SSE e accodato a
+ * tutti gli iscritti la cui finestra si sovrappone. Le connessioni sono asincrone
+ * (nessun thread per connessione): il fan-out avviene su pochi thread dispatcher,
+ * sempre lo stesso per tenant, così l'ordine delle sequenze è garantito.
+ *
+ * Il dispatcher non scrive mai sul socket: ogni iscritto ha una coda limitata svuotata
+ * da un pool di writer condiviso, con al più una scrittura in corso per iscritto. Un
+ * client lento che riempie la coda viene disconnesso e si riconnette con Last-Event-ID,
+ * senza rallentare gli altri iscritti.
+ *
+ * Gli ultimi delta di ogni tenant restano in un buffer circolare: un client che si
+ * riconnette con Last-Event-ID riceve quelli persi, oppure un evento "reset" se sono
+ * troppo vecchi (o dopo un riavvio) e deve ricaricare la disponibilità completa.
+ * I delta sono solo quelli dell'istanza locale.
+ */
+@Component
+public class AvailabilityHub {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityHub.class);
+
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT =
+            SseEmitter.event().comment("hb").build();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.live.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.live.buffer:1024}")
+    private int dimensioneBuffer;
+
+    @Value("${app.live.coda-iscritto:256}")
+    private int dimensioneCoda;
+
+    private final ExecutorService[] dispatcher;
+
+    private final ExecutorService writer;
+
+    private final Map<UUID, CanaleTenant> canali = new ConcurrentHashMap<>();
+
+    public AvailabilityHub(@Value("${app.live.dispatcher-threads:4}") int numeroDispatcher,
+                           @Value("${app.live.writer-threads:8}") int numeroWriter) {
+        this.dispatcher = new ExecutorService[Math.max(1, numeroDispatcher)];
+        for (int i = 0; i < dispatcher.length; i++) {
+            dispatcher[i] = Executors.newSingleThreadExecutor(daemon("sse-dispatcher-" + i));
+        }
+        AtomicInteger contatore = new AtomicInteger();
+        this.writer = Executors.newFixedThreadPool(Math.max(1, numeroWriter),
+                r -> daemon("sse-writer-" + contatore.getAndIncrement()).newThread(r));
+    }
+
+    /**
+     * Apre uno stream per il tenant e la finestra di date.
+     * Con ultimoSeq (Last-Event-ID) invia prima i delta persi dal client.
+     */
+    public SseEmitter iscrivi(UUID tenantId, LocalDate dataInizio, LocalDate dataFine, Long ultimoSeq) {
+        SseEmitter emitter = nuovoEmitter();
+        Iscritto iscritto = new Iscritto(emitter, dataInizio.toEpochDay(), dataFine.toEpochDay(), dimensioneCoda);
+        CanaleTenant canale = canale(tenantId);
+
+        emitter.onCompletion(() -> canale.iscritti.remove(iscritto));
+        emitter.onTimeout(() -> canale.iscritti.remove(iscritto));
+        emitter.onError(e -> canale.iscritti.remove(iscritto));
+
+        // Sul dispatcher del tenant: il recupero non si intreccia con i delta nuovi
+        dispatcher(tenantId).execute(() -> {
+            canale.iscritti.add(iscritto);
+            if (ultimoSeq != null) {
+                recupera(canale, iscritto, ultimoSeq);
+            } else {
+                // Sequenza di partenza, per riprendere dopo una disconnessione
+                accoda(canale, iscritto, evento(canale.ultimoSeq, "ready", "{}"));
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Pubblica il delta dopo il commit (e dopo l'aggiornamento di OccupancyEngine).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPrenotazioneStato(PrenotazioneStatoEvent event) {
+        CanaleTenant canale = canali.get(event.getTenantId());
+        if (canale == null) {
+            return;
+        }
+
+        StatoPrenotazione stato = event.getStatoNuovo();
+        boolean occupato = stato != StatoPrenotazione.CANCELLED && stato != StatoPrenotazione.REFUNDED;
+
+        dispatcher(event.getTenantId()).execute(() -> {
+            long seq = ++canale.ultimoSeq;
+            DisponibilitaDelta delta = new DisponibilitaDelta(
+                    seq,
+                    event.getOmbrelloneId(),
+                    event.getDataInizio(),
+                    event.getDataFine(),
+                    stato.name(),
+                    occupato
+            );
+
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(delta);
+            } catch (JsonProcessingException e) {
+                log.error("Serializzazione delta fallita", e);
+                return;
+            }
+
+            Delta frame = new Delta(
+                    event.getDataInizio().toEpochDay(),
+                    event.getDataFine().toEpochDay(),
+                    evento(seq, "delta", json));
+            canale.buffer[(int) (seq % canale.buffer.length)] = frame;
+
+            for (Iscritto iscritto : canale.iscritti) {
+                if (iscritto.interessato(frame)) {
+                    accoda(canale, iscritto, frame.dati);
+                }
+            }
+        });
+    }
+
+    /**
+     * Heartbeat periodico: tiene aperte le connessioni attraverso proxy e load balancer.
+     */
+    @Scheduled(fixedRateString = "${app.live.heartbeat-ms:15000}")
+    public void heartbeat() {
+        canali.forEach((tenantId, canale) -> dispatcher(tenantId).execute(() -> {
+            for (Iscritto iscritto : canale.iscritti) {
+                accoda(canale, iscritto, HEARTBEAT);
+            }
+        }));
+    }
+
+    /**
+     * Numero di stream aperti (per tutti i tenant).
+     */
+    public int getNumeroIscritti() {
+        return canali.values().stream().mapToInt(c -> c.iscritti.size()).sum();
+    }
+
+    @PreDestroy
+    public void chiudi() {
+        for (ExecutorService executor : dispatcher) {
+            executor.shutdownNow();
+        }
+        writer.shutdownNow();
+        canali.values().forEach(c -> c.iscritti.forEach(i -> i.emitter.complete()));
+    }
+
+    SseEmitter nuovoEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private void recupera(CanaleTenant canale, Iscritto iscritto, long ultimoSeq) {
+        long primoDisponibile = Math.max(canale.primoSeq, canale.ultimoSeq - canale.buffer.length + 1);
+        boolean troppiPerLaCoda = canale.ultimoSeq - ultimoSeq > iscritto.coda.remainingCapacity();
+        if (ultimoSeq > canale.ultimoSeq || ultimoSeq + 1 < primoDisponibile || troppiPerLaCoda) {
+            accoda(canale, iscritto, evento(canale.ultimoSeq, "reset", "{}"));
+            return;
+        }
+
+        for (long seq = ultimoSeq + 1; seq <= canale.ultimoSeq; seq++) {
+            Delta delta = canale.buffer[(int) (seq % canale.buffer.length)];
+            if (iscritto.interessato(delta)) {
+                accoda(canale, iscritto, delta.dati);
+            }
+        }
+    }
+
+    /**
+     * Accoda un frame senza bloccare il dispatcher. Con la coda piena il client
+     * è troppo lento: viene disconnesso e recupera con Last-Event-ID.
+     */
+    private void accoda(CanaleTenant canale, Iscritto iscritto, Set<ResponseBodyEmitter.DataWithMediaType> dati) {
+        if (iscritto.chiuso) {
+            return;
+        }
+        if (!iscritto.coda.offer(dati)) {
+            log.debug("Stream SSE disconnesso: client lento ({} frame in coda)", iscritto.coda.size());
+            scarta(canale, iscritto);
+        }
+        programmaScrittura(canale, iscritto);
+    }
+
+    private void programmaScrittura(CanaleTenant canale, Iscritto iscritto) {
+        if (iscritto.inScrittura.compareAndSet(false, true)) {
+            try {
+                writer.execute(() -> scrivi(canale, iscritto));
+            } catch (RejectedExecutionException e) {
+                // Hub in chiusura
+                iscritto.inScrittura.set(false);
+            }
+        }
+    }
+
+    /**
+     * Svuota la coda dell'iscritto sul pool writer; è l'unico punto che scrive sull'emitter.
+     */
+    private void scrivi(CanaleTenant canale, Iscritto iscritto) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> dati;
+            while (!iscritto.chiuso && (dati = iscritto.coda.poll()) != null) {
+                iscritto.emitter.send(dati);
+            }
+            if (iscritto.chiuso) {
+                iscritto.emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client disconnesso: verrà rimosso anche da onError/onCompletion
+            scarta(canale, iscritto);
+            iscritto.emitter.completeWithError(e);
+        } finally {
+            iscritto.inScrittura.set(false);
+        }
+
+        // Frame accodati mentre si chiudeva il giro
+        if (!iscritto.chiuso && !iscritto.coda.isEmpty()) {
+            programmaScrittura(canale, iscritto);
+        }
+    }
+
+    private void scarta(CanaleTenant canale, Iscritto iscritto) {
+        iscritto.chiuso = true;
+        canale.iscritti.remove(iscritto);
+        iscritto.coda.clear();
+    }
+
+    private CanaleTenant canale(UUID tenantId) {
+        return canali.computeIfAbsent(tenantId, id -> new CanaleTenant(dimensioneBuffer));
+    }
+
+    private ExecutorService dispatcher(UUID tenantId) {
+        return dispatcher[Math.floorMod(tenantId.hashCode(), dispatcher.length)];
+    }
+
+    private static Set<ResponseBodyEmitter.DataWithMediaType> evento(long seq, String nome, String json) {
+        return SseEmitter.event().id(Long.toString(seq)).name(nome).data(json).build();
+    }
+
+    private static ThreadFactory daemon(String nome) {
+        return r -> {
+            Thread thread = new Thread(r, nome);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Stato di un tenant. ultimoSeq e buffer sono usati solo dal dispatcher del tenant.
+     */
+    private static final class CanaleTenant {
+
+        private final CopyOnWriteArrayList<Iscritto> iscritti = new CopyOnWriteArrayList<>();
+        private final Delta[] buffer;
+        private final long primoSeq;
+        private long ultimoSeq;
+
+        CanaleTenant(int dimensioneBuffer) {
+            this.buffer = new Delta[dimensioneBuffer];
+            // Sequenze crescenti anche tra riavvii: un Last-Event-ID del processo
+            // precedente risulta sempre troppo vecchio e produce un "reset"
+            this.ultimoSeq = System.currentTimeMillis() * 1000;
+            this.primoSeq = ultimoSeq + 1;
+        }
+    }
+
+    private static final class Iscritto {
+
+        private final SseEmitter emitter;
+        private final long dataInizio;
+        private final long dataFine;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> coda;
+        private final AtomicBoolean inScrittura = new AtomicBoolean();
+        private volatile boolean chiuso;
+
+        Iscritto(SseEmitter emitter, long dataInizio, long dataFine, int dimensioneCoda) {
+            this.emitter = emitter;
+            this.dataInizio = dataInizio;
+            this.dataFine = dataFine;
+            this.coda = new ArrayBlockingQueue<>(Math.max(1, dimensioneCoda));
+        }
+
+        boolean interessato(Delta delta) {
+            return delta.dataInizio <= dataFine && delta.dataFine >= dataInizio;
+        }
+    }
+
+    /**
+     * Delta già serializzato, con le date per filtrare gli iscritti.
+     */
+    private static final class Delta {
+
+        private final long dataInizio;
+        private final long dataFine;
+        private final Set<ResponseBodyEmitter.DataWithMediaType> dati;
+
+        Delta(long dataInizio, long dataFine, Set<ResponseBodyEmitter.DataWithMediaType> dati) {
+            this.dataInizio = dataInizio;
+            this.dataFine = dataFine;
+            this.dati = dati;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.beachbooking.map;
+
+import com.beachbooking.model.entity.Ombrellone;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Griglia uniforme sulle posizioni degli ombrelloni di un tenant.
+ *
+ * Ogni cella contiene gli ombrelloni la cui posizione cade nel quadrato
+ * [cx * cella, (cx + 1) * cella) × [cy * cella, (cy + 1) * cella).
+ * Gli ombrelloni senza posizione non sono indicizzati.
+ * Letture con il read lock, modifiche con il write lock.
+ */
+final class GrigliaOmbrelloni {
+
+    private final int cella;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, List<Ombrellone>> celle = new HashMap<>();
+    // Cella in cui è indicizzato ogni ombrellone (la posizione dell'entity può cambiare)
+    private final Map<UUID, Long> cellaPerOmbrellone = new HashMap<>();
+
+    // Estensione delle celle occupate (può restare più ampia dopo le rimozioni)
+    private int minCx = Integer.MAX_VALUE;
+    private int maxCx = Integer.MIN_VALUE;
+    private int minCy = Integer.MAX_VALUE;
+    private int maxCy = Integer.MIN_VALUE;
+
+    GrigliaOmbrelloni(int cella) {
+        this.cella = cella;
+    }
+
+    ReentrantReadWriteLock.ReadLock readLock() {
+        return lock.readLock();
+    }
+
+    ReentrantReadWriteLock.WriteLock writeLock() {
+        return lock.writeLock();
+    }
+
+    /**
+     * Inserisce o sposta un ombrellone. Da chiamare con il write lock.
+     */
+    void inserisci(Ombrellone ombrellone) {
+        rimuovi(ombrellone.getId());
+        if (ombrellone.getPosizioneX() == null || ombrellone.getPosizioneY() == null) {
+            return;
+        }
+
+        int cx = Math.floorDiv(ombrellone.getPosizioneX(), cella);
+        int cy = Math.floorDiv(ombrellone.getPosizioneY(), cella);
+        long chiave = chiave(cx, cy);
+        celle.computeIfAbsent(chiave, k -> new ArrayList<>()).add(ombrellone);
+        cellaPerOmbrellone.put(ombrellone.getId(), chiave);
+
+        minCx = Math.min(minCx, cx);
+        maxCx = Math.max(maxCx, cx);
+        minCy = Math.min(minCy, cy);
+        maxCy = Math.max(maxCy, cy);
+    }
+
+    /**
+     * Rimuove un ombrellone, se indicizzato. Da chiamare con il write lock.
+     */
+    void rimuovi(UUID ombrelloneId) {
+        Long chiave = cellaPerOmbrellone.remove(ombrelloneId);
+        if (chiave == null) {
+            return;
+        }
+
+        List<Ombrellone> lista = celle.get(chiave);
+        lista.removeIf(o -> o.getId().equals(ombrelloneId));
+        if (lista.isEmpty()) {
+            celle.remove(chiave);
+        }
+    }
+
+    /**
+     * Ombrelloni nel rettangolo (estremi inclusi) che soddisfano il filtro.
+     * Da chiamare con il read lock.
+     */
+    List<Ombrellone> nelRettangolo(int xMin, int yMin, int xMax, int yMax, Predicate<Ombrellone> filtro) {
+        List<Ombrellone> result = new ArrayList<>();
+        int daCx = Math.max(Math.floorDiv(xMin, cella), minCx);
+        int aCx = Math.min(Math.floorDiv(xMax, cella), maxCx);
+        int daCy = Math.max(Math.floorDiv(yMin, cella), minCy);
+        int aCy = Math.min(Math.floorDiv(yMax, cella), maxCy);
+
+        for (int cx = daCx; cx <= aCx; cx++) {
+            for (int cy = daCy; cy <= aCy; cy++) {
+                List<Ombrellone> lista = celle.get(chiave(cx, cy));
+                if (lista == null) {
+                    continue;
+                }
+                for (Ombrellone o : lista) {
+                    int x = o.getPosizioneX();
+                    int y = o.getPosizioneY();
+                    if (x >= xMin && x <= xMax && y >= yMin && y <= yMax && filtro.test(o)) {
+                        result.add(o);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * I k ombrelloni più vicini al punto che soddisfano il filtro, dal più vicino.
+     * Visita la griglia ad anelli concentrici e si ferma appena nessuna cella più
+     * esterna può contenere un candidato migliore. Da chiamare con il read lock.
+     */
+    List<Ombrellone> piuVicini(int x, int y, int k, Predicate<Ombrellone> filtro) {
+        if (k <= 0 || cellaPerOmbrellone.isEmpty()) {
+            return List.of();
+        }
+
+        // Max-heap sulla distanza: in testa il peggiore dei k migliori
+        PriorityQueue<Candidato> migliori = new PriorityQueue<>(
+                k + 1, Comparator.comparingLong(Candidato::distanza2).reversed());
+
+        int cx = Math.floorDiv(x, cella);
+        int cy = Math.floorDiv(y, cella);
+        int raggioMax = Math.max(
+                Math.max(cx - minCx, maxCx - cx),
+                Math.max(cy - minCy, maxCy - cy)
+        );
+
+        for (int r = 0; r <= raggioMax; r++) {
+            if (migliori.size() == k) {
+                // Ogni punto dell'anello r dista almeno (r - 1) * cella
+                long minimo = (long) Math.max(0, r - 1) * cella;
+                if (minimo * minimo > migliori.peek().distanza2()) {
+                    break;
+                }
+            }
+
+            for (int i = cx - r; i <= cx + r; i++) {
+                visitaCella(i, cy - r, x, y, k, filtro, migliori);
+                if (r > 0) {
+                    visitaCella(i, cy + r, x, y, k, filtro, migliori);
+                }
+            }
+            for (int j = cy - r + 1; j <= cy + r - 1; j++) {
+                visitaCella(cx - r, j, x, y, k, filtro, migliori);
+                visitaCella(cx + r, j, x, y, k, filtro, migliori);
+            }
+        }
+
+        List<Ombrellone> result = new ArrayList<>(migliori.size());
+        while (!migliori.isEmpty()) {
+            result.add(migliori.poll().ombrellone());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private void visitaCella(int cx, int cy, int x, int y, int k,
+                             Predicate<Ombrellone> filtro,
+                             PriorityQueue<Candidato> migliori) {
+        List<Ombrellone> lista = celle.get(chiave(cx, cy));
+        if (lista == null) {
+            return;
+        }
+        for (Ombrellone o : lista) {
+            long dx = o.getPosizioneX() - x;
+            long dy = o.getPosizioneY() - y;
+            long distanza2 = dx * dx + dy * dy;
+
+            if (migliori.size() < k) {
+                if (filtro.test(o)) {
+                    migliori.add(new Candidato(o, distanza2));
+                }
+            } else if (distanza2 < migliori.peek().distanza2() && filtro.test(o)) {
+                migliori.poll();
+                migliori.add(new Candidato(o, distanza2));
+            }
+        }
+    }
+
+    private static long chiave(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    private static final class Candidato {
+
+        private final Ombrellone ombrellone;
+        private final long distanza2;
+
+        Candidato(Ombrellone ombrellone, long distanza2) {
+            this.ombrellone = ombrellone;
+            this.distanza2 = distanza2;
+        }
+
+        Ombrellone ombrellone() {
+            return ombrellone;
+        }
+
+        long distanza2() {
+            return distanza2;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.beachbooking.map;
+
+import com.beachbooking.event.OmbrelloneModificatoEvent;
+import com.beachbooking.model.entity.Ombrellone;
+import com.beachbooking.repository.OmbrelloneRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
+
+/**
+ * Indice spaziale in memoria delle posizioni degli ombrelloni, una griglia per tenant.
+ *
+ * La griglia di un tenant viene caricata alla prima richiesta e poi aggiornata
+ * in modo incrementale dopo il commit di ogni modifica a un ombrellone
+ * (creazione, spostamento, attivazione, eliminazione).
+ */
+@Component
+public class OmbrelloneSpatialIndex {
+
+    @Autowired
+    private OmbrelloneRepository ombrelloneRepository;
+
+    @Value("${app.map.dimensione-cella:50}")
+    private int dimensioneCella;
+
+    private final Map<UUID, GrigliaOmbrelloni> griglie = new ConcurrentHashMap<>();
+
+    /**
+     * Ombrelloni attivi nel rettangolo visibile della mappa (estremi inclusi).
+     */
+    public List<Ombrellone> findInViewport(UUID tenantId, int xMin, int yMin, int xMax, int yMax) {
+        GrigliaOmbrelloni griglia = griglia(tenantId);
+        Lock lock = griglia.readLock();
+        lock.lock();
+        try {
+            return griglia.nelRettangolo(xMin, yMin, xMax, yMax, o -> Boolean.TRUE.equals(o.getAttivo()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * I k ombrelloni attivi più vicini al punto che soddisfano il filtro, dal più vicino.
+     */
+    public List<Ombrellone> findPiuVicini(UUID tenantId, int x, int y, int k, Predicate<Ombrellone> filtro) {
+        GrigliaOmbrelloni griglia = griglia(tenantId);
+        Lock lock = griglia.readLock();
+        lock.lock();
+        try {
+            return griglia.piuVicini(x, y, k, o -> Boolean.TRUE.equals(o.getAttivo()) && filtro.test(o));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Aggiorna la griglia dopo il commit di una modifica a un ombrellone.
+     * Se la griglia è in caricamento, il write lock attende la fine del caricamento.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOmbrelloneModificato(OmbrelloneModificatoEvent event) {
+        GrigliaOmbrelloni griglia = griglie.get(event.getTenantId());
+        if (griglia == null) {
+            return;
+        }
+
+        Lock lock = griglia.writeLock();
+        lock.lock();
+        try {
+            if (event.isEliminato()) {
+                griglia.rimuovi(event.getOmbrellone().getId());
+            } else {
+                griglia.inserisci(event.getOmbrellone());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Griglia del tenant, caricata al primo accesso.
+     *
+     * Come in OccupancyEngine, la nuova griglia viene pubblicata con il write lock
+     * già acquisito e poi riempita dal DB: letture ed eventi concorrenti attendono
+     * il lock. Niente query dentro computeIfAbsent, che bloccherebbe il bucket
+     * della mappa (e il carrier, con i virtual thread) per tutto il caricamento.
+     */
+    private GrigliaOmbrelloni griglia(UUID tenantId) {
+        GrigliaOmbrelloni griglia = griglie.get(tenantId);
+        if (griglia != null) {
+            return griglia;
+        }
+
+        GrigliaOmbrelloni nuova = new GrigliaOmbrelloni(dimensioneCella);
+        Lock lock = nuova.writeLock();
+        lock.lock();
+        try {
+            GrigliaOmbrelloni esistente = griglie.putIfAbsent(tenantId, nuova);
+            if (esistente != null) {
+                return esistente;
+            }
+            for (Ombrellone ombrellone : ombrelloneRepository.findByTenantId(tenantId)) {
+                nuova.inserisci(ombrellone);
+            }
+            return nuova;
+        } catch (RuntimeException e) {
+            griglie.remove(tenantId, nuova);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
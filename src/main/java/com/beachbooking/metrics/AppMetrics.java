@@ -0,0 +1,247 @@
+package com.beachbooking.metrics;
+
+import com.beachbooking.event.PrenotazioneStatoEvent;
+import com.beachbooking.tenant.TenantContext;
+import com.beachbooking.tenant.TenantInfo;
+import com.beachbooking.tenant.TenantRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metriche applicative sui percorsi caldi: creazione prenotazioni, ricerca
+ * disponibilità, conferma pagamenti, validazione JWT e risoluzione del tenant,
+ * più la coda e gli invii della outbox email.
+ *
+ * Il tenant non è mai un tag diretto: timer e contatori usano il piano di
+ * abbonamento. Solo booking.tenant.top riporta i primi N tenant per prenotazioni
+ * create, ricalcolati periodicamente; gli altri restano fuori dal registry.
+ */
+@Component
+public class AppMetrics {
+
+    public static final String OK = "ok";
+    public static final String ERRORE = "errore";
+    public static final String CONFLITTO = "conflitto";
+
+    private static final String NESSUN_PIANO = "nessuno";
+
+    // Bucket fissi dell'istogramma: pochi, dai ~100 µs della verifica JWT ai secondi
+    private static final Duration[] BUCKET = {
+            Duration.ofNanos(100_000), Duration.ofNanos(500_000), Duration.ofMillis(1),
+            Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25),
+            Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250),
+            Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofMillis(2500)
+    };
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TenantRegistry tenantRegistry;
+
+    @Value("${app.metrics.top-tenant:10}")
+    private int topTenant;
+
+    private final Map<UUID, LongAdder> prenotazioniPerTenant = new ConcurrentHashMap<>();
+
+    private MultiGauge tenantTop;
+
+    private final AtomicLong emailInCoda = new AtomicLong();
+
+    private Counter emailInviate;
+    private Counter emailFallite;
+    private Counter connessioniSmtp;
+    private Timer invioEmail;
+
+    @PostConstruct
+    void init() {
+        tenantTop = MultiGauge.builder("booking.tenant.top")
+                .description("Prenotazioni create dall'avvio, primi N tenant")
+                .register(meterRegistry);
+
+        Gauge.builder("email.outbox.pending", emailInCoda, AtomicLong::doubleValue)
+                .description("Email in attesa di invio nella outbox")
+                .register(meterRegistry);
+        emailInviate = emailMessaggi(OK);
+        emailFallite = emailMessaggi(ERRORE);
+        connessioniSmtp = Counter.builder("email.smtp.connections")
+                .description("Connessioni SMTP aperte dal dispatcher")
+                .register(meterRegistry);
+        invioEmail = timer("email.outbox.send", "Invio di un batch della outbox", Tags.empty());
+    }
+
+    public Timer.Sample avvia() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * PrenotazioneService.create: esito ok, conflitto o errore.
+     */
+    public void creazionePrenotazione(Timer.Sample sample, String esito) {
+        sample.stop(timer("booking.create", "Creazione prenotazione",
+                Tags.of("piano", pianoCorrente(), "esito", esito)));
+        if (CONFLITTO.equals(esito)) {
+            conflitto();
+        }
+    }
+
+    /**
+     * Prenotazione (singola o multipla) rifiutata per ombrellone già occupato.
+     */
+    public void conflitto() {
+        Counter.builder("booking.conflicts")
+                .description("Prenotazioni rifiutate per ombrellone già occupato")
+                .tag("piano", pianoCorrente())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Ricerca disponibilità: sorgente memoria (motore di occupazione) o db.
+     */
+    public void ricercaDisponibilita(Timer.Sample sample, String sorgente) {
+        sample.stop(timer("booking.availability.search", "Ricerca ombrelloni disponibili",
+                Tags.of("piano", pianoCorrente(), "sorgente", sorgente)));
+    }
+
+    public void confermaPagamento(Timer.Sample sample, String esito) {
+        sample.stop(timer("payment.confirm", "Conferma pagamento",
+                Tags.of("piano", pianoCorrente(), "esito", esito)));
+    }
+
+    /**
+     * Validazione JWT: esito cache, valido o non_valido.
+     */
+    public void validazioneJwt(Timer.Sample sample, String esito) {
+        sample.stop(timer("auth.jwt.validation", "Verifica del token JWT", Tags.of("esito", esito)));
+    }
+
+    /**
+     * Risoluzione del tenant: strategia che l'ha trovato (jwt, header, dominio,
+     * subdomain, parametro) o nessuna.
+     */
+    public void risoluzioneTenant(Timer.Sample sample, String strategia) {
+        sample.stop(timer("tenant.resolution", "Risoluzione del tenant della richiesta",
+                Tags.of("strategia", strategia)));
+    }
+
+    /**
+     * Profondità della outbox (email PENDING), aggiornata dal dispatcher.
+     */
+    public void codaEmail(long inCoda) {
+        emailInCoda.set(inCoda);
+    }
+
+    /**
+     * Invio di un batch della outbox: durata, email inviate e tentativi falliti.
+     */
+    public void invioEmail(Timer.Sample sample, int inviate, int fallite) {
+        sample.stop(invioEmail);
+        emailInviate.increment(inviate);
+        emailFallite.increment(fallite);
+    }
+
+    public void connessioneSmtp() {
+        connessioniSmtp.increment();
+    }
+
+    /**
+     * Riepilogo della outbox per /api/admin/email/stats, dagli stessi meter esportati.
+     */
+    public Map<String, Object> statisticheEmail() {
+        long inviate = (long) emailInviate.count();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inCoda", emailInCoda.get());
+        stats.put("inviate", inviate);
+        stats.put("tentativiFalliti", (long) emailFallite.count());
+        stats.put("batch", invioEmail.count());
+        stats.put("latenzaMediaMs", inviate > 0 ? invioEmail.totalTime(TimeUnit.MILLISECONDS) / inviate : 0);
+        stats.put("latenzaMediaBatchMs", invioEmail.mean(TimeUnit.MILLISECONDS));
+        stats.put("latenzaMaxBatchMs", invioEmail.max(TimeUnit.MILLISECONDS));
+        stats.put("connessioniSmtp", (long) connessioniSmtp.count());
+        return stats;
+    }
+
+    /**
+     * Transizioni di stato delle prenotazioni (dopo il commit), per piano.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCambioStato(PrenotazioneStatoEvent event) {
+        String da = event.getStatoPrecedente() != null ? event.getStatoPrecedente().name() : "NUOVA";
+        Counter.builder("booking.transitions")
+                .description("Cambi di stato delle prenotazioni")
+                .tags("da", da, "a", event.getStatoNuovo().name(), "piano", piano(event.getTenantId()))
+                .register(meterRegistry)
+                .increment();
+
+        if (event.getStatoPrecedente() == null) {
+            prenotazioniPerTenant.computeIfAbsent(event.getTenantId(), id -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Ricalcola i primi N tenant per prenotazioni create.
+     */
+    @Scheduled(fixedDelayString = "${app.metrics.top-tenant-refresh-ms:60000}")
+    public void aggiornaTenantTop() {
+        List<MultiGauge.Row<?>> righe = prenotazioniPerTenant.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<UUID, LongAdder> e) -> e.getValue().sum()).reversed())
+                .limit(topTenant)
+                .<MultiGauge.Row<?>>map(e -> {
+                    TenantInfo tenant = tenantRegistry.findById(e.getKey());
+                    String nome = tenant != null ? tenant.getSlug() : e.getKey().toString();
+                    LongAdder contatore = e.getValue();
+                    return MultiGauge.Row.of(Tags.of("tenant", nome), contatore, LongAdder::doubleValue);
+                })
+                .toList();
+        tenantTop.register(righe, true);
+    }
+
+    private Counter emailMessaggi(String esito) {
+        return Counter.builder("email.outbox.messages")
+                .description("Email della outbox inviate o fallite")
+                .tag("esito", esito)
+                .register(meterRegistry);
+    }
+
+    private Timer timer(String nome, String descrizione, Tags tags) {
+        return Timer.builder(nome)
+                .description(descrizione)
+                .tags(tags)
+                .serviceLevelObjectives(BUCKET)
+                .register(meterRegistry);
+    }
+
+    private String pianoCorrente() {
+        return piano(TenantContext.getTenantId());
+    }
+
+    private String piano(UUID tenantId) {
+        TenantInfo tenant = tenantId != null ? tenantRegistry.findById(tenantId) : null;
+        return tenant != null && tenant.getPiano() != null ? tenant.getPiano().name() : NESSUN_PIANO;
+    }
+}
@@ -0,0 +1,53 @@
+package com.beachbooking.model.dto.request;
+
+import com.beachbooking.model.enums.TipoPrenotazione;
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO per la prenotazione di più ombrelloni con le stesse date (famiglie, gruppi).
+ * La richiesta è tutto-o-niente.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreatePrenotazioneBatchRequest {
+
+    /**
+     * ID utente per cui creare le prenotazioni.
+     * Opzionale: se null, viene usato l'utente corrente.
+     */
+    private UUID userId;
+
+    @NotEmpty(message = "Almeno un ombrellone è obbligatorio")
+    @Size(max = 50, message = "Non si possono prenotare più di 50 ombrelloni per richiesta")
+    private List<@NotNull UUID> ombrelloneIds;
+
+    @NotNull(message = "Data inizio è obbligatoria")
+    @FutureOrPresent(message = "Data inizio non può essere nel passato")
+    private LocalDate dataInizio;
+
+    @NotNull(message = "Data fine è obbligatoria")
+    @FutureOrPresent(message = "Data fine non può essere nel passato")
+    private LocalDate dataFine;
+
+    @NotNull(message = "Tipo prenotazione è obbligatorio")
+    private TipoPrenotazione tipoPrenotazione;
+
+    @Size(max = 1000, message = "Le note non possono superare 1000 caratteri")
+    private String note;
+
+    @AssertTrue(message = "Data fine deve essere dopo o uguale a data inizio")
+    public boolean isDataFineValid() {
+        if (dataInizio == null || dataFine == null) {
+            return true;
+        }
+        return !dataFine.isBefore(dataInizio);
+    }
+}
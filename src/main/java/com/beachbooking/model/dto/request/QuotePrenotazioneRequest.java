@@ -0,0 +1,38 @@
+package com.beachbooking.model.dto.request;
+
+import com.beachbooking.model.enums.TipoPrenotazione;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * DTO per il preventivo di tutti gli ombrelloni su un periodo (mappa spiaggia).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuotePrenotazioneRequest {
+
+    @NotNull(message = "Data inizio è obbligatoria")
+    private LocalDate dataInizio;
+
+    @NotNull(message = "Data fine è obbligatoria")
+    private LocalDate dataFine;
+
+    /**
+     * Opzionale: se null, GIORNALIERA.
+     */
+    private TipoPrenotazione tipoPrenotazione;
+
+    @AssertTrue(message = "Data fine deve essere dopo o uguale a data inizio")
+    public boolean isDataFineValid() {
+        if (dataInizio == null || dataFine == null) {
+            return true;
+        }
+        return !dataFine.isBefore(dataInizio);
+    }
+}
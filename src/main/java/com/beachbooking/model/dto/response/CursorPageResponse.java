@@ -0,0 +1,36 @@
+package com.beachbooking.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Pagina di risultati con paginazione keyset.
+ * Per la pagina successiva il client passa nextCursor come parametro "after".
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPageResponse<T> {
+
+    private List<T> items;
+    private String nextCursor; // null se non ci sono altre pagine
+    private Boolean hasMore;
+
+    /**
+     * Converte gli elementi mantenendo il cursore.
+     */
+    public <R> CursorPageResponse<R> map(Function<T, R> mapper) {
+        return new CursorPageResponse<>(
+                items.stream().map(mapper).collect(Collectors.toList()),
+                nextCursor,
+                hasMore
+        );
+    }
+}
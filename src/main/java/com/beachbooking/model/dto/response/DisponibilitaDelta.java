@@ -0,0 +1,25 @@
+package com.beachbooking.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Variazione di disponibilità di un ombrellone, inviata sullo stream SSE.
+ * occupato indica se i giorni [dataInizio, dataFine] sono ora occupati o liberi.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DisponibilitaDelta {
+
+    private long seq;
+    private UUID ombrelloneId;
+    private LocalDate dataInizio;
+    private LocalDate dataFine;
+    private String stato;
+    private boolean occupato;
+}
@@ -0,0 +1,37 @@
+package com.beachbooking.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO compatto per disegnare la mappa della spiaggia.
+ *
+ * Formato a colonne: l'ombrellone i-esimo è descritto dall'elemento i di ogni array.
+ * disponibili è una bitmask in base64 (bit i del byte i / 8, dal meno significativo)
+ * con bit a 1 se l'ombrellone è libero per tutto il periodo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MapSnapshotResponse {
+
+    private LocalDate dataInizio;
+    private LocalDate dataFine;
+    private Integer numeroOmbrelloni;
+
+    private List<UUID> ids;
+    private int[] numeri;
+    private List<String> file;
+    private int[] x; // -1 se senza posizione
+    private int[] y; // -1 se senza posizione
+    private int[] tipi; // ordinal di tipiLegenda
+    private List<String> tipiLegenda;
+    private String disponibili;
+}
@@ -1,6 +1,7 @@
 
 package com.beachbooking.model.dto.response;
 
+import com.beachbooking.model.enums.TipoOmbrellone;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,6 +20,7 @@ import java.util.UUID;
 public class OmbrelloneResponse {
 
     private UUID id;
+    private UUID tenantId;
     private Integer numero;
     private String fila;
     private String tipo; // Enum as string
@@ -29,8 +31,39 @@ public class OmbrelloneResponse {
     private Boolean attivo;
     private String note;
     private LocalDateTime dataCreazione;
+    private LocalDateTime dataAggiornamento;
 
     // Campi opzionali per lista prenotazioni
     private Boolean disponibile; // Calcolato in base alle prenotazioni
     private String prossimaPrenotazione; // Data prossima prenotazione
+
+    /**
+     * Proiezione JPQL (OmbrelloneRepository.RESPONSE), senza caricare l'entity.
+     */
+    public OmbrelloneResponse(UUID id,
+                              UUID tenantId,
+                              Integer numero,
+                              String fila,
+                              TipoOmbrellone tipo,
+                              String descrizione,
+                              Integer posizioneX,
+                              Integer posizioneY,
+                              Boolean attivo,
+                              String note,
+                              LocalDateTime dataCreazione,
+                              LocalDateTime dataAggiornamento) {
+        this.id = id;
+        this.tenantId = tenantId;
+        this.numero = numero;
+        this.fila = fila;
+        this.tipo = tipo.name();
+        this.tipoDescrizione = tipo.getDescrizione();
+        this.descrizione = descrizione;
+        this.posizioneX = posizioneX;
+        this.posizioneY = posizioneY;
+        this.attivo = attivo;
+        this.note = note;
+        this.dataCreazione = dataCreazione;
+        this.dataAggiornamento = dataAggiornamento;
+    }
 }
\ No newline at end of file
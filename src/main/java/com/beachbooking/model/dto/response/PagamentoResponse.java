@@ -1,5 +1,7 @@
 package com.beachbooking.model.dto.response;
 
+import com.beachbooking.model.enums.MetodoPagamento;
+import com.beachbooking.model.enums.StatoPrenotazione;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -34,4 +36,28 @@ public class PagamentoResponse {
 
     private LocalDateTime dataCreazione;
     private LocalDateTime dataAggiornamento;
+
+    /**
+     * Proiezione JPQL (PagamentoRepository.RESPONSE): stessi campi di
+     * PagamentoController.mapToResponse, letti senza caricare l'entity.
+     */
+    public PagamentoResponse(UUID id,
+                             UUID prenotazioneId,
+                             MetodoPagamento metodoPagamento,
+                             BigDecimal importo,
+                             StatoPrenotazione stato,
+                             String riferimentoEsterno,
+                             LocalDateTime dataPagamento,
+                             String note,
+                             LocalDateTime dataCreazione) {
+        this.id = id;
+        this.prenotazioneId = prenotazioneId;
+        this.metodoPagamento = metodoPagamento.name();
+        this.importo = importo;
+        this.stato = stato.name();
+        this.riferimentoEsterno = riferimentoEsterno;
+        this.dataPagamento = dataPagamento;
+        this.note = note;
+        this.dataCreazione = dataCreazione;
+    }
 }
\ No newline at end of file
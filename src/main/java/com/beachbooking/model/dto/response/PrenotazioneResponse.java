@@ -1,5 +1,7 @@
 package com.beachbooking.model.dto.response;
 
+import com.beachbooking.model.enums.StatoPrenotazione;
+import com.beachbooking.model.enums.TipoPrenotazione;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,6 +10,7 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.UUID;
 
 /**
@@ -43,4 +46,34 @@ public class PrenotazioneResponse {
 
     private LocalDateTime dataCreazione;
     private LocalDateTime dataAggiornamento;
+
+    /**
+     * Proiezione JPQL (PrenotazioneRepository.RESPONSE): stessi campi di
+     * PrenotazioneController.mapToResponse, letti senza caricare l'entity.
+     */
+    public PrenotazioneResponse(UUID id,
+                                UUID userId,
+                                UUID ombrelloneId,
+                                LocalDate dataInizio,
+                                LocalDate dataFine,
+                                TipoPrenotazione tipoPrenotazione,
+                                BigDecimal prezzoTotale,
+                                StatoPrenotazione stato,
+                                String note,
+                                String codicePrenotazione,
+                                LocalDateTime dataCreazione) {
+        this.id = id;
+        this.userId = userId;
+        this.ombrelloneId = ombrelloneId;
+        this.dataInizio = dataInizio;
+        this.dataFine = dataFine;
+        this.numeroGiorni = (int) ChronoUnit.DAYS.between(dataInizio, dataFine) + 1;
+        this.tipoPrenotazione = tipoPrenotazione.name();
+        this.prezzoTotale = prezzoTotale;
+        this.stato = stato.name();
+        this.statoDescrizione = stato.getDescrizione();
+        this.note = note;
+        this.codicePrenotazione = codicePrenotazione;
+        this.dataCreazione = dataCreazione;
+    }
 }
\ No newline at end of file
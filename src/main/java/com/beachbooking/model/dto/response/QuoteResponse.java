@@ -0,0 +1,41 @@
+package com.beachbooking.model.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO per il preventivo della mappa: disponibilità e prezzo di ogni ombrellone attivo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QuoteResponse {
+
+    private LocalDate dataInizio;
+    private LocalDate dataFine;
+    private String tipoPrenotazione;
+    private Integer numeroGiorni;
+    private List<Item> ombrelloni;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private UUID id;
+        private Integer numero;
+        private String fila;
+        private String tipo;
+        private Integer posizioneX;
+        private Integer posizioneY;
+        private Boolean disponibile;
+        private BigDecimal prezzo;
+    }
+}
@@ -0,0 +1,72 @@
+package com.beachbooking.model.entity;
+
+import com.beachbooking.model.enums.StatoEmail;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// ============= EmailOutbox.java =============
+/**
+ * Email in uscita, scritta nella stessa transazione dell'operazione che la genera
+ * e inviata in seguito da EmailOutboxDispatcher.
+ */
+@Entity
+@Table(name = "email_outbox",
+        indexes = {
+                @Index(name = "idx_email_outbox_coda", columnList = "stato, prossimo_tentativo")
+        }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmailOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "tenant_id")
+    private UUID tenantId;
+
+    @Column(nullable = false)
+    private String destinatario;
+
+    @Column(nullable = false, length = 500)
+    private String oggetto;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String corpo;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Boolean html = false;
+
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatoEmail stato = StatoEmail.PENDING;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer tentativi = 0;
+
+    /**
+     * Prima data utile per l'invio (backoff dopo un errore, lease durante l'invio).
+     */
+    @Column(name = "prossimo_tentativo", nullable = false)
+    private LocalDateTime prossimoTentativo;
+
+    @Column(length = 1000)
+    private String ultimoErrore;
+
+    private LocalDateTime dataInvio;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime dataCreazione;
+}
@@ -0,0 +1,33 @@
+package com.beachbooking.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// ============= Listino.java =============
+/**
+ * Regole di prezzo di un tenant (stagioni, file, tipi ombrellone, sconti),
+ * salvate come JSON (vedi pricing.RegoleListino).
+ */
+@Entity
+@Table(name = "listini")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Listino {
+
+    @Id
+    @Column(name = "tenant_id")
+    private UUID tenantId;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String regole;
+
+    @UpdateTimestamp
+    private LocalDateTime dataAggiornamento;
+}
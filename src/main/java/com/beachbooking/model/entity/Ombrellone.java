@@ -19,7 +19,8 @@ import java.util.UUID;
 @Table(name = "ombrelloni",
         indexes = {
                 @Index(name = "idx_ombrellone_tenant", columnList = "tenant_id"),
-                @Index(name = "idx_ombrellone_numero", columnList = "tenant_id, numero")
+                @Index(name = "idx_ombrellone_numero", columnList = "tenant_id, numero"),
+                @Index(name = "idx_ombrellone_keyset", columnList = "tenant_id, data_creazione, id")
         },
         uniqueConstraints = {
                 @UniqueConstraint(name = "uk_tenant_numero", columnNames = {"tenant_id", "numero"})
@@ -17,7 +17,8 @@ import java.util.UUID;
 @Table(name = "pagamenti",
         indexes = {
                 @Index(name = "idx_pagamento_prenotazione", columnList = "prenotazione_id"),
-                @Index(name = "idx_pagamento_stato", columnList = "stato")
+                @Index(name = "idx_pagamento_stato", columnList = "stato"),
+                @Index(name = "idx_pagamento_keyset", columnList = "data_creazione, id")
         }
 )
 @Getter
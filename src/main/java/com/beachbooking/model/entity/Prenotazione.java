@@ -19,7 +19,8 @@ import java.util.UUID;
                 @Index(name = "idx_prenotazione_user", columnList = "user_id"),
                 @Index(name = "idx_prenotazione_ombrellone", columnList = "ombrellone_id"),
                 @Index(name = "idx_prenotazione_date", columnList = "data_inizio, data_fine"),
-                @Index(name = "idx_prenotazione_stato", columnList = "stato")
+                @Index(name = "idx_prenotazione_stato", columnList = "stato"),
+                @Index(name = "idx_prenotazione_keyset", columnList = "tenant_id, data_creazione, id")
         }
 )
 @Getter
@@ -62,7 +63,7 @@ public class Prenotazione {
     @Column(length = 1000)
     private String note;
 
-    private String codicePrenotazione; // Codice univoco per il cliente
+    private String codicePrenotazione; // Codice univoco per il cliente (CodicePrenotazioneGenerator)
 
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
@@ -71,14 +72,6 @@ public class Prenotazione {
     @UpdateTimestamp
     private LocalDateTime dataAggiornamento;
 
-    @PrePersist
-    public void generateCodice() {
-        if (codicePrenotazione == null) {
-            codicePrenotazione = "BK" + System.currentTimeMillis() +
-                    (int)(Math.random() * 1000);
-        }
-    }
-
     public Integer getNumeroGiorni() {
         return (int) java.time.temporal.ChronoUnit.DAYS.between(dataInizio, dataFine) + 1;
     }
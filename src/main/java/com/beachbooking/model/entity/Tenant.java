@@ -16,7 +16,8 @@ import java.util.UUID;
 @Entity
 @Table(name = "tenants", indexes = {
         @Index(name = "idx_tenant_slug", columnList = "slug"),
-        @Index(name = "idx_tenant_stato", columnList = "stato")
+        @Index(name = "idx_tenant_stato", columnList = "stato"),
+        @Index(name = "idx_tenant_keyset", columnList = "data_creazione, id")
 })
 @Getter
 @Setter
@@ -0,0 +1,54 @@
+package com.beachbooking.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// ============= TenantStats.java =============
+/**
+ * Statistiche aggregate di un tenant per la dashboard di piattaforma.
+ *
+ * Prenotazioni e revenue sono aggiornate in modo incrementale dai cambi di stato
+ * (accumulati in memoria e scaricati periodicamente), gli ombrelloni dopo ogni
+ * modifica; un riallineamento periodico ricalcola tutti i valori dalle tabelle sorgente.
+ */
+@Entity
+@Table(name = "tenant_stats", indexes = {
+        @Index(name = "idx_tenant_stats_revenue", columnList = "revenue")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TenantStats {
+
+    @Id
+    @Column(name = "tenant_id")
+    private UUID tenantId;
+
+    @Column(nullable = false)
+    private Long numeroUtenti;
+
+    @Column(nullable = false)
+    private Long numeroOmbrelloni;
+
+    @Column(nullable = false)
+    private Long numeroPrenotazioni;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal revenue; // prenotazioni PAID e COMPLETED
+
+    @Column(nullable = false)
+    private LocalDateTime dataAggiornamento;
+
+    /**
+     * Statistiche vuote, per i tenant non ancora presenti in tabella.
+     */
+    public static TenantStats vuote(UUID tenantId) {
+        return new TenantStats(tenantId, 0L, 0L, 0L, BigDecimal.ZERO, null);
+    }
+}
@@ -16,7 +16,9 @@ import java.util.UUID;
 @Entity
 @Table(name = "users", indexes = {
         @Index(name = "idx_user_email", columnList = "email"),
-        @Index(name = "idx_user_tenant", columnList = "tenant_id")
+        @Index(name = "idx_user_tenant", columnList = "tenant_id"),
+        @Index(name = "idx_user_keyset", columnList = "data_registrazione, id"),
+        @Index(name = "idx_user_tenant_keyset", columnList = "tenant_id, data_registrazione, id")
 })
 @Getter
 @Setter
@@ -63,6 +65,9 @@ public class User {
 
     private LocalDateTime passwordResetExpiry;
 
+    // Incrementata per invalidare i token già emessi (null = 0)
+    private Integer tokenVersion;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime dataRegistrazione;
@@ -0,0 +1,15 @@
+package com.beachbooking.model.enums;
+
+public enum StatoEmail {
+    PENDING("In coda"),
+    SENT("Inviata"),
+    FAILED("Non inviata dopo tutti i tentativi");
+
+    private final String descrizione;
+
+    StatoEmail(String descrizione) {
+        this.descrizione = descrizione;
+    }
+
+    public String getDescrizione() { return descrizione; }
+}
@@ -0,0 +1,56 @@
+package com.beachbooking.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Cursore opaco per la paginazione keyset su (data creazione, id).
+ *
+ * Il valore passato al client è la codifica base64url di "timestamp|uuid"
+ * dell'ultimo elemento della pagina precedente.
+ */
+public final class KeysetCursor {
+
+    private final LocalDateTime data;
+    private final UUID id;
+
+    public KeysetCursor(LocalDateTime data, UUID id) {
+        this.data = data;
+        this.id = id;
+    }
+
+    public LocalDateTime getData() {
+        return data;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = data + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica il parametro "after". Null o vuoto indica la prima pagina (risultato null).
+     */
+    public static KeysetCursor decode(String after) {
+        if (after == null || after.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new KeysetCursor(
+                    LocalDateTime.parse(raw.substring(0, sep)),
+                    UUID.fromString(raw.substring(sep + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursore non valido");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.beachbooking.pagination;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Ordinamento keyset di un'entity: (campo data, id) crescente.
+ */
+public final class KeysetOrder<T> {
+
+    private final String campoData;
+    private final Function<T, LocalDateTime> data;
+    private final Function<T, UUID> id;
+
+    private KeysetOrder(String campoData, Function<T, LocalDateTime> data, Function<T, UUID> id) {
+        this.campoData = campoData;
+        this.data = data;
+        this.id = id;
+    }
+
+    public static <T> KeysetOrder<T> of(String campoData,
+                                        Function<T, LocalDateTime> data,
+                                        Function<T, UUID> id) {
+        return new KeysetOrder<>(campoData, data, id);
+    }
+
+    Sort sort() {
+        return Sort.by(Sort.Direction.ASC, campoData, "id");
+    }
+
+    /**
+     * Record successivi al cursore: data > c.data OR (data = c.data AND id > c.id).
+     */
+    Specification<T> dopo(KeysetCursor cursor) {
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.<LocalDateTime>get(campoData), cursor.getData()),
+                cb.and(
+                        cb.equal(root.get(campoData), cursor.getData()),
+                        cb.greaterThan(root.<UUID>get("id"), cursor.getId())
+                )
+        );
+    }
+
+    KeysetCursor cursorDi(T entity) {
+        return new KeysetCursor(data.apply(entity), id.apply(entity));
+    }
+}
@@ -0,0 +1,78 @@
+package com.beachbooking.pagination;
+
+import com.beachbooking.model.dto.response.CursorPageResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Paginazione keyset e streaming per i repository che supportano le Specification.
+ *
+ * Le pagine leggono limit + 1 record per sapere se ne esistono altri.
+ * Lo streaming legge dal DB a blocchi (hibernate.jdbc.fetch_size) e stacca
+ * ogni entity dal persistence context dopo l'uso, così la memoria resta costante.
+ */
+@Component
+public class KeysetPager {
+
+    public static final int LIMIT_DEFAULT = 50;
+    public static final int LIMIT_MAX = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Restituisce la pagina successiva al cursore "after".
+     */
+    @Transactional(readOnly = true)
+    public <T> CursorPageResponse<T> page(JpaSpecificationExecutor<T> repository,
+                                          KeysetOrder<T> ordine,
+                                          Specification<T> filtro,
+                                          String after,
+                                          Integer limit) {
+
+        int size = limit == null ? LIMIT_DEFAULT : limit;
+        if (size < 1 || size > LIMIT_MAX) {
+            throw new IllegalArgumentException("Il parametro limit deve essere tra 1 e " + LIMIT_MAX);
+        }
+
+        // Prima pagina senza predicato sul cursore: solo filtro e ordinamento
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        Specification<T> spec = Specification.where(filtro);
+        if (cursor != null) {
+            spec = spec.and(ordine.dopo(cursor));
+        }
+        List<T> righe = repository.findBy(spec, q -> q.sortBy(ordine.sort()).limit(size + 1).all());
+
+        boolean hasMore = righe.size() > size;
+        List<T> items = hasMore ? righe.subList(0, size) : righe;
+        String nextCursor = hasMore ? ordine.cursorDi(items.get(size - 1)).encode() : null;
+
+        return new CursorPageResponse<>(items, nextCursor, hasMore);
+    }
+
+    /**
+     * Passa al consumer tutti i record in ordine keyset, senza caricarli in memoria.
+     */
+    @Transactional(readOnly = true)
+    public <T> void forEach(JpaSpecificationExecutor<T> repository,
+                            KeysetOrder<T> ordine,
+                            Specification<T> filtro,
+                            Consumer<T> consumer) {
+
+        try (Stream<T> stream = repository.findBy(
+                Specification.where(filtro), q -> q.sortBy(ordine.sort()).stream())) {
+            stream.forEach(entity -> {
+                consumer.accept(entity);
+                entityManager.detach(entity);
+            });
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.beachbooking.pagination;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Scrive una sequenza di oggetti come NDJSON (un JSON per riga)
+ * direttamente sulla risposta, man mano che vengono prodotti.
+ */
+@Component
+public class NdjsonWriter {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private static final int FLUSH_OGNI = 200;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * La sorgente riceve il consumer su cui pubblicare ogni elemento.
+     */
+    public void write(HttpServletResponse response, Consumer<Consumer<Object>> sorgente) throws IOException {
+        response.setContentType(MEDIA_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        OutputStream out = response.getOutputStream();
+        int[] scritti = {0};
+
+        try {
+            sorgente.accept(item -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(item));
+                    out.write('\n');
+                    if (++scritti[0] % FLUSH_OGNI == 0) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+}
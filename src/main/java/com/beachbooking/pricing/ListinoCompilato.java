@@ -0,0 +1,154 @@
+package com.beachbooking.pricing;
+
+import com.beachbooking.model.enums.TipoOmbrellone;
+import com.beachbooking.model.enums.TipoPrenotazione;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Listino di un tenant compilato per il calcolo veloce dei prezzi.
+ *
+ * Il prezzo base stagionale di ogni giorno della finestra (anno precedente,
+ * corrente e due successivi) è in un array denso in centesimi × 100, con somme
+ * prefisse: il totale di un intervallo è una sottrazione. File, tipi e sconti
+ * sono percentuali intere applicate sul totale con un solo arrotondamento finale.
+ * Nessuna allocazione di BigDecimal; immutabile e thread-safe.
+ */
+final class ListinoCompilato {
+
+    private static final int ANNO_BISESTILE = 2000;
+    private static final long DENOMINATORE = 100L * 100 * 100 * 100;
+
+    private final long prezzoBase;
+
+    // Percentuale stagionale per giorno dell'anno (indice su anno bisestile)
+    private final int[] percentualiAnno = new int[366];
+
+    // Finestra precompilata: cumulato[i] = somma dei giorni [inizio, inizio + i)
+    private final long inizioFinestra;
+    private final long[] cumulato;
+
+    private final Map<String, Integer> file;
+    private final int[] percentualiTipo = new int[TipoOmbrellone.values().length];
+    private final int[] scontiTipo = new int[TipoPrenotazione.values().length];
+
+    // Sconti per durata ordinati per giorniMinimi crescenti
+    private final int[] giorniMinimi;
+    private final int[] scontiDurata;
+
+    ListinoCompilato(RegoleListino regole, LocalDate oggi) {
+        this.prezzoBase = regole.getPrezzoBaseCentesimi();
+
+        Arrays.fill(percentualiAnno, 100);
+        for (RegoleListino.Stagione stagione : regole.getStagioni()) {
+            int dal = indice(RegoleListino.giornoDellAnno(stagione.getDal()));
+            int al = indice(RegoleListino.giornoDellAnno(stagione.getAl()));
+            for (int i = dal; ; i = (i + 1) % 366) {
+                percentualiAnno[i] = stagione.getPercentuale();
+                if (i == al) {
+                    break;
+                }
+            }
+        }
+
+        LocalDate inizio = LocalDate.of(oggi.getYear() - 1, 1, 1);
+        LocalDate fine = LocalDate.of(oggi.getYear() + 3, 1, 1);
+        this.inizioFinestra = inizio.toEpochDay();
+        int giorni = (int) (fine.toEpochDay() - inizioFinestra);
+        this.cumulato = new long[giorni + 1];
+        LocalDate giorno = inizio;
+        for (int i = 0; i < giorni; i++) {
+            cumulato[i + 1] = cumulato[i] + prezzoGiorno(giorno);
+            giorno = giorno.plusDays(1);
+        }
+
+        this.file = new HashMap<>(regole.getFile());
+
+        Arrays.fill(percentualiTipo, 100);
+        regole.getTipiOmbrellone().forEach((tipo, p) -> percentualiTipo[tipo.ordinal()] = p);
+        regole.getScontiTipo().forEach((tipo, s) -> scontiTipo[tipo.ordinal()] = s);
+
+        RegoleListino.ScontoDurata[] sconti = regole.getScontiDurata().stream()
+                .sorted((a, b) -> Integer.compare(a.getGiorniMinimi(), b.getGiorniMinimi()))
+                .toArray(RegoleListino.ScontoDurata[]::new);
+        this.giorniMinimi = new int[sconti.length];
+        this.scontiDurata = new int[sconti.length];
+        for (int i = 0; i < sconti.length; i++) {
+            giorniMinimi[i] = sconti[i].getGiorniMinimi();
+            scontiDurata[i] = sconti[i].getSconto();
+        }
+    }
+
+    /**
+     * Prezzo in centesimi per l'intervallo [dataInizio, dataFine] (estremi inclusi).
+     */
+    long prezzoCentesimi(String fila,
+                         TipoOmbrellone tipoOmbrellone,
+                         long dataInizio,
+                         long dataFine,
+                         TipoPrenotazione tipoPrenotazione) {
+        return applica(sommaGiorni(dataInizio, dataFine), fattore(fila, tipoOmbrellone, dataInizio, dataFine, tipoPrenotazione));
+    }
+
+    /**
+     * Somma dei prezzi base stagionali dell'intervallo, in centesimi × 100.
+     * Stessa per tutti gli ombrelloni: chi quota molti ombrelloni la calcola una volta.
+     */
+    long sommaGiorni(long dataInizio, long dataFine) {
+        long da = dataInizio - inizioFinestra;
+        long a = dataFine - inizioFinestra + 1;
+        if (da >= 0 && a < cumulato.length && da < a) {
+            return cumulato[(int) a] - cumulato[(int) da];
+        }
+
+        // Fuori dalla finestra precompilata: somma giorno per giorno
+        long somma = 0;
+        for (long d = dataInizio; d <= dataFine; d++) {
+            somma += prezzoGiorno(LocalDate.ofEpochDay(d));
+        }
+        return somma;
+    }
+
+    /**
+     * Fattore dell'ombrellone (fila% × tipo% × (100 - sconto)%) per l'intervallo.
+     */
+    long fattore(String fila,
+                 TipoOmbrellone tipoOmbrellone,
+                 long dataInizio,
+                 long dataFine,
+                 TipoPrenotazione tipoPrenotazione) {
+        Integer percentualeFila = fila != null ? file.get(fila) : null;
+        int sconto = Math.max(scontiTipo[tipoPrenotazione.ordinal()], scontoDurata(dataFine - dataInizio + 1));
+
+        return (long) (percentualeFila != null ? percentualeFila : 100)
+                * percentualiTipo[tipoOmbrellone.ordinal()]
+                * (100 - sconto);
+    }
+
+    /**
+     * Totale in centesimi, arrotondato una sola volta (half-up).
+     */
+    static long applica(long sommaGiorni, long fattore) {
+        return (Math.multiplyExact(sommaGiorni, fattore) + DENOMINATORE / 2) / DENOMINATORE;
+    }
+
+    private int scontoDurata(long giorni) {
+        int sconto = 0;
+        for (int i = 0; i < giorniMinimi.length && giorniMinimi[i] <= giorni; i++) {
+            sconto = scontiDurata[i];
+        }
+        return sconto;
+    }
+
+    private long prezzoGiorno(LocalDate giorno) {
+        return prezzoBase * percentualiAnno[indice(MonthDay.from(giorno))];
+    }
+
+    private static int indice(MonthDay giorno) {
+        return giorno.atYear(ANNO_BISESTILE).getDayOfYear() - 1;
+    }
+}
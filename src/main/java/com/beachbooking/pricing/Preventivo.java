@@ -0,0 +1,37 @@
+package com.beachbooking.pricing;
+
+import com.beachbooking.model.entity.Ombrellone;
+import com.beachbooking.model.enums.TipoPrenotazione;
+
+/**
+ * Prezzi di un periodo per molti ombrelloni dello stesso tenant.
+ *
+ * La somma dei prezzi giornalieri è calcolata una sola volta;
+ * per ogni ombrellone restano solo fattore e arrotondamento.
+ */
+public final class Preventivo {
+
+    private final ListinoCompilato listino;
+    private final long dataInizio;
+    private final long dataFine;
+    private final TipoPrenotazione tipo;
+    private final long sommaGiorni;
+
+    Preventivo(ListinoCompilato listino, long dataInizio, long dataFine, TipoPrenotazione tipo) {
+        this.listino = listino;
+        this.dataInizio = dataInizio;
+        this.dataFine = dataFine;
+        this.tipo = tipo;
+        this.sommaGiorni = listino.sommaGiorni(dataInizio, dataFine);
+    }
+
+    /**
+     * Prezzo in centesimi dell'ombrellone per il periodo.
+     */
+    public long prezzoCentesimi(Ombrellone ombrellone) {
+        return ListinoCompilato.applica(
+                sommaGiorni,
+                listino.fattore(ombrellone.getFila(), ombrellone.getTipo(), dataInizio, dataFine, tipo)
+        );
+    }
+}
@@ -0,0 +1,166 @@
+package com.beachbooking.pricing;
+
+import com.beachbooking.event.ListinoModificatoEvent;
+import com.beachbooking.model.entity.Listino;
+import com.beachbooking.model.entity.Ombrellone;
+import com.beachbooking.model.enums.TipoPrenotazione;
+import com.beachbooking.repository.ListinoRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Motore prezzi per tenant.
+ *
+ * Le regole (RegoleListino) sono lette dalla tabella listini e compilate alla prima
+ * richiesta in un ListinoCompilato, tenuto in memoria finché il tenant non le modifica.
+ * I tenant senza listino usano le regole predefinite (calcolo storico).
+ * Tutti gli importi sono in centesimi (long).
+ */
+@Component
+public class PricingEngine {
+
+    @Autowired
+    private ListinoRepository listinoRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final Map<UUID, ListinoCompilato> compilati = new ConcurrentHashMap<>();
+
+    // Incrementato ad ogni invalidazione: un listino compilato da regole lette prima non va in cache
+    private final AtomicLong generazione = new AtomicLong();
+
+    /**
+     * Prezzo in centesimi di un ombrellone per l'intervallo [dataInizio, dataFine].
+     */
+    public long prezzoCentesimi(UUID tenantId,
+                                Ombrellone ombrellone,
+                                LocalDate dataInizio,
+                                LocalDate dataFine,
+                                TipoPrenotazione tipo) {
+        return listino(tenantId).prezzoCentesimi(
+                ombrellone.getFila(),
+                ombrellone.getTipo(),
+                dataInizio.toEpochDay(),
+                dataFine.toEpochDay(),
+                tipo
+        );
+    }
+
+    /**
+     * Preventivo per quotare molti ombrelloni del tenant sullo stesso periodo.
+     */
+    public Preventivo preventivo(UUID tenantId,
+                                 LocalDate dataInizio,
+                                 LocalDate dataFine,
+                                 TipoPrenotazione tipo) {
+        return new Preventivo(listino(tenantId), dataInizio.toEpochDay(), dataFine.toEpochDay(), tipo);
+    }
+
+    /**
+     * Come prezzoCentesimi, in euro con due decimali (per le entity).
+     */
+    public BigDecimal prezzo(UUID tenantId,
+                             Ombrellone ombrellone,
+                             LocalDate dataInizio,
+                             LocalDate dataFine,
+                             TipoPrenotazione tipo) {
+        return BigDecimal.valueOf(prezzoCentesimi(tenantId, ombrellone, dataInizio, dataFine, tipo), 2);
+    }
+
+    /**
+     * Regole del tenant (predefinite se non ne ha salvate).
+     */
+    public RegoleListino getRegole(UUID tenantId) {
+        return listinoRepository.findById(tenantId)
+                .map(listino -> leggi(listino.getRegole()))
+                .orElseGet(RegoleListino::predefinite);
+    }
+
+    /**
+     * Salva le regole del tenant; la versione compilata viene scartata dopo il commit.
+     */
+    @Transactional
+    public RegoleListino salvaRegole(UUID tenantId, RegoleListino regole) {
+        regole.valida();
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(regole);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Regole listino non valide");
+        }
+
+        Listino listino = listinoRepository.findById(tenantId)
+                .orElseGet(() -> Listino.builder().tenantId(tenantId).build());
+        listino.setRegole(json);
+        listinoRepository.save(listino);
+
+        eventPublisher.publishEvent(new ListinoModificatoEvent(tenantId));
+        return regole;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onListinoModificato(ListinoModificatoEvent event) {
+        generazione.incrementAndGet();
+        compilati.remove(event.getTenantId());
+    }
+
+    /**
+     * Ricompila a intervalli regolari: sposta la finestra precompilata col passare
+     * degli anni e recepisce le modifiche fatte da altre istanze.
+     */
+    @Scheduled(fixedDelayString = "${app.pricing.ricompilazione-ms:600000}",
+            initialDelayString = "${app.pricing.ricompilazione-ms:600000}")
+    public void svuota() {
+        generazione.incrementAndGet();
+        compilati.clear();
+    }
+
+    ListinoCompilato listino(UUID tenantId) {
+        ListinoCompilato listino = compilati.get(tenantId);
+        if (listino == null) {
+            long gen = generazione.get();
+
+            // Compilato fuori dalla mappa, per non bloccarla durante la query
+            listino = new ListinoCompilato(getRegole(tenantId), LocalDate.now());
+            if (generazione.get() != gen) {
+                // Regole modificate durante la lettura: usato per questa richiesta, non messo in cache
+                return listino;
+            }
+            ListinoCompilato esistente = compilati.putIfAbsent(tenantId, listino);
+            if (esistente != null) {
+                return esistente;
+            }
+            if (generazione.get() != gen) {
+                // Invalidazione arrivata tra il controllo e l'inserimento
+                compilati.remove(tenantId, listino);
+            }
+        }
+        return listino;
+    }
+
+    private RegoleListino leggi(String json) {
+        try {
+            return objectMapper.readValue(json, RegoleListino.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Listino non leggibile", e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.beachbooking.pricing;
+
+import com.beachbooking.model.enums.TipoOmbrellone;
+import com.beachbooking.model.enums.TipoPrenotazione;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DateTimeException;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regole di prezzo di un tenant, nel formato JSON salvato in listini.regole.
+ *
+ * Prezzo di un giorno = prezzoBaseCentesimi × stagione% × fila% × tipo%.
+ * Sul totale si applica lo sconto maggiore tra quello del tipo prenotazione
+ * e quello per durata. Le percentuali mancanti valgono 100.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegoleListino {
+
+    private long prezzoBaseCentesimi = 3000;
+
+    // Applicate in ordine: in caso di sovrapposizione vale l'ultima
+    private List<Stagione> stagioni = new ArrayList<>();
+
+    // Fila → percentuale (es: "A" → 130 per la prima fila)
+    private Map<String, Integer> file = new HashMap<>();
+
+    // Tipo ombrellone → percentuale
+    private Map<TipoOmbrellone, Integer> tipiOmbrellone = new EnumMap<>(TipoOmbrellone.class);
+
+    // Tipo prenotazione → sconto percentuale
+    private Map<TipoPrenotazione, Integer> scontiTipo = new EnumMap<>(TipoPrenotazione.class);
+
+    private List<ScontoDurata> scontiDurata = new ArrayList<>();
+
+    /**
+     * Periodo stagionale ricorrente ogni anno, estremi inclusi nel formato "MM-dd".
+     * Se dal > al il periodo attraversa il capodanno.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Stagione {
+        private String nome;
+        private String dal;
+        private String al;
+        private int percentuale;
+    }
+
+    /**
+     * Sconto percentuale per prenotazioni di almeno giorniMinimi giorni.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ScontoDurata {
+        private int giorniMinimi;
+        private int sconto;
+    }
+
+    /**
+     * Regole equivalenti al calcolo storico: 30 € al giorno, moltiplicatori
+     * di TipoOmbrellone e sconti 10/20/40% per settimanale/mensile/annuale.
+     */
+    public static RegoleListino predefinite() {
+        RegoleListino regole = new RegoleListino();
+        for (TipoOmbrellone tipo : TipoOmbrellone.values()) {
+            regole.tipiOmbrellone.put(tipo, (int) Math.round(tipo.getMoltiplicatorePrezzo() * 100));
+        }
+        regole.scontiTipo.put(TipoPrenotazione.SETTIMANALE, 10);
+        regole.scontiTipo.put(TipoPrenotazione.MENSILE, 20);
+        regole.scontiTipo.put(TipoPrenotazione.ANNUALE, 40);
+        return regole;
+    }
+
+    /**
+     * Verifica la coerenza delle regole.
+     * @throws IllegalArgumentException con il primo errore trovato
+     */
+    public void valida() {
+        if (prezzoBaseCentesimi <= 0 || prezzoBaseCentesimi > 1_000_000) {
+            throw new IllegalArgumentException("prezzoBaseCentesimi non valido");
+        }
+        for (Stagione stagione : stagioni) {
+            giornoDellAnno(stagione.getDal());
+            giornoDellAnno(stagione.getAl());
+            percentuale(stagione.getPercentuale(), "stagione " + stagione.getNome());
+        }
+        file.forEach((fila, p) -> percentuale(p, "fila " + fila));
+        tipiOmbrellone.forEach((tipo, p) -> percentuale(p, "tipo " + tipo));
+        scontiTipo.forEach((tipo, s) -> sconto(s));
+        for (ScontoDurata sconto : scontiDurata) {
+            if (sconto.getGiorniMinimi() < 1) {
+                throw new IllegalArgumentException("giorniMinimi deve essere almeno 1");
+            }
+            sconto(sconto.getSconto());
+        }
+    }
+
+    static MonthDay giornoDellAnno(String valore) {
+        try {
+            return MonthDay.parse("--" + valore);
+        } catch (DateTimeException | NullPointerException e) {
+            throw new IllegalArgumentException("Data stagione non valida (MM-dd): " + valore);
+        }
+    }
+
+    private static void percentuale(Integer valore, String campo) {
+        if (valore == null || valore <= 0 || valore > 500) {
+            throw new IllegalArgumentException("Percentuale non valida per " + campo);
+        }
+    }
+
+    private static void sconto(Integer valore) {
+        if (valore == null || valore < 0 || valore > 100) {
+            throw new IllegalArgumentException("Sconto non valido: " + valore);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.beachbooking.querystats;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Numero massimo di statement JDBC che un endpoint può eseguire per richiesta.
+ * Sul metodo del controller o sulla classe (vale per tutti i metodi non annotati).
+ *
+ * Di norma un superamento viene solo segnalato (log e /actuator/querystats).
+ * Con app.querystats.budget-bloccante=true, ad esempio nel profilo dei test
+ * di integrazione, lo statement oltre il budget fallisce con
+ * QueryBudgetSuperatoException: una regressione N+1 fa fallire la build.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface QueryBudget {
+
+    int value();
+}
@@ -0,0 +1,12 @@
+package com.beachbooking.querystats;
+
+/**
+ * Un endpoint ha eseguito più statement del suo @QueryBudget
+ * (solo con app.querystats.budget-bloccante attivo).
+ */
+public class QueryBudgetSuperatoException extends RuntimeException {
+
+    public QueryBudgetSuperatoException(String handler, int budget, int statement) {
+        super("Query budget superato per " + handler + ": " + statement + " statement, budget " + budget);
+    }
+}
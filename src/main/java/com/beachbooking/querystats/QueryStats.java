@@ -0,0 +1,95 @@
+package com.beachbooking.querystats;
+
+/**
+ * Contatori JDBC della richiesta corrente: statement eseguiti, righe lette
+ * e tempo passato nel database.
+ *
+ * Legati al thread che serve la richiesta (come TenantContext): le query
+ * eseguite su altri thread (@Async, parallel stream) non vengono contate.
+ */
+public final class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CORRENTE = new ThreadLocal<>();
+
+    private String handler;
+    private int budget = -1;
+    private boolean budgetBloccante;
+
+    private int statement;
+    private long righe;
+    private long tempoDbNanos;
+
+    private QueryStats() {}
+
+    /**
+     * Apre i contatori per la richiesta sul thread corrente.
+     */
+    static QueryStats inizia() {
+        QueryStats stats = new QueryStats();
+        CORRENTE.set(stats);
+        return stats;
+    }
+
+    static void termina() {
+        CORRENTE.remove();
+    }
+
+    /**
+     * Contatori della richiesta in corso, null fuori da una richiesta HTTP.
+     */
+    public static QueryStats corrente() {
+        return CORRENTE.get();
+    }
+
+    /**
+     * Conta uno statement. Con budget bloccante, superare il budget interrompe
+     * la richiesta prima che la query parta.
+     */
+    void registraStatement() {
+        statement++;
+        if (budgetBloccante && budget >= 0 && statement > budget) {
+            throw new QueryBudgetSuperatoException(handler, budget, statement);
+        }
+    }
+
+    void registraTempo(long nanos) {
+        tempoDbNanos += nanos;
+    }
+
+    void registraRiga() {
+        righe++;
+    }
+
+    void setHandler(String handler, int budget, boolean budgetBloccante) {
+        this.handler = handler;
+        this.budget = budget;
+        this.budgetBloccante = budgetBloccante;
+    }
+
+    public String getHandler() {
+        return handler;
+    }
+
+    /**
+     * Budget dichiarato con @QueryBudget, -1 se assente.
+     */
+    public int getBudget() {
+        return budget;
+    }
+
+    public int getStatement() {
+        return statement;
+    }
+
+    public long getRighe() {
+        return righe;
+    }
+
+    public long getTempoDbNanos() {
+        return tempoDbNanos;
+    }
+
+    public boolean isBudgetSuperato() {
+        return budget >= 0 && statement > budget;
+    }
+}
@@ -0,0 +1,155 @@
+package com.beachbooking.querystats;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Avvolge il DataSource in un proxy JDBC che alimenta QueryStats:
+ * ogni execute* conta uno statement e il suo tempo, ogni ResultSet.next()
+ * riuscito una riga letta.
+ *
+ * Lavora sotto Hibernate, quindi conta anche JdbcTemplate e query native.
+ * Fuori da una richiesta HTTP le chiamate passano al driver senza conteggi.
+ * unwrap/isWrapperFor vanno al DataSource originale (metriche del pool).
+ *
+ * Il proxy passa da reflection per ogni chiamata JDBC, getter del ResultSet compresi:
+ * è attivo solo con app.querystats.enabled=true (test, load test, diagnosi puntuali).
+ */
+@Component
+@ConditionalOnProperty(name = "app.querystats.enabled", havingValue = "true")
+public class QueryStatsDataSourceWrapper implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !giaAvvolto(bean)) {
+            return proxy(DataSource.class, dataSource, new DataSourceHandler(dataSource));
+        }
+        return bean;
+    }
+
+    private static boolean giaAvvolto(Object bean) {
+        return Proxy.isProxyClass(bean.getClass()) && Proxy.getInvocationHandler(bean) instanceof DataSourceHandler;
+    }
+
+    private static <T> T proxy(Class<T> tipo, Object target, InvocationHandler handler) {
+        return tipo.cast(Proxy.newProxyInstance(
+                QueryStatsDataSourceWrapper.class.getClassLoader(), new Class<?>[]{tipo}, handler));
+    }
+
+    private static Object invoca(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class DataSourceHandler implements InvocationHandler {
+
+        private final DataSource target;
+
+        DataSourceHandler(DataSource target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object risultato = invoca(target, method, args);
+            if (risultato instanceof Connection connection && "getConnection".equals(method.getName())) {
+                return proxy(Connection.class, connection, new ConnectionHandler(connection));
+            }
+            return risultato;
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object risultato = invoca(target, method, args);
+            if (risultato instanceof Statement statement) {
+                Class<? extends Statement> tipo = switch (method.getName()) {
+                    case "prepareCall" -> CallableStatement.class;
+                    case "prepareStatement" -> PreparedStatement.class;
+                    default -> Statement.class;
+                };
+                return proxy(tipo, statement, new StatementHandler(statement));
+            }
+            return risultato;
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+
+        StatementHandler(Statement target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            QueryStats stats = QueryStats.corrente();
+            if (stats == null) {
+                return invoca(target, method, args);
+            }
+
+            Object risultato;
+            if (method.getName().startsWith("execute")) {
+                stats.registraStatement();
+                long inizio = System.nanoTime();
+                try {
+                    risultato = invoca(target, method, args);
+                } finally {
+                    stats.registraTempo(System.nanoTime() - inizio);
+                }
+            } else {
+                risultato = invoca(target, method, args);
+            }
+
+            if (risultato instanceof ResultSet resultSet) {
+                return proxy(ResultSet.class, resultSet, new ResultSetHandler(resultSet));
+            }
+            return risultato;
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+
+        ResultSetHandler(ResultSet target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object risultato = invoca(target, method, args);
+            if (Boolean.TRUE.equals(risultato) && "next".equals(method.getName())) {
+                QueryStats stats = QueryStats.corrente();
+                if (stats != null) {
+                    stats.registraRiga();
+                }
+            }
+            return risultato;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.beachbooking.querystats;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GET /actuator/querystats: statement, righe e tempo DB medi per handler.
+ * DELETE /actuator/querystats: azzera gli aggregati (es. prima di un test di carico).
+ */
+@Component
+@Endpoint(id = "querystats")
+public class QueryStatsEndpoint {
+
+    @Autowired
+    private QueryStatsRegistry queryStatsRegistry;
+
+    @ReadOperation
+    public List<Map<String, Object>> querystats() {
+        return queryStatsRegistry.riepilogo();
+    }
+
+    @DeleteOperation
+    public void azzera() {
+        queryStatsRegistry.azzera();
+    }
+}
@@ -0,0 +1,41 @@
+package com.beachbooking.querystats;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Apre i contatori QueryStats all'inizio della richiesta e li consegna
+ * a QueryStatsRegistry alla fine. Gira prima della security, così conta
+ * anche le query fatte dai filtri.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "app.querystats.enabled", havingValue = "true")
+public class QueryStatsFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private QueryStatsRegistry queryStatsRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        QueryStats stats = QueryStats.inizia();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryStats.termina();
+            queryStatsRegistry.registra(stats);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.beachbooking.querystats;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Etichetta i contatori della richiesta con l'handler che la serve
+ * (Controller#metodo) e il suo eventuale @QueryBudget.
+ */
+@Component
+public class QueryStatsInterceptor implements HandlerInterceptor {
+
+    @Value("${app.querystats.budget-bloccante:false}")
+    private boolean budgetBloccante;
+
+    private final Map<Method, Handler> handlers = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+                             HttpServletResponse response,
+                             Object handler) {
+        QueryStats stats = QueryStats.corrente();
+        if (stats != null && handler instanceof HandlerMethod handlerMethod) {
+            Handler info = handlers.computeIfAbsent(handlerMethod.getMethod(),
+                    m -> descrivi(handlerMethod));
+            stats.setHandler(info.nome, info.budget, budgetBloccante);
+        }
+        return true;
+    }
+
+    private static Handler descrivi(HandlerMethod handlerMethod) {
+        String nome = handlerMethod.getBeanType().getSimpleName() + "#" + handlerMethod.getMethod().getName();
+        QueryBudget budget = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), QueryBudget.class);
+        if (budget == null) {
+            budget = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), QueryBudget.class);
+        }
+        return new Handler(nome, budget != null ? budget.value() : -1);
+    }
+
+    private static final class Handler {
+
+        private final String nome;
+        private final int budget;
+
+        Handler(String nome, int budget) {
+            this.nome = nome;
+            this.budget = budget;
+        }
+    }
+}
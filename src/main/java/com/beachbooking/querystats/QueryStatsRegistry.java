@@ -0,0 +1,153 @@
+package com.beachbooking.querystats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistiche JDBC aggregate per handler (Controller#metodo).
+ *
+ * Ogni richiesta conclusa finisce qui e in Micrometer:
+ * db.statements e db.rows (per richiesta) e db.time, con tag handler;
+ * db.query.budget.exceeded conta i superamenti di @QueryBudget.
+ */
+@Component
+public class QueryStatsRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryStatsRegistry.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, PerHandler> perHandler = new ConcurrentHashMap<>();
+
+    /**
+     * Registra i contatori di una richiesta conclusa.
+     */
+    public void registra(QueryStats stats) {
+        String handler = stats.getHandler();
+        if (handler == null) {
+            return;
+        }
+
+        PerHandler aggregato = perHandler.computeIfAbsent(handler, this::nuovo);
+        aggregato.richieste.increment();
+        aggregato.statement.add(stats.getStatement());
+        aggregato.righe.add(stats.getRighe());
+        aggregato.tempoDbNanos.add(stats.getTempoDbNanos());
+        aggregato.statementMax.accumulateAndGet(stats.getStatement(), Math::max);
+        aggregato.budget = stats.getBudget();
+
+        aggregato.statementPerRichiesta.record(stats.getStatement());
+        aggregato.righePerRichiesta.record(stats.getRighe());
+        aggregato.tempoDb.record(stats.getTempoDbNanos(), TimeUnit.NANOSECONDS);
+
+        if (stats.isBudgetSuperato()) {
+            aggregato.superamenti.increment();
+            aggregato.budgetSuperato.increment();
+            log.warn("Query budget superato per {}: {} statement, budget {}",
+                    handler, stats.getStatement(), stats.getBudget());
+        }
+    }
+
+    /**
+     * Handler ordinati per statement medi per richiesta, i più pesanti in cima.
+     */
+    public List<Map<String, Object>> riepilogo() {
+        List<Map<String, Object>> righe = new ArrayList<>();
+        perHandler.forEach((handler, aggregato) -> {
+            long richieste = aggregato.richieste.sum();
+            if (richieste == 0) {
+                return;
+            }
+            Map<String, Object> riga = new LinkedHashMap<>();
+            riga.put("handler", handler);
+            riga.put("richieste", richieste);
+            riga.put("statementMedi", aggregato.statement.sum() / (double) richieste);
+            riga.put("statementMax", aggregato.statementMax.get());
+            riga.put("righeMedie", aggregato.righe.sum() / (double) richieste);
+            riga.put("tempoDbMedioMs", aggregato.tempoDbNanos.sum() / 1_000_000.0 / richieste);
+            riga.put("budget", aggregato.budget >= 0 ? aggregato.budget : null);
+            riga.put("superamentiBudget", aggregato.superamenti.sum());
+            righe.add(riga);
+        });
+        righe.sort(Comparator.comparingDouble(r -> -(double) r.get("statementMedi")));
+        return righe;
+    }
+
+    /**
+     * Azzera gli aggregati (non i meter Micrometer, che sono cumulativi).
+     */
+    public void azzera() {
+        perHandler.values().forEach(PerHandler::azzera);
+    }
+
+    private PerHandler nuovo(String handler) {
+        return new PerHandler(
+                DistributionSummary.builder("db.statements")
+                        .description("Statement JDBC per richiesta")
+                        .tag("handler", handler)
+                        .register(meterRegistry),
+                DistributionSummary.builder("db.rows")
+                        .description("Righe lette per richiesta")
+                        .tag("handler", handler)
+                        .register(meterRegistry),
+                Timer.builder("db.time")
+                        .description("Tempo di esecuzione degli statement per richiesta")
+                        .tag("handler", handler)
+                        .register(meterRegistry),
+                Counter.builder("db.query.budget.exceeded")
+                        .description("Richieste oltre il @QueryBudget")
+                        .tag("handler", handler)
+                        .register(meterRegistry)
+        );
+    }
+
+    private static final class PerHandler {
+
+        private final LongAdder richieste = new LongAdder();
+        private final LongAdder statement = new LongAdder();
+        private final LongAdder righe = new LongAdder();
+        private final LongAdder tempoDbNanos = new LongAdder();
+        private final LongAdder superamenti = new LongAdder();
+        private final AtomicInteger statementMax = new AtomicInteger();
+        private volatile int budget = -1;
+
+        private final DistributionSummary statementPerRichiesta;
+        private final DistributionSummary righePerRichiesta;
+        private final Timer tempoDb;
+        private final Counter budgetSuperato;
+
+        PerHandler(DistributionSummary statementPerRichiesta, DistributionSummary righePerRichiesta,
+                   Timer tempoDb, Counter budgetSuperato) {
+            this.statementPerRichiesta = statementPerRichiesta;
+            this.righePerRichiesta = righePerRichiesta;
+            this.tempoDb = tempoDb;
+            this.budgetSuperato = budgetSuperato;
+        }
+
+        void azzera() {
+            richieste.reset();
+            statement.reset();
+            righe.reset();
+            tempoDbNanos.reset();
+            superamenti.reset();
+            statementMax.set(0);
+        }
+    }
+}
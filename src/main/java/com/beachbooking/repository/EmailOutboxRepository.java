@@ -0,0 +1,53 @@
+package com.beachbooking.repository;
+
+import com.beachbooking.model.entity.EmailOutbox;
+import com.beachbooking.model.enums.StatoEmail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+// ============= EmailOutboxRepository.java =============
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, UUID> {
+
+    /**
+     * Email pronte per l'invio, bloccate per la transazione corrente.
+     * SKIP LOCKED: più istanze possono svuotare la coda senza prendere le stesse righe.
+     */
+    @Query(value = "SELECT * FROM email_outbox WHERE stato = 'PENDING' AND prossimo_tentativo <= :adesso " +
+            "ORDER BY prossimo_tentativo LIMIT :limite FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<EmailOutbox> lockDaInviare(@Param("adesso") LocalDateTime adesso, @Param("limite") int limite);
+
+    long countByStato(StatoEmail stato);
+
+    /**
+     * Segna come inviate le email indicate, con un solo UPDATE.
+     */
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.stato = :stato, e.dataInvio = :dataInvio, e.ultimoErrore = NULL " +
+            "WHERE e.id IN :ids")
+    int segnaInviate(@Param("ids") Collection<UUID> ids,
+                     @Param("stato") StatoEmail stato,
+                     @Param("dataInvio") LocalDateTime dataInvio);
+
+    /**
+     * Registra lo stesso esito di errore sulle email indicate, con un solo UPDATE.
+     */
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.stato = :stato, e.tentativi = :tentativi, " +
+            "e.prossimoTentativo = :prossimoTentativo, e.ultimoErrore = :errore " +
+            "WHERE e.id IN :ids")
+    int registraErrore(@Param("ids") Collection<UUID> ids,
+                       @Param("stato") StatoEmail stato,
+                       @Param("tentativi") int tentativi,
+                       @Param("prossimoTentativo") LocalDateTime prossimoTentativo,
+                       @Param("errore") String errore);
+}
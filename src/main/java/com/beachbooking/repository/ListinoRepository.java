@@ -0,0 +1,12 @@
+package com.beachbooking.repository;
+
+import com.beachbooking.model.entity.Listino;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+// ============= ListinoRepository.java =============
+@Repository
+public interface ListinoRepository extends JpaRepository<Listino, UUID> {
+}
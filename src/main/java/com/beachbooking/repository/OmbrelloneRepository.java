@@ -1,8 +1,10 @@
 package com.beachbooking.repository;
 
+import com.beachbooking.model.dto.response.OmbrelloneResponse;
 import com.beachbooking.model.entity.*;
 import com.beachbooking.model.enums.*;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,7 +17,7 @@ import java.util.UUID;
 
 // ============= OmbrelloneRepository.java =============
 @Repository
-public interface OmbrelloneRepository extends JpaRepository<Ombrellone, UUID> {
+public interface OmbrelloneRepository extends JpaRepository<Ombrellone, UUID>, JpaSpecificationExecutor<Ombrellone> {
 
     /**
      * Trova tutti gli ombrelloni di un tenant.
@@ -32,6 +34,11 @@ public interface OmbrelloneRepository extends JpaRepository<Ombrellone, UUID> {
      */
     Optional<Ombrellone> findByIdAndTenantId(UUID id, UUID tenantId);
 
+    /**
+     * Trova più ombrelloni di un tenant in una sola query.
+     */
+    List<Ombrellone> findByTenantIdAndIdIn(UUID tenantId, java.util.Collection<UUID> ids);
+
     /**
      * Trova ombrelloni per numero in un tenant.
      */
@@ -66,4 +73,26 @@ public interface OmbrelloneRepository extends JpaRepository<Ombrellone, UUID> {
                                  @Param("maxLimit") Integer maxLimit);
 
     boolean existsByTenantIdAndNumero(UUID tenantId, Integer numero);
-}
\ No newline at end of file
+
+    // ============= Letture in sola lettura come DTO =============
+    // Proiezioni per costruttore: nessuna entity nel persistence context.
+
+    String RESPONSE = "SELECT new com.beachbooking.model.dto.response.OmbrelloneResponse(" +
+            "o.id, o.tenantId, o.numero, o.fila, o.tipo, o.descrizione, o.posizioneX, o.posizioneY, " +
+            "o.attivo, o.note, o.dataCreazione, o.dataAggiornamento) " +
+            "FROM Ombrellone o ";
+
+    @Query(RESPONSE + "WHERE o.tenantId = :tenantId")
+    List<OmbrelloneResponse> findResponseByTenantId(@Param("tenantId") UUID tenantId);
+
+    @Query(RESPONSE + "WHERE o.tenantId = :tenantId AND o.attivo = true")
+    List<OmbrelloneResponse> findResponseByTenantIdAndAttivoTrue(@Param("tenantId") UUID tenantId);
+
+    @Query(RESPONSE + "WHERE o.tenantId = :tenantId AND o.fila = :fila")
+    List<OmbrelloneResponse> findResponseByTenantIdAndFila(@Param("tenantId") UUID tenantId,
+                                                           @Param("fila") String fila);
+
+    @Query(RESPONSE + "WHERE o.tenantId = :tenantId AND o.tipo = :tipo")
+    List<OmbrelloneResponse> findResponseByTenantIdAndTipo(@Param("tenantId") UUID tenantId,
+                                                           @Param("tipo") TipoOmbrellone tipo);
+}
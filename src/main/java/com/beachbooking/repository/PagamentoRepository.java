@@ -1,8 +1,10 @@
 package com.beachbooking.repository;
 
+import com.beachbooking.model.dto.response.PagamentoResponse;
 import com.beachbooking.model.entity.*;
 import com.beachbooking.model.enums.*;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -16,7 +18,7 @@ import java.util.UUID;
 
 // ============= PagamentoRepository.java =============
 @Repository
-public interface PagamentoRepository extends JpaRepository<Pagamento, UUID> {
+public interface PagamentoRepository extends JpaRepository<Pagamento, UUID>, JpaSpecificationExecutor<Pagamento> {
 
     Optional<Pagamento> findByPrenotazioneId(UUID prenotazioneId);
 
@@ -36,4 +38,23 @@ public interface PagamentoRepository extends JpaRepository<Pagamento, UUID> {
             "WHERE pr.tenantId = :tenantId " +
             "AND p.stato = 'PAID'")
     java.math.BigDecimal getTotalPagamentiByTenant(@Param("tenantId") UUID tenantId);
-}
\ No newline at end of file
+
+    // ============= Letture in sola lettura come DTO =============
+    // Proiezioni per costruttore, sempre limitate al tenant tramite la prenotazione.
+
+    String RESPONSE = "SELECT new com.beachbooking.model.dto.response.PagamentoResponse(" +
+            "p.id, p.prenotazioneId, p.metodoPagamento, p.importo, p.stato, " +
+            "p.riferimentoEsterno, p.dataPagamento, p.note, p.dataCreazione) " +
+            "FROM Pagamento p JOIN Prenotazione pr ON p.prenotazioneId = pr.id ";
+
+    @Query(RESPONSE + "WHERE pr.tenantId = :tenantId")
+    List<PagamentoResponse> findResponseByTenantId(@Param("tenantId") UUID tenantId);
+
+    @Query(RESPONSE + "WHERE pr.tenantId = :tenantId AND p.stato = :stato")
+    List<PagamentoResponse> findResponseByTenantIdAndStato(@Param("tenantId") UUID tenantId,
+                                                           @Param("stato") StatoPrenotazione stato);
+
+    @Query(RESPONSE + "WHERE pr.tenantId = :tenantId AND p.metodoPagamento = :metodo")
+    List<PagamentoResponse> findResponseByTenantIdAndMetodo(@Param("tenantId") UUID tenantId,
+                                                            @Param("metodo") MetodoPagamento metodo);
+}
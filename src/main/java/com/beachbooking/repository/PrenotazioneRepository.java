@@ -1,8 +1,12 @@
 package com.beachbooking.repository;
 
+import com.beachbooking.model.dto.response.PrenotazioneResponse;
 import com.beachbooking.model.entity.*;
 import com.beachbooking.model.enums.*;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -17,7 +21,7 @@ import java.util.UUID;
 
 // ============= PrenotazioneRepository.java =============
 @Repository
-public interface PrenotazioneRepository extends JpaRepository<Prenotazione, UUID> {
+public interface PrenotazioneRepository extends JpaRepository<Prenotazione, UUID>, JpaSpecificationExecutor<Prenotazione> {
 
     /**
      * Trova tutte le prenotazioni di un tenant.
@@ -39,6 +43,27 @@ public interface PrenotazioneRepository extends JpaRepository<Prenotazione, UUID
      */
     List<Prenotazione> findByOmbrelloneId(UUID ombrelloneId);
 
+    /**
+     * Cambio di stato solo se la prenotazione è ancora nello stato atteso.
+     * Restituisce 0 se un'altra transazione (es. job di scadenza) l'ha modificata nel frattempo.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Prenotazione p SET p.stato = :nuovo, p.note = :note, " +
+            "p.dataAggiornamento = CURRENT_TIMESTAMP " +
+            "WHERE p.id = :id AND p.stato = :atteso")
+    int cambiaStato(@Param("id") UUID id,
+                    @Param("atteso") StatoPrenotazione atteso,
+                    @Param("nuovo") StatoPrenotazione nuovo,
+                    @Param("note") String note);
+
+    /**
+     * Prenotazioni non cancellate/rimborsate di un ombrellone.
+     */
+    @Query("SELECT p FROM Prenotazione p " +
+            "WHERE p.ombrelloneId = :ombrelloneId " +
+            "AND p.stato NOT IN ('CANCELLED', 'REFUNDED')")
+    List<Prenotazione> findBloccantiByOmbrelloneId(@Param("ombrelloneId") UUID ombrelloneId);
+
     /**
      * Trova prenotazione specifica di un tenant.
      */
@@ -49,6 +74,11 @@ public interface PrenotazioneRepository extends JpaRepository<Prenotazione, UUID
      */
     Optional<Prenotazione> findByCodicePrenotazione(String codice);
 
+    /**
+     * Trova per codice prenotazione all'interno di un tenant.
+     */
+    Optional<Prenotazione> findByCodicePrenotazioneAndTenantId(String codice, UUID tenantId);
+
     /**
      * Trova prenotazioni per stato.
      */
@@ -68,6 +98,20 @@ public interface PrenotazioneRepository extends JpaRepository<Prenotazione, UUID
             @Param("dataFine") LocalDate dataFine
     );
 
+    /**
+     * Prenotazioni che bloccano un ombrellone (non cancellate/rimborsate) in un range di date.
+     */
+    @Query("SELECT p FROM Prenotazione p " +
+            "WHERE p.tenantId = :tenantId " +
+            "AND p.stato NOT IN ('CANCELLED', 'REFUNDED') " +
+            "AND p.dataInizio <= :dataFine " +
+            "AND p.dataFine >= :dataInizio")
+    List<Prenotazione> findBloccantiByTenantIdAndDateRange(
+            @Param("tenantId") UUID tenantId,
+            @Param("dataInizio") LocalDate dataInizio,
+            @Param("dataFine") LocalDate dataFine
+    );
+
     /**
      * Verifica se un ombrellone è disponibile in un periodo.
      */
@@ -84,6 +128,23 @@ public interface PrenotazioneRepository extends JpaRepository<Prenotazione, UUID
             @Param("dataFine") LocalDate dataFine
     );
 
+    /**
+     * Prenotazioni attive che si sovrappongono al periodo per un insieme di ombrelloni.
+     * Usata per il controllo disponibilità set-based delle prenotazioni multiple.
+     */
+    @Query("SELECT p FROM Prenotazione p " +
+            "WHERE p.tenantId = :tenantId " +
+            "AND p.ombrelloneId IN :ombrelloneIds " +
+            "AND p.stato NOT IN ('CANCELLED', 'REFUNDED') " +
+            "AND p.dataInizio <= :dataFine " +
+            "AND p.dataFine >= :dataInizio")
+    List<Prenotazione> findSovrappostePerOmbrelloni(
+            @Param("tenantId") UUID tenantId,
+            @Param("ombrelloneIds") java.util.Collection<UUID> ombrelloneIds,
+            @Param("dataInizio") LocalDate dataInizio,
+            @Param("dataFine") LocalDate dataFine
+    );
+
     /**
      * Trova ombrelloni disponibili per un tenant in un periodo.
      */
@@ -130,4 +191,54 @@ public interface PrenotazioneRepository extends JpaRepository<Prenotazione, UUID
             "AND p.dataFine >= CURRENT_DATE " +
             "AND p.stato IN ('CONFIRMED', 'PAID')")
     List<Prenotazione> findPrenotazioniAttive(@Param("tenantId") UUID tenantId);
-}
\ No newline at end of file
+
+    /**
+     * Arrivi del giorno (confermati o pagati) a blocchi, in ordine di id a partire da dopoId.
+     */
+    @Query("SELECT p FROM Prenotazione p " +
+            "WHERE p.dataInizio = :data " +
+            "AND p.stato IN ('CONFIRMED', 'PAID') " +
+            "AND p.id > :dopoId " +
+            "ORDER BY p.id")
+    List<Prenotazione> findArriviDopo(@Param("data") LocalDate data,
+                                      @Param("dopoId") UUID dopoId,
+                                      Pageable pageable);
+
+    // ============= Letture in sola lettura come DTO =============
+    // Proiezioni per costruttore: le righe diventano PrenotazioneResponse
+    // senza passare dal persistence context (nessuno snapshot per il dirty checking).
+
+    String RESPONSE = "SELECT new com.beachbooking.model.dto.response.PrenotazioneResponse(" +
+            "p.id, p.userId, p.ombrelloneId, p.dataInizio, p.dataFine, p.tipoPrenotazione, " +
+            "p.prezzoTotale, p.stato, p.note, p.codicePrenotazione, p.dataCreazione) " +
+            "FROM Prenotazione p ";
+
+    @Query(RESPONSE + "WHERE p.tenantId = :tenantId")
+    List<PrenotazioneResponse> findResponseByTenantId(@Param("tenantId") UUID tenantId);
+
+    @Query(RESPONSE + "WHERE p.tenantId = :tenantId AND p.userId = :userId")
+    List<PrenotazioneResponse> findResponseByUserIdAndTenantId(@Param("userId") UUID userId,
+                                                               @Param("tenantId") UUID tenantId);
+
+    @Query(RESPONSE + "WHERE p.tenantId = :tenantId AND p.stato = :stato")
+    List<PrenotazioneResponse> findResponseByTenantIdAndStato(@Param("tenantId") UUID tenantId,
+                                                              @Param("stato") StatoPrenotazione stato);
+
+    @Query(RESPONSE +
+            "WHERE p.tenantId = :tenantId " +
+            "AND p.dataInizio <= :dataFine " +
+            "AND p.dataFine >= :dataInizio " +
+            "ORDER BY p.dataInizio ASC")
+    List<PrenotazioneResponse> findResponseByTenantIdAndDateRange(
+            @Param("tenantId") UUID tenantId,
+            @Param("dataInizio") LocalDate dataInizio,
+            @Param("dataFine") LocalDate dataFine
+    );
+
+    @Query(RESPONSE +
+            "WHERE p.tenantId = :tenantId " +
+            "AND p.dataInizio <= CURRENT_DATE " +
+            "AND p.dataFine >= CURRENT_DATE " +
+            "AND p.stato IN ('CONFIRMED', 'PAID')")
+    List<PrenotazioneResponse> findResponsePrenotazioniAttive(@Param("tenantId") UUID tenantId);
+}
@@ -3,6 +3,7 @@ package com.beachbooking.repository;
 import com.beachbooking.model.entity.*;
 import com.beachbooking.model.enums.*;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -12,7 +13,7 @@ import java.util.UUID;
 
 // ============= TenantRepository.java =============
 @Repository
-public interface TenantRepository extends JpaRepository<Tenant, UUID> {
+public interface TenantRepository extends JpaRepository<Tenant, UUID>, JpaSpecificationExecutor<Tenant> {
 
     Optional<Tenant> findBySlug(String slug);
 
@@ -31,4 +32,10 @@ public interface TenantRepository extends JpaRepository<Tenant, UUID> {
     boolean existsBySlug(String slug);
 
     boolean existsByEmail(String email);
+
+    /**
+     * Numero di tenant per stato, in un'unica query.
+     */
+    @Query("SELECT t.stato, COUNT(t) FROM Tenant t GROUP BY t.stato")
+    List<Object[]> countGroupByStato();
 }
\ No newline at end of file
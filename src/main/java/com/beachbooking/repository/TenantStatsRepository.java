@@ -0,0 +1,112 @@
+package com.beachbooking.repository;
+
+import com.beachbooking.model.entity.TenantStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+// ============= TenantStatsRepository.java =============
+@Repository
+public interface TenantStatsRepository extends JpaRepository<TenantStats, UUID> {
+
+    /**
+     * Tenant con revenue più alta.
+     */
+    List<TenantStats> findTop10ByOrderByRevenueDesc();
+
+    /**
+     * Totali di piattaforma, sommando le righe dei soli tenant esistenti.
+     */
+    @Query("SELECT COALESCE(SUM(s.numeroOmbrelloni), 0) AS ombrelloni, " +
+            "COALESCE(SUM(s.numeroPrenotazioni), 0) AS prenotazioni, " +
+            "COALESCE(SUM(s.revenue), 0) AS revenue " +
+            "FROM TenantStats s, Tenant t WHERE t.id = s.tenantId")
+    Totali getTotali();
+
+    /**
+     * Aggiunge i delta a prenotazioni e revenue. Restituisce 0 se il tenant non ha ancora una riga.
+     */
+    @Modifying
+    @Query("UPDATE TenantStats s SET " +
+            "s.numeroPrenotazioni = s.numeroPrenotazioni + :deltaPrenotazioni, " +
+            "s.revenue = s.revenue + :deltaRevenue, " +
+            "s.dataAggiornamento = CURRENT_TIMESTAMP " +
+            "WHERE s.tenantId = :tenantId")
+    int incrementa(@Param("tenantId") UUID tenantId,
+                   @Param("deltaPrenotazioni") long deltaPrenotazioni,
+                   @Param("deltaRevenue") BigDecimal deltaRevenue);
+
+    /**
+     * Ricalcola il numero di ombrelloni di un tenant. Restituisce 0 se il tenant non ha ancora una riga.
+     */
+    @Modifying
+    @Query("UPDATE TenantStats s SET " +
+            "s.numeroOmbrelloni = (SELECT COUNT(o) FROM Ombrellone o WHERE o.tenantId = :tenantId), " +
+            "s.dataAggiornamento = CURRENT_TIMESTAMP " +
+            "WHERE s.tenantId = :tenantId")
+    int ricalcolaOmbrelloni(@Param("tenantId") UUID tenantId);
+
+    /**
+     * Blocca tutte le righe fino a fine transazione (prima del ricalcolo completo).
+     */
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM tenant_stats ORDER BY tenant_id FOR UPDATE) b",
+            nativeQuery = true)
+    long bloccaTutte();
+
+    /**
+     * Ricalcolo completo: un'unica query GROUP BY per ciascuna tabella sorgente.
+     */
+    String RICALCOLO_SELECT = "INSERT INTO tenant_stats " +
+            "(tenant_id, numero_utenti, numero_ombrelloni, numero_prenotazioni, revenue, data_aggiornamento) " +
+            "SELECT t.id, COALESCE(u.numero, 0), COALESCE(o.numero, 0), COALESCE(p.numero, 0), " +
+            "COALESCE(p.revenue, 0), CURRENT_TIMESTAMP " +
+            "FROM tenants t " +
+            "LEFT JOIN (SELECT tenant_id, COUNT(*) AS numero FROM users GROUP BY tenant_id) u " +
+            "ON u.tenant_id = t.id " +
+            "LEFT JOIN (SELECT tenant_id, COUNT(*) AS numero FROM ombrelloni GROUP BY tenant_id) o " +
+            "ON o.tenant_id = t.id " +
+            "LEFT JOIN (SELECT tenant_id, COUNT(*) AS numero, " +
+            "SUM(prezzo_totale) FILTER (WHERE stato IN ('PAID', 'COMPLETED')) AS revenue " +
+            "FROM prenotazioni GROUP BY tenant_id) p " +
+            "ON p.tenant_id = t.id ";
+
+    String RICALCOLO_UPSERT = "ON CONFLICT (tenant_id) DO UPDATE SET " +
+            "numero_utenti = EXCLUDED.numero_utenti, " +
+            "numero_ombrelloni = EXCLUDED.numero_ombrelloni, " +
+            "numero_prenotazioni = EXCLUDED.numero_prenotazioni, " +
+            "revenue = EXCLUDED.revenue, " +
+            "data_aggiornamento = EXCLUDED.data_aggiornamento";
+
+    /**
+     * Ricalcola le statistiche di tutti i tenant.
+     */
+    @Modifying
+    @Query(value = RICALCOLO_SELECT + RICALCOLO_UPSERT, nativeQuery = true)
+    int ricalcolaTutti();
+
+    /**
+     * Ricalcola le statistiche di un tenant (crea la riga se manca).
+     */
+    @Modifying
+    @Query(value = RICALCOLO_SELECT + "WHERE t.id = :tenantId " + RICALCOLO_UPSERT, nativeQuery = true)
+    int ricalcola(@Param("tenantId") UUID tenantId);
+
+    /**
+     * Elimina le righe dei tenant cancellati.
+     */
+    @Modifying
+    @Query("DELETE FROM TenantStats s WHERE s.tenantId NOT IN (SELECT t.id FROM Tenant t)")
+    int eliminaOrfane();
+
+    interface Totali {
+        Long getOmbrelloni();
+        Long getPrenotazioni();
+        BigDecimal getRevenue();
+    }
+}
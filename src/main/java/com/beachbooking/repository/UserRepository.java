@@ -3,6 +3,7 @@ package com.beachbooking.repository;
 import com.beachbooking.model.entity.*;
 import com.beachbooking.model.enums.*;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,10 +16,17 @@ import java.util.UUID;
 
 // ============= UserRepository.java =============
 @Repository
-public interface UserRepository extends JpaRepository<User, UUID> {
+public interface UserRepository extends JpaRepository<User, UUID>, JpaSpecificationExecutor<User> {
 
     Optional<User> findByEmail(String email);
 
+    /**
+     * Utenti disattivati o con token revocati: [id, tokenVersion, attivo].
+     */
+    @Query("SELECT u.id, u.tokenVersion, u.attivo FROM User u " +
+            "WHERE u.attivo = false OR u.tokenVersion > 0")
+    List<Object[]> findRevoche();
+
     Optional<User> findByEmailAndTenantId(String email, UUID tenantId);
 
     List<User> findByTenantId(UUID tenantId);
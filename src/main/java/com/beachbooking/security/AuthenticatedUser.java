@@ -0,0 +1,98 @@
+package com.beachbooking.security;
+
+import com.beachbooking.model.entity.User;
+import com.beachbooking.model.enums.RuoloUtente;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Principal dell'utente autenticato, costruito dalle claims del JWT
+ * senza accedere alla tabella users.
+ *
+ * getName() restituisce l'email, quindi Authentication.getName() resta invariato.
+ */
+public final class AuthenticatedUser implements AuthenticatedPrincipal, Serializable {
+
+    private final UUID id;
+    private final String email;
+    private final UUID tenantId;
+    private final RuoloUtente ruolo;
+    private final int tokenVersion;
+
+    public AuthenticatedUser(UUID id, String email, UUID tenantId, RuoloUtente ruolo, int tokenVersion) {
+        this.id = id;
+        this.email = email;
+        this.tenantId = tenantId;
+        this.ruolo = ruolo;
+        this.tokenVersion = tokenVersion;
+    }
+
+    public static AuthenticatedUser from(ParsedJwt jwt) {
+        return new AuthenticatedUser(
+                jwt.getUserId(),
+                jwt.getSubject(),
+                jwt.getTenantId(),
+                RuoloUtente.valueOf(jwt.getRuolo()),
+                jwt.getTokenVersion()
+        );
+    }
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(
+                user.getId(),
+                user.getEmail(),
+                user.getTenantId(),
+                user.getRuolo(),
+                user.getTokenVersion() != null ? user.getTokenVersion() : 0
+        );
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public UUID getTenantId() {
+        return tenantId;
+    }
+
+    public RuoloUtente getRuolo() {
+        return ruolo;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    /**
+     * True per STAFF, TENANT_ADMIN e SUPER_ADMIN.
+     */
+    public boolean isStaff() {
+        return ruolo == RuoloUtente.STAFF ||
+                ruolo == RuoloUtente.TENANT_ADMIN ||
+                ruolo == RuoloUtente.SUPER_ADMIN;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + ruolo.name()));
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
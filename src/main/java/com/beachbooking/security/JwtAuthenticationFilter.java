@@ -12,7 +12,6 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
@@ -27,47 +26,70 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenRevocationList revocationList;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
                                     FilterChain filterChain)
             throws ServletException, IOException {
 
+        // Il TenantContext impostato qui (e dal TenantInterceptor) vive solo per questa richiesta:
+        // va pulito anche quando l'interceptor non arriva ad afterCompletion o non viene eseguito
         try {
-            String jwt = getJwtFromRequest(request);
+            autentica(request);
+            filterChain.doFilter(request, response);
+        } finally {
+            TenantContext.clear();
+        }
+    }
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+    private void autentica(HttpServletRequest request) {
+        try {
+            ParsedJwt jwt = tokenProvider.resolve(request);
+            if (jwt == null) {
+                return;
+            }
 
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities()
-                        );
+            UsernamePasswordAuthenticationToken authentication = authenticate(jwt);
+            if (authentication == null) {
+                return;
+            }
 
-                authentication.setDetails(
-                        new WebAuthenticationDetailsSource().buildDetails(request)
-                );
+            authentication.setDetails(
+                    new WebAuthenticationDetailsSource().buildDetails(request)
+            );
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            SecurityContextHolder.getContext().setAuthentication(authentication);
 
-                UUID tenantId = tokenProvider.getTenantIdFromToken(jwt);
-                if (tenantId != null) {
-                    TenantContext.setTenantId(tenantId);
-                }
+            UUID tenantId = jwt.getTenantId();
+            if (tenantId != null) {
+                TenantContext.setTenantId(tenantId);
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
         }
-
-        filterChain.doFilter(request, response);
     }
 
-    private String getJwtFromRequest(HttpServletRequest request) {
-        String bearerToken = request.getHeader("Authorization");
-        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
-            return bearerToken.substring(7);
+    /**
+     * Principal costruito dalle claims, senza query sulla tabella users.
+     * I token emessi prima del claim userId passano ancora dallo UserDetailsService.
+     */
+    private UsernamePasswordAuthenticationToken authenticate(ParsedJwt jwt) {
+        if (jwt.getUserId() == null || jwt.getRuolo() == null) {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(jwt.getSubject());
+            return new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities()
+            );
+        }
+
+        AuthenticatedUser principal = AuthenticatedUser.from(jwt);
+        if (revocationList.isRevocato(principal)) {
+            return null;
         }
-        return null;
+        return new UsernamePasswordAuthenticationToken(
+                principal, null, principal.getAuthorities()
+        );
     }
 }
\ No newline at end of file
@@ -1,29 +1,75 @@
 package com.beachbooking.security;
 
+import com.beachbooking.metrics.AppMetrics;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecurityException;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Date;
 import java.util.UUID;
 
 /**
  * Gestisce la creazione, validazione e parsing dei JWT token.
+ *
+ * Chiave e parser sono costruiti una sola volta (sono immutabili e thread-safe).
+ * Ogni token viene verificato al più una volta per richiesta: le claims sono
+ * salvate come attributo della richiesta e condivise tra filtro e interceptor.
+ * I token già verificati finiscono in una cache LRU, così le chiamate successive
+ * dello stesso client saltano la verifica HMAC.
  */
 @Component
 public class JwtTokenProvider {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtTokenProvider.class);
+
+    /**
+     * Attributo della richiesta con le claims del token (ParsedJwt).
+     */
+    public static final String REQUEST_ATTRIBUTE = JwtTokenProvider.class.getName() + ".jwt";
+
+    // Marcatore per "richiesta senza token valido", per non ripetere il parsing
+    private static final Object NESSUN_TOKEN = new Object();
+
+    @Autowired
+    private AppMetrics metrics;
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expiration}")
     private long jwtExpirationMs;
 
+    @Value("${jwt.cache-size:10000}")
+    private int cacheSize;
+
+    private SecretKey key;
+    private JwtParser parser;
+    private VerifiedTokenCache cache;
+
+    @PostConstruct
+    void init() {
+        this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
+        this.cache = cacheSize > 0 ? new VerifiedTokenCache(cacheSize) : null;
+    }
+
     /**
      * Genera un JWT token per un utente autenticato.
      */
@@ -39,8 +85,6 @@ public class JwtTokenProvider {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
 
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-
         return Jwts.builder()
                 .setSubject(username)
                 .setIssuedAt(now)
@@ -53,15 +97,27 @@ public class JwtTokenProvider {
      * Genera un token con claims custom (es: tenantId, ruolo).
      */
     public String generateTokenWithClaims(String username, UUID tenantId, String ruolo) {
+        return generateTokenWithClaims(username, null, tenantId, ruolo, 0);
+    }
+
+    /**
+     * Genera un token con tutte le claims necessarie al principal stateless
+     * (userId, tenantId, ruolo, versione token).
+     */
+    public String generateTokenWithClaims(String username,
+                                          UUID userId,
+                                          UUID tenantId,
+                                          String ruolo,
+                                          int tokenVersion) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
 
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-
         return Jwts.builder()
                 .setSubject(username)
+                .claim("userId", userId != null ? userId.toString() : null)
                 .claim("tenantId", tenantId != null ? tenantId.toString() : null)
                 .claim("ruolo", ruolo)
+                .claim("ver", tokenVersion)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 .signWith(key, SignatureAlgorithm.HS256)
@@ -69,75 +125,118 @@ public class JwtTokenProvider {
     }
 
     /**
-     * Estrae l'username (email) dal token.
+     * Claims del token Bearer della richiesta, verificato una sola volta per richiesta.
+     * Restituisce null se il token manca o non è valido.
      */
-    public String getUsernameFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    public ParsedJwt resolve(HttpServletRequest request) {
+        Object cached = request.getAttribute(REQUEST_ATTRIBUTE);
+        if (cached != null) {
+            return cached instanceof ParsedJwt jwt ? jwt : null;
+        }
 
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        String token = getJwtFromRequest(request);
+        ParsedJwt jwt = StringUtils.hasText(token) ? verify(token) : null;
 
-        return claims.getSubject();
+        request.setAttribute(REQUEST_ATTRIBUTE, jwt != null ? jwt : NESSUN_TOKEN);
+        return jwt;
     }
 
     /**
-     * Estrae il tenantId dal token.
+     * Verifica il token e ne restituisce le claims, null se non valido.
      */
-    public UUID getTenantIdFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    public ParsedJwt verify(String token) {
+        Timer.Sample sample = metrics.avvia();
+        ByteBuffer chiave = null;
+        if (cache != null) {
+            chiave = VerifiedTokenCache.chiave(token);
+            ParsedJwt jwt = cache.get(chiave, Instant.now());
+            if (jwt != null) {
+                metrics.validazioneJwt(sample, "cache");
+                return jwt;
+            }
+        }
 
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        String esito = "non_valido";
+        try {
+            ParsedJwt jwt = toParsedJwt(parser.parseSignedClaims(token).getPayload());
+            if (cache != null) {
+                cache.put(chiave, jwt);
+            }
+            esito = "valido";
+            return jwt;
+        } catch (SecurityException ex) {
+            log.debug("Invalid JWT signature");
+        } catch (MalformedJwtException ex) {
+            log.debug("Invalid JWT token");
+        } catch (ExpiredJwtException ex) {
+            log.debug("Expired JWT token");
+        } catch (UnsupportedJwtException ex) {
+            log.debug("Unsupported JWT token");
+        } catch (IllegalArgumentException ex) {
+            log.debug("JWT claims string is empty");
+        } finally {
+            metrics.validazioneJwt(sample, esito);
+        }
+        return null;
+    }
 
-        String tenantIdStr = claims.get("tenantId", String.class);
-        return tenantIdStr != null ? UUID.fromString(tenantIdStr) : null;
+    /**
+     * Estrae l'username (email) dal token.
+     */
+    public String getUsernameFromToken(String token) {
+        return verifyOrThrow(token).getSubject();
+    }
+
+    /**
+     * Estrae il tenantId dal token.
+     */
+    public UUID getTenantIdFromToken(String token) {
+        return verifyOrThrow(token).getTenantId();
     }
 
     /**
      * Estrae il ruolo dal token.
      */
     public String getRuoloFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-
-        return claims.get("ruolo", String.class);
+        return verifyOrThrow(token).getRuolo();
     }
 
     /**
      * Valida il token JWT.
      */
     public boolean validateToken(String token) {
-        try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        return verify(token) != null;
+    }
 
-            Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token);
+    private ParsedJwt verifyOrThrow(String token) {
+        ParsedJwt jwt = verify(token);
+        if (jwt == null) {
+            throw new JwtException("Token JWT non valido");
+        }
+        return jwt;
+    }
 
-            return true;
-        } catch (SecurityException ex) {
-            System.err.println("Invalid JWT signature");
-        } catch (MalformedJwtException ex) {
-            System.err.println("Invalid JWT token");
-        } catch (ExpiredJwtException ex) {
-            System.err.println("Expired JWT token");
-        } catch (UnsupportedJwtException ex) {
-            System.err.println("Unsupported JWT token");
-        } catch (IllegalArgumentException ex) {
-            System.err.println("JWT claims string is empty");
+    private ParsedJwt toParsedJwt(Claims claims) {
+        String userIdStr = claims.get("userId", String.class);
+        String tenantIdStr = claims.get("tenantId", String.class);
+        Integer tokenVersion = claims.get("ver", Integer.class);
+        Date expiration = claims.getExpiration();
+
+        return new ParsedJwt(
+                claims.getSubject(),
+                userIdStr != null ? UUID.fromString(userIdStr) : null,
+                tenantIdStr != null ? UUID.fromString(tenantIdStr) : null,
+                claims.get("ruolo", String.class),
+                tokenVersion != null ? tokenVersion : 0,
+                expiration != null ? expiration.toInstant() : null
+        );
+    }
+
+    private String getJwtFromRequest(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
         }
-        return false;
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.beachbooking.security;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Claims di un JWT già verificato. Immutabile, condiviso tra filtro,
+ * interceptor e cache dei token.
+ */
+public final class ParsedJwt {
+
+    private final String subject;
+    private final UUID userId; // null nei token emessi prima dell'introduzione del claim
+    private final UUID tenantId;
+    private final String ruolo;
+    private final int tokenVersion;
+    private final Instant expiration;
+
+    ParsedJwt(String subject, UUID userId, UUID tenantId, String ruolo, int tokenVersion, Instant expiration) {
+        this.subject = subject;
+        this.userId = userId;
+        this.tenantId = tenantId;
+        this.ruolo = ruolo;
+        this.tokenVersion = tokenVersion;
+        this.expiration = expiration;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public UUID getTenantId() {
+        return tenantId;
+    }
+
+    public String getRuolo() {
+        return ruolo;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public Instant getExpiration() {
+        return expiration;
+    }
+
+    public boolean isScaduto(Instant now) {
+        return expiration != null && !expiration.isAfter(now);
+    }
+}
@@ -0,0 +1,110 @@
+package com.beachbooking.security;
+
+import com.beachbooking.event.TokenRevocatiEvent;
+import com.beachbooking.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Elenco in memoria degli utenti con token revocati o account disattivato.
+ *
+ * Contiene solo le eccezioni (di norma pochissime righe), quindi il controllo
+ * per richiesta è una lookup in mappa. Le modifiche di questa istanza arrivano
+ * dopo il commit (TokenRevocatiEvent); quelle delle altre istanze con il
+ * ricaricamento periodico dal DB.
+ *
+ * tokenVersion cresce soltanto, quindi le versioni ricaricate vengono unite con
+ * Math::max e una revoca locale non si perde anche se la lettura dal DB l'ha preceduta.
+ * Lo stato disattivato invece si sostituisce, tranne per gli utenti modificati da
+ * questa istanza mentre la lettura era in corso.
+ */
+@Component
+public class TokenRevocationList {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Versione minima valida dei token per utente
+    private final Map<UUID, Integer> versioniMinime = new ConcurrentHashMap<>();
+
+    private volatile Set<UUID> bloccati = ConcurrentHashMap.newKeySet();
+
+    // Utenti attivati/disattivati da questa istanza, con l'istante (nanoTime) della modifica
+    private final Map<UUID, Long> statoModificato = new ConcurrentHashMap<>();
+
+    /**
+     * True se il token del principal non è più valido.
+     */
+    public boolean isRevocato(AuthenticatedUser user) {
+        if (bloccati.contains(user.getId())) {
+            return true;
+        }
+        Integer minima = versioniMinime.get(user.getId());
+        return minima != null && user.getTokenVersion() < minima;
+    }
+
+    /**
+     * Applica revoca, disattivazione o riattivazione dopo il commit: un rollback
+     * non lascia in memoria uno stato diverso dal DB.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokenRevocati(TokenRevocatiEvent event) {
+        revoca(event.getUserId(), event.getVersioneMinima());
+        synchronized (this) {
+            if (event.isAttivo()) {
+                bloccati.remove(event.getUserId());
+            } else {
+                bloccati.add(event.getUserId());
+            }
+            statoModificato.put(event.getUserId(), System.nanoTime());
+        }
+    }
+
+    /**
+     * Invalida i token dell'utente con versione inferiore a quella indicata.
+     */
+    public void revoca(UUID userId, int versioneMinima) {
+        versioniMinime.merge(userId, versioneMinima, Math::max);
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.revoche-refresh-ms:60000}")
+    public void ricarica() {
+        long inizio = System.nanoTime();
+
+        Set<UUID> nuoviBloccati = ConcurrentHashMap.newKeySet();
+        for (Object[] riga : userRepository.findRevoche()) {
+            UUID id = (UUID) riga[0];
+            Integer versione = (Integer) riga[1];
+            Boolean attivo = (Boolean) riga[2];
+
+            if (versione != null) {
+                revoca(id, versione);
+            }
+            if (Boolean.FALSE.equals(attivo)) {
+                nuoviBloccati.add(id);
+            }
+        }
+
+        synchronized (this) {
+            // Modifiche locali arrivate durante la lettura: più recenti della riga letta
+            statoModificato.forEach((id, istante) -> {
+                if (istante - inizio >= 0) {
+                    if (bloccati.contains(id)) {
+                        nuoviBloccati.add(id);
+                    } else {
+                        nuoviBloccati.remove(id);
+                    }
+                }
+            });
+            statoModificato.values().removeIf(istante -> istante - inizio < 0);
+            bloccati = nuoviBloccati;
+        }
+    }
+}
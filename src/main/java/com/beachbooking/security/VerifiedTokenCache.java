@@ -0,0 +1,81 @@
+package com.beachbooking.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU limitata dei token già verificati.
+ *
+ * La chiave è lo SHA-256 del token (mai il solo hashCode, che permetterebbe
+ * di forgiare un token con lo stesso hash); le voci scadono all'exp del token.
+ * È divisa in segmenti sincronizzati per ridurre la contesa tra thread.
+ */
+final class VerifiedTokenCache {
+
+    private static final int SEGMENTI = 16;
+
+    private final Segmento[] segmenti = new Segmento[SEGMENTI];
+
+    VerifiedTokenCache(int maxSize) {
+        int perSegmento = Math.max(1, maxSize / SEGMENTI);
+        for (int i = 0; i < SEGMENTI; i++) {
+            segmenti[i] = new Segmento(perSegmento);
+        }
+    }
+
+    /**
+     * Claims del token se presente e non scaduto, altrimenti null.
+     */
+    ParsedJwt get(ByteBuffer chiave, Instant now) {
+        Segmento segmento = segmento(chiave);
+        synchronized (segmento) {
+            ParsedJwt jwt = segmento.get(chiave);
+            if (jwt != null && jwt.isScaduto(now)) {
+                segmento.remove(chiave);
+                return null;
+            }
+            return jwt;
+        }
+    }
+
+    void put(ByteBuffer chiave, ParsedJwt jwt) {
+        Segmento segmento = segmento(chiave);
+        synchronized (segmento) {
+            segmento.put(chiave, jwt);
+        }
+    }
+
+    static ByteBuffer chiave(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Segmento segmento(ByteBuffer chiave) {
+        // I primi byte dello SHA-256 sono già distribuiti uniformemente
+        return segmenti[(chiave.get(0) & 0xFF) % SEGMENTI];
+    }
+
+    private static final class Segmento extends LinkedHashMap<ByteBuffer, ParsedJwt> {
+
+        private final int maxSize;
+
+        Segmento(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, ParsedJwt> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
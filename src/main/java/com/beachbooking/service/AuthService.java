@@ -1,12 +1,15 @@
 package com.beachbooking.service;
 
+import com.beachbooking.event.TokenRevocatiEvent;
 import com.beachbooking.exception.ResourceNotFoundException;
 
 import com.beachbooking.model.entity.User;
 import com.beachbooking.model.enums.RuoloUtente;
 import com.beachbooking.repository.UserRepository;
+import com.beachbooking.security.AuthenticatedUser;
 import com.beachbooking.security.JwtTokenProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -36,6 +39,12 @@ public class AuthService {
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EmailService emailService;
+
     /**
      * Login utente.
      * Restituisce un JWT token.
@@ -62,8 +71,10 @@ public class AuthService {
 
             String token = jwtTokenProvider.generateTokenWithClaims(
                     email,
+                    user.getId(),
                     user.getTenantId(),
-                    user.getRuolo().name()
+                    user.getRuolo().name(),
+                    tokenVersion(user)
             );
 
             System.out.println("Token generated: " + token.substring(0, 20) + "...");
@@ -109,8 +120,7 @@ public class AuthService {
 
         user = userRepository.save(user);
 
-        // TODO: Invia email di verifica
-        // emailService.sendVerificationEmail(user);
+        emailService.sendVerificationEmail(user, user.getEmailVerificationToken());
 
         return user;
     }
@@ -172,8 +182,7 @@ public class AuthService {
 
         userRepository.save(user);
 
-        // TODO: Invia email con token reset
-        // emailService.sendPasswordResetEmail(user, resetToken);
+        emailService.sendPasswordResetEmail(user, resetToken);
     }
 
     /**
@@ -193,7 +202,8 @@ public class AuthService {
         user.setPasswordResetToken(null);
         user.setPasswordResetExpiry(null);
 
-        userRepository.save(user);
+        // I token emessi con la vecchia password non sono più validi
+        revocaToken(user);
     }
 
     /**
@@ -210,20 +220,84 @@ public class AuthService {
         }
 
         user.setPassword(passwordEncoder.encode(newPassword));
+        // Come per il reset: i token emessi con la vecchia password non sono più validi
+        revocaToken(user);
+    }
+
+    /**
+     * Disattiva l'utente: login rifiutato e token già emessi non più accettati.
+     */
+    @Transactional
+    public void disattivaUtente(UUID userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Utente non trovato"));
+
+        user.setAttivo(false);
+        // Nuova versione: alla riattivazione i token precedenti restano invalidi
+        user.setTokenVersion(tokenVersion(user) + 1);
         userRepository.save(user);
+        // TokenRevocationList aggiornata dopo il commit
+        eventPublisher.publishEvent(new TokenRevocatiEvent(user.getId(), tokenVersion(user), false));
+    }
+
+    /**
+     * Riattiva un utente disattivato. Serve un nuovo login.
+     */
+    @Transactional
+    public void riattivaUtente(UUID userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Utente non trovato"));
+
+        user.setAttivo(true);
+        userRepository.save(user);
+        eventPublisher.publishEvent(new TokenRevocatiEvent(user.getId(), tokenVersion(user), true));
+    }
+
+    /**
+     * Invalida tutti i token emessi finora per l'utente (password cambiata o reimpostata).
+     */
+    @Transactional
+    public void revocaToken(User user) {
+        int versione = tokenVersion(user) + 1;
+        user.setTokenVersion(versione);
+
+        userRepository.save(user);
+        eventPublisher.publishEvent(new TokenRevocatiEvent(user.getId(), versione, !Boolean.FALSE.equals(user.getAttivo())));
+    }
+
+    /**
+     * Principal dell'utente corrente, ricavato dal token senza accedere al DB.
+     * Per i token senza claim userId carica l'utente una volta.
+     */
+    public AuthenticatedUser getCurrentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal;
+        }
+        return AuthenticatedUser.from(getCurrentUser());
     }
 
     /**
      * Ottieni utente corrente dal SecurityContext.
+     * Carica l'entity completa: usare getCurrentPrincipal() se bastano id e ruolo.
      */
     public User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return userRepository.findById(principal.getId())
+                    .orElseThrow(() -> new RuntimeException("Utente non trovato"));
+        }
+
         String email = authentication.getName();
 
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Utente non trovato"));
     }
 
+    private static int tokenVersion(User user) {
+        return user.getTokenVersion() != null ? user.getTokenVersion() : 0;
+    }
+
     private String generateVerificationToken() {
         return UUID.randomUUID().toString();
     }
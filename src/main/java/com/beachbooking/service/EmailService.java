@@ -1,31 +1,41 @@
 package com.beachbooking.service;
 
+import com.beachbooking.email.EmailRenderizzata;
+import com.beachbooking.email.EmailTemplateEngine;
+import com.beachbooking.email.TipoEmail;
+import com.beachbooking.model.entity.EmailOutbox;
 import com.beachbooking.model.entity.Prenotazione;
 import com.beachbooking.model.entity.Tenant;
 import com.beachbooking.model.entity.User;
+import com.beachbooking.repository.EmailOutboxRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.UUID;
 
 /**
  * Service per l'invio di email.
- * Tutte le operazioni sono asincrone per non bloccare il thread principale.
+ *
+ * Le email non partono dal thread della richiesta: vengono scritte nella tabella
+ * email_outbox, nella stessa transazione dell'operazione che le genera (se la
+ * transazione fallisce, l'email non esiste). L'invio vero e proprio, in batch e
+ * con retry, è compito di EmailOutboxDispatcher.
+ *
+ * Oggetto e corpo vengono dai template compilati di EmailTemplateEngine,
+ * con gli eventuali override del tenant.
  */
 @Service
 public class EmailService {
 
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailOutboxRepository emailOutboxRepository;
 
-    @Value("${spring.mail.username}")
-    private String fromEmail;
+    @Autowired
+    private EmailTemplateEngine templateEngine;
 
     @Value("${app.base-url}")
     private String baseUrl;
@@ -33,292 +43,111 @@ public class EmailService {
     /**
      * Invia email di verifica dopo registrazione.
      */
-    @Async
     public void sendVerificationEmail(User user, String token) {
-        try {
-            String subject = "Verifica il tuo account - Beach Booking";
-            String verificationUrl = baseUrl + "/verify-email?token=" + token;
-
-            String body = String.format("""
-                Ciao %s,
-                
-                Benvenuto su Beach Booking!
-                
-                Per completare la registrazione, verifica il tuo indirizzo email cliccando sul link:
-                %s
-                
-                Il link è valido per 24 ore.
-                
-                Se non hai richiesto questa registrazione, ignora questa email.
-                
-                Cordiali saluti,
-                Il team di Beach Booking
-                """, user.getNome(), verificationUrl);
-
-            sendSimpleEmail(user.getEmail(), subject, body);
-
-        } catch (Exception e) {
-            System.err.println("Errore invio email verifica: " + e.getMessage());
-        }
+        invia(user, null, TipoEmail.VERIFICA_ACCOUNT,
+                user.getNome(),
+                baseUrl + "/verify-email?token=" + token);
     }
 
     /**
      * Invia email di benvenuto dopo verifica.
      */
-    @Async
     public void sendWelcomeEmail(User user, Tenant tenant) {
-        try {
-            String subject = "Benvenuto su Beach Booking!";
-
-            String body = String.format("""
-                Ciao %s,
-                
-                Il tuo account è stato verificato con successo!
-                
-                Ora puoi accedere al tuo stabilimento %s e iniziare a gestire le tue prenotazioni.
-                
-                Accedi qui: %s
-                
-                Buon lavoro!
-                Il team di Beach Booking
-                """, user.getNome(), tenant.getNomeStabilimento(), baseUrl);
-
-            sendSimpleEmail(user.getEmail(), subject, body);
-
-        } catch (Exception e) {
-            System.err.println("Errore invio email benvenuto: " + e.getMessage());
-        }
+        invia(user, tenant, TipoEmail.BENVENUTO,
+                user.getNome(),
+                tenant.getNomeStabilimento(),
+                baseUrl);
     }
 
     /**
      * Invia email di reset password.
      */
-    @Async
     public void sendPasswordResetEmail(User user, String token) {
-        try {
-            String subject = "Reset Password - Beach Booking";
-            String resetUrl = baseUrl + "/reset-password?token=" + token;
-
-            String body = String.format("""
-                Ciao %s,
-                
-                Hai richiesto il reset della password.
-                
-                Clicca sul link per reimpostare la password:
-                %s
-                
-                Il link è valido per 24 ore.
-                
-                Se non hai richiesto il reset, ignora questa email.
-                
-                Cordiali saluti,
-                Il team di Beach Booking
-                """, user.getNome(), resetUrl);
-
-            sendSimpleEmail(user.getEmail(), subject, body);
-
-        } catch (Exception e) {
-            System.err.println("Errore invio email reset: " + e.getMessage());
-        }
+        invia(user, null, TipoEmail.RESET_PASSWORD,
+                user.getNome(),
+                baseUrl + "/reset-password?token=" + token);
     }
 
     /**
      * Invia conferma prenotazione al cliente.
      */
-    @Async
     public void sendBookingConfirmation(Prenotazione prenotazione, User user, Tenant tenant) {
-        try {
-            String subject = "Conferma Prenotazione - " + tenant.getNomeStabilimento();
-
-            String body = String.format("""
-                Ciao %s,
-                
-                La tua prenotazione è stata confermata!
-                
-                Dettagli:
-                - Codice: %s
-                - Stabilimento: %s
-                - Dal: %s
-                - Al: %s
-                - Importo: €%.2f
-                
-                Ti aspettiamo!
-                
-                Per modifiche o cancellazioni, contattaci:
-                %s - %s
-                
-                Cordiali saluti,
-                %s
-                """,
-                    user.getNome(),
-                    prenotazione.getCodicePrenotazione(),
-                    tenant.getNomeStabilimento(),
-                    prenotazione.getDataInizio(),
-                    prenotazione.getDataFine(),
-                    prenotazione.getPrezzoTotale(),
-                    tenant.getTelefono(),
-                    tenant.getEmail(),
-                    tenant.getNomeStabilimento()
-            );
-
-            sendSimpleEmail(user.getEmail(), subject, body);
-
-        } catch (Exception e) {
-            System.err.println("Errore invio email conferma prenotazione: " + e.getMessage());
-        }
+        invia(user, tenant, TipoEmail.CONFERMA_PRENOTAZIONE,
+                user.getNome(),
+                prenotazione.getCodicePrenotazione(),
+                tenant.getNomeStabilimento(),
+                String.valueOf(prenotazione.getDataInizio()),
+                String.valueOf(prenotazione.getDataFine()),
+                importo(prenotazione.getPrezzoTotale()),
+                tenant.getTelefono(),
+                tenant.getEmail());
     }
 
     /**
      * Invia notifica cancellazione prenotazione.
      */
-    @Async
     public void sendBookingCancellation(Prenotazione prenotazione, User user, Tenant tenant, String motivo) {
-        try {
-            String subject = "Prenotazione Cancellata - " + tenant.getNomeStabilimento();
-
-            String body = String.format("""
-                Ciao %s,
-                
-                La tua prenotazione è stata cancellata.
-                
-                Dettagli:
-                - Codice: %s
-                - Stabilimento: %s
-                - Motivo: %s
-                
-                Per informazioni contattaci:
-                %s - %s
-                
-                Cordiali saluti,
-                %s
-                """,
-                    user.getNome(),
-                    prenotazione.getCodicePrenotazione(),
-                    tenant.getNomeStabilimento(),
-                    motivo,
-                    tenant.getTelefono(),
-                    tenant.getEmail(),
-                    tenant.getNomeStabilimento()
-            );
-
-            sendSimpleEmail(user.getEmail(), subject, body);
-
-        } catch (Exception e) {
-            System.err.println("Errore invio email cancellazione: " + e.getMessage());
-        }
+        invia(user, tenant, TipoEmail.CANCELLAZIONE_PRENOTAZIONE,
+                user.getNome(),
+                prenotazione.getCodicePrenotazione(),
+                tenant.getNomeStabilimento(),
+                motivo,
+                tenant.getTelefono(),
+                tenant.getEmail());
     }
 
     /**
      * Invia promemoria prenotazione (1 giorno prima).
      */
-    @Async
     public void sendBookingReminder(Prenotazione prenotazione, User user, Tenant tenant) {
-        try {
-            String subject = "Promemoria Prenotazione - " + tenant.getNomeStabilimento();
-
-            String body = String.format("""
-                Ciao %s,
-                
-                Ti ricordiamo che domani inizia la tua prenotazione!
-                
-                Codice: %s
-                Data: %s
-                
-                Ti aspettiamo presso:
-                %s
-                %s
-                
-                Per informazioni: %s
-                
-                A presto!
-                %s
-                """,
-                    user.getNome(),
-                    prenotazione.getCodicePrenotazione(),
-                    prenotazione.getDataInizio(),
-                    tenant.getNomeStabilimento(),
-                    tenant.getIndirizzo(),
-                    tenant.getTelefono(),
-                    tenant.getNomeStabilimento()
-            );
-
-            sendSimpleEmail(user.getEmail(), subject, body);
-
-        } catch (Exception e) {
-            System.err.println("Errore invio email promemoria: " + e.getMessage());
-        }
+        invia(user, tenant, TipoEmail.PROMEMORIA_PRENOTAZIONE,
+                user.getNome(),
+                prenotazione.getCodicePrenotazione(),
+                String.valueOf(prenotazione.getDataInizio()),
+                tenant.getNomeStabilimento(),
+                tenant.getIndirizzo(),
+                tenant.getTelefono());
     }
 
     /**
      * Invia conferma pagamento.
      */
-    @Async
     public void sendPaymentConfirmation(Prenotazione prenotazione, User user, Tenant tenant, String metodoPagamento) {
-        try {
-            String subject = "Pagamento Confermato - " + tenant.getNomeStabilimento();
-
-            String body = String.format("""
-                Ciao %s,
-                
-                Il tuo pagamento è stato confermato!
-                
-                Dettagli:
-                - Codice Prenotazione: %s
-                - Importo: €%.2f
-                - Metodo: %s
-                
-                Grazie per aver scelto %s!
-                
-                Cordiali saluti,
-                %s
-                """,
-                    user.getNome(),
-                    prenotazione.getCodicePrenotazione(),
-                    prenotazione.getPrezzoTotale(),
-                    metodoPagamento,
-                    tenant.getNomeStabilimento(),
-                    tenant.getNomeStabilimento()
-            );
-
-            sendSimpleEmail(user.getEmail(), subject, body);
-
-        } catch (Exception e) {
-            System.err.println("Errore invio email conferma pagamento: " + e.getMessage());
-        }
+        invia(user, tenant, TipoEmail.CONFERMA_PAGAMENTO,
+                user.getNome(),
+                prenotazione.getCodicePrenotazione(),
+                importo(prenotazione.getPrezzoTotale()),
+                metodoPagamento,
+                tenant.getNomeStabilimento());
     }
 
     /**
-     * Metodo base per invio email semplice.
+     * Accoda un'email HTML.
      */
-    private void sendSimpleEmail(String to, String subject, String text) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(text);
-
-            mailSender.send(message);
+    public void sendHtmlEmail(UUID tenantId, String to, String subject, String htmlContent) {
+        accoda(tenantId, to, subject, htmlContent, true);
+    }
 
-        } catch (Exception e) {
-            System.err.println("Errore invio email: " + e.getMessage());
-            throw new RuntimeException("Impossibile inviare email", e);
-        }
+    private void invia(User user, Tenant tenant, TipoEmail tipo, String... valori) {
+        EmailRenderizzata email = templateEngine.render(tipo, tenant, valori);
+        accoda(user.getTenantId(), user.getEmail(), email.getOggetto(), email.getCorpo(), email.isHtml());
     }
 
     /**
-     * Metodo per invio email HTML (opzionale, per future implementazioni).
+     * Scrive l'email nella outbox, nella transazione del chiamante se presente.
      */
-    @Async
-    public void sendHtmlEmail(String to, String subject, String htmlContent) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-        helper.setFrom(fromEmail);
-        helper.setTo(to);
-        helper.setSubject(subject);
-        helper.setText(htmlContent, true);
+    private void accoda(UUID tenantId, String to, String subject, String corpo, boolean html) {
+        emailOutboxRepository.save(EmailOutbox.builder()
+                .tenantId(tenantId)
+                .destinatario(to)
+                .oggetto(subject)
+                .corpo(corpo)
+                .html(html)
+                .prossimoTentativo(LocalDateTime.now())
+                .build());
+    }
 
-        mailSender.send(message);
+    private static String importo(BigDecimal importo) {
+        return importo != null ? importo.setScale(2, RoundingMode.HALF_UP).toPlainString() : null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,251 @@
+package com.beachbooking.service;
+
+import com.beachbooking.event.OmbrelloneModificatoEvent;
+import com.beachbooking.event.PrenotazioneStatoEvent;
+import com.beachbooking.model.dto.response.MapSnapshotResponse;
+import com.beachbooking.model.entity.Ombrellone;
+import com.beachbooking.model.enums.TipoOmbrellone;
+import com.beachbooking.tenant.TenantContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snapshot compatti della mappa (MapSnapshotResponse) già serializzati, per tenant e periodo.
+ *
+ * Ogni tenant ha un contatore di versione: una modifica a un ombrellone assegna
+ * la nuova versione a tutta la mappa, un cambio di stato di una prenotazione
+ * solo ai suoi giorni. L'ETag di un periodo è la versione più alta tra mappa e
+ * giorni del periodo più la finestra temporale corrente (app.map.validita-snapshot-ms).
+ *
+ * Contatori e snapshot sono di questa istanza e si muovono solo con gli eventi
+ * locali: prenotazioni e ombrelloni modificati su altri nodi non cambiano la
+ * versione. Per questo l'ETag cambia comunque a ogni finestra e lo snapshot viene
+ * ricostruito: le modifiche remote compaiono entro una finestra (più il ritardo
+ * della bitmap di OccupancyEngine), quelle locali subito. Anche l'ETag è per
+ * istanza: un client che cambia nodo riceve una risposta completa.
+ */
+@Service
+public class MapSnapshotService {
+
+    private static final int MAX_GIORNI = 31;
+    private static final int SNAPSHOT_PER_TENANT = 64;
+
+    @Autowired
+    private PrenotazioneService prenotazioneService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.map.validita-snapshot-ms:30000}")
+    private long validitaMs;
+
+    // I contatori ripartono da zero a ogni avvio: l'avvio fa parte dell'ETag
+    private final String avvio = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<UUID, VersioniTenant> tenants = new ConcurrentHashMap<>();
+
+    /**
+     * Snapshot serializzato con il suo ETag.
+     */
+    public static final class Snapshot {
+
+        private final String etag;
+        private final byte[] json;
+
+        Snapshot(String etag, byte[] json) {
+            this.etag = etag;
+            this.json = json;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+    }
+
+    /**
+     * ETag corrente della mappa del tenant corrente per il periodo (senza costruire lo snapshot).
+     */
+    public String etag(LocalDate dataInizio, LocalDate dataFine) {
+        valida(dataInizio, dataFine);
+        UUID tenantId = TenantContext.getTenantId();
+        return versioni(tenantId).etag(tenantId, dataInizio, dataFine);
+    }
+
+    /**
+     * Snapshot della mappa del tenant corrente per il periodo, dalla cache se ancora valido.
+     */
+    public Snapshot getSnapshot(LocalDate dataInizio, LocalDate dataFine) {
+        valida(dataInizio, dataFine);
+        UUID tenantId = TenantContext.getTenantId();
+        VersioniTenant versioni = versioni(tenantId);
+
+        // ETag letto prima dei dati: una modifica concorrente invalida lo snapshot alla richiesta successiva
+        String etag = versioni.etag(tenantId, dataInizio, dataFine);
+        String chiave = dataInizio + "/" + dataFine;
+
+        Snapshot snapshot = versioni.cache.get(chiave);
+        if (snapshot != null && snapshot.getEtag().equals(etag)) {
+            return snapshot;
+        }
+
+        snapshot = new Snapshot(etag, serializza(costruisci(tenantId, dataInizio, dataFine)));
+        versioni.cache.put(chiave, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Nuova versione per i giorni della prenotazione, dopo il commit
+     * (e dopo l'aggiornamento della bitmap di OccupancyEngine).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPrenotazioneStato(PrenotazioneStatoEvent event) {
+        VersioniTenant versioni = tenants.get(event.getTenantId());
+        if (versioni != null) {
+            versioni.giorniModificati(event.getDataInizio(), event.getDataFine());
+        }
+    }
+
+    /**
+     * Nuova versione per tutta la mappa del tenant, dopo il commit.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOmbrelloneModificato(OmbrelloneModificatoEvent event) {
+        VersioniTenant versioni = tenants.get(event.getTenantId());
+        if (versioni != null) {
+            versioni.ombrelloniModificati();
+        }
+    }
+
+    private MapSnapshotResponse costruisci(UUID tenantId, LocalDate dataInizio, LocalDate dataFine) {
+        List<Ombrellone> ombrelloni = new ArrayList<>();
+        List<Boolean> liberi = new ArrayList<>();
+        prenotazioneService.visitaDisponibilita(tenantId, dataInizio, dataFine, (ombrellone, libero) -> {
+            ombrelloni.add(ombrellone);
+            liberi.add(libero);
+        });
+
+        Integer[] ordine = new Integer[ombrelloni.size()];
+        Arrays.setAll(ordine, i -> i);
+        Arrays.sort(ordine, Comparator
+                .comparing((Integer i) -> ombrelloni.get(i).getFila(), Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(i -> ombrelloni.get(i).getNumero(), Comparator.nullsLast(Comparator.naturalOrder())));
+
+        int n = ordine.length;
+        List<UUID> ids = new ArrayList<>(n);
+        List<String> file = new ArrayList<>(n);
+        int[] numeri = new int[n];
+        int[] x = new int[n];
+        int[] y = new int[n];
+        int[] tipi = new int[n];
+        byte[] disponibili = new byte[(n + 7) / 8];
+
+        for (int i = 0; i < n; i++) {
+            Ombrellone o = ombrelloni.get(ordine[i]);
+            ids.add(o.getId());
+            file.add(o.getFila());
+            numeri[i] = o.getNumero();
+            x[i] = o.getPosizioneX() != null ? o.getPosizioneX() : -1;
+            y[i] = o.getPosizioneY() != null ? o.getPosizioneY() : -1;
+            tipi[i] = o.getTipo().ordinal();
+            if (liberi.get(ordine[i])) {
+                disponibili[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+
+        return MapSnapshotResponse.builder()
+                .dataInizio(dataInizio)
+                .dataFine(dataFine)
+                .numeroOmbrelloni(n)
+                .ids(ids)
+                .numeri(numeri)
+                .file(file)
+                .x(x)
+                .y(y)
+                .tipi(tipi)
+                .tipiLegenda(Arrays.stream(TipoOmbrellone.values()).map(Enum::name).toList())
+                .disponibili(Base64.getEncoder().encodeToString(disponibili))
+                .build();
+    }
+
+    private byte[] serializza(MapSnapshotResponse response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Serializzazione mappa fallita", e);
+        }
+    }
+
+    private VersioniTenant versioni(UUID tenantId) {
+        return tenants.computeIfAbsent(tenantId, id -> new VersioniTenant());
+    }
+
+    private static void valida(LocalDate dataInizio, LocalDate dataFine) {
+        if (dataInizio.isAfter(dataFine)) {
+            throw new IllegalArgumentException("Data inizio deve essere prima di data fine");
+        }
+        if (dataFine.toEpochDay() - dataInizio.toEpochDay() >= MAX_GIORNI) {
+            throw new IllegalArgumentException("Il periodo non può superare " + MAX_GIORNI + " giorni");
+        }
+    }
+
+    /**
+     * Versioni e snapshot di un tenant.
+     */
+    private final class VersioniTenant {
+
+        private final AtomicLong contatore = new AtomicLong();
+        private volatile long versioneOmbrelloni;
+        private final Map<Long, Long> versioniGiorni = new ConcurrentHashMap<>();
+
+        private final Map<String, Snapshot> cache = Collections.synchronizedMap(
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                        return size() > SNAPSHOT_PER_TENANT;
+                    }
+                });
+
+        void ombrelloniModificati() {
+            versioneOmbrelloni = contatore.incrementAndGet();
+        }
+
+        void giorniModificati(LocalDate dataInizio, LocalDate dataFine) {
+            long versione = contatore.incrementAndGet();
+            for (long giorno = dataInizio.toEpochDay(); giorno <= dataFine.toEpochDay(); giorno++) {
+                versioniGiorni.put(giorno, versione);
+            }
+        }
+
+        String etag(UUID tenantId, LocalDate dataInizio, LocalDate dataFine) {
+            long versione = versioneOmbrelloni;
+            for (long giorno = dataInizio.toEpochDay(); giorno <= dataFine.toEpochDay(); giorno++) {
+                versione = Math.max(versione, versioniGiorni.getOrDefault(giorno, 0L));
+            }
+            // Finestra corrente: limita quanto restano invisibili le modifiche fatte su altre istanze
+            long finestra = System.currentTimeMillis() / validitaMs;
+            return "\"" + avvio + "-" + Long.toHexString(tenantId.getMostSignificantBits()) + "-" + versione
+                    + "-" + Long.toString(finestra, 36) + "\"";
+        }
+    }
+}
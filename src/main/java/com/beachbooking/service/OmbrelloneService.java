@@ -1,18 +1,27 @@
 package com.beachbooking.service;
 
+import com.beachbooking.event.OmbrelloneModificatoEvent;
 import com.beachbooking.exception.ResourceNotFoundException;
+import com.beachbooking.model.dto.response.CursorPageResponse;
+import com.beachbooking.model.dto.response.OmbrelloneResponse;
 import com.beachbooking.model.entity.Ombrellone;
 import com.beachbooking.model.entity.Tenant;
+import com.beachbooking.map.OmbrelloneSpatialIndex;
 import com.beachbooking.model.enums.TipoOmbrellone;
+import com.beachbooking.pagination.KeysetOrder;
+import com.beachbooking.pagination.KeysetPager;
 import com.beachbooking.repository.OmbrelloneRepository;
 import com.beachbooking.repository.TenantRepository;
 import com.beachbooking.tenant.TenantContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Service per la gestione degli ombrelloni.
@@ -26,6 +35,18 @@ public class OmbrelloneService {
     @Autowired
     private TenantRepository tenantRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private OmbrelloneSpatialIndex spatialIndex;
+
+    private static final KeysetOrder<Ombrellone> ORDINE_KEYSET =
+            KeysetOrder.of("dataCreazione", Ombrellone::getDataCreazione, Ombrellone::getId);
+
     /**
      * Crea un nuovo ombrellone per il tenant corrente.
      */
@@ -67,23 +88,52 @@ public class OmbrelloneService {
                 .attivo(true)
                 .build();
 
-        return ombrelloneRepository.save(ombrellone);
+        ombrellone = ombrelloneRepository.save(ombrellone);
+        pubblicaModifica(ombrellone, false);
+        return ombrellone;
     }
 
     /**
      * Trova tutti gli ombrelloni del tenant corrente.
+     * Le liste sono lette come DTO in transazioni readOnly, senza entity gestite.
      */
-    public List<Ombrellone> findAll() {
+    @Transactional(readOnly = true)
+    public List<OmbrelloneResponse> findAll() {
         UUID tenantId = TenantContext.getTenantId();
-        return ombrelloneRepository.findByTenantId(tenantId);
+        return ombrelloneRepository.findResponseByTenantId(tenantId);
+    }
+
+    /**
+     * Pagina di ombrelloni del tenant corrente ordinati per (dataCreazione, id).
+     */
+    public CursorPageResponse<Ombrellone> findPage(String after, Integer limit) {
+        return keysetPager.page(ombrelloneRepository, ORDINE_KEYSET, delTenant(), after, limit);
+    }
+
+    /**
+     * Scorre tutti gli ombrelloni del tenant corrente senza caricarli in memoria.
+     */
+    public void forEach(Consumer<Ombrellone> consumer) {
+        keysetPager.forEach(ombrelloneRepository, ORDINE_KEYSET, delTenant(), consumer);
     }
 
     /**
      * Trova tutti gli ombrelloni attivi del tenant corrente.
      */
-    public List<Ombrellone> findAllActive() {
+    @Transactional(readOnly = true)
+    public List<OmbrelloneResponse> findAllActive() {
         UUID tenantId = TenantContext.getTenantId();
-        return ombrelloneRepository.findByTenantIdAndAttivoTrue(tenantId);
+        return ombrelloneRepository.findResponseByTenantIdAndAttivoTrue(tenantId);
+    }
+
+    /**
+     * Ombrelloni attivi del tenant corrente nel rettangolo visibile della mappa.
+     */
+    public List<Ombrellone> findInViewport(int xMin, int yMin, int xMax, int yMax) {
+        if (xMin > xMax || yMin > yMax) {
+            throw new IllegalArgumentException("Rettangolo non valido");
+        }
+        return spatialIndex.findInViewport(TenantContext.getTenantId(), xMin, yMin, xMax, yMax);
     }
 
     /**
@@ -98,17 +148,19 @@ public class OmbrelloneService {
     /**
      * Trova ombrelloni per fila.
      */
-    public List<Ombrellone> findByFila(String fila) {
+    @Transactional(readOnly = true)
+    public List<OmbrelloneResponse> findByFila(String fila) {
         UUID tenantId = TenantContext.getTenantId();
-        return ombrelloneRepository.findByTenantIdAndFila(tenantId, fila);
+        return ombrelloneRepository.findResponseByTenantIdAndFila(tenantId, fila);
     }
 
     /**
      * Trova ombrelloni per tipo.
      */
-    public List<Ombrellone> findByTipo(TipoOmbrellone tipo) {
+    @Transactional(readOnly = true)
+    public List<OmbrelloneResponse> findByTipo(TipoOmbrellone tipo) {
         UUID tenantId = TenantContext.getTenantId();
-        return ombrelloneRepository.findByTenantIdAndTipo(tenantId, tipo);
+        return ombrelloneRepository.findResponseByTenantIdAndTipo(tenantId, tipo);
     }
 
     /**
@@ -148,7 +200,9 @@ public class OmbrelloneService {
             ombrellone.setNote(updatedData.getNote());
         }
 
-        return ombrelloneRepository.save(ombrellone);
+        ombrellone = ombrelloneRepository.save(ombrellone);
+        pubblicaModifica(ombrellone, false);
+        return ombrellone;
     }
 
     /**
@@ -159,6 +213,7 @@ public class OmbrelloneService {
         Ombrellone ombrellone = findById(id);
         ombrellone.setAttivo(false);
         ombrelloneRepository.save(ombrellone);
+        pubblicaModifica(ombrellone, false);
     }
 
     /**
@@ -169,6 +224,7 @@ public class OmbrelloneService {
         Ombrellone ombrellone = findById(id);
         ombrellone.setAttivo(true);
         ombrelloneRepository.save(ombrellone);
+        pubblicaModifica(ombrellone, false);
     }
 
     /**
@@ -182,6 +238,7 @@ public class OmbrelloneService {
         // TODO: Implementare controllo prenotazioni
 
         ombrelloneRepository.delete(ombrellone);
+        pubblicaModifica(ombrellone, true);
     }
 
     /**
@@ -221,6 +278,22 @@ public class OmbrelloneService {
             );
         }
 
-        return ombrelloneRepository.saveAll(ombrelloni);
+        List<Ombrellone> saved = ombrelloneRepository.saveAll(ombrelloni);
+        saved.forEach(o -> pubblicaModifica(o, false));
+        return saved;
+    }
+
+    /**
+     * Pubblica l'evento di modifica ombrellone (gestito dai listener dopo il commit).
+     */
+    private void pubblicaModifica(Ombrellone ombrellone, boolean eliminato) {
+        eventPublisher.publishEvent(
+                new OmbrelloneModificatoEvent(ombrellone.getTenantId(), ombrellone, eliminato)
+        );
+    }
+
+    private Specification<Ombrellone> delTenant() {
+        UUID tenantId = TenantContext.getTenantId();
+        return (root, query, cb) -> cb.equal(root.get("tenantId"), tenantId);
     }
-}
\ No newline at end of file
+}
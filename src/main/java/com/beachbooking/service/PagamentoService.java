@@ -1,21 +1,33 @@
 package com.beachbooking.service;
 
 import com.beachbooking.exception.ResourceNotFoundException;
+import com.beachbooking.metrics.AppMetrics;
+import com.beachbooking.model.dto.response.CursorPageResponse;
+import com.beachbooking.model.dto.response.PagamentoResponse;
 import com.beachbooking.model.entity.Pagamento;
 import com.beachbooking.model.entity.Prenotazione;
 import com.beachbooking.model.enums.MetodoPagamento;
 import com.beachbooking.model.enums.StatoPrenotazione;
+import com.beachbooking.pagination.KeysetOrder;
+import com.beachbooking.pagination.KeysetPager;
 import com.beachbooking.repository.PagamentoRepository;
 import com.beachbooking.repository.PrenotazioneRepository;
 import com.beachbooking.tenant.TenantContext;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Service per la gestione dei pagamenti.
@@ -32,6 +44,15 @@ public class PagamentoService {
     @Autowired
     private PrenotazioneService prenotazioneService;
 
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private AppMetrics metrics;
+
+    private static final KeysetOrder<Pagamento> ORDINE_KEYSET =
+            KeysetOrder.of("dataCreazione", Pagamento::getDataCreazione, Pagamento::getId);
+
     /**
      * Crea un nuovo pagamento per una prenotazione.
      */
@@ -75,6 +96,18 @@ public class PagamentoService {
      */
     @Transactional
     public Pagamento confirmPayment(UUID pagamentoId) {
+        Timer.Sample sample = metrics.avvia();
+        String esito = AppMetrics.ERRORE;
+        try {
+            Pagamento pagamento = confermaPagamento(pagamentoId);
+            esito = AppMetrics.OK;
+            return pagamento;
+        } finally {
+            metrics.confermaPagamento(sample, esito);
+        }
+    }
+
+    private Pagamento confermaPagamento(UUID pagamentoId) {
         Pagamento pagamento = findById(pagamentoId);
 
         if (pagamento.getStato() == StatoPrenotazione.PAID) {
@@ -159,25 +192,47 @@ public class PagamentoService {
     }
 
     /**
-     * Lista tutti i pagamenti del tenant.
+     * Lista tutti i pagamenti del tenant, letti come DTO in sola lettura.
      */
-    public List<Pagamento> findAll() {
+    @Transactional(readOnly = true)
+    public List<PagamentoResponse> findAll() {
         UUID tenantId = TenantContext.getTenantId();
-        return pagamentoRepository.findByTenantId(tenantId);
+        return pagamentoRepository.findResponseByTenantId(tenantId);
+    }
+
+    /**
+     * Pagina di pagamenti del tenant corrente ordinati per (dataCreazione, id).
+     */
+    public CursorPageResponse<Pagamento> findPage(StatoPrenotazione stato,
+                                                  MetodoPagamento metodo,
+                                                  String after,
+                                                  Integer limit) {
+        return keysetPager.page(pagamentoRepository, ORDINE_KEYSET, filtro(stato, metodo), after, limit);
     }
 
     /**
-     * Lista pagamenti per stato.
+     * Scorre tutti i pagamenti del tenant corrente senza caricarli in memoria.
      */
-    public List<Pagamento> findByStato(StatoPrenotazione stato) {
-        return pagamentoRepository.findByStato(stato);
+    public void forEach(StatoPrenotazione stato, MetodoPagamento metodo, Consumer<Pagamento> consumer) {
+        keysetPager.forEach(pagamentoRepository, ORDINE_KEYSET, filtro(stato, metodo), consumer);
     }
 
     /**
-     * Lista pagamenti per metodo.
+     * Lista pagamenti del tenant per stato.
      */
-    public List<Pagamento> findByMetodo(MetodoPagamento metodo) {
-        return pagamentoRepository.findByMetodoPagamento(metodo);
+    @Transactional(readOnly = true)
+    public List<PagamentoResponse> findByStato(StatoPrenotazione stato) {
+        UUID tenantId = TenantContext.getTenantId();
+        return pagamentoRepository.findResponseByTenantIdAndStato(tenantId, stato);
+    }
+
+    /**
+     * Lista pagamenti del tenant per metodo.
+     */
+    @Transactional(readOnly = true)
+    public List<PagamentoResponse> findByMetodo(MetodoPagamento metodo) {
+        UUID tenantId = TenantContext.getTenantId();
+        return pagamentoRepository.findResponseByTenantIdAndMetodo(tenantId, metodo);
     }
 
     /**
@@ -232,4 +287,28 @@ public class PagamentoService {
 
         return pagamento;
     }
-}
\ No newline at end of file
+
+    /**
+     * Filtri delle liste paginate. Il tenant è quello della prenotazione collegata.
+     */
+    private Specification<Pagamento> filtro(StatoPrenotazione stato, MetodoPagamento metodo) {
+        UUID tenantId = TenantContext.getTenantId();
+
+        return (root, query, cb) -> {
+            Subquery<UUID> prenotazioniTenant = query.subquery(UUID.class);
+            Root<Prenotazione> prenotazione = prenotazioniTenant.from(Prenotazione.class);
+            prenotazioniTenant.select(prenotazione.get("id"))
+                    .where(cb.equal(prenotazione.get("tenantId"), tenantId));
+
+            List<Predicate> predicati = new ArrayList<>();
+            predicati.add(root.get("prenotazioneId").in(prenotazioniTenant));
+            if (stato != null) {
+                predicati.add(cb.equal(root.get("stato"), stato));
+            }
+            if (metodo != null) {
+                predicati.add(cb.equal(root.get("metodoPagamento"), metodo));
+            }
+            return cb.and(predicati.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -0,0 +1,251 @@
+package com.beachbooking.service;
+
+import com.beachbooking.event.OmbrelloneModificatoEvent;
+import com.beachbooking.event.PrenotazioneStatoEvent;
+import com.beachbooking.model.entity.TenantStats;
+import com.beachbooking.model.enums.StatoPrenotazione;
+import com.beachbooking.model.enums.StatoTenant;
+import com.beachbooking.repository.TenantRepository;
+import com.beachbooking.repository.TenantStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service per le statistiche di piattaforma (dashboard SUPER_ADMIN).
+ *
+ * Le letture usano la tabella tenant_stats. I cambi di stato delle prenotazioni
+ * (pagamenti e rimborsi passano da PrenotazioneService) vengono accumulati in memoria
+ * dopo il commit e scaricati periodicamente, una breve transazione per tenant: le
+ * transazioni di prenotazione non toccano mai la riga del tenant, quindi non si
+ * serializzano su di essa. Le modifiche agli ombrelloni segnano il tenant da ricalcolare.
+ *
+ * Il riallineamento periodico blocca le righe prima di ricalcolarle (nessun incremento
+ * concorrente viene sovrascritto), scarta i delta locali in attesa e corregge il numero
+ * di utenti e l'eventuale deriva. Non è esatto: i delta che le altre istanze non hanno
+ * ancora scaricato, e quelli locali dei commit arrivati tra lo scarto e il ricalcolo,
+ * sono già nel ricalcolo e vengono poi scaricati di nuovo. Il doppio conteggio è limitato
+ * a circa un intervallo di flush di cambi di stato e sparisce al riallineamento successivo.
+ */
+@Service
+public class PlatformStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlatformStatsService.class);
+
+    @Autowired
+    private TenantStatsRepository tenantStatsRepository;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<UUID, Accumulo> pendenti = new ConcurrentHashMap<>();
+
+    private final Set<UUID> ombrelloniModificati = ConcurrentHashMap.newKeySet();
+
+    // Flush e riallineamento non si sovrappongono
+    private final Object scarico = new Object();
+
+    /**
+     * Totali di piattaforma (ombrelloni, prenotazioni, revenue).
+     */
+    public TenantStatsRepository.Totali getTotali() {
+        return tenantStatsRepository.getTotali();
+    }
+
+    /**
+     * Numero di tenant per stato. Gli stati senza tenant valgono 0.
+     */
+    public Map<StatoTenant, Long> countTenantPerStato() {
+        Map<StatoTenant, Long> result = new EnumMap<>(StatoTenant.class);
+        for (StatoTenant stato : StatoTenant.values()) {
+            result.put(stato, 0L);
+        }
+        for (Object[] riga : tenantRepository.countGroupByStato()) {
+            result.put((StatoTenant) riga[0], (Long) riga[1]);
+        }
+        return result;
+    }
+
+    /**
+     * Statistiche di tutti i tenant, indicizzate per tenant.
+     */
+    public Map<UUID, TenantStats> findAllByTenant() {
+        Map<UUID, TenantStats> result = new HashMap<>();
+        for (TenantStats stats : tenantStatsRepository.findAll()) {
+            result.put(stats.getTenantId(), stats);
+        }
+        return result;
+    }
+
+    /**
+     * Statistiche di un tenant (valori a zero se non ancora calcolate).
+     */
+    public TenantStats findByTenant(UUID tenantId) {
+        return tenantStatsRepository.findById(tenantId)
+                .orElseGet(() -> TenantStats.vuote(tenantId));
+    }
+
+    /**
+     * I 10 tenant con revenue più alta.
+     */
+    public List<TenantStats> findTopRevenue() {
+        return tenantStatsRepository.findTop10ByOrderByRevenueDesc();
+    }
+
+    /**
+     * Accumula i delta di prenotazioni e revenue dopo il commit del cambio di stato.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPrenotazioneStato(PrenotazioneStatoEvent event) {
+        long deltaPrenotazioni = event.getStatoPrecedente() == null ? 1 : 0;
+
+        long deltaCentesimi = 0;
+        if (event.getPrezzoTotale() != null) {
+            int delta = contaNellaRevenue(event.getStatoNuovo()) - contaNellaRevenue(event.getStatoPrecedente());
+            deltaCentesimi = centesimi(event.getPrezzoTotale()) * delta;
+        }
+
+        if (deltaPrenotazioni == 0 && deltaCentesimi == 0) {
+            return;
+        }
+
+        Accumulo accumulo = pendenti.computeIfAbsent(event.getTenantId(), id -> new Accumulo());
+        accumulo.prenotazioni.add(deltaPrenotazioni);
+        accumulo.centesimi.add(deltaCentesimi);
+    }
+
+    /**
+     * Segna il numero di ombrelloni del tenant da ricalcolare al prossimo flush.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOmbrelloneModificato(OmbrelloneModificatoEvent event) {
+        ombrelloniModificati.add(event.getTenantId());
+    }
+
+    /**
+     * Scarica i delta accumulati su tenant_stats, una transazione per tenant.
+     */
+    @Scheduled(initialDelayString = "${app.stats.flush-ms:5000}",
+            fixedDelayString = "${app.stats.flush-ms:5000}")
+    public void scarica() {
+        synchronized (scarico) {
+            pendenti.forEach((tenantId, accumulo) -> {
+                long prenotazioni = preleva(accumulo.prenotazioni);
+                long centesimi = preleva(accumulo.centesimi);
+                if (prenotazioni == 0 && centesimi == 0) {
+                    return;
+                }
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        BigDecimal revenue = BigDecimal.valueOf(centesimi, 2);
+                        if (tenantStatsRepository.incrementa(tenantId, prenotazioni, revenue) == 0) {
+                            // Primo evento del tenant: la riga viene creata dai dati già committati
+                            tenantStatsRepository.ricalcola(tenantId);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    // Riprova al flush successivo
+                    accumulo.prenotazioni.add(prenotazioni);
+                    accumulo.centesimi.add(centesimi);
+                    log.warn("Flush statistiche del tenant {} fallito: {}", tenantId, e.getMessage());
+                }
+            });
+
+            for (UUID tenantId : ombrelloniModificati) {
+                ombrelloniModificati.remove(tenantId);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        if (tenantStatsRepository.ricalcolaOmbrelloni(tenantId) == 0) {
+                            tenantStatsRepository.ricalcola(tenantId);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    ombrelloniModificati.add(tenantId);
+                    log.warn("Ricalcolo ombrelloni del tenant {} fallito: {}", tenantId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Riallinea periodicamente tutte le statistiche con le tabelle sorgente.
+     */
+    @Scheduled(initialDelayString = "${app.stats.riallineamento-iniziale-ms:10000}",
+            fixedDelayString = "${app.stats.riallineamento-ms:600000}")
+    public void riallinea() {
+        synchronized (scarico) {
+            long start = System.currentTimeMillis();
+
+            // I delta in attesa sono di prenotazioni già committate: il ricalcolo li include.
+            // Quelli accumulati da qui al ricalcolo vengono invece contati due volte (vedi doc della classe)
+            Map<UUID, long[]> scartati = new HashMap<>();
+            pendenti.forEach((tenantId, accumulo) -> scartati.put(tenantId, new long[]{
+                    preleva(accumulo.prenotazioni), preleva(accumulo.centesimi)
+            }));
+            ombrelloniModificati.clear();
+
+            try {
+                Integer tenants = transactionTemplate.execute(status -> {
+                    // Attende i flush in corso delle altre istanze: il ricalcolo li vede già committati
+                    tenantStatsRepository.bloccaTutte();
+                    int n = tenantStatsRepository.ricalcolaTutti();
+                    tenantStatsRepository.eliminaOrfane();
+                    return n;
+                });
+                log.debug("Statistiche di piattaforma riallineate: {} tenant in {} ms",
+                        tenants, System.currentTimeMillis() - start);
+            } catch (RuntimeException e) {
+                scartati.forEach((tenantId, delta) -> {
+                    Accumulo accumulo = pendenti.computeIfAbsent(tenantId, id -> new Accumulo());
+                    accumulo.prenotazioni.add(delta[0]);
+                    accumulo.centesimi.add(delta[1]);
+                });
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Legge il valore e lo sottrae, senza perdere gli incrementi concorrenti.
+     */
+    private static long preleva(LongAdder adder) {
+        long valore = adder.sum();
+        adder.add(-valore);
+        return valore;
+    }
+
+    private static long centesimi(BigDecimal importo) {
+        return importo.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private int contaNellaRevenue(StatoPrenotazione stato) {
+        return stato == StatoPrenotazione.PAID || stato == StatoPrenotazione.COMPLETED ? 1 : 0;
+    }
+
+    /**
+     * Delta di un tenant non ancora scaricati (revenue in centesimi).
+     */
+    private static final class Accumulo {
+
+        private final LongAdder prenotazioni = new LongAdder();
+        private final LongAdder centesimi = new LongAdder();
+    }
+}
@@ -1,22 +1,61 @@
 package com.beachbooking.service;
 
+import com.beachbooking.availability.OccupancyEngine;
+import com.beachbooking.availability.OmbrelloneIntervalIndex;
+import com.beachbooking.availability.OmbrelloneLocks;
+import com.beachbooking.codice.CodicePrenotazioneGenerator;
+import com.beachbooking.event.PrenotazioneStatoEvent;
+import com.beachbooking.exception.BookingConflictException;
 import com.beachbooking.exception.ResourceNotFoundException;
+import com.beachbooking.live.AvailabilityHub;
+import com.beachbooking.map.OmbrelloneSpatialIndex;
+import com.beachbooking.metrics.AppMetrics;
+import com.beachbooking.model.dto.response.CursorPageResponse;
+import com.beachbooking.model.dto.response.PrenotazioneResponse;
+import com.beachbooking.model.dto.response.QuoteResponse;
 import com.beachbooking.model.entity.Ombrellone;
 import com.beachbooking.model.entity.Prenotazione;
+import com.beachbooking.model.entity.Tenant;
+import com.beachbooking.model.entity.User;
 import com.beachbooking.model.enums.StatoPrenotazione;
 import com.beachbooking.model.enums.TipoPrenotazione;
+import com.beachbooking.pagination.KeysetOrder;
+import com.beachbooking.pagination.KeysetPager;
+import com.beachbooking.pricing.Preventivo;
+import com.beachbooking.pricing.PricingEngine;
 import com.beachbooking.repository.OmbrelloneRepository;
 import com.beachbooking.repository.PrenotazioneRepository;
+import com.beachbooking.repository.TenantRepository;
+import com.beachbooking.repository.UserRepository;
 import com.beachbooking.tenant.TenantContext;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.Predicate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Service per la gestione delle prenotazioni.
@@ -30,8 +69,50 @@ public class PrenotazioneService {
     @Autowired
     private OmbrelloneRepository ombrelloneRepository;
 
-    // Prezzo base giornaliero (può essere configurabile per tenant)
-    private static final BigDecimal PREZZO_BASE_GIORNALIERO = new BigDecimal("30.00");
+    @Autowired
+    private OccupancyEngine occupancyEngine;
+
+    @Autowired
+    private OmbrelloneIntervalIndex intervalIndex;
+
+    @Autowired
+    private OmbrelloneLocks ombrelloneLocks;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private CodicePrenotazioneGenerator codiceGenerator;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private OmbrelloneSpatialIndex spatialIndex;
+
+    @Autowired
+    private AvailabilityHub availabilityHub;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private AppMetrics metrics;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final KeysetOrder<Prenotazione> ORDINE_KEYSET =
+            KeysetOrder.of("dataCreazione", Prenotazione::getDataCreazione, Prenotazione::getId);
 
     /**
      * Crea una nuova prenotazione.
@@ -43,7 +124,26 @@ public class PrenotazioneService {
                                LocalDate dataFine,
                                TipoPrenotazione tipo,
                                String note) {
+        Timer.Sample sample = metrics.avvia();
+        String esito = AppMetrics.ERRORE;
+        try {
+            Prenotazione prenotazione = creaPrenotazione(userId, ombrelloneId, dataInizio, dataFine, tipo, note);
+            esito = AppMetrics.OK;
+            return prenotazione;
+        } catch (BookingConflictException e) {
+            esito = AppMetrics.CONFLITTO;
+            throw e;
+        } finally {
+            metrics.creazionePrenotazione(sample, esito);
+        }
+    }
 
+    private Prenotazione creaPrenotazione(UUID userId,
+                                          UUID ombrelloneId,
+                                          LocalDate dataInizio,
+                                          LocalDate dataFine,
+                                          TipoPrenotazione tipo,
+                                          String note) {
         UUID tenantId = TenantContext.getTenantId();
 
         // Verifica che l'ombrellone esista e appartenga al tenant
@@ -54,15 +154,18 @@ public class PrenotazioneService {
             throw new RuntimeException("Ombrellone non disponibile");
         }
 
-        // Verifica disponibilità
-        if (!prenotazioneRepository.isOmbrelloneDisponibile(ombrelloneId, dataInizio, dataFine)) {
-            throw new RuntimeException("Ombrellone non disponibile nelle date selezionate");
+        // Serializza le richieste concorrenti sullo stesso ombrellone fino al commit
+        ombrelloneLocks.lockFinoAFineTransazione(ombrelloneId);
+
+        // Verifica disponibilità (indice intervalli in memoria, caricato dal DB al primo accesso)
+        if (!intervalIndex.isDisponibile(ombrelloneId, dataInizio, dataFine)) {
+            throw new BookingConflictException("Ombrellone non disponibile nelle date selezionate");
         }
 
         // Calcola prezzo
         BigDecimal prezzoTotale = calcolaPrezzo(ombrellone, dataInizio, dataFine, tipo);
 
-        Prenotazione prenotazione = Prenotazione.builder()
+        Prenotazione nuova = Prenotazione.builder()
                 .tenantId(tenantId)
                 .userId(userId)
                 .ombrelloneId(ombrelloneId)
@@ -72,30 +175,141 @@ public class PrenotazioneService {
                 .prezzoTotale(prezzoTotale)
                 .stato(StatoPrenotazione.PENDING)
                 .note(note)
+                .codicePrenotazione(codiceGenerator.genera())
                 .build();
 
-        prenotazione = prenotazioneRepository.save(prenotazione);
-
-        // TODO: Invia email di conferma
-        // emailService.sendBookingConfirmation(prenotazione);
+        Prenotazione prenotazione = salvaVerificandoSovrapposizioni(
+                () -> prenotazioneRepository.saveAndFlush(nuova)
+        );
+        pubblicaCambioStato(prenotazione, null);
 
         return prenotazione;
     }
 
+    /**
+     * Prenota più ombrelloni con le stesse date in un'unica transazione (tutto-o-niente).
+     *
+     * La disponibilità viene verificata con una sola query su tutti gli ombrelloni;
+     * se anche uno solo non è prenotabile viene lanciata una BookingConflictException
+     * con il motivo per ciascun ombrellone in conflitto. Gli insert usano il batching JDBC.
+     */
+    @Transactional
+    public List<Prenotazione> createBatch(UUID userId,
+                                          List<UUID> ombrelloneIds,
+                                          LocalDate dataInizio,
+                                          LocalDate dataFine,
+                                          TipoPrenotazione tipo,
+                                          String note) {
+
+        UUID tenantId = TenantContext.getTenantId();
+
+        Set<UUID> ids = new LinkedHashSet<>(ombrelloneIds);
+        if (ids.size() != ombrelloneIds.size()) {
+            throw new IllegalArgumentException("Lo stesso ombrellone compare più volte nella richiesta");
+        }
+
+        ombrelloneLocks.lockFinoAFineTransazione(ids);
+
+        Map<UUID, Ombrellone> ombrelloni = ombrelloneRepository.findByTenantIdAndIdIn(tenantId, ids)
+                .stream()
+                .collect(Collectors.toMap(Ombrellone::getId, Function.identity()));
+
+        Map<UUID, String> conflitti = new LinkedHashMap<>();
+        for (UUID id : ids) {
+            Ombrellone ombrellone = ombrelloni.get(id);
+            if (ombrellone == null) {
+                conflitti.put(id, "Ombrellone non trovato");
+            } else if (!ombrellone.getAttivo()) {
+                conflitti.put(id, "Ombrellone non disponibile");
+            }
+        }
+
+        List<Prenotazione> sovrapposte =
+                prenotazioneRepository.findSovrappostePerOmbrelloni(tenantId, ids, dataInizio, dataFine);
+        for (Prenotazione esistente : sovrapposte) {
+            conflitti.putIfAbsent(
+                    esistente.getOmbrelloneId(),
+                    "Già prenotato dal " + esistente.getDataInizio() + " al " + esistente.getDataFine()
+            );
+        }
+
+        if (!conflitti.isEmpty()) {
+            metrics.conflitto();
+            throw new BookingConflictException(
+                    conflitti.size() + " ombrelloni su " + ids.size() + " non disponibili nelle date selezionate",
+                    conflitti
+            );
+        }
+
+        List<Prenotazione> prenotazioni = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            prenotazioni.add(Prenotazione.builder()
+                    .tenantId(tenantId)
+                    .userId(userId)
+                    .ombrelloneId(id)
+                    .dataInizio(dataInizio)
+                    .dataFine(dataFine)
+                    .tipoPrenotazione(tipo)
+                    .prezzoTotale(calcolaPrezzo(ombrelloni.get(id), dataInizio, dataFine, tipo))
+                    .stato(StatoPrenotazione.PENDING)
+                    .note(note)
+                    .codicePrenotazione(codiceGenerator.genera())
+                    .build());
+        }
+
+        List<Prenotazione> salvate = salvaVerificandoSovrapposizioni(
+                () -> prenotazioneRepository.saveAllAndFlush(prenotazioni)
+        );
+        salvate.forEach(p -> pubblicaCambioStato(p, null));
+
+        return salvate;
+    }
+
     /**
      * Trova tutte le prenotazioni del tenant corrente.
+     * Le liste sono lette come DTO in transazioni readOnly (flush MANUAL, sessione in
+     * sola lettura): nessuna entity nel persistence context.
      */
-    public List<Prenotazione> findAll() {
+    @Transactional(readOnly = true)
+    public List<PrenotazioneResponse> findAll() {
         UUID tenantId = TenantContext.getTenantId();
-        return prenotazioneRepository.findByTenantId(tenantId);
+        return prenotazioneRepository.findResponseByTenantId(tenantId);
+    }
+
+    /**
+     * Pagina di prenotazioni del tenant corrente ordinate per (dataCreazione, id).
+     * Con userId valorizzato restituisce solo quelle dell'utente.
+     */
+    public CursorPageResponse<Prenotazione> findPage(UUID userId,
+                                                     StatoPrenotazione stato,
+                                                     LocalDate dataInizio,
+                                                     LocalDate dataFine,
+                                                     String after,
+                                                     Integer limit) {
+        return keysetPager.page(prenotazioneRepository, ORDINE_KEYSET,
+                filtro(userId, stato, dataInizio, dataFine), after, limit);
+    }
+
+    /**
+     * Scorre tutte le prenotazioni del tenant corrente (stessi filtri di findPage)
+     * senza caricarle in memoria.
+     */
+    public void forEach(UUID userId,
+                        StatoPrenotazione stato,
+                        LocalDate dataInizio,
+                        LocalDate dataFine,
+                        Consumer<Prenotazione> consumer) {
+        keysetPager.forEach(prenotazioneRepository, ORDINE_KEYSET,
+                filtro(userId, stato, dataInizio, dataFine), consumer);
     }
 
     /**
      * Trova prenotazioni per utente.
      */
-    public List<Prenotazione> findByUserId(UUID userId) {
+    @Transactional(readOnly = true)
+    public List<PrenotazioneResponse> findByUserId(UUID userId) {
         UUID tenantId = TenantContext.getTenantId();
-        return prenotazioneRepository.findByUserIdAndTenantId(userId, tenantId);
+        return prenotazioneRepository.findResponseByUserIdAndTenantId(userId, tenantId);
     }
 
     /**
@@ -115,35 +329,46 @@ public class PrenotazioneService {
     }
 
     /**
-     * Trova prenotazione per codice.
+     * Trova prenotazione per codice, nel tenant corrente se presente.
+     * Accetta il codice anche in minuscolo o con trattini; i codici nel formato
+     * precedente ("BK...") sono cercati così come sono.
      */
     public Prenotazione findByCodice(String codice) {
-        return prenotazioneRepository.findByCodicePrenotazione(codice)
+        String normalizzato = CodicePrenotazioneGenerator.normalizza(codice);
+        String chiave = normalizzato != null ? normalizzato : codice;
+
+        UUID tenantId = TenantContext.getTenantId();
+        return (tenantId != null
+                ? prenotazioneRepository.findByCodicePrenotazioneAndTenantId(chiave, tenantId)
+                : prenotazioneRepository.findByCodicePrenotazione(chiave))
                 .orElseThrow(() -> new ResourceNotFoundException("Prenotazione non trovata"));
     }
 
     /**
      * Trova prenotazioni per stato.
      */
-    public List<Prenotazione> findByStato(StatoPrenotazione stato) {
+    @Transactional(readOnly = true)
+    public List<PrenotazioneResponse> findByStato(StatoPrenotazione stato) {
         UUID tenantId = TenantContext.getTenantId();
-        return prenotazioneRepository.findByTenantIdAndStato(tenantId, stato);
+        return prenotazioneRepository.findResponseByTenantIdAndStato(tenantId, stato);
     }
 
     /**
      * Trova prenotazioni in un range di date.
      */
-    public List<Prenotazione> findByDateRange(LocalDate dataInizio, LocalDate dataFine) {
+    @Transactional(readOnly = true)
+    public List<PrenotazioneResponse> findByDateRange(LocalDate dataInizio, LocalDate dataFine) {
         UUID tenantId = TenantContext.getTenantId();
-        return prenotazioneRepository.findByTenantIdAndDateRange(tenantId, dataInizio, dataFine);
+        return prenotazioneRepository.findResponseByTenantIdAndDateRange(tenantId, dataInizio, dataFine);
     }
 
     /**
      * Trova prenotazioni attive (in corso oggi).
      */
-    public List<Prenotazione> findPrenotazioniAttive() {
+    @Transactional(readOnly = true)
+    public List<PrenotazioneResponse> findPrenotazioniAttive() {
         UUID tenantId = TenantContext.getTenantId();
-        return prenotazioneRepository.findPrenotazioniAttive(tenantId);
+        return prenotazioneRepository.findResponsePrenotazioniAttive(tenantId);
     }
 
     /**
@@ -151,7 +376,117 @@ public class PrenotazioneService {
      */
     public List<Ombrellone> findOmbrelloniDisponibili(LocalDate dataInizio, LocalDate dataFine) {
         UUID tenantId = TenantContext.getTenantId();
-        return prenotazioneRepository.findOmbrelloniDisponibili(tenantId, dataInizio, dataFine);
+
+        // Risposta dalla bitmap in memoria; query su DB solo se il motore non è pronto
+        Timer.Sample sample = metrics.avvia();
+        Optional<List<Ombrellone>> inMemoria = occupancyEngine.findDisponibili(tenantId, dataInizio, dataFine);
+        if (inMemoria.isPresent()) {
+            metrics.ricercaDisponibilita(sample, "memoria");
+            return inMemoria.get();
+        }
+        List<Ombrellone> disponibili = prenotazioneRepository.findOmbrelloniDisponibili(tenantId, dataInizio, dataFine);
+        metrics.ricercaDisponibilita(sample, "db");
+        return disponibili;
+    }
+
+    /**
+     * Visita ogni ombrellone attivo del tenant indicando se è libero nel periodo.
+     * Un passaggio sulla bitmap in memoria; se il motore non è pronto, una query
+     * per gli ombrelloni attivi e una per quelli disponibili.
+     */
+    public void visitaDisponibilita(UUID tenantId,
+                                    LocalDate dataInizio,
+                                    LocalDate dataFine,
+                                    BiConsumer<Ombrellone, Boolean> visitatore) {
+        Timer.Sample sample = metrics.avvia();
+        if (occupancyEngine.visitaAttivi(tenantId, dataInizio, dataFine, visitatore)) {
+            metrics.ricercaDisponibilita(sample, "memoria");
+            return;
+        }
+
+        Set<UUID> disponibili = prenotazioneRepository
+                .findOmbrelloniDisponibili(tenantId, dataInizio, dataFine).stream()
+                .map(Ombrellone::getId)
+                .collect(Collectors.toSet());
+        for (Ombrellone ombrellone : ombrelloneRepository.findByTenantIdAndAttivoTrue(tenantId)) {
+            visitatore.accept(ombrellone, disponibili.contains(ombrellone.getId()));
+        }
+        metrics.ricercaDisponibilita(sample, "db");
+    }
+
+    /**
+     * I k ombrelloni liberi nel periodo più vicini al punto (es: mare, bar), dal più vicino.
+     */
+    public List<Ombrellone> findViciniDisponibili(int x,
+                                                 int y,
+                                                 LocalDate dataInizio,
+                                                 LocalDate dataFine,
+                                                 int k) {
+        if (k < 1 || k > 50) {
+            throw new IllegalArgumentException("k deve essere tra 1 e 50");
+        }
+
+        Set<UUID> liberi = findOmbrelloniDisponibili(dataInizio, dataFine).stream()
+                .map(Ombrellone::getId)
+                .collect(Collectors.toSet());
+
+        return spatialIndex.findPiuVicini(TenantContext.getTenantId(), x, y, k,
+                ombrellone -> liberi.contains(ombrellone.getId()));
+    }
+
+    /**
+     * Apre lo stream SSE delle variazioni di disponibilità del tenant nel periodo.
+     * ultimoSeq (Last-Event-ID) permette di riprendere da dove il client si era fermato.
+     */
+    public SseEmitter apriStreamDisponibilita(LocalDate dataInizio, LocalDate dataFine, Long ultimoSeq) {
+        if (dataInizio.isAfter(dataFine)) {
+            throw new IllegalArgumentException("Data inizio deve essere prima di data fine");
+        }
+        if (dataFine.toEpochDay() - dataInizio.toEpochDay() >= 31) {
+            throw new IllegalArgumentException("Il periodo non può superare 31 giorni");
+        }
+
+        return availabilityHub.iscrivi(TenantContext.getTenantId(), dataInizio, dataFine, ultimoSeq);
+    }
+
+    /**
+     * Disponibilità e prezzo di tutti gli ombrelloni attivi del tenant nel periodo:
+     * un passaggio di disponibilità (visitaDisponibilita) e uno di pricing.
+     */
+    @Transactional(readOnly = true)
+    public QuoteResponse quote(LocalDate dataInizio, LocalDate dataFine, TipoPrenotazione tipo) {
+        if (dataFine.toEpochDay() - dataInizio.toEpochDay() >= 366) {
+            throw new IllegalArgumentException("Il periodo non può superare un anno");
+        }
+
+        UUID tenantId = TenantContext.getTenantId();
+        TipoPrenotazione tipoEffettivo = tipo != null ? tipo : TipoPrenotazione.GIORNALIERA;
+        Preventivo preventivo = pricingEngine.preventivo(tenantId, dataInizio, dataFine, tipoEffettivo);
+
+        List<QuoteResponse.Item> items = new ArrayList<>();
+        BiConsumer<Ombrellone, Boolean> aggiungi = (ombrellone, libero) -> items.add(new QuoteResponse.Item(
+                ombrellone.getId(),
+                ombrellone.getNumero(),
+                ombrellone.getFila(),
+                ombrellone.getTipo().name(),
+                ombrellone.getPosizioneX(),
+                ombrellone.getPosizioneY(),
+                libero,
+                BigDecimal.valueOf(preventivo.prezzoCentesimi(ombrellone), 2)
+        ));
+
+        visitaDisponibilita(tenantId, dataInizio, dataFine, aggiungi);
+
+        items.sort(Comparator.comparing(QuoteResponse.Item::getFila, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(QuoteResponse.Item::getNumero, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        return QuoteResponse.builder()
+                .dataInizio(dataInizio)
+                .dataFine(dataFine)
+                .tipoPrenotazione(tipoEffettivo.name())
+                .numeroGiorni((int) (dataFine.toEpochDay() - dataInizio.toEpochDay()) + 1)
+                .ombrelloni(items)
+                .build();
     }
 
     /**
@@ -165,8 +500,15 @@ public class PrenotazioneService {
             throw new RuntimeException("Solo prenotazioni in attesa possono essere confermate");
         }
 
-        prenotazione.setStato(StatoPrenotazione.CONFIRMED);
-        return prenotazioneRepository.save(prenotazione);
+        prenotazione = cambiaStato(prenotazione, StatoPrenotazione.CONFIRMED, prenotazione.getNote());
+
+        // Accodata nella outbox: parte solo se la conferma va a buon fine
+        User cliente = userRepository.findById(prenotazione.getUserId()).orElse(null);
+        Tenant tenant = tenantRepository.findById(prenotazione.getTenantId()).orElse(null);
+        if (cliente != null && tenant != null) {
+            emailService.sendBookingConfirmation(prenotazione, cliente, tenant);
+        }
+        return prenotazione;
     }
 
     /**
@@ -175,8 +517,7 @@ public class PrenotazioneService {
     @Transactional
     public Prenotazione markAsPaid(UUID id) {
         Prenotazione prenotazione = findById(id);
-        prenotazione.setStato(StatoPrenotazione.PAID);
-        return prenotazioneRepository.save(prenotazione);
+        return cambiaStato(prenotazione, StatoPrenotazione.PAID, prenotazione.getNote());
     }
 
     /**
@@ -190,13 +531,9 @@ public class PrenotazioneService {
             throw new RuntimeException("Impossibile cancellare una prenotazione completata");
         }
 
-        prenotazione.setStato(StatoPrenotazione.CANCELLED);
-        prenotazione.setNote(
-                (prenotazione.getNote() != null ? prenotazione.getNote() + "\n" : "") +
-                        "Cancellata: " + motivo
-        );
-
-        return prenotazioneRepository.save(prenotazione);
+        String note = (prenotazione.getNote() != null ? prenotazione.getNote() + "\n" : "") +
+                "Cancellata: " + motivo;
+        return cambiaStato(prenotazione, StatoPrenotazione.CANCELLED, note);
     }
 
     /**
@@ -210,42 +547,73 @@ public class PrenotazioneService {
             throw new RuntimeException("Solo prenotazioni pagate possono essere completate");
         }
 
-        prenotazione.setStato(StatoPrenotazione.COMPLETED);
-        return prenotazioneRepository.save(prenotazione);
+        return cambiaStato(prenotazione, StatoPrenotazione.COMPLETED, prenotazione.getNote());
+    }
+
+    /**
+     * Cambio di stato condizionato allo stato letto: se nel frattempo un'altra transazione
+     * (es. il job di scadenza delle PENDING, che non passa dai lock ombrellone) lo ha
+     * modificato, non viene sovrascritto e la richiesta fallisce con un conflitto.
+     */
+    private Prenotazione cambiaStato(Prenotazione prenotazione, StatoPrenotazione nuovo, String note) {
+        StatoPrenotazione atteso = prenotazione.getStato();
+        if (prenotazioneRepository.cambiaStato(prenotazione.getId(), atteso, nuovo, note) == 0) {
+            throw new BookingConflictException("La prenotazione è stata modificata nel frattempo, ricaricala e riprova");
+        }
+        // Allinea l'entity alla riga aggiornata, senza un secondo UPDATE al flush
+        entityManager.refresh(prenotazione);
+        pubblicaCambioStato(prenotazione, atteso);
+        return prenotazione;
+    }
+
+    /**
+     * Salva con flush immediato: se un altro nodo ha prenotato lo stesso ombrellone
+     * nel frattempo, il vincolo EXCLUDE su prenotazioni fallisce qui (SQLSTATE 23P01).
+     */
+    private <T> T salvaVerificandoSovrapposizioni(Supplier<T> salvataggio) {
+        try {
+            return salvataggio.get();
+        } catch (DataIntegrityViolationException e) {
+            if (isExclusionViolation(e)) {
+                throw new BookingConflictException("Ombrellone non disponibile nelle date selezionate");
+            }
+            throw e;
+        }
+    }
+
+    private boolean isExclusionViolation(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof java.sql.SQLException sql && "23P01".equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Pubblica l'evento di cambio stato (gestito dai listener dopo il commit).
+     */
+    private void pubblicaCambioStato(Prenotazione prenotazione, StatoPrenotazione statoPrecedente) {
+        eventPublisher.publishEvent(new PrenotazioneStatoEvent(
+                prenotazione.getTenantId(),
+                prenotazione.getId(),
+                prenotazione.getOmbrelloneId(),
+                prenotazione.getDataInizio(),
+                prenotazione.getDataFine(),
+                statoPrecedente,
+                prenotazione.getStato(),
+                prenotazione.getPrezzoTotale()
+        ));
     }
 
     /**
-     * Calcola il prezzo di una prenotazione.
+     * Calcola il prezzo di una prenotazione con il listino del tenant.
      */
     private BigDecimal calcolaPrezzo(Ombrellone ombrellone,
                                      LocalDate dataInizio,
                                      LocalDate dataFine,
                                      TipoPrenotazione tipo) {
-
-        long numeroGiorni = ChronoUnit.DAYS.between(dataInizio, dataFine) + 1;
-
-        // Prezzo base
-        BigDecimal prezzo = PREZZO_BASE_GIORNALIERO.multiply(BigDecimal.valueOf(numeroGiorni));
-
-        // Applica moltiplicatore tipo ombrellone
-        prezzo = prezzo.multiply(BigDecimal.valueOf(ombrellone.getTipo().getMoltiplicatorePrezzo()));
-
-        // Applica sconti per prenotazioni lunghe
-        switch (tipo) {
-            case SETTIMANALE:
-                prezzo = prezzo.multiply(new BigDecimal("0.90")); // 10% sconto
-                break;
-            case MENSILE:
-                prezzo = prezzo.multiply(new BigDecimal("0.80")); // 20% sconto
-                break;
-            case ANNUALE:
-                prezzo = prezzo.multiply(new BigDecimal("0.60")); // 40% sconto
-                break;
-            default:
-                break;
-        }
-
-        return prezzo.setScale(2, java.math.RoundingMode.HALF_UP);
+        return pricingEngine.prezzo(ombrellone.getTenantId(), ombrellone, dataInizio, dataFine, tipo);
     }
 
     /**
@@ -263,4 +631,30 @@ public class PrenotazioneService {
         UUID tenantId = TenantContext.getTenantId();
         return prenotazioneRepository.getTotalRevenue(tenantId);
     }
-}
\ No newline at end of file
+
+    /**
+     * Filtri delle liste paginate: tenant sempre, gli altri solo se valorizzati.
+     */
+    private Specification<Prenotazione> filtro(UUID userId,
+                                               StatoPrenotazione stato,
+                                               LocalDate dataInizio,
+                                               LocalDate dataFine) {
+        UUID tenantId = TenantContext.getTenantId();
+
+        return (root, query, cb) -> {
+            List<Predicate> predicati = new ArrayList<>();
+            predicati.add(cb.equal(root.get("tenantId"), tenantId));
+            if (userId != null) {
+                predicati.add(cb.equal(root.get("userId"), userId));
+            }
+            if (stato != null) {
+                predicati.add(cb.equal(root.get("stato"), stato));
+            }
+            if (dataInizio != null && dataFine != null) {
+                predicati.add(cb.lessThanOrEqualTo(root.get("dataInizio"), dataFine));
+                predicati.add(cb.greaterThanOrEqualTo(root.get("dataFine"), dataInizio));
+            }
+            return cb.and(predicati.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -1,14 +1,19 @@
 package com.beachbooking.service;
 
+import com.beachbooking.event.TenantModificatoEvent;
 import com.beachbooking.exception.ResourceNotFoundException;
+import com.beachbooking.model.dto.response.CursorPageResponse;
 import com.beachbooking.model.entity.Tenant;
 import com.beachbooking.model.entity.User;
 import com.beachbooking.model.enums.PianoAbbonamento;
 import com.beachbooking.model.enums.RuoloUtente;
 import com.beachbooking.model.enums.StatoTenant;
+import com.beachbooking.pagination.KeysetOrder;
+import com.beachbooking.pagination.KeysetPager;
 import com.beachbooking.repository.TenantRepository;
 import com.beachbooking.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,6 +21,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Service per la gestione dei tenant (stabilimenti balneari).
@@ -32,6 +38,15 @@ public class TenantService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private static final KeysetOrder<Tenant> ORDINE_KEYSET =
+            KeysetOrder.of("dataCreazione", Tenant::getDataCreazione, Tenant::getId);
+
     /**
      * Registra un nuovo tenant con un utente admin.
      * Questa è l'operazione di onboarding iniziale.
@@ -75,6 +90,7 @@ public class TenantService {
                 .build();
 
         tenant = tenantRepository.save(tenant);
+        eventPublisher.publishEvent(new TenantModificatoEvent(tenant.getId()));
 
         // Crea l'utente admin del tenant
         User admin = User.builder()
@@ -144,7 +160,7 @@ public class TenantService {
             tenant.setConfigurazione(updatedData.getConfigurazione());
         }
 
-        return tenantRepository.save(tenant);
+        return salva(tenant);
     }
 
     /**
@@ -163,7 +179,7 @@ public class TenantService {
         tenant.setStato(StatoTenant.ACTIVE);
         tenant.setDataScadenzaAbbonamento(LocalDateTime.now().plusMonths(1));
 
-        return tenantRepository.save(tenant);
+        return salva(tenant);
     }
 
     /**
@@ -173,7 +189,7 @@ public class TenantService {
     public void suspendTenant(UUID tenantId) {
         Tenant tenant = findById(tenantId);
         tenant.setStato(StatoTenant.SUSPENDED);
-        tenantRepository.save(tenant);
+        salva(tenant);
     }
 
     /**
@@ -183,7 +199,7 @@ public class TenantService {
     public void activateTenant(UUID tenantId) {
         Tenant tenant = findById(tenantId);
         tenant.setStato(StatoTenant.ACTIVE);
-        tenantRepository.save(tenant);
+        salva(tenant);
     }
 
     /**
@@ -193,20 +209,20 @@ public class TenantService {
         return tenantRepository.findTenantScaduti();
     }
 
+    /**
+     * Salva il tenant e notifica la modifica (es: TenantRegistry).
+     */
+    private Tenant salva(Tenant tenant) {
+        Tenant salvato = tenantRepository.save(tenant);
+        eventPublisher.publishEvent(new TenantModificatoEvent(salvato.getId()));
+        return salvato;
+    }
+
     /**
      * Genera uno slug unico dal nome stabilimento.
      */
     private String generateSlug(String nome) {
-        String slug = nome.toLowerCase()
-                .replaceAll("[àáâãäå]", "a")
-                .replaceAll("[èéêë]", "e")
-                .replaceAll("[ìíîï]", "i")
-                .replaceAll("[òóôõö]", "o")
-                .replaceAll("[ùúûü]", "u")
-                .replaceAll("[^a-z0-9\\s-]", "")
-                .replaceAll("\\s+", "-")
-                .replaceAll("-+", "-")
-                .trim();
+        String slug = normalizzaSlug(nome);
 
         // Aggiungi un numero se lo slug esiste già
         String finalSlug = slug;
@@ -218,10 +234,40 @@ public class TenantService {
         return finalSlug;
     }
 
+    /**
+     * Parte di generateSlug senza il controllo di unicità (package-private per TenantSlugBenchmark).
+     */
+    static String normalizzaSlug(String nome) {
+        return nome.toLowerCase()
+                .replaceAll("[àáâãäå]", "a")
+                .replaceAll("[èéêë]", "e")
+                .replaceAll("[ìíîï]", "i")
+                .replaceAll("[òóôõö]", "o")
+                .replaceAll("[ùúûü]", "u")
+                .replaceAll("[^a-z0-9\\s-]", "")
+                .replaceAll("\\s+", "-")
+                .replaceAll("-+", "-")
+                .trim();
+    }
+
     /**
      * Ottieni tutti i tenant (admin).
      */
     public List<Tenant> findAll() {
         return tenantRepository.findAll();
     }
+
+    /**
+     * Pagina di tenant ordinati per (dataCreazione, id).
+     */
+    public CursorPageResponse<Tenant> findPage(String after, Integer limit) {
+        return keysetPager.page(tenantRepository, ORDINE_KEYSET, null, after, limit);
+    }
+
+    /**
+     * Scorre tutti i tenant senza caricarli in memoria.
+     */
+    public void forEach(Consumer<Tenant> consumer) {
+        keysetPager.forEach(tenantRepository, ORDINE_KEYSET, null, consumer);
+    }
 }
\ No newline at end of file
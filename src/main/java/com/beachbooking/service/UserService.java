@@ -21,6 +21,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final AuthService authService;
 
     public User getUserByEmail(String email) {
         return userRepository.findByEmail(email)
@@ -57,7 +58,8 @@ public class UserService {
         }
 
         user.setPassword(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
+        // I token emessi con la vecchia password non sono più validi
+        authService.revocaToken(user);
     }
 
     @Transactional
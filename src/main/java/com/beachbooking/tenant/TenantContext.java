@@ -2,7 +2,15 @@
 package com.beachbooking.tenant;
 
 import java.util.UUID;
+import java.util.function.Supplier;
 
+/**
+ * Tenant della richiesta corrente, legato al thread.
+ *
+ * Il valore non passa da solo ad altri thread: per @Async e l'executor applicativo
+ * ci pensa TenantTaskDecorator; il lavoro fatto a nome di un tenant fuori da una
+ * richiesta passa da runAs/callAs, che ripristinano il valore precedente.
+ */
 public final class TenantContext {
     private static final ThreadLocal<UUID> CURRENT_TENANT = new ThreadLocal<>();
 
@@ -19,4 +27,46 @@ public final class TenantContext {
     public static void clear() {
         CURRENT_TENANT.remove();
     }
-}
\ No newline at end of file
+
+    /**
+     * Esegue il task con il tenant indicato e ripristina poi il valore precedente.
+     */
+    public static void runAs(UUID tenantId, Runnable task) {
+        UUID precedente = CURRENT_TENANT.get();
+        imposta(tenantId);
+        try {
+            task.run();
+        } finally {
+            imposta(precedente);
+        }
+    }
+
+    /**
+     * Come runAs, restituendo il risultato del task.
+     */
+    public static <T> T callAs(UUID tenantId, Supplier<T> task) {
+        UUID precedente = CURRENT_TENANT.get();
+        imposta(tenantId);
+        try {
+            return task.get();
+        } finally {
+            imposta(precedente);
+        }
+    }
+
+    /**
+     * Task che gira con il tenant del thread che chiama wrap, su qualunque thread.
+     */
+    public static Runnable wrap(Runnable task) {
+        UUID tenantId = CURRENT_TENANT.get();
+        return () -> runAs(tenantId, task);
+    }
+
+    private static void imposta(UUID tenantId) {
+        if (tenantId != null) {
+            CURRENT_TENANT.set(tenantId);
+        } else {
+            CURRENT_TENANT.remove();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.beachbooking.tenant;
+
+import com.beachbooking.model.entity.Tenant;
+import com.beachbooking.model.enums.PianoAbbonamento;
+import com.beachbooking.model.enums.StatoTenant;
+
+import java.util.UUID;
+
+/**
+ * Dati del tenant necessari alla risoluzione delle richieste: identità, stato e piano.
+ * Immutabile, condivisa tra i thread tramite TenantRegistry.
+ */
+public final class TenantInfo {
+
+    private final UUID id;
+    private final String slug;
+    private final String dominioCustom;
+    private final StatoTenant stato;
+    private final PianoAbbonamento piano;
+
+    TenantInfo(Tenant tenant) {
+        this.id = tenant.getId();
+        this.slug = tenant.getSlug();
+        this.dominioCustom = TenantRegistry.normalizzaDominio(tenant.getDominioCustom());
+        this.stato = tenant.getStato();
+        this.piano = tenant.getPiano();
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getSlug() {
+        return slug;
+    }
+
+    public String getDominioCustom() {
+        return dominioCustom;
+    }
+
+    public StatoTenant getStato() {
+        return stato;
+    }
+
+    public PianoAbbonamento getPiano() {
+        return piano;
+    }
+
+    public int getMaxOmbrelloni() {
+        return piano.getMaxOmbrelloni();
+    }
+
+    /**
+     * True se il tenant può ricevere richieste (TRIAL o ACTIVE).
+     */
+    public boolean isAttivo() {
+        return stato == StatoTenant.TRIAL || stato == StatoTenant.ACTIVE;
+    }
+}
@@ -1,8 +1,10 @@
 package com.beachbooking.tenant;
 
-import com.beachbooking.model.entity.Tenant;
-import com.beachbooking.repository.TenantRepository;
+import com.beachbooking.metrics.AppMetrics;
+import com.beachbooking.model.enums.RuoloUtente;
 import com.beachbooking.security.JwtTokenProvider;
+import com.beachbooking.security.ParsedJwt;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,71 +18,108 @@ import java.util.UUID;
  * Interceptor che estrae il tenant da ogni richiesta HTTP.
  *
  * Strategie di identificazione tenant (in ordine di priorità):
- * 1. Dal JWT token (claim tenantId)
+ * 1. Dal JWT token (claim tenantId): se presente è vincolante, le altre strategie
+ *    non vengono provate e un tenant del token non trovato viene rifiutato
  * 2. Da header custom X-Tenant-ID
- * 3. Da subdomain (es: lido-napoli.beachbooking.com)
- * 4. Da parametro query ?tenantSlug=lido-napoli
+ * 3. Da dominio custom (es: www.lidomarechiaro.it)
+ * 4. Da subdomain (es: lido-napoli.beachbooking.com)
+ * 5. Da parametro query ?tenantSlug=lido-napoli
+ *
+ * La risoluzione usa TenantRegistry (in memoria). I tenant sospesi o cancellati
+ * vengono rifiutati qui, prima di arrivare ai controller.
  */
 @Component
 public class TenantInterceptor implements HandlerInterceptor {
 
     @Autowired
-    private TenantRepository tenantRepository;
+    private TenantRegistry tenantRegistry;
 
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
+    @Autowired
+    private AppMetrics metrics;
+
     @Override
     public boolean preHandle(HttpServletRequest request,
                              HttpServletResponse response,
                              Object handler) throws Exception {
 
-        // Skip per endpoint pubblici che non richiedono tenant
+        // Skip per endpoint che non riguardano un tenant
         String path = request.getRequestURI();
-        if (isPublicEndpoint(path)) {
+        if (isTenantlessEndpoint(path)) {
             return true;
         }
 
-        UUID tenantId = null;
-
-        // Strategia 1: Estrai da JWT token (priorità massima)
-        String jwt = getJwtFromRequest(request);
-        if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt)) {
-            tenantId = jwtTokenProvider.getTenantIdFromToken(jwt);
+        Timer.Sample sample = metrics.avvia();
+        TenantInfo tenant = null;
+        String strategia = "jwt";
+
+        // Strategia 1: Estrai da JWT token (priorità massima), già verificato dal filtro
+        ParsedJwt jwt = jwtTokenProvider.resolve(request);
+        boolean tenantDalToken = jwt != null && jwt.getTenantId() != null;
+        if (tenantDalToken) {
+            tenant = tenantRegistry.findById(jwt.getTenantId());
+            if (tenant == null) {
+                // Tenant cancellato o sconosciuto: mai ripiegare su header, dominio o slug
+                metrics.risoluzioneTenant(sample, "nessuna");
+                response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                response.setContentType("application/json");
+                response.getWriter().write("{\"error\": \"Tenant del token non trovato\"}");
+                return false;
+            }
         }
 
         // Strategia 2: Da header custom X-Tenant-ID
-        if (tenantId == null) {
+        if (tenant == null) {
+            strategia = "header";
             String tenantHeader = request.getHeader("X-Tenant-ID");
             if (StringUtils.hasText(tenantHeader)) {
                 try {
-                    tenantId = UUID.fromString(tenantHeader);
+                    tenant = tenantRegistry.findById(UUID.fromString(tenantHeader));
                 } catch (IllegalArgumentException e) {
                     // Invalido UUID, ignora
                 }
             }
         }
 
-        // Strategia 3: Da subdomain
-        if (tenantId == null) {
+        // Strategia 3: Da dominio custom
+        if (tenant == null) {
+            strategia = "dominio";
+            tenant = tenantRegistry.findByDominio(request.getServerName());
+        }
+
+        // Strategia 4: Da subdomain
+        if (tenant == null) {
+            strategia = "subdomain";
             String subdomain = extractSubdomain(request);
             if (StringUtils.hasText(subdomain)) {
-                tenantId = findTenantIdBySlug(subdomain);
+                tenant = tenantRegistry.findBySlug(subdomain);
             }
         }
 
-        // Strategia 4: Da query parameter
-        if (tenantId == null) {
+        // Strategia 5: Da query parameter
+        if (tenant == null) {
+            strategia = "parametro";
             String tenantSlug = request.getParameter("tenantSlug");
             if (StringUtils.hasText(tenantSlug)) {
-                tenantId = findTenantIdBySlug(tenantSlug);
+                tenant = tenantRegistry.findBySlug(tenantSlug);
             }
         }
 
+        metrics.risoluzioneTenant(sample, tenant != null ? strategia : "nessuna");
+
+        if (tenant != null && !tenant.isAttivo()) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            response.setContentType("application/json");
+            response.getWriter().write("{\"error\": \"Tenant non attivo\"}");
+            return false;
+        }
+
         // Imposta il tenant nel contesto
-        if (tenantId != null) {
-            TenantContext.setTenantId(tenantId);
-        } else if (!isPublicEndpoint(path)) {
+        if (tenant != null) {
+            TenantContext.setTenantId(tenant.getId());
+        } else if (!isPublicEndpoint(path) && !isSuperAdmin(jwt)) {
             // Se non troviamo il tenant e non è un endpoint pubblico, errore
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             response.getWriter().write("{\"error\": \"Tenant not specified or not found\"}");
@@ -95,21 +134,11 @@ public class TenantInterceptor implements HandlerInterceptor {
                                 HttpServletResponse response,
                                 Object handler,
                                 Exception ex) {
-        // IMPORTANTE: Pulisci il TenantContext per evitare memory leak
+        // La pulizia definitiva è nel finally di JwtAuthenticationFilter,
+        // che copre anche le richieste fermate in preHandle
         TenantContext.clear();
     }
 
-    /**
-     * Estrae il JWT token dall'header Authorization.
-     */
-    private String getJwtFromRequest(HttpServletRequest request) {
-        String bearerToken = request.getHeader("Authorization");
-        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
-            return bearerToken.substring(7);
-        }
-        return null;
-    }
-
     /**
      * Estrae il subdomain dalla richiesta.
      * Es: lido-napoli.beachbooking.com -> "lido-napoli"
@@ -131,23 +160,26 @@ public class TenantInterceptor implements HandlerInterceptor {
     }
 
     /**
-     * Trova il tenant ID dal slug.
+     * Verifica se un endpoint è pubblico e non richiede tenant.
+     * Il tenant, se indicato, viene comunque risolto (es: registrazione cliente).
      */
-    private UUID findTenantIdBySlug(String slug) {
-        return tenantRepository.findBySlug(slug)
-                .map(Tenant::getId)
-                .orElse(null);
+    private boolean isPublicEndpoint(String path) {
+        return path.startsWith("/api/auth/") ||
+                path.startsWith("/api/public/");
     }
 
     /**
-     * Verifica se un endpoint è pubblico e non richiede tenant.
+     * Endpoint di piattaforma che non riguardano alcun tenant.
      */
-    private boolean isPublicEndpoint(String path) {
-        return path.startsWith("/api/auth/") ||
-                path.startsWith("/api/public/") ||
-                path.startsWith("/api/tenants/register") ||
+    private boolean isTenantlessEndpoint(String path) {
+        return path.startsWith("/api/tenants/register") ||
                 path.startsWith("/api/tenants/check-slug") ||
+                path.startsWith("/api/admin/") ||
                 path.equals("/health") ||
                 path.startsWith("/actuator/");
     }
+
+    private boolean isSuperAdmin(ParsedJwt jwt) {
+        return jwt != null && RuoloUtente.SUPER_ADMIN.name().equals(jwt.getRuolo());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package com.beachbooking.tenant;
+
+import com.beachbooking.event.TenantModificatoEvent;
+import com.beachbooking.model.entity.Tenant;
+import com.beachbooking.repository.TenantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Anagrafica in memoria dei tenant: slug → id, dominio custom → id e id → TenantInfo.
+ *
+ * Caricata all'avvio, aggiornata dopo il commit di ogni modifica (TenantModificatoEvent)
+ * e ricaricata per intero a intervalli regolari, così recepisce anche le modifiche
+ * fatte da altre istanze. Le letture non toccano il DB; solo una chiave sconosciuta
+ * (es. tenant appena creato su un'altra istanza) causa una lookup. Le chiavi non
+ * trovate restano in una cache negativa limitata per negative-ttl-ms, così uno slug
+ * inesistente ripetuto non interroga il DB ad ogni richiesta.
+ */
+@Component
+public class TenantRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(TenantRegistry.class);
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Value("${app.tenant-registry.negative-ttl-ms:60000}")
+    private long negativeTtlMs;
+
+    @Value("${app.tenant-registry.negative-max:10000}")
+    private int negativeMax;
+
+    private volatile Indice indice = new Indice();
+
+    // Serializza le scritture sull'indice. ReentrantLock e non synchronized:
+    // le scritture leggono dal DB e con i virtual thread synchronized blocca il carrier.
+    private final ReentrantLock scrittura = new ReentrantLock();
+
+    /**
+     * Tenant per id, null se non esiste.
+     */
+    public TenantInfo findById(UUID id) {
+        if (id == null) {
+            return null;
+        }
+        TenantInfo info = indice.perId.get(id);
+        return info != null ? info : carica(id, () -> tenantRepository.findById(id));
+    }
+
+    /**
+     * Tenant per slug, null se non esiste.
+     */
+    public TenantInfo findBySlug(String slug) {
+        if (!StringUtils.hasText(slug)) {
+            return null;
+        }
+        String chiave = slug.toLowerCase(Locale.ROOT);
+        UUID id = indice.perSlug.get(chiave);
+        return id != null ? findById(id) : carica(chiave, () -> tenantRepository.findBySlug(chiave));
+    }
+
+    /**
+     * Tenant per dominio custom (host della richiesta), null se non esiste.
+     * Il prefisso "www." è ignorato.
+     */
+    public TenantInfo findByDominio(String host) {
+        String dominio = normalizzaDominio(host);
+        if (dominio == null) {
+            return null;
+        }
+        UUID id = indice.perDominio.get(dominio);
+        return id != null ? findById(id) : null;
+    }
+
+    /**
+     * Aggiorna un singolo tenant dopo il commit della modifica.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTenantModificato(TenantModificatoEvent event) {
+        scrittura.lock();
+        try {
+            Indice corrente = indice;
+            corrente.rimuovi(event.getTenantId());
+            tenantRepository.findById(event.getTenantId())
+                    .ifPresent(tenant -> corrente.aggiungi(new TenantInfo(tenant)));
+        } finally {
+            scrittura.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        ricarica();
+    }
+
+    /**
+     * Ricarica completa: rete di sicurezza contro eventi persi e modifiche di altre istanze.
+     */
+    @Scheduled(initialDelayString = "${app.tenant-registry.refresh-ms:300000}",
+            fixedDelayString = "${app.tenant-registry.refresh-ms:300000}")
+    public void ricarica() {
+        Indice nuovo = new Indice();
+        scrittura.lock();
+        try {
+            for (Tenant tenant : tenantRepository.findAll()) {
+                nuovo.aggiungi(new TenantInfo(tenant));
+            }
+            indice = nuovo;
+        } finally {
+            scrittura.unlock();
+        }
+        log.debug("Tenant registry ricaricato: {} tenant", nuovo.perId.size());
+    }
+
+    static String normalizzaDominio(String dominio) {
+        if (!StringUtils.hasText(dominio)) {
+            return null;
+        }
+        String normalizzato = dominio.trim().toLowerCase(Locale.ROOT);
+        return normalizzato.startsWith("www.") ? normalizzato.substring(4) : normalizzato;
+    }
+
+    /**
+     * Lookup sul DB di una chiave (id o slug) non presente nell'indice.
+     */
+    private TenantInfo carica(Object chiave, Supplier<Optional<Tenant>> query) {
+        Indice corrente = indice;
+        Long scadenza = corrente.sconosciuti.get(chiave);
+        if (scadenza != null) {
+            if (scadenza - System.nanoTime() > 0) {
+                return null;
+            }
+            corrente.sconosciuti.remove(chiave, scadenza);
+        }
+
+        Tenant tenant = query.get().orElse(null);
+        if (tenant == null) {
+            if (corrente.sconosciuti.size() >= negativeMax) {
+                // Limite contro chiavi casuali: si riparte da vuota
+                corrente.sconosciuti.clear();
+            }
+            corrente.sconosciuti.put(chiave, System.nanoTime() + negativeTtlMs * 1_000_000);
+            return null;
+        }
+        TenantInfo info = new TenantInfo(tenant);
+        scrittura.lock();
+        try {
+            indice.aggiungi(info);
+        } finally {
+            scrittura.unlock();
+        }
+        return info;
+    }
+
+    private static final class Indice {
+
+        private final Map<UUID, TenantInfo> perId = new ConcurrentHashMap<>();
+        private final Map<String, UUID> perSlug = new ConcurrentHashMap<>();
+        private final Map<String, UUID> perDominio = new ConcurrentHashMap<>();
+
+        // Id e slug non trovati sul DB → scadenza (System.nanoTime)
+        private final Map<Object, Long> sconosciuti = new ConcurrentHashMap<>();
+
+        void aggiungi(TenantInfo info) {
+            rimuovi(info.getId());
+            sconosciuti.remove(info.getId());
+            sconosciuti.remove(info.getSlug().toLowerCase(Locale.ROOT));
+            perId.put(info.getId(), info);
+            perSlug.put(info.getSlug().toLowerCase(Locale.ROOT), info.getId());
+            if (info.getDominioCustom() != null) {
+                perDominio.put(info.getDominioCustom(), info.getId());
+            }
+        }
+
+        void rimuovi(UUID id) {
+            TenantInfo vecchio = perId.remove(id);
+            if (vecchio != null) {
+                perSlug.remove(vecchio.getSlug().toLowerCase(Locale.ROOT), id);
+                if (vecchio.getDominioCustom() != null) {
+                    perDominio.remove(vecchio.getDominioCustom(), id);
+                }
+            }
+        }
+    }
+}
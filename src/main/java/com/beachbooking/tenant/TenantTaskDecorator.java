@@ -0,0 +1,18 @@
+package com.beachbooking.tenant;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Propaga il tenant del chiamante ai task degli executor Spring (@Async).
+ * Spring Boot lo applica in automatico all'executor applicationTaskExecutor,
+ * sia con il pool di thread sia con i virtual thread.
+ */
+@Component
+public class TenantTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return TenantContext.wrap(runnable);
+    }
+}
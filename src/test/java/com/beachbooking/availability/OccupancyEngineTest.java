@@ -0,0 +1,78 @@
+package com.beachbooking.availability;
+
+import com.beachbooking.model.entity.Ombrellone;
+import com.beachbooking.model.entity.Prenotazione;
+import com.beachbooking.model.enums.StatoPrenotazione;
+import com.beachbooking.model.enums.TipoOmbrellone;
+import com.beachbooking.repository.OmbrelloneRepository;
+import com.beachbooking.repository.PrenotazioneRepository;
+import com.beachbooking.repository.TenantRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bitmap di occupazione con prenotazioni fatte su un'altra istanza (nessun evento locale).
+ */
+class OccupancyEngineTest {
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final LocalDate giorno = LocalDate.now().plusDays(10);
+    private final Ombrellone ombrellone = Ombrellone.builder()
+            .id(UUID.randomUUID())
+            .tenantId(tenantId)
+            .numero(1)
+            .fila("A")
+            .tipo(TipoOmbrellone.STANDARD)
+            .attivo(true)
+            .build();
+
+    private PrenotazioneRepository prenotazioneRepository;
+    private OccupancyEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        OmbrelloneRepository ombrelloneRepository = mock(OmbrelloneRepository.class);
+        when(ombrelloneRepository.findByTenantId(tenantId)).thenAnswer(inv -> new ArrayList<>(List.of(ombrellone)));
+        prenotazioneRepository = mock(PrenotazioneRepository.class);
+
+        engine = new OccupancyEngine();
+        ReflectionTestUtils.setField(engine, "tenantRepository", mock(TenantRepository.class));
+        ReflectionTestUtils.setField(engine, "ombrelloneRepository", ombrelloneRepository);
+        ReflectionTestUtils.setField(engine, "prenotazioneRepository", prenotazioneRepository);
+        ReflectionTestUtils.setField(engine, "enabled", true);
+        ReflectionTestUtils.setField(engine, "giorniPassati", 30);
+        ReflectionTestUtils.setField(engine, "giorniFuturi", 400);
+        ReflectionTestUtils.setField(engine, "warmupCompletato", true);
+    }
+
+    @Test
+    void aggiornamentoRecepisceLePrenotazioniDiAltreIstanze() {
+        when(prenotazioneRepository.findBloccantiByTenantIdAndDateRange(eq(tenantId), any(), any()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(Prenotazione.builder()
+                        .ombrelloneId(ombrellone.getId())
+                        .dataInizio(giorno)
+                        .dataFine(giorno)
+                        .stato(StatoPrenotazione.CONFIRMED)
+                        .build()));
+
+        // Primo accesso: tenant caricato, ombrellone libero
+        assertThat(engine.isDisponibile(tenantId, ombrellone.getId(), giorno, giorno)).contains(true);
+
+        // Prenotato altrove: visto alla ricostruzione periodica
+        engine.aggiornaCaricati();
+        assertThat(engine.isDisponibile(tenantId, ombrellone.getId(), giorno, giorno)).contains(false);
+    }
+}
@@ -0,0 +1,75 @@
+package com.beachbooking.availability;
+
+import com.beachbooking.model.entity.Prenotazione;
+import com.beachbooking.repository.PrenotazioneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Indice intervalli con cancellazioni fatte su un'altra istanza (nessun evento locale).
+ */
+class OmbrelloneIntervalIndexTest {
+
+    private static final LocalDate DAL = LocalDate.of(2026, 7, 1);
+    private static final LocalDate AL = LocalDate.of(2026, 7, 7);
+
+    private final UUID ombrelloneId = UUID.randomUUID();
+    private PrenotazioneRepository repository;
+    private OmbrelloneIntervalIndex index;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(PrenotazioneRepository.class);
+        index = new OmbrelloneIntervalIndex();
+        ReflectionTestUtils.setField(index, "prenotazioneRepository", repository);
+        ReflectionTestUtils.setField(index, "ttlMs", 60_000L);
+    }
+
+    @Test
+    void conflittoInCacheVerificatoSulDb() {
+        when(repository.findBloccantiByOmbrelloneId(ombrelloneId))
+                .thenReturn(List.of(prenotazione(DAL, AL)))
+                .thenReturn(List.of());
+
+        // Primo accesso: carica l'intervallo, occupato
+        assertThat(index.isDisponibile(ombrelloneId, DAL.plusDays(2), DAL.plusDays(3))).isFalse();
+
+        // Cancellata altrove: il conflitto in cache viene smentito dal DB
+        assertThat(index.isDisponibile(ombrelloneId, DAL.plusDays(2), DAL.plusDays(3))).isTrue();
+
+        // L'indice ricaricato resta in cache
+        assertThat(index.isDisponibile(ombrelloneId, DAL, AL)).isTrue();
+        verify(repository, times(2)).findBloccantiByOmbrelloneId(ombrelloneId);
+    }
+
+    @Test
+    void indiceScadutoRilettoDalDb() {
+        ReflectionTestUtils.setField(index, "ttlMs", 0L);
+        when(repository.findBloccantiByOmbrelloneId(ombrelloneId))
+                .thenReturn(List.of())
+                .thenReturn(List.of(prenotazione(DAL, AL)));
+
+        assertThat(index.isDisponibile(ombrelloneId, DAL, AL)).isTrue();
+        // Prenotata su un'altra istanza: vista alla scadenza dell'indice
+        assertThat(index.isDisponibile(ombrelloneId, DAL, AL)).isFalse();
+    }
+
+    private Prenotazione prenotazione(LocalDate dal, LocalDate al) {
+        return Prenotazione.builder()
+                .ombrelloneId(ombrelloneId)
+                .dataInizio(dal)
+                .dataFine(al)
+                .build();
+    }
+}
@@ -0,0 +1,270 @@
+package com.beachbooking.availability;
+
+import com.beachbooking.exception.BookingConflictException;
+import com.beachbooking.model.entity.Ombrellone;
+import com.beachbooking.model.entity.Prenotazione;
+import com.beachbooking.model.entity.Tenant;
+import com.beachbooking.model.enums.PianoAbbonamento;
+import com.beachbooking.model.enums.StatoPrenotazione;
+import com.beachbooking.model.enums.StatoTenant;
+import com.beachbooking.model.enums.TipoOmbrellone;
+import com.beachbooking.model.enums.TipoPrenotazione;
+import com.beachbooking.repository.OmbrelloneRepository;
+import com.beachbooking.repository.PrenotazioneRepository;
+import com.beachbooking.repository.TenantRepository;
+import com.beachbooking.service.PrenotazioneService;
+import com.beachbooking.tenant.TenantContext;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Stress test di PrenotazioneService.create: lock ombrellone, indice intervalli,
+ * saveAndFlush e traduzione del vincolo EXCLUDE in BookingConflictException.
+ *
+ * H2 non ha i vincoli EXCLUDE: VincoloSovrapposizione è un trigger che rifiuta le
+ * sovrapposizioni con lo stesso SQLSTATE di PostgreSQL (23P01) e conta quante volte
+ * scatta. Con lock e indice corretti nessuna richiesta deve arrivarci, e alla fine
+ * non devono esserci due prenotazioni attive sovrapposte sullo stesso ombrellone.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OmbrelloneLocksStressTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OmbrelloneLocksStressTest.class);
+
+    private static final int OMBRELLONI = 8;
+    private static final int THREAD = 16;
+    private static final int TENTATIVI_PER_THREAD = 150;
+    private static final int GIORNI = 200;
+
+    @Autowired
+    private PrenotazioneService prenotazioneService;
+
+    @Autowired
+    private PrenotazioneRepository prenotazioneRepository;
+
+    @Autowired
+    private OmbrelloneRepository ombrelloneRepository;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDate giornoZero = LocalDate.now().plusDays(1);
+    private UUID tenantId;
+    private List<UUID> ombrelloni;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS excl_prenotazione_sovrapposta " +
+                "BEFORE INSERT, UPDATE ON prenotazioni FOR EACH ROW CALL '" +
+                VincoloSovrapposizione.class.getName() + "'");
+        VincoloSovrapposizione.violazioni.set(0);
+
+        LocalDateTime adesso = LocalDateTime.now();
+        tenantId = tenantRepository.save(Tenant.builder()
+                .nomeStabilimento("Lido Stress")
+                .slug("lido-stress")
+                .indirizzo("Lungomare 1")
+                .citta("Rimini")
+                .provincia("RN")
+                .cap("47921")
+                .email("stress@example.com")
+                .piano(PianoAbbonamento.FREE)
+                .stato(StatoTenant.ACTIVE)
+                .dataCreazione(adesso)
+                .dataAggiornamento(adesso)
+                .build()).getId();
+
+        ombrelloni = new ArrayList<>();
+        for (int i = 0; i < OMBRELLONI; i++) {
+            ombrelloni.add(ombrelloneRepository.save(Ombrellone.builder()
+                    .tenantId(tenantId)
+                    .numero(i + 1)
+                    .fila("A")
+                    .tipo(TipoOmbrellone.STANDARD)
+                    .attivo(true)
+                    .build()).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+        prenotazioneRepository.deleteAll();
+        ombrelloneRepository.deleteAll();
+        tenantRepository.deleteAll();
+    }
+
+    @Test
+    void nessunaDoppiaPrenotazioneSottoContesa() throws Exception {
+        AtomicInteger create = new AtomicInteger();
+        AtomicInteger rifiutate = new AtomicInteger();
+        CountDownLatch partenza = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREAD);
+        List<Future<?>> risultati = new ArrayList<>();
+        for (int t = 0; t < THREAD; t++) {
+            risultati.add(pool.submit(() -> {
+                partenza.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                TenantContext.runAs(tenantId, () -> {
+                    for (int i = 0; i < TENTATIVI_PER_THREAD; i++) {
+                        UUID ombrelloneId = ombrelloni.get(random.nextInt(OMBRELLONI));
+                        LocalDate inizio = giornoZero.plusDays(random.nextInt(GIORNI));
+                        LocalDate fine = inizio.plusDays(random.nextInt(3));
+                        try {
+                            prenota(ombrelloneId, inizio, fine);
+                            create.incrementAndGet();
+                        } catch (BookingConflictException e) {
+                            rifiutate.incrementAndGet();
+                        }
+                    }
+                });
+                return null;
+            }));
+        }
+
+        long start = System.nanoTime();
+        partenza.countDown();
+        for (Future<?> risultato : risultati) {
+            risultato.get(2, TimeUnit.MINUTES);
+        }
+        long elapsedNs = System.nanoTime() - start;
+        pool.shutdown();
+
+        int tentativi = THREAD * TENTATIVI_PER_THREAD;
+        log.info("{} tentativi, {} create, {} rifiutate in {} ms",
+                tentativi, create.get(), rifiutate.get(), elapsedNs / 1_000_000);
+
+        assertThat(VincoloSovrapposizione.violazioni.get()).as("richieste arrivate al vincolo EXCLUDE").isZero();
+        assertThat(create.get() + rifiutate.get()).isEqualTo(tentativi);
+        assertThat(prenotazioneRepository.count()).isEqualTo(create.get());
+        assertThat(sovrapposizioni()).as("doppie prenotazioni sullo stesso ombrellone").isZero();
+    }
+
+    @Test
+    void vincoloExcludeTradottoInConflitto() {
+        UUID ombrelloneId = ombrelloni.get(0);
+        TenantContext.setTenantId(tenantId);
+
+        // Indice caricato su questa istanza
+        prenota(ombrelloneId, giornoZero, giornoZero);
+
+        // Prenotazione fatta da un'altra istanza: l'indice in cache non la vede
+        jdbcTemplate.update("INSERT INTO prenotazioni (id, tenant_id, user_id, ombrellone_id, data_inizio, " +
+                        "data_fine, tipo_prenotazione, prezzo_totale, stato, data_creazione) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, 'GIORNALIERA', 10.00, 'CONFIRMED', CURRENT_TIMESTAMP)",
+                UUID.randomUUID(), tenantId, UUID.randomUUID(), ombrelloneId,
+                giornoZero.plusDays(5), giornoZero.plusDays(7));
+
+        assertThatThrownBy(() -> prenota(ombrelloneId, giornoZero.plusDays(6), giornoZero.plusDays(6)))
+                .isInstanceOf(BookingConflictException.class);
+        assertThat(VincoloSovrapposizione.violazioni.get()).isEqualTo(1);
+        assertThat(prenotazioneRepository.count()).isEqualTo(2);
+    }
+
+    private Prenotazione prenota(UUID ombrelloneId, LocalDate inizio, LocalDate fine) {
+        return prenotazioneService.create(UUID.randomUUID(), ombrelloneId, inizio, fine,
+                TipoPrenotazione.GIORNALIERA, null);
+    }
+
+    private Integer sovrapposizioni() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM prenotazioni a JOIN prenotazioni b " +
+                "ON a.ombrellone_id = b.ombrellone_id AND a.id < b.id " +
+                "AND a.data_inizio <= b.data_fine AND b.data_inizio <= a.data_fine " +
+                "WHERE a.stato NOT IN ('CANCELLED', 'REFUNDED') AND b.stato NOT IN ('CANCELLED', 'REFUNDED')",
+                Integer.class);
+    }
+
+    /**
+     * Equivalente H2 di excl_prenotazione_sovrapposta (SQL Init): stesso predicato, SQLSTATE 23P01.
+     */
+    public static class VincoloSovrapposizione implements Trigger {
+
+        static final AtomicInteger violazioni = new AtomicInteger();
+
+        private int id;
+        private int ombrellone;
+        private int inizio;
+        private int fine;
+        private int stato;
+
+        @Override
+        public void init(Connection conn, String schema, String trigger, String tabella,
+                         boolean before, int tipo) throws SQLException {
+            try (ResultSet colonne = conn.getMetaData().getColumns(null, schema, tabella, null)) {
+                while (colonne.next()) {
+                    int indice = colonne.getInt("ORDINAL_POSITION") - 1;
+                    switch (colonne.getString("COLUMN_NAME").toLowerCase()) {
+                        case "id" -> id = indice;
+                        case "ombrellone_id" -> ombrellone = indice;
+                        case "data_inizio" -> inizio = indice;
+                        case "data_fine" -> fine = indice;
+                        case "stato" -> stato = indice;
+                        default -> { }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] vecchia, Object[] nuova) throws SQLException {
+            String statoNuovo = String.valueOf(nuova[stato]);
+            if (statoNuovo.equals("CANCELLED") || statoNuovo.equals("REFUNDED")) {
+                return;
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM prenotazioni " +
+                    "WHERE ombrellone_id = ? AND id <> ? AND stato NOT IN ('CANCELLED', 'REFUNDED') " +
+                    "AND data_inizio <= ? AND data_fine >= ?")) {
+                ps.setObject(1, nuova[ombrellone]);
+                ps.setObject(2, nuova[id]);
+                ps.setObject(3, data(nuova[fine]));
+                ps.setObject(4, data(nuova[inizio]));
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    if (rs.getInt(1) > 0) {
+                        violazioni.incrementAndGet();
+                        throw new SQLException("conflicting key value violates exclusion constraint " +
+                                "\"excl_prenotazione_sovrapposta\"", "23P01");
+                    }
+                }
+            }
+        }
+
+        private static Object data(Object valore) {
+            return valore instanceof LocalDate d ? Date.valueOf(d) : valore;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.beachbooking.controller;
+
+import com.beachbooking.model.entity.Tenant;
+import com.beachbooking.model.entity.TenantStats;
+import com.beachbooking.model.entity.User;
+import com.beachbooking.model.enums.PianoAbbonamento;
+import com.beachbooking.model.enums.RuoloUtente;
+import com.beachbooking.model.enums.StatoTenant;
+import com.beachbooking.querystats.QueryBudget;
+import com.beachbooking.querystats.QueryStatsRegistry;
+import com.beachbooking.repository.TenantRepository;
+import com.beachbooking.repository.TenantStatsRepository;
+import com.beachbooking.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Query budget degli endpoint di piattaforma con app.querystats.budget-bloccante attivo:
+ * gli statement non devono crescere con il numero di tenant.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Import(AdminControllerQueryBudgetTest.EndpointNPiuUno.class)
+@WithMockUser(roles = "SUPER_ADMIN")
+class AdminControllerQueryBudgetTest {
+
+    private static final int TENANT = 25;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private TenantStatsRepository tenantStatsRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private QueryStatsRegistry queryStatsRegistry;
+
+    @BeforeEach
+    void setUp() {
+        List<Tenant> tenants = new ArrayList<>();
+        for (int i = 0; i < TENANT; i++) {
+            LocalDateTime adesso = LocalDateTime.now();
+            tenants.add(Tenant.builder()
+                    .nomeStabilimento("Lido " + i)
+                    .slug("lido-" + i)
+                    .indirizzo("Lungomare " + i)
+                    .citta("Rimini")
+                    .provincia("RN")
+                    .cap("47921")
+                    .email("lido" + i + "@example.com")
+                    .piano(PianoAbbonamento.FREE)
+                    .stato(i % 3 == 0 ? StatoTenant.ACTIVE : StatoTenant.TRIAL)
+                    .dataCreazione(adesso)
+                    .dataAggiornamento(adesso)
+                    .build());
+        }
+        tenantRepository.saveAll(tenants);
+        // Statistiche solo per metà dei tenant: gli altri usano i valori vuoti
+        for (int i = 0; i < TENANT; i += 2) {
+            tenantStatsRepository.save(new TenantStats(tenants.get(i).getId(),
+                    1L, 10L, 5L, new BigDecimal("150.00"), LocalDateTime.now()));
+        }
+        queryStatsRegistry.azzera();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        tenantStatsRepository.deleteAll();
+        tenantRepository.deleteAll();
+    }
+
+    @Test
+    void dashboardEntroIlBudget() throws Exception {
+        mockMvc.perform(get("/api/admin/dashboard"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalTenants").value(TENANT))
+                .andExpect(jsonPath("$.totalOmbrelloni").value(10 * ((TENANT + 1) / 2)));
+
+        assertEntroIlBudget("AdminController#getDashboardStats", 3);
+    }
+
+    @Test
+    void tenantsEntroIlBudget() throws Exception {
+        mockMvc.perform(get("/api/admin/tenants"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(TENANT));
+
+        assertEntroIlBudget("AdminController#getAllTenantsWithStats", 2);
+    }
+
+    @Test
+    void utentiEntroIlBudgetConNomeTenant() throws Exception {
+        List<User> users = new ArrayList<>();
+        users.add(utente("admin@example.com", null, RuoloUtente.SUPER_ADMIN));
+        for (Tenant tenant : tenantRepository.findAll()) {
+            users.add(utente("admin@" + tenant.getSlug() + ".example.com", tenant.getId(), RuoloUtente.TENANT_ADMIN));
+            users.add(utente("cliente@" + tenant.getSlug() + ".example.com", tenant.getId(), RuoloUtente.CUSTOMER));
+        }
+        userRepository.saveAll(users);
+        queryStatsRegistry.azzera();
+
+        mockMvc.perform(get("/api/admin/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2 * TENANT + 1))
+                .andExpect(jsonPath("$[?(@.email == 'admin@lido-7.example.com')].tenantName").value("Lido 7"))
+                .andExpect(jsonPath("$[?(@.email == 'admin@example.com')].tenantName").value(contains(nullValue())));
+
+        assertEntroIlBudget("AdminController#getAllUsers", 2);
+    }
+
+    @Test
+    void unNPiuUnoFallisceLaRichiesta() throws Exception {
+        // QueryBudgetSuperatoException arriva a GlobalExceptionHandler come RuntimeException
+        mockMvc.perform(get("/api/admin/test/n-piu-uno"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("Query budget superato")));
+
+        Map<String, Object> riga = riga("EndpointNPiuUno#nPiuUno");
+        assertThat(((Number) riga.get("superamentiBudget")).longValue()).isEqualTo(1);
+    }
+
+    private void assertEntroIlBudget(String handler, int budget) {
+        Map<String, Object> riga = riga(handler);
+        assertThat(riga.get("budget")).isEqualTo(budget);
+        assertThat(((Number) riga.get("statementMax")).intValue()).isLessThanOrEqualTo(budget);
+        assertThat(((Number) riga.get("superamentiBudget")).longValue()).isZero();
+    }
+
+    private static User utente(String email, UUID tenantId, RuoloUtente ruolo) {
+        return User.builder()
+                .email(email)
+                .password("hash")
+                .nome("Mario")
+                .cognome("Rossi")
+                .ruolo(ruolo)
+                .tenantId(tenantId)
+                .attivo(true)
+                .emailVerificata(true)
+                .build();
+    }
+
+    private Map<String, Object> riga(String handler) {
+        return queryStatsRegistry.riepilogo().stream()
+                .filter(r -> handler.equals(r.get("handler")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Nessuna statistica per " + handler));
+    }
+
+    /**
+     * Endpoint di prova con un accesso per tenant: deve superare il budget.
+     */
+    @TestConfiguration
+    @RestController
+    static class EndpointNPiuUno {
+
+        @Autowired
+        private TenantRepository tenantRepository;
+
+        @Autowired
+        private TenantStatsRepository tenantStatsRepository;
+
+        @GetMapping("/api/admin/test/n-piu-uno")
+        @QueryBudget(2)
+        public long nPiuUno() {
+            return tenantRepository.findAll().stream()
+                    .filter(t -> tenantStatsRepository.findById(t.getId()).isPresent())
+                    .count();
+        }
+    }
+}
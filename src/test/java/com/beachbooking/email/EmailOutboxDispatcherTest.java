@@ -0,0 +1,147 @@
+package com.beachbooking.email;
+
+import com.beachbooking.model.entity.EmailOutbox;
+import com.beachbooking.model.enums.StatoEmail;
+import com.beachbooking.repository.EmailOutboxRepository;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Outbox email contro un server SMTP in-process (GreenMail).
+ */
+@SpringBootTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=noreply@beachbooking.test",
+        "spring.mail.password=segreta",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "app.email.batch=50"
+})
+@ActiveProfiles("test")
+class EmailOutboxDispatcherTest {
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private ConnessioneSmtp connessioneSmtp;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private GreenMail greenMail;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = avviaServer();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connessioneSmtp.chiudi();
+        greenMail.stop();
+        emailOutboxRepository.deleteAll();
+    }
+
+    @Test
+    void piuBatchSullaStessaConnessione() {
+        double connessioni = connessioniSmtp();
+        accoda(120);
+
+        dispatcher.dispatch();
+
+        assertThat(greenMail.waitForIncomingEmail(5_000, 120)).isTrue();
+        assertThat(emailOutboxRepository.findAll())
+                .allMatch(e -> e.getStato() == StatoEmail.SENT && e.getDataInvio() != null);
+
+        // Il dispatch successivo riusa la connessione ancora aperta
+        accoda(10);
+        dispatcher.dispatch();
+
+        assertThat(greenMail.waitForIncomingEmail(5_000, 130)).isTrue();
+        assertThat(emailOutboxRepository.countByStato(StatoEmail.SENT)).isEqualTo(130);
+        assertThat(connessioniSmtp() - connessioni).isEqualTo(1);
+        assertThat(dispatcher.getStatistiche())
+                .containsEntry("inCoda", 0L)
+                .containsKey("latenzaMediaBatchMs");
+    }
+
+    @Test
+    void serverNonRaggiungibileRimetteInCodaConBackoff() {
+        // Connessione aperta da un invio precedente, poi il server cade
+        accoda(1);
+        dispatcher.dispatch();
+        assertThat(greenMail.waitForIncomingEmail(5_000, 1)).isTrue();
+        emailOutboxRepository.deleteAll();
+
+        accoda(5);
+        greenMail.stop();
+
+        LocalDateTime prima = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        assertThat(emailOutboxRepository.findAll()).allSatisfy(e -> {
+            assertThat(e.getStato()).isEqualTo(StatoEmail.PENDING);
+            assertThat(e.getTentativi()).isEqualTo(1);
+            assertThat(e.getUltimoErrore()).isNotBlank();
+            assertThat(e.getProssimoTentativo()).isAfter(prima);
+        });
+
+        // Server di nuovo su e backoff scaduto: la connessione viene riaperta e le email partono
+        greenMail = avviaServer();
+        List<EmailOutbox> inAttesa = emailOutboxRepository.findAll();
+        inAttesa.forEach(e -> e.setProssimoTentativo(LocalDateTime.now().minusSeconds(1)));
+        emailOutboxRepository.saveAll(inAttesa);
+
+        dispatcher.dispatch();
+
+        assertThat(greenMail.waitForIncomingEmail(5_000, 5)).isTrue();
+        assertThat(emailOutboxRepository.findAll()).allSatisfy(e -> {
+            assertThat(e.getStato()).isEqualTo(StatoEmail.SENT);
+            assertThat(e.getTentativi()).isEqualTo(1);
+            assertThat(e.getUltimoErrore()).isNull();
+        });
+    }
+
+    private static GreenMail avviaServer() {
+        GreenMail server = new GreenMail(ServerSetupTest.SMTP)
+                .withConfiguration(GreenMailConfiguration.aConfig().withUser("noreply@beachbooking.test", "segreta"));
+        server.start();
+        return server;
+    }
+
+    private void accoda(int numero) {
+        List<EmailOutbox> email = new ArrayList<>();
+        for (int i = 0; i < numero; i++) {
+            email.add(EmailOutbox.builder()
+                    .destinatario("cliente" + i + "@example.com")
+                    .oggetto("Conferma prenotazione " + i)
+                    .corpo("<p>Prenotazione " + i + " confermata</p>")
+                    .html(true)
+                    .prossimoTentativo(LocalDateTime.now().minusSeconds(1))
+                    .build());
+        }
+        emailOutboxRepository.saveAll(email);
+    }
+
+    private double connessioniSmtp() {
+        return meterRegistry.get("email.smtp.connections").counter().count();
+    }
+}
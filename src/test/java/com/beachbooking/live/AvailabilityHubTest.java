@@ -0,0 +1,177 @@
+package com.beachbooking.live;
+
+import com.beachbooking.event.PrenotazioneStatoEvent;
+import com.beachbooking.model.enums.StatoPrenotazione;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvailabilityHubTest {
+
+    private static final UUID TENANT = UUID.randomUUID();
+    private static final LocalDate GIUGNO = LocalDate.of(2026, 6, 1);
+    private static final int CODA = 16;
+
+    private final List<EmitterDiProva> emitter = new CopyOnWriteArrayList<>();
+
+    // Iscritto che resta bloccato sul socket finché il test non lo sblocca
+    private volatile CountDownLatch bloccoProssimo;
+
+    private AvailabilityHub hub;
+
+    @BeforeEach
+    void setUp() {
+        hub = new AvailabilityHub(2, 4) {
+            @Override
+            SseEmitter nuovoEmitter() {
+                EmitterDiProva e = new EmitterDiProva(bloccoProssimo);
+                bloccoProssimo = null;
+                emitter.add(e);
+                return e;
+            }
+        };
+        ReflectionTestUtils.setField(hub, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(hub, "timeoutMs", 60_000L);
+        ReflectionTestUtils.setField(hub, "dimensioneBuffer", 1024);
+        ReflectionTestUtils.setField(hub, "dimensioneCoda", CODA);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.chiudi();
+    }
+
+    @Test
+    void fanOutAgliIscrittiConFinestraSovrapposta() {
+        // Coda sufficiente per l'intera raffica: nessun iscritto deve risultare lento
+        ReflectionTestUtils.setField(hub, "dimensioneCoda", 256);
+        int iscritti = 200;
+        for (int i = 0; i < iscritti; i++) {
+            // Metà degli iscritti guarda giugno, metà agosto
+            LocalDate inizio = i % 2 == 0 ? GIUGNO : GIUGNO.plusMonths(2);
+            hub.iscrivi(TENANT, inizio, inizio.plusDays(29), null);
+        }
+        attendi(() -> emitter.stream().allMatch(e -> e.frame.size() == 1));
+
+        int delta = 50;
+        for (int i = 0; i < delta; i++) {
+            hub.onPrenotazioneStato(evento(GIUGNO.plusDays(i % 20)));
+        }
+
+        List<EmitterDiProva> giugno = new ArrayList<>();
+        List<EmitterDiProva> agosto = new ArrayList<>();
+        for (int i = 0; i < emitter.size(); i++) {
+            (i % 2 == 0 ? giugno : agosto).add(emitter.get(i));
+        }
+
+        attendi(() -> giugno.stream().allMatch(e -> e.frame.size() == 1 + delta));
+        for (EmitterDiProva e : giugno) {
+            assertThat(e.frame.get(0)).contains("event:ready");
+            assertThat(e.frame.subList(1, e.frame.size())).allMatch(f -> f.contains("event:delta"));
+            assertThat(e.sequenze()).isSorted().doesNotHaveDuplicates();
+        }
+        assertThat(agosto).allMatch(e -> e.frame.size() == 1);
+        assertThat(hub.getNumeroIscritti()).isEqualTo(iscritti);
+    }
+
+    @Test
+    void clientLentoVieneDisconnessoSenzaRallentareGliAltri() throws Exception {
+        CountDownLatch sblocca = new CountDownLatch(1);
+        bloccoProssimo = sblocca;
+        hub.iscrivi(TENANT, GIUGNO, GIUGNO.plusDays(29), null);
+        EmitterDiProva lento = emitter.get(0);
+        attendi(() -> lento.inAttesa);
+
+        hub.iscrivi(TENANT, GIUGNO, GIUGNO.plusDays(29), null);
+        EmitterDiProva veloce = emitter.get(1);
+
+        // L'iscritto veloce riceve ogni delta mentre quello lento è ancora fermo sul socket
+        int delta = CODA * 4;
+        for (int i = 0; i < delta; i++) {
+            hub.onPrenotazioneStato(evento(GIUGNO));
+            int attesi = 2 + i;
+            attendi(() -> veloce.frame.size() == attesi);
+        }
+        assertThat(hub.getNumeroIscritti()).isEqualTo(1);
+        assertThat(lento.completato).isFalse();
+
+        sblocca.countDown();
+        attendi(() -> lento.completato);
+        assertThat(lento.frame).hasSizeLessThanOrEqualTo(1 + CODA);
+        assertThat(veloce.completato).isFalse();
+    }
+
+    private static PrenotazioneStatoEvent evento(LocalDate giorno) {
+        return new PrenotazioneStatoEvent(
+                TENANT, UUID.randomUUID(), UUID.randomUUID(), giorno, giorno,
+                null, StatoPrenotazione.PENDING, null
+        );
+    }
+
+    private static void attendi(BooleanSupplier condizione) {
+        long scadenza = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condizione.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condizione non raggiunta entro 10 s").isLessThan(scadenza);
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Emitter senza connessione HTTP: registra i frame scritti e, se richiesto,
+     * resta bloccato alla prima scrittura come un client che non legge il socket.
+     */
+    static final class EmitterDiProva extends SseEmitter {
+
+        private final List<String> frame = new CopyOnWriteArrayList<>();
+        private final CountDownLatch blocco;
+        private volatile boolean inAttesa;
+        private volatile boolean completato;
+
+        EmitterDiProva(CountDownLatch blocco) {
+            this.blocco = blocco;
+        }
+
+        @Override
+        public void send(Set<ResponseBodyEmitter.DataWithMediaType> items) {
+            if (blocco != null) {
+                inAttesa = true;
+                try {
+                    blocco.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder sb = new StringBuilder();
+            items.forEach(item -> sb.append(item.getData()));
+            frame.add(sb.toString());
+        }
+
+        @Override
+        public void complete() {
+            completato = true;
+        }
+
+        List<Long> sequenze() {
+            return frame.stream()
+                    .map(f -> Long.parseLong(f.substring(3, f.indexOf('\n'))))
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.beachbooking.pricing;
+
+import com.beachbooking.event.ListinoModificatoEvent;
+import com.beachbooking.repository.ListinoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cache dei listini compilati con modifiche concorrenti alla compilazione.
+ */
+class PricingEngineTest {
+
+    private final UUID tenantId = UUID.randomUUID();
+    private ListinoRepository repository;
+    private PricingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ListinoRepository.class);
+        engine = new PricingEngine();
+        ReflectionTestUtils.setField(engine, "listinoRepository", repository);
+        ReflectionTestUtils.setField(engine, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void listinoCompilatoDuranteUnaModificaNonVaInCache() {
+        // Le regole vecchie sono lette, poi salvaRegole fa commit prima che il lettore finisca
+        when(repository.findById(tenantId)).thenAnswer(inv -> {
+            engine.onListinoModificato(new ListinoModificatoEvent(tenantId));
+            return Optional.empty();
+        }).thenReturn(Optional.empty());
+
+        ListinoCompilato primo = engine.listino(tenantId);
+        ListinoCompilato secondo = engine.listino(tenantId);
+
+        assertThat(secondo).isNotSameAs(primo);
+        assertThat(engine.listino(tenantId)).isSameAs(secondo);
+        verify(repository, times(2)).findById(tenantId);
+    }
+}
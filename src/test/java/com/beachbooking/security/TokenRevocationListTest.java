@@ -0,0 +1,111 @@
+package com.beachbooking.security;
+
+import com.beachbooking.model.entity.User;
+import com.beachbooking.model.enums.RuoloUtente;
+import com.beachbooking.repository.UserRepository;
+import com.beachbooking.service.AuthService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Revoche in memoria allineate ai commit: niente revoche da transazioni annullate,
+ * nessuna revoca persa quando il ricaricamento legge il DB prima del commit.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class TokenRevocationListTest {
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .email("revoche@example.com")
+                .password("hash")
+                .nome("Mario")
+                .cognome("Rossi")
+                .ruolo(RuoloUtente.CUSTOMER)
+                .attivo(true)
+                .emailVerificata(true)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void rollbackNonRevocaIToken() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            authService.revocaToken(userRepository.findById(user.getId()).orElseThrow());
+            authService.disattivaUtente(user.getId());
+            status.setRollbackOnly();
+        });
+
+        assertThat(revocationList.isRevocato(principal(0))).isFalse();
+    }
+
+    @Test
+    void commitRevocaIToken() {
+        authService.disattivaUtente(user.getId());
+        assertThat(revocationList.isRevocato(principal(1))).isTrue();
+
+        authService.riattivaUtente(user.getId());
+        assertThat(revocationList.isRevocato(principal(0))).isTrue();
+        assertThat(revocationList.isRevocato(principal(1))).isFalse();
+    }
+
+    @Test
+    void ricaricamentoNonPerdeLeRevocheConcorrenti() {
+        // Il DB viene letto prima che la disattivazione faccia commit
+        UserRepository lettura = mock(UserRepository.class);
+        when(lettura.findRevoche()).thenAnswer(inv -> {
+            List<Object[]> righe = userRepository.findRevoche();
+            authService.disattivaUtente(user.getId());
+            return righe;
+        });
+        ReflectionTestUtils.setField(revocationList, "userRepository", lettura);
+        try {
+            revocationList.ricarica();
+        } finally {
+            ReflectionTestUtils.setField(revocationList, "userRepository", userRepository);
+        }
+
+        assertThat(revocationList.isRevocato(principal(1))).isTrue();
+
+        // Al ricaricamento successivo il DB riporta la disattivazione
+        revocationList.ricarica();
+        assertThat(revocationList.isRevocato(principal(1))).isTrue();
+    }
+
+    private AuthenticatedUser principal(int tokenVersion) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), null, RuoloUtente.CUSTOMER, tokenVersion);
+    }
+}
@@ -0,0 +1,142 @@
+package com.beachbooking.tenant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Isolamento del tenant sull'executor applicativo di Spring Boot (quello di @Async),
+ * con TenantTaskDecorator applicato dall'autoconfigurazione.
+ */
+class TenantContextPropagationTest {
+
+    private static final int POOL = 8;
+    private static final int SOTTOMETTITORI = 64;
+    private static final int TASK_PER_SOTTOMETTITORE = 2_000;
+
+    private final ApplicationContextRunner contesto = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class))
+            .withBean(TenantTaskDecorator.class)
+            .withPropertyValues(
+                    "spring.task.execution.pool.core-size=" + POOL,
+                    "spring.task.execution.pool.max-size=" + POOL,
+                    "spring.task.execution.pool.queue-capacity=" + Integer.MAX_VALUE);
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void runAsAnnidatoRipristinaIlTenantPrecedente() {
+        UUID esterno = UUID.randomUUID();
+        UUID interno = UUID.randomUUID();
+
+        TenantContext.runAs(esterno, () -> {
+            TenantContext.runAs(interno, () -> assertThat(TenantContext.getTenantId()).isEqualTo(interno));
+            assertThat(TenantContext.getTenantId()).isEqualTo(esterno);
+            assertThat(TenantContext.callAs(null, TenantContext::getTenantId)).isNull();
+            assertThat(TenantContext.getTenantId()).isEqualTo(esterno);
+        });
+        assertThat(TenantContext.getTenantId()).isNull();
+    }
+
+    @Test
+    void nessunTenantIncrociatoSottoCarico() {
+        contesto.run(ctx -> {
+            ThreadPoolTaskExecutor executor = ctx.getBean("applicationTaskExecutor", ThreadPoolTaskExecutor.class);
+
+            AtomicInteger eseguiti = new AtomicInteger();
+            AtomicInteger incrociati = new AtomicInteger();
+            CountDownLatch fine = new CountDownLatch(SOTTOMETTITORI * TASK_PER_SOTTOMETTITORE);
+            CountDownLatch via = new CountDownLatch(1);
+
+            List<Thread> sottomettitori = new ArrayList<>();
+            for (int s = 0; s < SOTTOMETTITORI; s++) {
+                UUID tenant = UUID.randomUUID();
+                // Metà dei sottomettitori senza tenant: i loro task non devono vederne uno
+                UUID atteso = s % 2 == 0 ? tenant : null;
+                Thread t = new Thread(() -> {
+                    attendi(via);
+                    TenantContext.runAs(atteso, () -> {
+                        for (int i = 0; i < TASK_PER_SOTTOMETTITORE; i++) {
+                            executor.execute(() -> {
+                                try {
+                                    if (!controlla(atteso)) {
+                                        incrociati.incrementAndGet();
+                                    }
+                                    eseguiti.incrementAndGet();
+                                } finally {
+                                    fine.countDown();
+                                }
+                            });
+                        }
+                    });
+                }, "sottomettitore-" + s);
+                t.start();
+                sottomettitori.add(t);
+            }
+
+            via.countDown();
+            for (Thread t : sottomettitori) {
+                t.join();
+            }
+            assertThat(fine.await(60, TimeUnit.SECONDS)).isTrue();
+            assertThat(eseguiti.get()).isEqualTo(SOTTOMETTITORI * TASK_PER_SOTTOMETTITORE);
+            assertThat(incrociati.get()).isZero();
+
+            // Nessun tenant rimasto sui thread del pool: task eseguiti senza decorator
+            Set<String> conResiduo = ConcurrentHashMap.newKeySet();
+            CountDownLatch controlli = new CountDownLatch(POOL * 16);
+            for (int i = 0; i < POOL * 16; i++) {
+                executor.getThreadPoolExecutor().execute(() -> {
+                    if (TenantContext.getTenantId() != null) {
+                        conResiduo.add(Thread.currentThread().getName());
+                    }
+                    controlli.countDown();
+                });
+            }
+            assertThat(controlli.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(conResiduo).isEmpty();
+        });
+    }
+
+    /**
+     * Il task vede il tenant del chiamante, anche dopo un runAs annidato su un altro tenant.
+     */
+    private static boolean controlla(UUID atteso) {
+        if (!Objects.equals(TenantContext.getTenantId(), atteso)) {
+            return false;
+        }
+        UUID altro = UUID.randomUUID();
+        boolean annidato = TenantContext.callAs(altro, () -> altro.equals(TenantContext.getTenantId()));
+        if (ThreadLocalRandom.current().nextInt(8) == 0) {
+            Thread.yield();
+        }
+        return annidato && Objects.equals(TenantContext.getTenantId(), atteso);
+    }
+
+    private static void attendi(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.beachbooking.tenant;
+
+import com.beachbooking.metrics.AppMetrics;
+import com.beachbooking.model.entity.Tenant;
+import com.beachbooking.model.enums.StatoTenant;
+import com.beachbooking.security.JwtTokenProvider;
+import com.beachbooking.security.ParsedJwt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Il tenant del JWT è vincolante: header, dominio e slug non lo sostituiscono.
+ */
+class TenantInterceptorTest {
+
+    private final UUID tenantToken = UUID.randomUUID();
+    private final UUID altroTenant = UUID.randomUUID();
+
+    private TenantRegistry registry;
+    private JwtTokenProvider jwtTokenProvider;
+    private TenantInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        registry = mock(TenantRegistry.class);
+        jwtTokenProvider = mock(JwtTokenProvider.class);
+        interceptor = new TenantInterceptor();
+        ReflectionTestUtils.setField(interceptor, "tenantRegistry", registry);
+        ReflectionTestUtils.setField(interceptor, "jwtTokenProvider", jwtTokenProvider);
+        ReflectionTestUtils.setField(interceptor, "metrics", mock(AppMetrics.class));
+
+        TenantInfo altro = tenant(altroTenant, "lido-altro");
+        when(registry.findById(altroTenant)).thenReturn(altro);
+        when(registry.findBySlug("lido-altro")).thenReturn(altro);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+
+    @Test
+    void tenantDelTokenNonTrovatoRifiutato() throws Exception {
+        MockHttpServletRequest request = richiestaConToken();
+        request.addHeader("X-Tenant-ID", altroTenant.toString());
+        request.setParameter("tenantSlug", "lido-altro");
+        request.setServerName("lido-altro.beachbooking.com");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request, response, null)).isFalse();
+        assertThat(response.getStatus()).isEqualTo(403);
+        assertThat(TenantContext.getTenantId()).isNull();
+    }
+
+    @Test
+    void tenantDelTokenPrevaleSullHeader() throws Exception {
+        when(registry.findById(tenantToken)).thenReturn(tenant(tenantToken, "lido-token"));
+        MockHttpServletRequest request = richiestaConToken();
+        request.addHeader("X-Tenant-ID", altroTenant.toString());
+
+        assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), null)).isTrue();
+        assertThat(TenantContext.getTenantId()).isEqualTo(tenantToken);
+    }
+
+    @Test
+    void senzaTokenUsaLHeader() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/prenotazioni");
+        request.addHeader("X-Tenant-ID", altroTenant.toString());
+
+        assertThat(interceptor.preHandle(request, new MockHttpServletResponse(), null)).isTrue();
+        assertThat(TenantContext.getTenantId()).isEqualTo(altroTenant);
+    }
+
+    private MockHttpServletRequest richiestaConToken() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/prenotazioni");
+        ParsedJwt jwt = mock(ParsedJwt.class);
+        when(jwt.getTenantId()).thenReturn(tenantToken);
+        when(jwt.getRuolo()).thenReturn("CUSTOMER");
+        when(jwtTokenProvider.resolve(request)).thenReturn(jwt);
+        return request;
+    }
+
+    private static TenantInfo tenant(UUID id, String slug) {
+        return new TenantInfo(Tenant.builder()
+                .id(id)
+                .slug(slug)
+                .stato(StatoTenant.ACTIVE)
+                .build());
+    }
+}